@@ -32,7 +32,8 @@ public class Main {
                 config.getUserService(),
                 config.getCarService(),
                 config.getOrderService(),
-                config.getAuditService()
+                config.getAuditService(),
+                config.getShopStatistics()
         );
 
         mainDashboard.start();
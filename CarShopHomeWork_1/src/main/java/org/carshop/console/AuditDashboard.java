@@ -6,13 +6,19 @@ import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
 import org.carshop.services.UserService;
+import org.carshop.services.audit.ExportFormat;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -117,12 +123,15 @@ public class AuditDashboard {
      * @param currentUser текущий пользователь
      */
     private void sortAuditLogsByUsername(User currentUser) {
-        List<Audit> logs = auditService.getAuditLogs();
-        if (logs.isEmpty()) {
+        Map<String, List<Audit>> logsByUser = auditService.getAuditLogsGroupedByUser();
+        if (logsByUser.isEmpty()) {
             System.out.println("\nНет записей аудита.");
         } else {
-            logs.sort(Comparator.comparing(audit -> audit.getUser().getUsername()));
-            logs.forEach(this::displayAuditLog);
+            // группы упорядочиваются по последнему имени пользователя, записи внутри группы уже идут по порядку
+            List<List<Audit>> groups = new ArrayList<>(logsByUser.values());
+            groups.sort(Comparator.comparing(group -> group.get(group.size() - 1).getUsername(),
+                    Comparator.nullsFirst(Comparator.naturalOrder())));
+            groups.forEach(group -> group.forEach(this::displayAuditLog));
         }
         waitForUserInputAndReturnToMenu(currentUser);
     }
@@ -133,11 +142,10 @@ public class AuditDashboard {
      * @param currentUser текущий пользователь
      */
     private void sortAuditLogsByDate(User currentUser) {
-        List<Audit> logs = auditService.getAuditLogs();
+        List<Audit> logs = auditService.getAuditLogsOrderByDate();
         if (logs.isEmpty()) {
             System.out.println("\nНет записей аудита.");
         } else {
-            logs.sort(Comparator.comparing(Audit::getDate));
             logs.forEach(this::displayAuditLog);
         }
         waitForUserInputAndReturnToMenu(currentUser);
@@ -146,23 +154,69 @@ public class AuditDashboard {
     /**
      * Экспортирует записи аудита в файл.
      * <p>
-     * Запрашивает имя файла у пользователя и сохраняет все записи аудита в этот файл.
+     * Запрашивает имя файла, формат и необязательные фильтры по пользователю и датам. Записи пишутся в файл
+     * потоком, не загружая журнал в память. Если имя файла оканчивается на {@code .gz}, файл сжимается.
      * </p>
      */
     private void exportAuditLogs() {
         System.out.print("\nВведите имя файла для экспорта: ");
-        String fileName = scanner.nextLine();
-        try (FileWriter writer = new FileWriter(fileName)) {
-            List<Audit> logs = auditService.getAuditLogs();
-            for (Audit audit : logs) {
-                writer.write(formatAuditLog(audit) + "\n");
+        String fileName = scanner.nextLine().trim();
+        System.out.println("\n1. Текст");
+        System.out.println("2. CSV");
+        System.out.println("3. JSON Lines");
+        System.out.print("\nВыберите формат: ");
+        int choice = getValidatedChoice();
+        if (choice < 1 || choice > ExportFormat.values().length) {
+            System.out.println("\nНеверный выбор формата.");
+            return;
+        }
+        ExportFormat format = ExportFormat.values()[choice - 1];
+
+        System.out.print("Имя пользователя (пусто - все пользователи): ");
+        String username = scanner.nextLine().trim();
+        User user = null;
+        if (!username.isEmpty()) {
+            user = userService.findByUsername(username);
+            if (user == null) {
+                System.out.println("\nПользователь не найден.");
+                return;
             }
-            System.out.println("\nЖурнал действий экспортирован в файл: " + fileName);
-        } catch (IOException e) {
+        }
+        Date from;
+        Date to;
+        try {
+            from = readDay("Начальная дата (yyyy-MM-dd, пусто - без ограничения): ", 0);
+            to = readDay("Конечная дата включительно (yyyy-MM-dd, пусто - без ограничения): ", 1);
+        } catch (DateTimeParseException e) {
+            System.out.println("\nНекорректная дата.");
+            return;
+        }
+
+        try {
+            long count = auditService.exportAuditLogs(Paths.get(fileName), format, fileName.endsWith(".gz"), user, from, to);
+            System.out.println("\nЖурнал действий экспортирован в файл: " + fileName + " (записей: " + count + ")");
+        } catch (UncheckedIOException | InvalidPathException e) {
             System.out.println("\nОшибка при экспорте журнала действий.");
         }
     }
 
+    /**
+     * Считывает день и возвращает начало этого дня со сдвигом.
+     *
+     * @param prompt приглашение к вводу
+     * @param plusDays сдвиг в днях
+     * @return начало дня со сдвигом по часовому поясу системы, или {@code null}, если ввод пустой
+     */
+    private Date readDay(String prompt, int plusDays) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        if (input.isEmpty()) {
+            return null;
+        }
+        LocalDate day = LocalDate.parse(input).plusDays(plusDays);
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
     /**
      * Отображает запись аудита в консоль.
      *
@@ -179,10 +233,7 @@ public class AuditDashboard {
      * @return строка, представляющая запись аудита
      */
     private String formatAuditLog(Audit audit) {
-        return "ID: " + audit.getId() + "\n" +
-                "Пользователь: " + audit.getUser().getUsername() + "\n" +
-                "Действие: " + audit.getAction() + "\n" +
-                "Дата: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(audit.getDate()) + "\n";
+        return ExportFormat.TEXT.format(audit);
     }
 
     /**
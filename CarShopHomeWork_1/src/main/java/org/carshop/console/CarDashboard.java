@@ -1,5 +1,6 @@
 package org.carshop.console;
 
+import org.carshop.model.AuditAction;
 import org.carshop.model.Car;
 import org.carshop.model.ConditionCar;
 import org.carshop.model.User;
@@ -8,9 +9,19 @@ import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
 import org.carshop.services.UserService;
 import org.carshop.model.Role;
-
+import org.carshop.repositories.Page;
+import org.carshop.services.search.CarFacets;
+import org.carshop.services.search.CarQuery;
+import org.carshop.services.search.CarSortOrder;
+import org.carshop.services.search.PriceBand;
+
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 
 /**
@@ -22,6 +33,9 @@ import java.util.Scanner;
  */
 public class CarDashboard {
 
+    private static final int PAGE_SIZE = 10;
+    private static final int FACET_LIMIT = 5;
+
     private UserService userService;
     private CarService carService;
     private OrderService orderService;
@@ -117,9 +131,9 @@ public class CarDashboard {
         double price = getPriceInput("Введите цену автомобиля: ", "Цена автомобиля не может быть отрицательной.");
         ConditionCar condition = getCarCondition();
 
-        carService.addCar(make, model, year, price, condition.name());
-        auditService.logAction(currentUser, "Добавлен автомобиль " + make + " " + model
-                + " " + year + " " + price + " " + condition.name());
+        Car car = carService.addCar(make, model, year, price, condition.name());
+        auditService.logAction(currentUser, AuditAction.CAR_CREATED, car.getId(),
+                make, model, year, price, condition.name());
         System.out.println("\nАвтомобиль добавлен!");
     }
 
@@ -233,9 +247,8 @@ public class CarDashboard {
         if (car != null) {
             updateCarDetails(car);
             carService.updateCar(car);
-            auditService.logAction(currentUser, "Обновлен автомобиль под ID " + id + "\nМарка " + car.getMake()
-                    + "\nМодель " + car.getModel() + "\nГод выпуска " + car.getYear() + "\nЦена " + car.getPrice() +
-                    "\nСостояние " + car.getCondition());
+            auditService.logAction(currentUser, AuditAction.CAR_UPDATED, id, car.getMake(), car.getModel(),
+                    car.getYear(), car.getPrice(), car.getCondition());
         } else {
             System.out.println("\nАвтомобиль не найден.");
         }
@@ -379,11 +392,9 @@ public class CarDashboard {
         Car car = carService.getCarById(id);
         if (car != null) {
             carService.deleteCar(id);
-            auditService.logAction(currentUser, "Удален автомобиль " + car.getMake()
-                    + " " + car.getModel() + " " + car.getYear() + " " + car.getPrice()
-                    + " " + car.getCondition());
+            auditService.logAction(currentUser, AuditAction.CAR_DELETED, id, car.getMake(), car.getModel(),
+                    car.getYear(), car.getPrice(), car.getCondition());
             System.out.println("\nАвтомобиль удален.");
-            carService.updateCarIndices();
         } else {
             System.out.println("\nАвтомобиль не найден.");
         }
@@ -391,19 +402,49 @@ public class CarDashboard {
 
     /**
      * Просматривает все автомобили в системе.
+     * Автомобили выводятся постранично, следующая страница загружается по запросу пользователя.
      *
      * @param currentUser текущий пользователь
      */
     public void viewAllCars(User currentUser) {
-        List<Car> cars = carService.getAllCars();
-        if (cars.isEmpty()) {
+        Page<Car> page = carService.getCarsPage(null, PAGE_SIZE);
+        if (page.getItems().isEmpty()) {
             System.out.println("\nНет доступных автомобилей.");
         } else {
-            displayCars(cars);
+            displayCars(page.getItems());
+            while (page.hasNext() && promptNextPage()) {
+                page = carService.getCarsPage(page.getNextCursor(), PAGE_SIZE);
+                displayCars(page.getItems());
+            }
             showSortOrBackMenu(currentUser);
         }
     }
 
+    /**
+     * Спрашивает пользователя, показать ли следующую страницу списка.
+     *
+     * @return {@code true}, если пользователь выбрал следующую страницу
+     */
+    private boolean promptNextPage() {
+        while (true) {
+            System.out.println("\n1. Следующая страница");
+            System.out.println("0. Завершить просмотр");
+            System.out.print("\nВыберите опцию: ");
+            int choice;
+            try {
+                choice = Integer.parseInt(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.println("\nВведите корректное число.");
+                continue;
+            }
+
+            if (choice == 1 || choice == 0) {
+                return choice == 1;
+            }
+            System.out.println("\nНеверный выбор. Попробуйте снова.");
+        }
+    }
+
     /**
      * Отображает список всех автомобилей.
      *
@@ -481,6 +522,12 @@ public class CarDashboard {
                 case 4:
                     sortCarsByPrice();
                     break;
+                case 5:
+                    filterCarsByPriceRange();
+                    break;
+                case 6:
+                    searchCars();
+                    break;
                 case 0:
                     if (currentUser.getRole().equals(Role.CLIENT)) {
                         mainDashboard.clientDashboard(currentUser);
@@ -498,11 +545,14 @@ public class CarDashboard {
      * Отображает меню сортировки и фильтрации автомобилей.
      */
     private void displaySortAndFilterMenu() {
-        System.out.println("\nОпции сортировки и фильтрации\n");
-        System.out.println("1. Фильтровать по марке");
-        System.out.println("2. Фильтровать по модели");
-        System.out.println("3. Фильтровать по году выпуска");
+        CarFacets facets = carService.getFacets(new CarQuery());
+        System.out.println("\nОпции сортировки и фильтрации (автомобилей: " + facets.getTotal() + ")\n");
+        System.out.println("1. Фильтровать по марке" + formatFacet(facets.getMakes(), make -> make));
+        System.out.println("2. Фильтровать по модели" + formatFacet(facets.getModels(), model -> model));
+        System.out.println("3. Фильтровать по году выпуска" + formatFacet(facets.getYearBuckets(), CarDashboard::formatYearBucket));
         System.out.println("4. Сортировать по цене");
+        System.out.println("5. Фильтровать по диапазону цен" + formatFacet(facets.getPriceBands(), PriceBand::getDisplayName));
+        System.out.println("6. Поиск по нескольким условиям" + formatFacet(facets.getConditions(), ConditionCar::getDisplayName));
         System.out.println("0. Назад");
         System.out.print("\nВыберите опцию: ");
     }
@@ -548,6 +598,199 @@ public class CarDashboard {
         }
     }
 
+    /**
+     * Фильтрует автомобили по диапазону цен и отображает результат по возрастанию цены.
+     */
+    private void filterCarsByPriceRange() {
+        double min = getPriceInput("Введите минимальную цену: ", "Цена автомобиля не может быть отрицательной.");
+        double max = getPriceInput("Введите максимальную цену: ", "Цена автомобиля не может быть отрицательной.");
+        List<Car> filteredCars = carService.getCarsByPriceBetween(min, max);
+        if (filteredCars.isEmpty()) {
+            System.out.println("\nНет автомобилей с ценой от " + min + " до " + max + ".");
+        } else {
+            displayCars(filteredCars);
+        }
+    }
+
+    /**
+     * Ищет автомобили по нескольким условиям сразу и отображает результат постранично.
+     * Пустой ввод условия означает, что оно не ограничивает поиск.
+     */
+    private void searchCars() {
+        CarQuery query = new CarQuery()
+                .make(readList("Введите марки через запятую (Enter - любые): "))
+                .model(readList("Введите модели через запятую (Enter - любые): "))
+                .yearBetween(readOptionalInt("Год выпуска от (Enter - не ограничен): "),
+                        readOptionalInt("Год выпуска до (Enter - не ограничен): "))
+                .condition(readConditions())
+                .priceBetween(readOptionalDouble("Цена от (Enter - не ограничена): "),
+                        readOptionalDouble("Цена до (Enter - не ограничена): "));
+        CarSortOrder order = readSortOrder();
+        CarFacets facets = carService.getFacets(query);
+        if (facets.getTotal() == 0) {
+            System.out.println("\nНет автомобилей, подходящих под условия поиска.");
+            return;
+        }
+        System.out.println("\nНайдено автомобилей: " + facets.getTotal());
+        System.out.println("По маркам:" + formatFacet(facets.getMakes(), make -> make));
+        System.out.println("По годам выпуска:" + formatFacet(facets.getYearBuckets(), CarDashboard::formatYearBucket));
+        System.out.println("По состоянию:" + formatFacet(facets.getConditions(), ConditionCar::getDisplayName));
+        System.out.println("По цене:" + formatFacet(facets.getPriceBands(), PriceBand::getDisplayName));
+        try (Stream<Car> found = carService.searchCars(query, order)) {
+            Iterator<Car> cars = found.iterator();
+            do {
+                List<Car> page = new ArrayList<>(PAGE_SIZE);
+                while (page.size() < PAGE_SIZE && cars.hasNext()) {
+                    page.add(cars.next());
+                }
+                displayCars(page);
+            } while (cars.hasNext() && promptNextPage());
+        }
+    }
+
+    /**
+     * Форматирует количество автомобилей по значениям условия: самые частые значения и число остальных.
+     *
+     * @param counts количество автомобилей по значениям
+     * @param name имя значения для вывода
+     * @return строка вида {@code " [toyota: 12, honda: 8, еще 3]"}, или пустая строка, если значений нет
+     */
+    private static <K> String formatFacet(Map<K, Long> counts, Function<K, String> name) {
+        if (counts.isEmpty()) {
+            return "";
+        }
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(counts.entrySet());
+        if (entries.size() > FACET_LIMIT) {
+            entries.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+        }
+        StringBuilder result = new StringBuilder(" [");
+        for (int i = 0; i < Math.min(FACET_LIMIT, entries.size()); i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(name.apply(entries.get(i).getKey())).append(": ").append(entries.get(i).getValue());
+        }
+        if (entries.size() > FACET_LIMIT) {
+            result.append(", еще ").append(entries.size() - FACET_LIMIT);
+        }
+        return result.append("]").toString();
+    }
+
+    private static String formatYearBucket(int start) {
+        return start + "-" + (start + CarFacets.YEAR_BUCKET_SIZE - 1);
+    }
+
+    /**
+     * Считывает список значений через запятую.
+     *
+     * @param prompt приглашение к вводу
+     * @return непустые значения без пробелов по краям
+     */
+    private String[] readList(String prompt) {
+        System.out.print(prompt);
+        List<String> values = new ArrayList<>();
+        for (String value : scanner.nextLine().split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Считывает необязательное целое число.
+     *
+     * @param prompt приглашение к вводу
+     * @return введенное число, или {@code null}, если ввод пустой
+     */
+    private Integer readOptionalInt(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                System.out.println("\nВведите корректное число.");
+            }
+        }
+    }
+
+    /**
+     * Считывает необязательное неотрицательное дробное число.
+     *
+     * @param prompt приглашение к вводу
+     * @return введенное число, или {@code null}, если ввод пустой
+     */
+    private Double readOptionalDouble(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return null;
+            }
+            try {
+                double value = Double.parseDouble(input);
+                if (value >= 0) {
+                    return value;
+                }
+                System.out.println("\nЦена автомобиля не может быть отрицательной.");
+            } catch (NumberFormatException e) {
+                System.out.println("\nЦена автомобиля должна быть числом.");
+            }
+        }
+    }
+
+    /**
+     * Считывает допустимые состояния автомобиля по их номерам.
+     *
+     * @return выбранные состояния, пустой массив, если состояние не ограничено
+     */
+    private ConditionCar[] readConditions() {
+        ConditionCar[] conditions = ConditionCar.values();
+        for (int i = 0; i < conditions.length; i++) {
+            System.out.println(i + 1 + ". " + ConditionCar.getDisplayName(conditions[i]));
+        }
+        while (true) {
+            List<ConditionCar> selected = new ArrayList<>();
+            boolean valid = true;
+            for (String value : readList("Введите номера состояний через запятую (Enter - любые): ")) {
+                try {
+                    selected.add(conditions[Integer.parseInt(value) - 1]);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    valid = false;
+                }
+            }
+            if (valid) {
+                return selected.toArray(new ConditionCar[0]);
+            }
+            System.out.println("\nНеверный выбор. Попробуйте снова.");
+        }
+    }
+
+    /**
+     * Считывает порядок выдачи результатов поиска.
+     *
+     * @return порядок сортировки
+     */
+    private CarSortOrder readSortOrder() {
+        CarSortOrder[] orders = CarSortOrder.values();
+        System.out.println("\nПорядок выдачи:");
+        for (int i = 0; i < orders.length; i++) {
+            System.out.println(i + 1 + ". " + CarSortOrder.getDisplayName(orders[i]));
+        }
+        while (true) {
+            System.out.print("\nВыберите опцию: ");
+            int choice = mainDashboard.getUserChoice();
+            if (choice >= 1 && choice <= orders.length) {
+                return orders[choice - 1];
+            }
+            System.out.println("\nНеверный выбор. Попробуйте снова.");
+        }
+    }
+
     /**
      * Сортирует автомобили по цене и отображает результат.
      * Пользователь может выбрать сортировку по возрастанию или убыванию.
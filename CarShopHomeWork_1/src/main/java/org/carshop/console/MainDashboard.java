@@ -6,7 +6,9 @@ import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
 import org.carshop.services.UserService;
+import org.carshop.services.stats.ShopStatistics;
 
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -19,6 +21,7 @@ public class MainDashboard {
     private CarService carService;
     private OrderService orderService;
     private AuditService auditService;
+    private ShopStatistics shopStatistics;
     private CarDashboard carDashboard;
     private OrderDashboard orderDashboard;
     private UserDashboard userDashboard;
@@ -33,13 +36,15 @@ public class MainDashboard {
      * @param carService  сервис для управления автомобилями
      * @param orderService сервис для управления заказами
      * @param auditService сервис для управления аудитом
+     * @param shopStatistics сводная статистика склада и продаж
      */
     public MainDashboard(UserService userService, CarService carService,
-                         OrderService orderService, AuditService auditService) {
+                         OrderService orderService, AuditService auditService, ShopStatistics shopStatistics) {
         this.userService = userService;
         this.carService = carService;
         this.orderService = orderService;
         this.auditService = auditService;
+        this.shopStatistics = shopStatistics;
         this.carDashboard = new CarDashboard(userService, carService, orderService, auditService, this);
         this.orderDashboard = new OrderDashboard(userService, carService, orderService, auditService, this);
         this.userDashboard = new UserDashboard(userService, carService, orderService, auditService, this);
@@ -261,6 +266,7 @@ public class MainDashboard {
         System.out.println("2. Управление заказами");
         System.out.println("3. Управление пользователями");
         System.out.println("4. Просмотр журнала действий");
+        System.out.println("5. Сводка по складу и продажам");
         System.out.println("0. Выйти из системы");
         System.out.print("\nВыберите опцию: ");
     }
@@ -285,6 +291,9 @@ public class MainDashboard {
             case 4:
                 auditDashboard.manageAudit(admin);
                 break;
+            case 5:
+                displayOverview();
+                break;
             case 0:
                 System.out.println("\nВыход из системы...");
                 start();
@@ -294,6 +303,33 @@ public class MainDashboard {
         }
     }
 
+    /**
+     * Отображает сводку по складу и продажам. Показатели берутся из {@link ShopStatistics}
+     * без перебора автомобилей и заказов.
+     */
+    private void displayOverview() {
+        System.out.println("\nСводка по складу и продажам\n");
+        System.out.println("Автомобилей на складе: " + shopStatistics.getCarCount());
+        System.out.println("Общая стоимость склада: " + shopStatistics.getInventoryValue());
+        System.out.println("\nПо состоянию:");
+        for (Map.Entry<ConditionCar, Long> entry : shopStatistics.getCarCountsByCondition().entrySet()) {
+            System.out.println("  " + ConditionCar.getDisplayName(entry.getKey()) + ": " + entry.getValue());
+        }
+        System.out.println("\nПо марке:");
+        for (Map.Entry<String, Long> entry : shopStatistics.getCarCountsByMake().entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        System.out.println("\nПо году выпуска:");
+        for (Map.Entry<Integer, Long> entry : shopStatistics.getCarCountsByYear().entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        System.out.println("\nЗаказы:");
+        for (OrderStatus status : OrderStatus.values()) {
+            System.out.println("  " + OrderStatus.getDisplayName(status) + ": " + shopStatistics.getOrderCount(status));
+        }
+        System.out.println("\nВыручка по завершенным заказам: " + shopStatistics.getCompletedRevenue());
+    }
+
     /**
      * Отображает панель управления для менеджера.
      *
@@ -1,11 +1,13 @@
 package org.carshop.console;
 
 import org.carshop.model.*;
+import org.carshop.repositories.Page;
 import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
 import org.carshop.services.UserService;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Scanner;
@@ -16,6 +18,8 @@ import java.util.stream.Collectors;
  */
 public class OrderDashboard {
 
+    private static final int PAGE_SIZE = 10;
+
     private UserService userService;
     private CarService carService;
     private OrderService orderService;
@@ -132,14 +136,13 @@ public class OrderDashboard {
             return;
         }
 
-        if (isCarBooked(carId)) {
+        Order order = orderService.createOrder(client, car);
+        if (order == null) {
             System.out.println("\nЭтот автомобиль уже забронирован или продан.");
             return;
         }
-
-        orderService.createOrder(client, car);
         System.out.println("\nЗаказ создан.");
-        auditService.logAction(currentUser, "Добавлен заказ под " + login + " на автомобиль под ID: " + carId);
+        auditService.logAction(currentUser, AuditAction.ORDER_CREATED, order.getId(), login, carId);
         navigateAfterOrderCreation(currentUser);
     }
 
@@ -168,19 +171,6 @@ public class OrderDashboard {
         return scanner.nextLine();
     }
 
-    /**
-     * Проверяет, забронирован ли автомобиль.
-     *
-     * @param carId ID автомобиля
-     * @return true, если автомобиль забронирован, иначе false
-     */
-    private boolean isCarBooked(String carId) {
-        return orderService.getAllOrders().stream()
-                .anyMatch(order -> order.getCar().getId().equals(carId)
-                        && (order.getStatus() == OrderStatus.PENDING
-                        || order.getStatus() == OrderStatus.COMPLETED));
-    }
-
     /**
      * Переходит к соответствующей панели после создания заказа.
      *
@@ -206,7 +196,7 @@ public class OrderDashboard {
         if (order != null) {
             displayCurrentOrderStatus(order);
             if (canChangeStatus(order)) {
-                OrderStatus newStatus = getNewOrderStatus();
+                OrderStatus newStatus = getNewOrderStatus(order);
                 if (newStatus != null) {
                     updateOrder(order, newStatus, currentUser);
                 }
@@ -252,29 +242,43 @@ public class OrderDashboard {
      * @return true, если статус можно изменить, иначе false
      */
     private boolean canChangeStatus(Order order) {
-        if (order.getStatus() == OrderStatus.COMPLETED) {
-            System.out.println("\nЗаказ уже завершен. Статус не может быть изменен.");
+        if (getAllowedStatuses(order).isEmpty()) {
+            System.out.println("\nСтатус заказа не может быть изменен.");
             return false;
         }
         return true;
     }
 
     /**
-     * Получает новый статус заказа от ввода пользователя.
+     * Возвращает статусы, в которые можно перевести заказ по {@link OrderStatus#canTransitionTo}.
+     *
+     * @param order заказ
+     * @return допустимые новые статусы
+     */
+    private List<OrderStatus> getAllowedStatuses(Order order) {
+        return Arrays.stream(OrderStatus.values())
+                .filter(status -> order.getStatus() != null && order.getStatus().canTransitionTo(status))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Получает новый статус заказа от ввода пользователя. Предлагаются только допустимые статусы.
      *
+     * @param order заказ
      * @return новый статус заказа
      */
-    private OrderStatus getNewOrderStatus() {
+    private OrderStatus getNewOrderStatus(Order order) {
+        List<OrderStatus> statuses = getAllowedStatuses(order);
         System.out.println("Выберите новый статус:");
-        for (int i = 0; i < OrderStatus.values().length; i++) {
-            System.out.println((i + 1) + ". " + OrderStatus.getDisplayName(OrderStatus.values()[i]));
+        for (int i = 0; i < statuses.size(); i++) {
+            System.out.println((i + 1) + ". " + OrderStatus.getDisplayName(statuses.get(i)));
         }
 
         int choice = -1;
-        while (choice < 1 || choice > OrderStatus.values().length) {
+        while (choice < 1 || choice > statuses.size()) {
             try {
                 choice = Integer.parseInt(scanner.nextLine());
-                if (choice < 1 || choice > OrderStatus.values().length) {
+                if (choice < 1 || choice > statuses.size()) {
                     System.out.println("\nНеверный выбор. Попробуйте снова.");
                 }
             } catch (NumberFormatException e) {
@@ -282,7 +286,7 @@ public class OrderDashboard {
             }
         }
 
-        return OrderStatus.values()[choice - 1];
+        return statuses.get(choice - 1);
     }
 
     /**
@@ -293,29 +297,44 @@ public class OrderDashboard {
      * @param currentUser текущий пользователь
      */
     private void updateOrder(Order order, OrderStatus newStatus, User currentUser) {
-        if (newStatus == order.getStatus()) {
-            System.out.println("\nСтатус заказа уже установлен на: " + OrderStatus.getDisplayName(newStatus));
-        } else {
-            order.setStatus(newStatus);
-            orderService.updateOrder(order);
-            if (newStatus == OrderStatus.COMPLETED) {
-                updateClientPurchaseCount(order.getClient());
-            }
-            System.out.println("\nСтатус заказа обновлен на: " + OrderStatus.getDisplayName(newStatus));
-            auditService.logAction(currentUser, "Обновлен статус заказа под индексом: "
-                    + order.getId() + " на " + newStatus);
+        switch (orderService.changeOrderStatus(order, newStatus)) {
+            case APPLIED:
+                updateClientPurchaseCount(order, newStatus);
+                System.out.println("\nСтатус заказа обновлен на: " + OrderStatus.getDisplayName(newStatus));
+                auditService.logAction(currentUser, AuditAction.ORDER_STATUS_CHANGED, order.getId(), newStatus);
+                break;
+            case CONFLICT:
+                System.out.println("\nЗаказ был изменен другим пользователем. Откройте его заново и повторите.");
+                break;
+            case INVALID_TRANSITION:
+                System.out.println("\nНельзя перевести заказ из статуса \"" + OrderStatus.getDisplayName(order.getStatus())
+                        + "\" в статус \"" + OrderStatus.getDisplayName(newStatus) + "\".");
+                break;
+            case CAR_UNAVAILABLE:
+                System.out.println("\nАвтомобиль этого заказа уже забронирован или продан по другому заказу.");
+                break;
+            case NOT_FOUND:
+                System.out.println("\nЗаказ не найден.");
+                break;
         }
     }
 
     /**
-     * Обновляет количество покупок клиента после завершения заказа.
+     * Обновляет количество покупок клиента после смены статуса: завершение заказа добавляет покупку,
+     * отмена завершенного заказа снимает ее. Клиент в заказе - копия на момент заказа,
+     * поэтому количество меняется по идентификатору.
      *
-     * @param client клиент
+     * @param order заказ до смены статуса
+     * @param newStatus примененный статус
      */
-    private void updateClientPurchaseCount(User client) {
-        if (client != null) {
-            client.setPurchaseCount(client.getPurchaseCount() + 1);
-            userService.update(client);
+    private void updateClientPurchaseCount(Order order, OrderStatus newStatus) {
+        if (order.getClient() == null) {
+            return;
+        }
+        if (newStatus == OrderStatus.COMPLETED) {
+            userService.recordPurchase(order.getClient().getId());
+        } else if (order.getStatus() == OrderStatus.COMPLETED) {
+            userService.cancelPurchase(order.getClient().getId());
         }
     }
 
@@ -329,48 +348,54 @@ public class OrderDashboard {
         Order orderToDelete = findOrderById(orderId);
 
         if (orderToDelete != null) {
-            auditService.logAction(currentUser, "Удален заказ под индексом "
-                    + orderId + "\nКлиент " + orderToDelete.getClient().getUsername()
-                    + "\nАвтомобиль под ID " + orderToDelete.getCar().getId()
-                    + "\nДата " + orderToDelete.getDate()
-                    + "\nСтатус " + orderToDelete.getStatus());
+            auditService.logAction(currentUser, AuditAction.ORDER_DELETED, orderId, orderToDelete.getClient().getUsername(),
+                    orderToDelete.getCar().getId(), orderToDelete.getDate(), orderToDelete.getStatus());
             orderService.deleteOrder(orderId);
             System.out.println("\nЗаказ удален.");
-            reindexOrders();
         } else {
             System.out.println("\nЗаказ не найден.");
         }
     }
 
-    /**
-     * Изменяем индекс последующих заказов после удаленного.
-     *
-     */
-    private void reindexOrders() {
-        List<Order> allOrders = orderService.getAllOrders();
-        for (int i = 0; i < allOrders.size(); i++) {
-            Order order = allOrders.get(i);
-            // Устанавливаем новый индекс в зависимости от текущего порядка
-            order.setId(String.valueOf(i + 1));
-            orderService.updateOrder(order);
-        }
-    }
-
     /**
      * Просматривает все заказы и предоставляет возможность сортировки и фильтрации.
+     * Заказы выводятся постранично, следующая страница загружается по запросу пользователя.
      *
      * @param currentUser текущий пользователь
      */
     private void viewAllOrders(User currentUser) {
-        List<Order> orders = orderService.getAllOrders();
-        if (orders.isEmpty()) {
+        Page<Order> page = orderService.getOrdersPage(null, PAGE_SIZE);
+        if (page.getItems().isEmpty()) {
             System.out.println("\nНет доступных заказов.");
         } else {
-            displayOrders(orders);
+            displayOrders(page.getItems());
+            while (page.hasNext() && promptNextPage()) {
+                page = orderService.getOrdersPage(page.getNextCursor(), PAGE_SIZE);
+                displayOrders(page.getItems());
+            }
             showSortOrBackMenu(currentUser);
         }
     }
 
+    /**
+     * Спрашивает пользователя, показать ли следующую страницу списка.
+     *
+     * @return {@code true}, если пользователь выбрал следующую страницу
+     */
+    private boolean promptNextPage() {
+        int choice;
+        do {
+            System.out.println("\n1. Следующая страница");
+            System.out.println("0. Завершить просмотр");
+            System.out.print("\nВыберите опцию: ");
+            choice = getValidatedChoice();
+            if (choice != 1 && choice != 0) {
+                System.out.println("\nНеверный выбор. Попробуйте снова.");
+            }
+        } while (choice != 1 && choice != 0);
+        return choice == 1;
+    }
+
     /**
      * Отображает список заказов.
      *
@@ -484,9 +509,7 @@ public class OrderDashboard {
      * @param currentUser Текущий пользователь
      */
     public void filterByClientId(User currentUser) {
-        List<Order> filterOrder = orderService.getAllOrders().stream()
-                .filter(order -> order.getClient().getId().equals(currentUser.getId()))
-                .collect(Collectors.toList());
+        List<Order> filterOrder = orderService.getOrdersByClientId(currentUser.getId());
 
         if (filterOrder.isEmpty()) {
             System.out.println("Заказов не найдено");
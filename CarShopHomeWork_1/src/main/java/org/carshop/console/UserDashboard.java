@@ -1,7 +1,9 @@
 package org.carshop.console;
 
+import org.carshop.model.AuditAction;
 import org.carshop.model.Role;
 import org.carshop.model.User;
+import org.carshop.repositories.Page;
 import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
@@ -16,6 +18,8 @@ import java.util.Scanner;
  */
 public class UserDashboard {
 
+    private static final int PAGE_SIZE = 10;
+
     private UserService userService;
     private CarService carService;
     private OrderService orderService;
@@ -113,12 +117,17 @@ public class UserDashboard {
 
     /**
      * Отображает и обрабатывает меню просмотра всех пользователей.
+     * Пользователи выводятся постранично, следующая страница загружается по запросу.
      *
      * @param currentUser Текущий пользователь
      */
     private void handleViewAllUsers(User currentUser) {
-        List<User> users = userService.getAllUsers();
-        displayUsers(users);
+        Page<User> page = userService.getUsersPage(null, PAGE_SIZE);
+        displayUsers(page.getItems());
+        while (page.hasNext() && promptNextPage()) {
+            page = userService.getUsersPage(page.getNextCursor(), PAGE_SIZE);
+            displayUsers(page.getItems());
+        }
 
         while (true) {
             displayViewAllUsersMenu();
@@ -127,6 +136,24 @@ public class UserDashboard {
         }
     }
 
+    /**
+     * Спрашивает, показать ли следующую страницу списка пользователей.
+     *
+     * @return {@code true}, если выбрана следующая страница
+     */
+    private boolean promptNextPage() {
+        while (true) {
+            System.out.println("\n1. Следующая страница");
+            System.out.println("0. Завершить просмотр");
+            System.out.print("\nВыберите опцию: ");
+            int choice = getValidatedChoice();
+            if (choice == 1 || choice == 0) {
+                return choice == 1;
+            }
+            System.out.println("\nНеверный выбор. Попробуйте снова.");
+        }
+    }
+
     /**
      * Отображает меню для просмотра всех пользователей.
      */
@@ -294,7 +321,8 @@ public class UserDashboard {
         boolean registered = userService.registerUser(login, password, role);
         if (registered) {
             System.out.println("\nПользователь добавлен.");
-            auditService.logAction(currentUser, "Добавлен новый пользователь: " + login);
+            User created = userService.findByUsername(login);
+            auditService.logAction(currentUser, AuditAction.USER_CREATED, created == null ? null : created.getId(), login);
         } else {
             System.out.println("\nПользователь с таким логином уже существует.");
         }
@@ -362,8 +390,7 @@ public class UserDashboard {
         if (userToDelete != null) {
             userService.delete(userId);
             System.out.println("\nПользователь удален.");
-            auditService.logAction(currentUser, "Удален пользователь: " + userToDelete.getUsername());
-            userService.updateUserIndices();
+            auditService.logAction(currentUser, AuditAction.USER_DELETED, userId, userToDelete.getUsername());
         } else {
             System.out.println("\nПользователь с ID " + userId + " не найден.");
         }
@@ -429,7 +456,7 @@ public class UserDashboard {
             userService.update(userToUpdate); // Обновляем пользователя
 
             System.out.println("\nПользователь обновлен.");
-            auditService.logAction(currentUser, "Обновлен пользователь: " + userId);
+            auditService.logAction(currentUser, AuditAction.USER_UPDATED, userId);
         } else {
             System.out.println("\nПользователь не найден.");
         }
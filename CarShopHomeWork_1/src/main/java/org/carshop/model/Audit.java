@@ -5,16 +5,100 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Класс для представления аудита действий пользователя.
+ * <p>Запись хранит идентификатор и имя пользователя на момент действия, а не ссылку на изменяемый
+ * объект {@link User}, поэтому последующие изменения профиля не влияют на журнал и поиск по нему.</p>
+ * <p>Действие хранится кодом {@link AuditAction}, идентификатором сущности и значениями параметров
+ * в порядке {@link AuditAction#getParameterNames()}. Текст сообщения собирается только при вызове
+ * {@link #getMessage()}.</p>
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Audit {
     private String id;
-    private User user;
-    private String action;
+    private String userId;
+    private String username;
+    private AuditAction action;
+    private String entityId;
+    private String[] values;
     private Date date;
+
+    /**
+     * Создает запись аудита о действии пользователя над сущностью.
+     *
+     * @param id идентификатор записи
+     * @param user пользователь, совершивший действие
+     * @param action код действия
+     * @param entityId идентификатор сущности
+     * @param values значения параметров действия
+     * @param date время действия
+     */
+    public Audit(String id, User user, AuditAction action, String entityId, String[] values, Date date) {
+        this(id, user == null ? null : user.getId(), user == null ? null : user.getUsername(), action, entityId, values, date);
+    }
+
+    /**
+     * Создает запись аудита с произвольным описанием действия.
+     *
+     * @param id идентификатор записи
+     * @param user пользователь, совершивший действие
+     * @param message описание действия
+     * @param date время действия
+     */
+    public Audit(String id, User user, String message, Date date) {
+        this(id, user, AuditAction.CUSTOM, null, new String[]{message}, date);
+    }
+
+    /**
+     * Создает запись аудита с произвольным описанием действия.
+     *
+     * @param id идентификатор записи
+     * @param userId идентификатор пользователя
+     * @param username имя пользователя
+     * @param message описание действия
+     * @param date время действия
+     */
+    public Audit(String id, String userId, String username, String message, Date date) {
+        this(id, userId, username, AuditAction.CUSTOM, null, new String[]{message}, date);
+    }
+
+    /**
+     * Возвращает тип сущности, к которой относится действие.
+     *
+     * @return тип сущности, или {@code null}, если действие не относится к сущности
+     */
+    public EntityType getEntityType() {
+        return action == null ? null : action.getEntityType();
+    }
+
+    /**
+     * Возвращает параметры действия по именам.
+     *
+     * @return новый изменяемый словарь параметров в порядке их объявления в действии
+     */
+    public Map<String, String> getParams() {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (action != null && values != null) {
+            List<String> names = action.getParameterNames();
+            for (int i = 0; i < names.size() && i < values.length; i++) {
+                params.put(names.get(i), values[i]);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Собирает текст сообщения о действии.
+     *
+     * @return текст сообщения, или {@code null}, если действие не задано
+     */
+    public String getMessage() {
+        return action == null ? null : action.render(entityId, values);
+    }
 }
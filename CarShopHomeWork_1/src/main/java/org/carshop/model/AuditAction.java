@@ -0,0 +1,97 @@
+package org.carshop.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Перечисление действий, записываемых в журнал аудита.
+ * <p>Каждое действие задает тип сущности, имена параметров и шаблон сообщения. Шаблон разбирается один раз
+ * при загрузке класса, а сообщение собирается из параметров только при выводе или экспорте записи.
+ * В шаблоне {@code {id}} обозначает идентификатор сущности, остальные подстановки - параметры действия.</p>
+ */
+public enum AuditAction {
+    CAR_CREATED(EntityType.CAR, "Добавлен автомобиль {make} {model} {year} {price} {condition}",
+            "make", "model", "year", "price", "condition"),
+    CAR_UPDATED(EntityType.CAR, "Обновлен автомобиль под ID {id}\nМарка {make}\nМодель {model}\nГод выпуска {year}"
+            + "\nЦена {price}\nСостояние {condition}", "make", "model", "year", "price", "condition"),
+    CAR_DELETED(EntityType.CAR, "Удален автомобиль {make} {model} {year} {price} {condition}",
+            "make", "model", "year", "price", "condition"),
+    ORDER_CREATED(EntityType.ORDER, "Добавлен заказ под {client} на автомобиль под ID: {carId}", "client", "carId"),
+    ORDER_STATUS_CHANGED(EntityType.ORDER, "Обновлен статус заказа под индексом: {id} на {status}", "status"),
+    ORDER_DELETED(EntityType.ORDER, "Удален заказ под индексом {id}\nКлиент {client}\nАвтомобиль под ID {carId}"
+            + "\nДата {date}\nСтатус {status}", "client", "carId", "date", "status"),
+    USER_CREATED(EntityType.USER, "Добавлен новый пользователь: {username}", "username"),
+    USER_UPDATED(EntityType.USER, "Обновлен пользователь: {id}"),
+    USER_DELETED(EntityType.USER, "Удален пользователь: {username}", "username"),
+    /**
+     * Действие с произвольным текстом, не относящееся к сущности.
+     */
+    CUSTOM(null, "{message}", "message");
+
+    private static final int ENTITY_ID = -1;
+
+    private final EntityType entityType;
+    private final List<String> parameterNames;
+    private final String[] literals;
+    private final int[] placeholders;
+
+    AuditAction(EntityType entityType, String template, String... parameterNames) {
+        this.entityType = entityType;
+        this.parameterNames = Collections.unmodifiableList(Arrays.asList(parameterNames));
+        List<String> parsedLiterals = new ArrayList<>();
+        List<Integer> parsedPlaceholders = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = template.indexOf('{', position)) >= 0) {
+            int close = template.indexOf('}', open);
+            String name = template.substring(open + 1, close);
+            parsedLiterals.add(template.substring(position, open));
+            parsedPlaceholders.add("id".equals(name) ? ENTITY_ID : this.parameterNames.indexOf(name));
+            position = close + 1;
+        }
+        parsedLiterals.add(template.substring(position));
+        this.literals = parsedLiterals.toArray(new String[0]);
+        this.placeholders = parsedPlaceholders.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Возвращает тип сущности, к которой относится действие.
+     *
+     * @return тип сущности, или {@code null}, если действие не относится к сущности
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Возвращает имена параметров действия в порядке их значений в записи аудита.
+     *
+     * @return неизменяемый список имен параметров
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Собирает сообщение о действии по шаблону.
+     *
+     * @param entityId идентификатор сущности
+     * @param values значения параметров в порядке {@link #getParameterNames()}
+     * @return текст сообщения
+     */
+    public String render(String entityId, String[] values) {
+        StringBuilder message = new StringBuilder(64);
+        for (int i = 0; i < placeholders.length; i++) {
+            message.append(literals[i]);
+            int index = placeholders[i];
+            if (index == ENTITY_ID) {
+                message.append(entityId);
+            } else {
+                message.append(values != null && index < values.length ? values[index] : null);
+            }
+        }
+        return message.append(literals[placeholders.length]).toString();
+    }
+}
@@ -18,4 +18,13 @@ public class Car {
     private int year;
     private double price;
     private String condition;
+
+    /**
+     * Создает копию автомобиля.
+     *
+     * @param other автомобиль для копирования
+     */
+    public Car(Car other) {
+        this(other.id, other.make, other.model, other.year, other.price, other.condition);
+    }
 }
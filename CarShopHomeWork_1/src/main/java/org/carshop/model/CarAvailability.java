@@ -0,0 +1,22 @@
+package org.carshop.model;
+
+/**
+ * Перечисление состояний доступности автомобиля для заказа.
+ */
+public enum CarAvailability {
+    AVAILABLE, RESERVED, SOLD;
+
+    /**
+     * Возвращает состояние автомобиля, которое задает заказ в указанном статусе.
+     *
+     * @param status статус заказа
+     * @return {@link #RESERVED} для заказа в ожидании, {@link #SOLD} для завершенного заказа,
+     * {@link #AVAILABLE} для отмененного заказа или если статус не задан
+     */
+    public static CarAvailability of(OrderStatus status) {
+        if (status == OrderStatus.PENDING) {
+            return RESERVED;
+        }
+        return status == OrderStatus.COMPLETED ? SOLD : AVAILABLE;
+    }
+}
@@ -0,0 +1,8 @@
+package org.carshop.model;
+
+/**
+ * Перечисление типов сущностей, к которым относятся записи аудита.
+ */
+public enum EntityType {
+    CAR, ORDER, USER
+}
@@ -8,6 +8,8 @@ import java.util.Date;
 
 /**
  * Представляет заказ на покупку автомобиля.
+ * <p>Версия заказа увеличивается при каждом изменении в репозитории и используется для оптимистичной
+ * проверки: статус меняется, только если заказ не изменился с момента чтения.</p>
  */
 @Data
 @AllArgsConstructor
@@ -18,4 +20,27 @@ public class Order {
     private Car car;
     private Date date;
     private OrderStatus status;
+    private long version;
+
+    /**
+     * Создает новый заказ с нулевой версией.
+     *
+     * @param id идентификатор заказа
+     * @param client клиент
+     * @param car автомобиль
+     * @param date дата заказа
+     * @param status статус заказа
+     */
+    public Order(String id, User client, Car car, Date date, OrderStatus status) {
+        this(id, client, car, date, status, 0);
+    }
+
+    /**
+     * Создает копию заказа. Клиент и автомобиль не копируются, копия ссылается на те же объекты.
+     *
+     * @param other заказ для копирования
+     */
+    public Order(Order other) {
+        this(other.id, other.client, other.car, other.date, other.status, other.version);
+    }
 }
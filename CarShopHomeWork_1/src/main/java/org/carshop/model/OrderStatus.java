@@ -24,4 +24,35 @@ public enum OrderStatus {
                 return orderStatus.name();
         }
     }
+
+    /**
+     * Проверяет, допустим ли переход заказа из этого статуса в указанный.
+     * Заказ в ожидании можно завершить или отменить, завершенный заказ можно отменить,
+     * а отмененный заказ можно возобновить.
+     *
+     * @param target новый статус
+     * @return {@code true}, если переход допустим
+     */
+    public boolean canTransitionTo(OrderStatus target) {
+        switch (this) {
+            case PENDING:
+                return target == COMPLETED || target == CANCELED;
+            case COMPLETED:
+                return target == CANCELED;
+            case CANCELED:
+                return target == PENDING;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Проверяет, удерживает ли заказ в этом статусе автомобиль.
+     * Автомобиль считается занятым, пока заказ ожидает подтверждения или уже завершен (автомобиль продан).
+     *
+     * @return {@code true} для статусов {@link #PENDING} и {@link #COMPLETED}
+     */
+    public boolean isActive() {
+        return this == PENDING || this == COMPLETED;
+    }
 }
@@ -30,4 +30,14 @@ public class User {
         this.role = role;
         this.purchaseCount = 0;
     }
+
+    /**
+     * Создает копию пользователя, включая количество покупок.
+     *
+     * @param other пользователь для копирования
+     */
+    public User(User other) {
+        this(other.id, other.username, other.password, other.role);
+        this.purchaseCount = other.purchaseCount;
+    }
 }
@@ -1,23 +1,70 @@
 package org.carshop.repositories;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.carshop.model.Role;
+import org.carshop.repositories.auditlog.RetentionPolicy;
+import org.carshop.repositories.auditlog.SegmentedAuditRepository;
+import org.carshop.repositories.cache.CachingCarRepository;
+import org.carshop.repositories.cache.CachingOrderRepository;
+import org.carshop.repositories.cache.CachingUserRepository;
+import org.carshop.repositories.events.ObservableCarRepository;
+import org.carshop.repositories.events.ObservableOrderRepository;
+import org.carshop.repositories.jdbc.DataSourceFactory;
+import org.carshop.repositories.jdbc.JdbcCarRepository;
+import org.carshop.repositories.jdbc.JdbcOrderRepository;
+import org.carshop.repositories.jdbc.JdbcUserRepository;
+import org.carshop.repositories.jdbc.SchemaMigration;
+import org.carshop.repositories.wal.DurableCarRepository;
+import org.carshop.repositories.wal.DurableOrderRepository;
+import org.carshop.repositories.wal.DurableUserRepository;
 import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
 import org.carshop.services.UserService;
+import org.carshop.services.audit.AuditPipeline;
+import org.carshop.services.audit.OverflowPolicy;
+import org.carshop.services.search.CarSearchEngine;
+import org.carshop.services.stats.ShopStatistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
 
 /**
  * Конфигурационный класс для инициализации сервисов и репозиториев приложения.
  *
  * <p>Этот класс настраивает репозитории и сервисы для работы с пользователями, автомобилями, заказами и аудитом.
  * Также он инициализирует начальных пользователей в системе.</p>
+ * <p>Способ хранения задается свойством {@code carshop.storage.mode} в {@code application.properties}
+ * или одноименным системным свойством: {@code memory} хранит данные только в памяти, {@code wal}
+ * сохраняет их на диск в журнал и снимки в директории {@code carshop.storage.directory}, {@code jdbc}
+ * хранит их в базе данных PostgreSQL по адресу {@code spring.datasource.url}, схема которой при запуске
+ * обновляется по журналу изменений {@code spring.liquibase.change-log}.</p>
+ * <p>Для хранилищ {@code wal} и {@code jdbc} свойство {@code carshop.cache.enabled} включает кеш поиска
+ * по идентификатору и имени пользователя перед репозиториями размером {@code carshop.cache.max-size}
+ * записей и временем жизни записи {@code carshop.cache.ttl-seconds}. Хранилищу в памяти кеш не нужен.</p>
+ * <p>Журнал аудита записывается в фоне пакетами. Размер очереди, размер пакета и поведение при заполненной
+ * очереди задаются свойствами {@code carshop.audit.*}, при завершении приложения очередь сохраняется полностью.
+ * Свойство {@code carshop.audit.storage=disk} сохраняет аудит в сегментированный сжатый журнал в директории
+ * {@code carshop.audit.directory} со сроком хранения {@code carshop.audit.retention-days}.</p>
+ * <p>Репозитории автомобилей и заказов оборачиваются в {@link ObservableCarRepository} и
+ * {@link ObservableOrderRepository}, на записи которых подписаны сводная статистика {@link ShopStatistics},
+ * поисковый индекс автомобилей {@link CarSearchEngine} и таблица бронирований {@link OrderService}.</p>
  */
 public class ApplicationConfig {
 
+    private static final String PROPERTIES_FILE = "application.properties";
+
     private final UserService userService;
     private final CarService carService;
     private final OrderService orderService;
     private final AuditService auditService;
+    private final ShopStatistics shopStatistics;
 
     /**
      * Конструктор класса {@code ApplicationConfig}.
@@ -26,14 +73,94 @@ public class ApplicationConfig {
      * и инициализирует соответствующие сервисы. Также добавляет начальных пользователей в систему.</p>
      */
     public ApplicationConfig() {
-        InMemoryUserRepository userRepository = new InMemoryUserRepository();
-        InMemoryCarRepository carRepository = new InMemoryCarRepository();
-        InMemoryOrderRepository orderRepository = new InMemoryOrderRepository();
+        Properties properties = loadProperties();
+        UserRepository userRepository;
+        CarRepository carRepository;
+        OrderRepository orderRepository;
+        String mode = properties.getProperty("carshop.storage.mode", "memory");
+        if ("wal".equalsIgnoreCase(mode)) {
+            Path directory = Paths.get(properties.getProperty("carshop.storage.directory", "data"));
+            long snapshotInterval = Long.parseLong(properties.getProperty("carshop.storage.snapshot-interval", "100000"));
+            DurableUserRepository durableUsers = new DurableUserRepository(directory.resolve("users"), snapshotInterval);
+            DurableCarRepository durableCars = new DurableCarRepository(directory.resolve("cars"), snapshotInterval);
+            DurableOrderRepository durableOrders = new DurableOrderRepository(directory.resolve("orders"), snapshotInterval);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                durableOrders.close();
+                durableCars.close();
+                durableUsers.close();
+            }));
+            userRepository = durableUsers;
+            carRepository = durableCars;
+            orderRepository = durableOrders;
+        } else if ("jdbc".equalsIgnoreCase(mode)) {
+            HikariDataSource dataSource = DataSourceFactory.create(
+                    properties.getProperty("spring.datasource.url"),
+                    properties.getProperty("spring.datasource.username"),
+                    properties.getProperty("spring.datasource.password"));
+            Runtime.getRuntime().addShutdownHook(new Thread(dataSource::close));
+            SchemaMigration.migrate(dataSource,
+                    properties.getProperty("spring.liquibase.change-log", SchemaMigration.DEFAULT_CHANGE_LOG));
+            userRepository = new JdbcUserRepository(dataSource);
+            carRepository = new JdbcCarRepository(dataSource);
+            orderRepository = new JdbcOrderRepository(dataSource);
+        } else if ("memory".equalsIgnoreCase(mode)) {
+            userRepository = new InMemoryUserRepository();
+            carRepository = new InMemoryCarRepository();
+            orderRepository = new InMemoryOrderRepository();
+        } else {
+            throw new IllegalArgumentException("Неизвестный способ хранения: " + mode);
+        }
+
+        if (!"memory".equalsIgnoreCase(mode) && Boolean.parseBoolean(properties.getProperty("carshop.cache.enabled", "false"))) {
+            int maximumSize = Integer.parseInt(properties.getProperty("carshop.cache.max-size", "10000"));
+            Duration ttl = Duration.ofSeconds(Long.parseLong(properties.getProperty("carshop.cache.ttl-seconds", "600")));
+            userRepository = new CachingUserRepository(userRepository, maximumSize, ttl);
+            carRepository = new CachingCarRepository(carRepository, maximumSize, ttl);
+            orderRepository = new CachingOrderRepository(orderRepository, maximumSize, ttl);
+        }
+
+        ObservableCarRepository observableCars = new ObservableCarRepository(carRepository);
+        ObservableOrderRepository observableOrders = new ObservableOrderRepository(orderRepository);
+        shopStatistics = ShopStatistics.subscribe(observableCars, observableOrders);
+        carRepository = observableCars;
+        orderRepository = observableOrders;
 
         userService = new UserService(userRepository, orderRepository);
-        carService = new CarService(carRepository);
+        carService = new CarService(carRepository, CarSearchEngine.subscribe(observableCars));
         orderService = new OrderService(orderRepository);
-        auditService = new AuditService();
+        observableCars.addListener(orderService::carWritten);
+        AuditRepository auditRepository;
+        SegmentedAuditRepository segmentedAudit = null;
+        String auditStorage = properties.getProperty("carshop.audit.storage", "memory");
+        if ("disk".equalsIgnoreCase(auditStorage)) {
+            String retentionDays = properties.getProperty("carshop.audit.retention-days", "");
+            segmentedAudit = new SegmentedAuditRepository(
+                    Paths.get(properties.getProperty("carshop.audit.directory", "data/audit")),
+                    Long.parseLong(properties.getProperty("carshop.audit.segment-size-bytes",
+                            String.valueOf(SegmentedAuditRepository.DEFAULT_SEGMENT_BYTES))),
+                    Duration.ofHours(Long.parseLong(properties.getProperty("carshop.audit.segment-max-age-hours",
+                            String.valueOf(SegmentedAuditRepository.DEFAULT_SEGMENT_AGE.toHours())))),
+                    new RetentionPolicy(retentionDays.trim().isEmpty() ? null : Duration.ofDays(Long.parseLong(retentionDays.trim())),
+                            Long.parseLong(properties.getProperty("carshop.audit.retention-bytes", "0"))));
+            auditRepository = segmentedAudit;
+        } else if ("memory".equalsIgnoreCase(auditStorage)) {
+            auditRepository = new InMemoryAuditRepository();
+        } else {
+            throw new IllegalArgumentException("Неизвестный способ хранения аудита: " + auditStorage);
+        }
+        AuditPipeline auditPipeline = new AuditPipeline(auditRepository,
+                Integer.parseInt(properties.getProperty("carshop.audit.queue-capacity", String.valueOf(AuditPipeline.DEFAULT_CAPACITY))),
+                Integer.parseInt(properties.getProperty("carshop.audit.batch-size", String.valueOf(AuditPipeline.DEFAULT_BATCH_SIZE))),
+                OverflowPolicy.valueOf(properties.getProperty("carshop.audit.overflow", "BLOCK").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(properties.getProperty("carshop.audit.sample-rate", "10")));
+        auditService = new AuditService(auditRepository, auditPipeline);
+        SegmentedAuditRepository auditLog = segmentedAudit;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            auditService.close();
+            if (auditLog != null) {
+                auditLog.close();
+            }
+        }));
 
         // Инициализация пользователей
         userService.registerUser("admin", "admin", Role.ADMIN);
@@ -41,6 +168,24 @@ public class ApplicationConfig {
         userService.registerUser("user", "user", Role.CLIENT);
     }
 
+    /**
+     * Загружает настройки из {@code application.properties}. Системные свойства имеют приоритет.
+     *
+     * @return настройки приложения
+     */
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+        try (InputStream in = ApplicationConfig.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + PROPERTIES_FILE, e);
+        }
+        properties.putAll(System.getProperties());
+        return properties;
+    }
+
     /**
      * Возвращает сервис для управления пользователями.
      *
@@ -76,4 +221,13 @@ public class ApplicationConfig {
     public AuditService getAuditService() {
         return auditService;
     }
+
+    /**
+     * Возвращает сводную статистику склада и продаж.
+     *
+     * @return экземпляр {@link ShopStatistics}
+     */
+    public ShopStatistics getShopStatistics() {
+        return shopStatistics;
+    }
 }
@@ -0,0 +1,108 @@
+package org.carshop.repositories;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Интерфейс для работы с репозиторием записей аудита.
+ * <p>Записи аудита только добавляются и не должны изменяться после сохранения.</p>
+ */
+public interface AuditRepository {
+
+    /**
+     * Сохраняет запись аудита.
+     *
+     * @param audit запись аудита
+     */
+    void save(Audit audit);
+
+    /**
+     * Сохраняет несколько записей аудита. Реализации могут записывать их одним пакетом.
+     *
+     * @param audits записи аудита
+     */
+    default void saveAll(Collection<Audit> audits) {
+        audits.forEach(this::save);
+    }
+
+    /**
+     * Возвращает все записи аудита в порядке добавления.
+     *
+     * @return список записей аудита
+     */
+    List<Audit> findAll();
+
+    /**
+     * Возвращает ленивый поток всех записей аудита в порядке добавления.
+     * Записи читаются по мере обхода, без построения промежуточного списка. Реализации, хранящие
+     * записи вне памяти, могут удерживать ресурсы до закрытия потока, поэтому поток нужно закрывать,
+     * например в блоке try-with-resources.
+     *
+     * @return поток записей аудита
+     */
+    Stream<Audit> stream();
+
+    /**
+     * Возвращает все записи аудита, упорядоченные по времени.
+     * Записи с одинаковым временем идут в порядке добавления.
+     *
+     * @return список записей аудита по возрастанию времени
+     */
+    List<Audit> findAllOrderByDate();
+
+    /**
+     * Находит записи аудита за промежуток времени, упорядоченные по времени.
+     *
+     * @param from начало промежутка включительно
+     * @param to конец промежутка, не включая его
+     * @return список записей аудита по возрастанию времени
+     */
+    List<Audit> findBetween(Date from, Date to);
+
+    /**
+     * Находит записи аудита пользователя в порядке добавления.
+     *
+     * @param userId идентификатор пользователя
+     * @return список записей аудита пользователя
+     */
+    List<Audit> findByUserId(String userId);
+
+    /**
+     * Находит записи аудита о действии в порядке добавления.
+     *
+     * @param action код действия
+     * @return список записей аудита о действии
+     */
+    List<Audit> findByAction(AuditAction action);
+
+    /**
+     * Возвращает записи аудита, сгруппированные по идентификатору пользователя.
+     * Внутри группы записи идут в порядке добавления.
+     *
+     * @return записи аудита по идентификатору пользователя
+     */
+    Map<String, List<Audit>> findAllGroupedByUserId();
+
+    /**
+     * Возвращает количество записей аудита.
+     *
+     * @return количество записей
+     */
+    long count();
+
+    /**
+     * Возвращает наибольший числовой идентификатор среди сохраненных записей, чтобы после перезапуска
+     * новые записи продолжали последовательность. Репозитории, не переживающие перезапуск, его не хранят.
+     *
+     * @return наибольший идентификатор, или {@code null}, если он неизвестен
+     */
+    default String lastId() {
+        return null;
+    }
+}
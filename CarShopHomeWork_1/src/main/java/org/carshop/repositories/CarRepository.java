@@ -2,7 +2,10 @@ package org.carshop.repositories;
 
 import org.carshop.model.Car;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 
 /**
@@ -17,6 +20,15 @@ public interface CarRepository {
      */
     void save(Car car);
 
+    /**
+     * Сохраняет несколько автомобили. Реализации могут записывать их одним пакетом.
+     *
+     * @param cars автомобили для сохранения
+     */
+    default void saveAll(Collection<Car> cars) {
+        cars.forEach(this::save);
+    }
+
     /**
      * Находит автомобиль по его идентификатору.
      *
@@ -27,11 +39,102 @@ public interface CarRepository {
 
     /**
      * Возвращает список всех автомобилей в репозитории.
+     * Список может быть неизменяемым снимком, вызывающий код не должен его изменять.
      *
      * @return список всех автомобилей
      */
     List<Car> findAll();
 
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     * Курсор указывает на последний элемент предыдущей страницы, поэтому листание не зависит от
+     * добавления и удаления записей между запросами.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество автомобилей на странице
+     * @return страница автомобилей
+     */
+    Page<Car> findPage(String cursor, int limit);
+
+    /**
+     * Возвращает ленивый поток всех автомобилей в порядке добавления.
+     * Элементы читаются по мере обхода, без построения промежуточного списка. Реализации, хранящие
+     * данные вне памяти, могут удерживать ресурсы до закрытия потока, поэтому поток нужно закрывать,
+     * например в блоке try-with-resources.
+     *
+     * @return поток автомобилей
+     */
+    Stream<Car> stream();
+
+    /**
+     * Возвращает ленивый поток автомобилей, удовлетворяющих условию.
+     * Реализации могут выполнять фильтрацию на стороне хранилища, по умолчанию условие применяется к {@link #stream()}.
+     *
+     * @param filter условие отбора
+     * @return поток автомобилей, удовлетворяющих условию
+     */
+    default Stream<Car> stream(Predicate<? super Car> filter) {
+        return stream().filter(filter);
+    }
+
+    /**
+     * Находит автомобили указанной марки без учета регистра.
+     *
+     * @param make марка автомобиля
+     * @return список автомобилей с указанной маркой
+     */
+    List<Car> findByMake(String make);
+
+    /**
+     * Находит автомобили указанной модели без учета регистра.
+     *
+     * @param model модель автомобиля
+     * @return список автомобилей с указанной моделью
+     */
+    List<Car> findByModel(String model);
+
+    /**
+     * Находит автомобили указанного года выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей с указанным годом выпуска
+     */
+    List<Car> findByYear(int year);
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     * Автомобили с одинаковой ценой идут в порядке добавления. Список может быть неизменяемым снимком.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return список автомобилей, упорядоченный по цене
+     */
+    List<Car> findAllOrderByPrice(boolean ascending);
+
+    /**
+     * Находит автомобили с ценой в указанном диапазоне включительно, упорядоченные по возрастанию цены.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей с ценой в диапазоне
+     */
+    List<Car> findByPriceBetween(double min, double max);
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по возрастанию цены
+     */
+    List<Car> cheapest(int k);
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по убыванию цены
+     */
+    List<Car> mostExpensive(int k);
+
     /**
      * Обновляет информацию об автомобиле в репозитории.
      *
@@ -52,4 +155,12 @@ public interface CarRepository {
      * @return количество автомобилей
      */
     long count();
+
+    /**
+     * Выдает новый уникальный идентификатор автомобиля.
+     * Идентификаторы не используются повторно, даже после удаления автомобилей.
+     *
+     * @return новый идентификатор
+     */
+    String nextId();
 }
@@ -0,0 +1,50 @@
+package org.carshop.repositories;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор идентификаторов сущностей.
+ * <p>Выдает строго возрастающие числовые идентификаторы и никогда не использует их повторно,
+ * даже после удаления сущностей. Потокобезопасен.</p>
+ */
+public class IdGenerator {
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Выдает следующий свободный идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    public String nextId() {
+        return String.valueOf(lastId.incrementAndGet());
+    }
+
+    /**
+     * Возвращает последний выданный или учтенный идентификатор.
+     *
+     * @return последний идентификатор, или 0, если идентификаторов еще не было
+     */
+    public long lastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Учитывает идентификатор, сохраненный в обход генератора, чтобы не выдать его повторно.
+     * Нечисловые идентификаторы игнорируются.
+     *
+     * @param id идентификатор сохраненной сущности
+     */
+    public void observe(String id) {
+        if (id == null || id.isEmpty()) {
+            return;
+        }
+        long value;
+        try {
+            value = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        lastId.accumulateAndGet(value, Math::max);
+    }
+}
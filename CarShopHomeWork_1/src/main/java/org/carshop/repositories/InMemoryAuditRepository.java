@@ -0,0 +1,200 @@
+package org.carshop.repositories;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий для хранения записей аудита в памяти.
+ * <p>Записи хранятся в порядке добавления и дополнительно в упорядоченном индексе по времени, поэтому
+ * выборка за промежуток времени выполняется за O(log n + k), а список по времени не требует сортировки.
+ * Время записи берется в момент сохранения, поэтому менять дату сохраненной записи нельзя.</p>
+ * <p>Индекс по идентификатору пользователя дает историю пользователя за O(k) и группировку журнала
+ * по пользователям без сортировки всех записей. Индекс по коду действия дает записи о действии за O(k).</p>
+ * <p>Репозиторий потокобезопасен и не использует блокировок.</p>
+ */
+public class InMemoryAuditRepository implements AuditRepository {
+
+    private final ConcurrentNavigableMap<Long, Audit> auditsBySequence = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<TimeKey, Audit> timeIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Audit>> userIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<AuditAction, ConcurrentNavigableMap<Long, Audit>> actionIndex = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Сохраняет запись аудита.
+     *
+     * @param audit запись аудита
+     */
+    @Override
+    public void save(Audit audit) {
+        long seq = sequence.incrementAndGet();
+        auditsBySequence.put(seq, audit);
+        timeIndex.put(new TimeKey(timeOf(audit.getDate()), seq), audit);
+        if (audit.getUserId() != null) {
+            userIndex.computeIfAbsent(audit.getUserId(), key -> new ConcurrentSkipListMap<>()).put(seq, audit);
+        }
+        if (audit.getAction() != null) {
+            actionIndex.computeIfAbsent(audit.getAction(), key -> new ConcurrentSkipListMap<>()).put(seq, audit);
+        }
+    }
+
+    /**
+     * Сохраняет несколько записей аудита в порядке их следования.
+     *
+     * @param audits записи аудита
+     */
+    @Override
+    public void saveAll(Collection<Audit> audits) {
+        for (Audit audit : audits) {
+            save(audit);
+        }
+    }
+
+    /**
+     * Возвращает все записи аудита в порядке добавления.
+     *
+     * @return новый изменяемый список записей
+     */
+    @Override
+    public List<Audit> findAll() {
+        return new ArrayList<>(auditsBySequence.values());
+    }
+
+    /**
+     * Возвращает ленивый поток всех записей аудита в порядке добавления.
+     * Поток не блокирует запись и отражает состояние репозитория на момент обхода.
+     *
+     * @return поток записей аудита
+     */
+    @Override
+    public Stream<Audit> stream() {
+        return auditsBySequence.values().stream();
+    }
+
+    /**
+     * Возвращает все записи аудита, упорядоченные по времени.
+     *
+     * @return новый изменяемый список записей по возрастанию времени
+     */
+    @Override
+    public List<Audit> findAllOrderByDate() {
+        return new ArrayList<>(timeIndex.values());
+    }
+
+    /**
+     * Находит записи аудита за промежуток времени.
+     *
+     * @param from начало промежутка включительно
+     * @param to конец промежутка, не включая его
+     * @return новый изменяемый список записей по возрастанию времени
+     */
+    @Override
+    public List<Audit> findBetween(Date from, Date to) {
+        long start = from.getTime();
+        long end = to.getTime();
+        if (start >= end) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(timeIndex.subMap(new TimeKey(start, Long.MIN_VALUE), true,
+                new TimeKey(end, Long.MIN_VALUE), false).values());
+    }
+
+    /**
+     * Находит записи аудита пользователя за O(k).
+     *
+     * @param userId идентификатор пользователя
+     * @return новый изменяемый список записей пользователя в порядке добавления
+     */
+    @Override
+    public List<Audit> findByUserId(String userId) {
+        ConcurrentNavigableMap<Long, Audit> audits = userId == null ? null : userIndex.get(userId);
+        return audits == null ? new ArrayList<>() : new ArrayList<>(audits.values());
+    }
+
+    /**
+     * Находит записи аудита о действии за O(k).
+     *
+     * @param action код действия
+     * @return новый изменяемый список записей о действии в порядке добавления
+     */
+    @Override
+    public List<Audit> findByAction(AuditAction action) {
+        ConcurrentNavigableMap<Long, Audit> audits = action == null ? null : actionIndex.get(action);
+        return audits == null ? new ArrayList<>() : new ArrayList<>(audits.values());
+    }
+
+    /**
+     * Возвращает записи аудита, сгруппированные по идентификатору пользователя.
+     *
+     * @return записи аудита по идентификатору пользователя
+     */
+    @Override
+    public Map<String, List<Audit>> findAllGroupedByUserId() {
+        Map<String, List<Audit>> groups = new LinkedHashMap<>();
+        userIndex.forEach((userId, audits) -> groups.put(userId, new ArrayList<>(audits.values())));
+        return groups;
+    }
+
+    /**
+     * Возвращает количество записей аудита.
+     *
+     * @return количество записей
+     */
+    @Override
+    public long count() {
+        return auditsBySequence.size();
+    }
+
+    private static long timeOf(Date date) {
+        return date == null ? Long.MIN_VALUE : date.getTime();
+    }
+
+    /**
+     * Ключ индекса по времени: время записи и порядковый номер добавления для записей с одинаковым временем.
+     */
+    private static final class TimeKey implements Comparable<TimeKey> {
+        private final long time;
+        private final long sequence;
+
+        private TimeKey(long time, long sequence) {
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TimeKey)) {
+                return false;
+            }
+            TimeKey other = (TimeKey) o;
+            return time == other.time && sequence == other.sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(time) + Long.hashCode(sequence);
+        }
+    }
+}
@@ -3,16 +3,48 @@ package org.carshop.repositories;
 import org.carshop.model.Car;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 
 /**
  * Репозиторий для хранения автомобилей в памяти.
+ * <p>Автомобили хранятся в хеш-таблице по идентификатору, поэтому поиск, обновление и удаление
+ * выполняются за O(1). Порядок добавления сохраняется для {@link #findAll()}.</p>
+ * <p>Дополнительно поддерживаются индексы по марке и модели (без учета регистра), по году выпуска
+ * и упорядоченный индекс по цене для сортировки, выборки по диапазону и топ-K запросов.</p>
+ * <p>Репозиторий потокобезопасен. Чтение не использует блокировок, запись блокирует только полосу
+ * {@link StripedLock}, к которой относится идентификатор автомобиля. Репозиторий хранит собственные
+ * копии автомобилей и никогда не изменяет их после сохранения: {@link #findById(String)} возвращает
+ * копию для редактирования, а списки содержат общие экземпляры, которые нужно считать только для чтения.</p>
+ * <p>Полный список и списки, упорядоченные по цене, возвращаются как неизменяемые снимки
+ * {@link VersionedSnapshot}: пока в репозиторий ничего не записано, повторные запросы не копируют данные.</p>
  */
 public class InMemoryCarRepository implements CarRepository {
 
-    private List<Car> cars = new ArrayList<>();
+    private final ConcurrentMap<String, StoredCar> cars = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Car> carsBySequence = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Car>> makeIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Car>> modelIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ConcurrentNavigableMap<Long, Car>> yearIndex = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<PriceKey, Car> priceIndex = new ConcurrentSkipListMap<>();
+    private final VersionedSnapshot<Car> allCars = new VersionedSnapshot<>();
+    private final VersionedSnapshot<Car> carsByPriceAscending = new VersionedSnapshot<>();
+    private final VersionedSnapshot<Car> carsByPriceDescending = new VersionedSnapshot<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final StripedLock locks = new StripedLock();
+    private final IdGenerator idGenerator = new IdGenerator();
 
     /**
      * Сохраняет автомобиль в репозитории.
@@ -21,45 +53,168 @@ public class InMemoryCarRepository implements CarRepository {
      */
     @Override
     public void save(Car car) {
-        cars.add(car);
+        Car copy = new Car(car);
+        Lock lock = locks.get(copy.getId());
+        lock.lock();
+        try {
+            StoredCar previous = cars.get(copy.getId());
+            long position = previous == null ? sequence.incrementAndGet() : previous.sequence;
+            store(previous, new StoredCar(position, copy));
+            idGenerator.observe(copy.getId());
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Находит автомобиль по его идентификатору.
      *
      * @param id идентификатор автомобиля
-     * @return автомобиль с указанным идентификатором, или null, если автомобиль не найден
+     * @return копия автомобиля с указанным идентификатором, или null, если автомобиль не найден
      */
     @Override
     public Car findById(String id) {
-        return cars.stream().filter(car -> car.getId().equals(id)).findFirst().orElse(null);
+        StoredCar stored = cars.get(id);
+        return stored == null ? null : new Car(stored.car);
     }
 
     /**
      * Возвращает список всех автомобилей в репозитории.
      *
-     * @return список всех автомобилей
+     * @return неизменяемый список всех автомобилей
      */
     @Override
     public List<Car> findAll() {
-        return new ArrayList<>(cars);
+        return allCars.get(() -> new ArrayList<>(carsBySequence.values()));
+    }
+
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество автомобилей на странице
+     * @return страница автомобилей
+     */
+    @Override
+    public Page<Car> findPage(String cursor, int limit) {
+        return Pages.slice(carsBySequence, cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех автомобилей в порядке добавления.
+     * Поток не блокирует запись и отражает состояние репозитория на момент обхода.
+     *
+     * @return поток автомобилей
+     */
+    @Override
+    public Stream<Car> stream() {
+        return carsBySequence.values().stream();
+    }
+
+    /**
+     * Находит автомобили указанной марки без учета регистра.
+     *
+     * @param make марка автомобиля
+     * @return список автомобилей с указанной маркой
+     */
+    @Override
+    public List<Car> findByMake(String make) {
+        return valuesOf(makeIndex.get(fold(make)));
+    }
+
+    /**
+     * Находит автомобили указанной модели без учета регистра.
+     *
+     * @param model модель автомобиля
+     * @return список автомобилей с указанной моделью
+     */
+    @Override
+    public List<Car> findByModel(String model) {
+        return valuesOf(modelIndex.get(fold(model)));
+    }
+
+    /**
+     * Находит автомобили указанного года выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей с указанным годом выпуска
+     */
+    @Override
+    public List<Car> findByYear(int year) {
+        return valuesOf(yearIndex.get(year));
+    }
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     * Автомобили с одинаковой ценой идут в порядке добавления.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return неизменяемый список автомобилей, упорядоченный по цене
+     */
+    @Override
+    public List<Car> findAllOrderByPrice(boolean ascending) {
+        return ascending
+                ? carsByPriceAscending.get(() -> collect(priceIndex.values(), Integer.MAX_VALUE))
+                : carsByPriceDescending.get(() -> collectDescending(priceIndex, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Находит автомобили с ценой в указанном диапазоне включительно, упорядоченные по возрастанию цены.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей с ценой в диапазоне
+     */
+    @Override
+    public List<Car> findByPriceBetween(double min, double max) {
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        NavigableMap<PriceKey, Car> range = priceIndex.subMap(
+                new PriceKey(min, Long.MIN_VALUE), true, new PriceKey(max, Long.MAX_VALUE), true);
+        return collect(range.values(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по возрастанию цены
+     */
+    @Override
+    public List<Car> cheapest(int k) {
+        return collect(priceIndex.values(), k);
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по убыванию цены
+     */
+    @Override
+    public List<Car> mostExpensive(int k) {
+        return collectDescending(priceIndex, k);
     }
 
     /**
      * Обновляет информацию об автомобиле в репозитории.
+     * Обновление атомарно: параллельные обновления одного автомобиля выполняются по очереди.
      *
      * @param car автомобиль с обновленными данными
      */
     @Override
     public void update(Car car) {
-        Optional<Car> existingCar = cars.stream().filter(c -> c.getId().equals(car.getId())).findFirst();
-        existingCar.ifPresent(value -> {
-            value.setMake(car.getMake());
-            value.setModel(car.getModel());
-            value.setYear(car.getYear());
-            value.setPrice(car.getPrice());
-            value.setCondition(car.getCondition());
-        });
+        Lock lock = locks.get(car.getId());
+        lock.lock();
+        try {
+            StoredCar previous = cars.get(car.getId());
+            if (previous != null) {
+                store(previous, new StoredCar(previous.sequence, new Car(car)));
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -69,7 +224,21 @@ public class InMemoryCarRepository implements CarRepository {
      */
     @Override
     public void delete(String id) {
-        cars.removeIf(car -> car.getId().equals(id));
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            StoredCar previous = cars.remove(id);
+            if (previous != null) {
+                carsBySequence.remove(previous.sequence);
+                removeFromIndex(makeIndex, previous.make, previous.sequence);
+                removeFromIndex(modelIndex, previous.model, previous.sequence);
+                removeFromIndex(yearIndex, previous.year, previous.sequence);
+                priceIndex.remove(new PriceKey(previous.price, previous.sequence));
+                invalidateSnapshots();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -81,4 +250,184 @@ public class InMemoryCarRepository implements CarRepository {
     public long count() {
         return cars.size();
     }
+
+    /**
+     * Выдает следующий идентификатор автомобиля.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return idGenerator.nextId();
+    }
+
+    /**
+     * Публикует новую версию автомобиля в основной таблице и во всех индексах.
+     * Вызывается под блокировкой идентификатора автомобиля.
+     *
+     * @param previous предыдущая версия, или {@code null} для нового автомобиля
+     * @param current новая версия
+     */
+    private void store(StoredCar previous, StoredCar current) {
+        long position = current.sequence;
+        cars.put(current.car.getId(), current);
+        carsBySequence.put(position, current.car);
+        reindex(makeIndex, previous == null ? null : previous.make, current.make, position, current.car);
+        reindex(modelIndex, previous == null ? null : previous.model, current.model, position, current.car);
+        reindex(yearIndex, previous == null ? null : previous.year, current.year, position, current.car);
+        if (previous != null && Double.compare(previous.price, current.price) != 0) {
+            priceIndex.remove(new PriceKey(previous.price, position));
+        }
+        priceIndex.put(new PriceKey(current.price, position), current.car);
+        invalidateSnapshots();
+    }
+
+    private void invalidateSnapshots() {
+        allCars.invalidate();
+        carsByPriceAscending.invalidate();
+        carsByPriceDescending.invalidate();
+    }
+
+    /**
+     * Переносит автомобиль из корзины старого ключа в корзину нового ключа.
+     * Если ключ не изменился, запись в корзине просто заменяется, и автомобиль не пропадает из выборок.
+     */
+    private static <K> void reindex(ConcurrentMap<K, ConcurrentNavigableMap<Long, Car>> index,
+                                    K oldKey, K newKey, long position, Car car) {
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            removeFromIndex(index, oldKey, position);
+        }
+        index.compute(newKey, (key, bucket) -> {
+            ConcurrentNavigableMap<Long, Car> target = bucket == null ? new ConcurrentSkipListMap<>() : bucket;
+            target.put(position, car);
+            return target;
+        });
+    }
+
+    private static <K> void removeFromIndex(ConcurrentMap<K, ConcurrentNavigableMap<Long, Car>> index,
+                                            K key, long position) {
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(position);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    private static List<Car> valuesOf(ConcurrentNavigableMap<Long, Car> bucket) {
+        return bucket == null ? Collections.emptyList() : new ArrayList<>(bucket.values());
+    }
+
+    /**
+     * Собирает не более {@code limit} автомобилей в порядке обхода.
+     *
+     * @param cars автомобили в нужном порядке
+     * @param limit максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    private static List<Car> collect(Collection<Car> cars, int limit) {
+        List<Car> result = new ArrayList<>();
+        for (Car car : cars) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(car);
+        }
+        return result;
+    }
+
+    /**
+     * Обходит индекс по цене в порядке убывания и собирает не более {@code limit} автомобилей.
+     * Автомобили с одинаковой ценой возвращаются в порядке добавления.
+     *
+     * @param index индекс по цене
+     * @param limit максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    private static List<Car> collectDescending(NavigableMap<PriceKey, Car> index, int limit) {
+        List<Car> result = new ArrayList<>();
+        List<Car> samePrice = new ArrayList<>();
+        double currentPrice = 0;
+        for (Map.Entry<PriceKey, Car> entry : index.descendingMap().entrySet()) {
+            double price = entry.getKey().price;
+            if (!samePrice.isEmpty() && Double.compare(price, currentPrice) != 0) {
+                appendReversed(samePrice, result, limit);
+                if (result.size() >= limit) {
+                    return result;
+                }
+            }
+            currentPrice = price;
+            samePrice.add(entry.getValue());
+        }
+        appendReversed(samePrice, result, limit);
+        return result;
+    }
+
+    private static void appendReversed(List<Car> source, List<Car> target, int limit) {
+        for (int i = source.size() - 1; i >= 0 && target.size() < limit; i--) {
+            target.add(source.get(i));
+        }
+        source.clear();
+    }
+
+    private static String fold(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Сохраненная версия автомобиля вместе с порядковым номером добавления и ключами индексов.
+     * Ключи запоминаются, чтобы корректно убрать автомобиль из индексов при обновлении и удалении.
+     */
+    private static final class StoredCar {
+        private final long sequence;
+        private final Car car;
+        private final String make;
+        private final String model;
+        private final Integer year;
+        private final double price;
+
+        private StoredCar(long sequence, Car car) {
+            this.sequence = sequence;
+            this.car = car;
+            this.make = fold(car.getMake());
+            this.model = fold(car.getModel());
+            this.year = car.getYear();
+            this.price = car.getPrice();
+        }
+    }
+
+    /**
+     * Ключ индекса по цене. Порядковый номер делает ключ уникальным и сохраняет порядок добавления
+     * среди автомобилей с одинаковой ценой.
+     */
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final double price;
+        private final long sequence;
+
+        private PriceKey(double price, long sequence) {
+            this.price = price;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PriceKey)) {
+                return false;
+            }
+            PriceKey other = (PriceKey) o;
+            return Double.compare(price, other.price) == 0 && sequence == other.sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(price) + Long.hashCode(sequence);
+        }
+    }
 }
@@ -1,17 +1,39 @@
 package org.carshop.repositories;
 
 import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для хранения заказов в памяти.
+ * <p>Заказы хранятся в хеш-таблице по идентификатору в порядке добавления. Помимо нее поддерживаются индекс активных заказов по идентификатору автомобиля,
+ * который обновляется при каждом изменении статуса, и индекс заказов по идентификатору клиента,
+ * упорядоченный по дате. На один автомобиль приходится не более одного активного заказа.</p>
+ * <p>Репозиторий потокобезопасен: чтение выполняется без блокировок, запись блокирует только полосу
+ * {@link StripedLock}, к которой относится идентификатор заказа. Сохраненные заказы не изменяются,
+ * обновление статуса публикует новую копию заказа со следующей версией.</p>
+ * <p>Полный список заказов возвращается как неизменяемый снимок {@link VersionedSnapshot},
+ * который пересобирается только после записи.</p>
  */
 public class InMemoryOrderRepository implements OrderRepository {
 
-    private List<Order> orders = new ArrayList<>();
+    private final ConcurrentMap<String, StoredOrder> orders = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Order> ordersBySequence = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Order> activeOrdersByCarId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<ClientKey, Order>> ordersByClientId = new ConcurrentHashMap<>();
+    private final VersionedSnapshot<Order> allOrders = new VersionedSnapshot<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final StripedLock locks = new StripedLock();
+    private final IdGenerator idGenerator = new IdGenerator();
 
     /**
      * Сохраняет заказ в репозитории.
@@ -20,41 +42,139 @@ public class InMemoryOrderRepository implements OrderRepository {
      */
     @Override
     public void save(Order order) {
-        orders.add(order);
+        Order copy = new Order(order);
+        Lock lock = locks.get(copy.getId());
+        lock.lock();
+        try {
+            StoredOrder previous = orders.get(copy.getId());
+            if (previous != null) {
+                unindex(previous);
+            }
+            long position = previous == null ? sequence.incrementAndGet() : previous.sequence;
+            StoredOrder current = new StoredOrder(position, copy);
+            orders.put(copy.getId(), current);
+            ordersBySequence.put(position, copy);
+            idGenerator.observe(copy.getId());
+            indexBooking(null, copy);
+            indexClient(current);
+            allOrders.invalidate();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Находит заказ по его идентификатору.
      *
      * @param id идентификатор заказа
-     * @return заказ с указанным идентификатором, или null, если заказ не найден
+     * @return копия заказа с указанным идентификатором, или null, если заказ не найден
      */
     @Override
     public Order findById(String id) {
-        return orders.stream().filter(order -> order.getId().equals(id)).findFirst().orElse(null);
+        StoredOrder stored = orders.get(id);
+        return stored == null ? null : new Order(stored.order);
     }
 
     /**
      * Возвращает список всех заказов в репозитории.
      *
-     * @return список всех заказов
+     * @return неизменяемый список всех заказов
      */
     @Override
     public List<Order> findAll() {
-        return new ArrayList<>(orders);
+        return allOrders.get(() -> new ArrayList<>(ordersBySequence.values()));
+    }
+
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество заказов на странице
+     * @return страница заказов
+     */
+    @Override
+    public Page<Order> findPage(String cursor, int limit) {
+        return Pages.slice(ordersBySequence, cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех заказов в порядке добавления.
+     * Поток не блокирует запись и отражает состояние репозитория на момент обхода.
+     *
+     * @return поток заказов
+     */
+    @Override
+    public Stream<Order> stream() {
+        return ordersBySequence.values().stream();
+    }
+
+    /**
+     * Находит активный заказ на автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return копия активного заказа на автомобиль, или null, если автомобиль свободен
+     */
+    @Override
+    public Order findActiveOrderByCarId(String carId) {
+        Order order = activeOrdersByCarId.get(carId);
+        return order == null ? null : new Order(order);
+    }
+
+    /**
+     * Находит все заказы клиента, упорядоченные по дате.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента по возрастанию даты
+     */
+    @Override
+    public List<Order> findByClientId(String clientId) {
+        ConcurrentNavigableMap<ClientKey, Order> clientOrders = ordersByClientId.get(clientId);
+        return clientOrders == null ? new ArrayList<>() : new ArrayList<>(clientOrders.values());
     }
 
     /**
      * Обновляет информацию о заказе в репозитории.
+     * Обновление атомарно: параллельные обновления одного заказа выполняются по очереди.
      *
      * @param order заказ с обновленными данными
      */
     @Override
     public void update(Order order) {
-        Optional<Order> existingOrder = orders.stream().filter(o -> o.getId().equals(order.getId())).findFirst();
-        existingOrder.ifPresent(value -> {
-            value.setStatus(order.getStatus());
-        });
+        Lock lock = locks.get(order.getId());
+        lock.lock();
+        try {
+            StoredOrder previous = orders.get(order.getId());
+            if (previous != null) {
+                replaceStatus(previous, order.getStatus());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Атомарно меняет статус заказа, если его версия не изменилась.
+     * Проверка и запись выполняются под блокировкой полосы заказа.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если статус изменен
+     */
+    @Override
+    public boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            StoredOrder previous = orders.get(id);
+            if (previous == null || previous.order.getVersion() != expectedVersion) {
+                return false;
+            }
+            replaceStatus(previous, status);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -64,7 +184,18 @@ public class InMemoryOrderRepository implements OrderRepository {
      */
     @Override
     public void delete(String id) {
-        orders.removeIf(order -> order.getId().equals(id));
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            StoredOrder previous = orders.remove(id);
+            if (previous != null) {
+                ordersBySequence.remove(previous.sequence);
+                unindex(previous);
+                allOrders.invalidate();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -76,4 +207,127 @@ public class InMemoryOrderRepository implements OrderRepository {
     public long count() {
         return orders.size();
     }
+
+    /**
+     * Выдает следующий идентификатор заказа.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return idGenerator.nextId();
+    }
+
+    /**
+     * Публикует новую копию заказа с указанным статусом и следующей версией. Вызывается под блокировкой полосы заказа.
+     *
+     * @param previous сохраненный заказ
+     * @param status новый статус
+     */
+    private void replaceStatus(StoredOrder previous, OrderStatus status) {
+        Order updated = new Order(previous.order);
+        updated.setStatus(status);
+        updated.setVersion(previous.order.getVersion() + 1);
+        StoredOrder current = new StoredOrder(previous.sequence, updated);
+        orders.put(updated.getId(), current);
+        ordersBySequence.put(previous.sequence, updated);
+        indexBooking(previous.order, updated);
+        ordersByClientId.get(current.clientId).put(current.clientKey, updated);
+        allOrders.invalidate();
+    }
+
+    /**
+     * Удаляет заказ из всех индексов.
+     *
+     * @param stored удаляемый заказ
+     */
+    private void unindex(StoredOrder stored) {
+        activeOrdersByCarId.remove(stored.order.getCar().getId(), stored.order);
+        ordersByClientId.computeIfPresent(stored.clientId, (key, clientOrders) -> {
+            clientOrders.remove(stored.clientKey);
+            return clientOrders.isEmpty() ? null : clientOrders;
+        });
+    }
+
+    /**
+     * Приводит индекс активных заказов в соответствие со статусом заказа.
+     *
+     * @param previous предыдущая версия заказа, или {@code null} для нового заказа
+     * @param order сохраненный заказ
+     */
+    private void indexBooking(Order previous, Order order) {
+        String carId = order.getCar().getId();
+        if (order.getStatus() != null && order.getStatus().isActive()) {
+            activeOrdersByCarId.put(carId, order);
+        } else if (previous != null) {
+            activeOrdersByCarId.remove(carId, previous);
+        }
+    }
+
+    /**
+     * Добавляет заказ в индекс заказов клиента, упорядоченный по дате и порядку добавления.
+     *
+     * @param stored сохраненный заказ
+     */
+    private void indexClient(StoredOrder stored) {
+        ordersByClientId.compute(stored.clientId, (key, clientOrders) -> {
+            ConcurrentNavigableMap<ClientKey, Order> target =
+                    clientOrders == null ? new ConcurrentSkipListMap<>() : clientOrders;
+            target.put(stored.clientKey, stored.order);
+            return target;
+        });
+    }
+
+    /**
+     * Сохраненная версия заказа вместе с порядковым номером добавления и ключом индекса клиента.
+     */
+    private static final class StoredOrder {
+        private final long sequence;
+        private final Order order;
+        private final String clientId;
+        private final ClientKey clientKey;
+
+        private StoredOrder(long sequence, Order order) {
+            this.sequence = sequence;
+            this.order = order;
+            this.clientId = order.getClient().getId();
+            this.clientKey = new ClientKey(order.getDate() == null ? Long.MIN_VALUE : order.getDate().getTime(), sequence);
+        }
+    }
+
+    /**
+     * Ключ индекса заказов клиента: дата заказа, а при равных датах порядок добавления.
+     */
+    private static final class ClientKey implements Comparable<ClientKey> {
+        private final long time;
+        private final long sequence;
+
+        private ClientKey(long time, long sequence) {
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ClientKey other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey other = (ClientKey) o;
+            return time == other.time && sequence == other.sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(time) + Long.hashCode(sequence);
+        }
+    }
 }
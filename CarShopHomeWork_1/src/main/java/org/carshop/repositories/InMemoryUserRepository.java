@@ -4,14 +4,33 @@ import org.carshop.model.User;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для хранения пользователей в памяти.
+ * <p>Пользователи хранятся в хеш-таблице по идентификатору в порядке добавления,
+ * дополнительно поддерживается индекс по имени пользователя.</p>
+ * <p>Репозиторий потокобезопасен: чтение выполняется без блокировок, запись блокирует только полосу
+ * {@link StripedLock}, к которой относится идентификатор пользователя. Сохраненные пользователи
+ * не изменяются, методы поиска по одному пользователю возвращают копии.</p>
+ * <p>Полный список пользователей возвращается как неизменяемый снимок {@link VersionedSnapshot},
+ * который пересобирается только после записи.</p>
  */
 public class InMemoryUserRepository implements UserRepository {
 
-    private List<User> users = new ArrayList<>();
+    private final ConcurrentMap<String, StoredUser> users = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, User> usersBySequence = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final VersionedSnapshot<User> allUsers = new VersionedSnapshot<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final StripedLock locks = new StripedLock();
+    private final IdGenerator idGenerator = new IdGenerator();
 
     /**
      * Сохраняет пользователя в репозитории.
@@ -20,55 +39,149 @@ public class InMemoryUserRepository implements UserRepository {
      */
     @Override
     public void save(User user) {
-        users.add(user);
+        User copy = new User(user);
+        Lock lock = locks.get(copy.getId());
+        lock.lock();
+        try {
+            StoredUser previous = users.get(copy.getId());
+            long position = previous == null ? sequence.incrementAndGet() : previous.sequence;
+            store(previous, new StoredUser(position, copy));
+            idGenerator.observe(copy.getId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Атомарно сохраняет нового пользователя, если его имя еще не занято.
+     * Имя сначала занимается в индексе по имени, и только после этого пользователь публикуется.
+     *
+     * @param user новый пользователь
+     * @return {@code true}, если пользователь сохранен, {@code false}, если имя уже занято
+     * @throws IllegalArgumentException если имя пользователя не задано
+     */
+    @Override
+    public boolean saveIfUsernameAbsent(User user) {
+        if (user.getUsername() == null) {
+            throw new IllegalArgumentException("Имя пользователя не задано");
+        }
+        User copy = new User(user);
+        Lock lock = locks.get(copy.getId());
+        lock.lock();
+        try {
+            if (usersByUsername.putIfAbsent(copy.getUsername(), copy) != null) {
+                return false;
+            }
+            StoredUser previous = users.get(copy.getId());
+            long position = previous == null ? sequence.incrementAndGet() : previous.sequence;
+            store(previous, new StoredUser(position, copy));
+            idGenerator.observe(copy.getId());
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Находит пользователя по его идентификатору.
      *
      * @param id идентификатор пользователя
-     * @return пользователь с указанным идентификатором, или null, если пользователь не найден
+     * @return копия пользователя с указанным идентификатором, или null, если пользователь не найден
      */
     @Override
     public User findById(String id) {
-        return users.stream().filter(user -> user.getId().equals(id)).findFirst().orElse(null);
+        StoredUser stored = users.get(id);
+        return stored == null ? null : new User(stored.user);
     }
 
     /**
      * Находит пользователя по его имени пользователя.
      *
      * @param username имя пользователя
-     * @return пользователь с указанным именем, или null, если пользователь не найден
+     * @return копия пользователя с указанным именем, или null, если пользователь не найден
      */
     @Override
     public User findByUsername(String username) {
-        return users.stream().filter(user -> user.getUsername().equals(username)).findFirst().orElse(null);
+        User user = username == null ? null : usersByUsername.get(username);
+        return user == null ? null : new User(user);
     }
 
     /**
      * Возвращает список всех пользователей в репозитории.
      *
-     * @return список всех пользователей
+     * @return неизменяемый список всех пользователей
      */
     @Override
     public List<User> findAll() {
-        return new ArrayList<>(users);
+        return allUsers.get(() -> new ArrayList<>(usersBySequence.values()));
+    }
+
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество пользователей на странице
+     * @return страница пользователей
+     */
+    @Override
+    public Page<User> findPage(String cursor, int limit) {
+        return Pages.slice(usersBySequence, cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех пользователей в порядке добавления.
+     * Поток не блокирует запись и отражает состояние репозитория на момент обхода.
+     *
+     * @return поток пользователей
+     */
+    @Override
+    public Stream<User> stream() {
+        return usersBySequence.values().stream();
     }
 
     /**
      * Обновляет информацию о пользователе в репозитории.
+     * Обновление атомарно: параллельные обновления одного пользователя выполняются по очереди.
      *
      * @param user пользователь с обновленными данными
      */
     @Override
     public void update(User user) {
-        Optional<User> existingUser = users.stream().filter(u -> u.getId().equals(user.getId())).findFirst();
-        existingUser.ifPresent(value -> {
-            value.setUsername(user.getUsername());
-            value.setPassword(user.getPassword());
-            value.setRole(user.getRole());
-            value.setPurchaseCount(user.getPurchaseCount()); // Обновляем количество покупок
-        });
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            StoredUser previous = users.get(user.getId());
+            if (previous != null) {
+                store(previous, new StoredUser(previous.sequence, new User(user)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Атомарно изменяет количество покупок пользователя под блокировкой его идентификатора.
+     *
+     * @param id идентификатор пользователя
+     * @param delta на сколько изменить количество покупок
+     * @return {@code true}, если пользователь найден и изменен
+     */
+    @Override
+    public boolean adjustPurchaseCount(String id, int delta) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            StoredUser previous = users.get(id);
+            if (previous == null) {
+                return false;
+            }
+            User changed = new User(previous.user);
+            changed.setPurchaseCount(Math.max(0, changed.getPurchaseCount() + delta));
+            store(previous, new StoredUser(previous.sequence, changed));
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -78,7 +191,18 @@ public class InMemoryUserRepository implements UserRepository {
      */
     @Override
     public void delete(String id) {
-        users.removeIf(user -> user.getId().equals(id));
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            StoredUser previous = users.remove(id);
+            if (previous != null) {
+                usersBySequence.remove(previous.sequence);
+                unindexUsername(previous.user);
+                allUsers.invalidate();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -90,4 +214,62 @@ public class InMemoryUserRepository implements UserRepository {
     public long count() {
         return users.size();
     }
+
+    /**
+     * Выдает следующий идентификатор пользователя.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return idGenerator.nextId();
+    }
+
+    /**
+     * Публикует новую версию пользователя в основной таблице и в индексе по имени.
+     * Вызывается под блокировкой идентификатора пользователя. Если имя уже занято другим пользователем,
+     * индекс продолжает указывать на того, кто был сохранен первым.
+     * <p>Имя не пропадает из индекса ни на мгновение: неизменное имя заменяется на месте, а новое имя
+     * занимается раньше, чем освобождается старое. Иначе параллельный вход по имени не нашел бы
+     * пользователя, а параллельная регистрация заняла бы его имя.</p>
+     *
+     * @param previous предыдущая версия, или {@code null} для нового пользователя
+     * @param current новая версия
+     */
+    private void store(StoredUser previous, StoredUser current) {
+        users.put(current.user.getId(), current);
+        usersBySequence.put(current.sequence, current.user);
+        String username = current.user.getUsername();
+        String previousUsername = previous == null ? null : previous.user.getUsername();
+        if (username != null && username.equals(previousUsername)) {
+            usersByUsername.replace(username, previous.user, current.user);
+        } else {
+            if (username != null) {
+                usersByUsername.putIfAbsent(username, current.user);
+            }
+            if (previous != null) {
+                unindexUsername(previous.user);
+            }
+        }
+        allUsers.invalidate();
+    }
+
+    private void unindexUsername(User user) {
+        if (user.getUsername() != null) {
+            usersByUsername.remove(user.getUsername(), user);
+        }
+    }
+
+    /**
+     * Сохраненная версия пользователя вместе с порядковым номером добавления.
+     */
+    private static final class StoredUser {
+        private final long sequence;
+        private final User user;
+
+        private StoredUser(long sequence, User user) {
+            this.sequence = sequence;
+            this.user = user;
+        }
+    }
 }
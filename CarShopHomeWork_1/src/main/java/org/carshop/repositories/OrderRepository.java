@@ -1,8 +1,12 @@
 package org.carshop.repositories;
 
 import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс для работы с репозиторием заказов.
@@ -16,6 +20,15 @@ public interface OrderRepository {
      */
     void save(Order order);
 
+    /**
+     * Сохраняет несколько заказы. Реализации могут записывать их одним пакетом.
+     *
+     * @param orders заказы для сохранения
+     */
+    default void saveAll(Collection<Order> orders) {
+        orders.forEach(this::save);
+    }
+
     /**
      * Находит заказ по его идентификатору.
      *
@@ -26,18 +39,78 @@ public interface OrderRepository {
 
     /**
      * Возвращает список всех заказов в репозитории.
+     * Список может быть неизменяемым снимком, вызывающий код не должен его изменять.
      *
      * @return список всех заказов
      */
     List<Order> findAll();
 
     /**
-     * Обновляет информацию о заказе в репозитории.
+     * Возвращает страницу заказов в порядке добавления.
+     * Курсор указывает на последний элемент предыдущей страницы, поэтому листание не зависит от
+     * добавления и удаления записей между запросами.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество заказов на странице
+     * @return страница заказов
+     */
+    Page<Order> findPage(String cursor, int limit);
+
+    /**
+     * Возвращает ленивый поток всех заказов в порядке добавления.
+     * Элементы читаются по мере обхода, без построения промежуточного списка. Реализации, хранящие
+     * данные вне памяти, могут удерживать ресурсы до закрытия потока, поэтому поток нужно закрывать,
+     * например в блоке try-with-resources.
+     *
+     * @return поток заказов
+     */
+    Stream<Order> stream();
+
+    /**
+     * Возвращает ленивый поток заказов, удовлетворяющих условию.
+     * Реализации могут выполнять фильтрацию на стороне хранилища, по умолчанию условие применяется к {@link #stream()}.
+     *
+     * @param filter условие отбора
+     * @return поток заказов, удовлетворяющих условию
+     */
+    default Stream<Order> stream(Predicate<? super Order> filter) {
+        return stream().filter(filter);
+    }
+
+    /**
+     * Находит активный заказ на автомобиль, то есть заказ в статусе, который удерживает автомобиль
+     * (см. {@link org.carshop.model.OrderStatus#isActive()}).
+     *
+     * @param carId идентификатор автомобиля
+     * @return активный заказ на автомобиль, или null, если автомобиль свободен
+     */
+    Order findActiveOrderByCarId(String carId);
+
+    /**
+     * Находит все заказы клиента, упорядоченные по дате.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента по возрастанию даты
+     */
+    List<Order> findByClientId(String clientId);
+
+    /**
+     * Обновляет информацию о заказе в репозитории. Версия сохраненного заказа увеличивается на единицу.
      *
      * @param order заказ с обновленными данными
      */
     void update(Order order);
 
+    /**
+     * Атомарно меняет статус заказа, если его версия не изменилась, и увеличивает версию на единицу.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если статус изменен, {@code false}, если заказ не найден или уже изменен
+     */
+    boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status);
+
     /**
      * Удаляет заказ из репозитория по его идентификатору.
      *
@@ -51,4 +124,12 @@ public interface OrderRepository {
      * @return количество заказов
      */
     long count();
+
+    /**
+     * Выдает новый уникальный идентификатор заказа.
+     * Идентификаторы не используются повторно, даже после удаления заказов.
+     *
+     * @return новый идентификатор
+     */
+    String nextId();
 }
@@ -0,0 +1,56 @@
+package org.carshop.repositories;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Страница результатов постраничного запроса к репозиторию.
+ * <p>Страница содержит не более запрошенного количества элементов и курсор продолжения. Курсор
+ * указывает на последний выданный элемент, а не на смещение, поэтому добавление и удаление записей
+ * между запросами не приводит к пропускам и повторам уже просмотренных элементов.</p>
+ *
+ * @param <T> тип элементов страницы
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Создает страницу.
+     *
+     * @param items элементы страницы
+     * @param nextCursor курсор следующей страницы, или {@code null}, если страница последняя
+     */
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Возвращает элементы страницы.
+     *
+     * @return неизменяемый список элементов
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Возвращает курсор для запроса следующей страницы.
+     *
+     * @return курсор следующей страницы, или {@code null}, если страница последняя
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Проверяет, есть ли следующая страница.
+     *
+     * @return {@code true}, если после этой страницы есть еще элементы
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
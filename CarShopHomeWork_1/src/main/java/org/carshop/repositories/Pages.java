@@ -0,0 +1,68 @@
+package org.carshop.repositories;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Постраничная выборка из таблиц, упорядоченных по порядковому номеру добавления.
+ * Курсор содержит порядковый номер последнего выданного элемента.
+ */
+public final class Pages {
+
+    private Pages() {
+    }
+
+    /**
+     * Возвращает страницу элементов, следующих за курсором.
+     *
+     * @param rows элементы, упорядоченные по порядковому номеру добавления
+     * @param cursor курсор предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @param <T> тип элементов
+     * @return страница элементов
+     * @throws IllegalArgumentException если размер страницы не положителен или курсор некорректен
+     */
+    public static <T> Page<T> slice(NavigableMap<Long, T> rows, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        NavigableMap<Long, T> tail = cursor == null ? rows : rows.tailMap(decodeCursor(cursor), false);
+        List<T> items = new ArrayList<>(limit);
+        Iterator<Map.Entry<Long, T>> iterator = tail.entrySet().iterator();
+        long last = 0;
+        while (items.size() < limit && iterator.hasNext()) {
+            Map.Entry<Long, T> entry = iterator.next();
+            items.add(entry.getValue());
+            last = entry.getKey();
+        }
+        return new Page<>(items, iterator.hasNext() ? encodeCursor(last) : null);
+    }
+
+    /**
+     * Кодирует порядковый номер последнего выданного элемента в курсор.
+     *
+     * @param sequence порядковый номер элемента
+     * @return курсор
+     */
+    public static String encodeCursor(long sequence) {
+        return Long.toString(sequence, Character.MAX_RADIX);
+    }
+
+    /**
+     * Извлекает порядковый номер из курсора.
+     *
+     * @param cursor курсор
+     * @return порядковый номер последнего выданного элемента
+     * @throws IllegalArgumentException если курсор некорректен
+     */
+    public static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor, Character.MAX_RADIX);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.carshop.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, распределенных по ключам.
+ * <p>Операции записи над одной и той же сущностью выполняются последовательно, а записи
+ * разных сущностей почти всегда попадают на разные блокировки и не мешают друг другу.</p>
+ */
+public class StripedLock {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Lock[] stripes;
+
+    /**
+     * Создает набор блокировок с количеством полос по умолчанию.
+     */
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Создает набор блокировок.
+     *
+     * @param stripes желаемое количество полос, округляется вверх до степени двойки
+     */
+    public StripedLock(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество полос должно быть положительным: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Возвращает блокировку, отвечающую за указанный ключ.
+     *
+     * @param key ключ сущности, обычно ее идентификатор
+     * @return блокировка для ключа
+     */
+    public Lock get(String key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * Возвращает блокировки, отвечающие за указанные ключи, без повторов и в порядке номеров полос.
+     * Если несколько потоков захватывают блокировки в этом порядке, взаимная блокировка невозможна.
+     *
+     * @param keys ключи сущностей
+     * @return блокировки для ключей
+     */
+    public List<Lock> getAll(Collection<String> keys) {
+        boolean[] used = new boolean[stripes.length];
+        for (String key : keys) {
+            used[indexOf(key)] = true;
+        }
+        List<Lock> locks = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (used[i]) {
+                locks.add(stripes[i]);
+            }
+        }
+        return locks;
+    }
+
+    private int indexOf(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (stripes.length - 1);
+    }
+}
@@ -2,7 +2,10 @@ package org.carshop.repositories;
 
 import org.carshop.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс для работы с репозиторием пользователей.
@@ -16,6 +19,25 @@ public interface UserRepository {
      */
     void save(User user);
 
+    /**
+     * Сохраняет несколько пользователей. Реализации могут записывать их одним пакетом.
+     *
+     * @param users пользователи для сохранения
+     */
+    default void saveAll(Collection<User> users) {
+        users.forEach(this::save);
+    }
+
+    /**
+     * Атомарно сохраняет нового пользователя, если его имя еще не занято. Из нескольких одновременных
+     * сохранений с одним именем выполняется только одно.
+     *
+     * @param user новый пользователь
+     * @return {@code true}, если пользователь сохранен, {@code false}, если имя уже занято
+     * @throws IllegalArgumentException если имя пользователя не задано
+     */
+    boolean saveIfUsernameAbsent(User user);
+
     /**
      * Находит пользователя по его идентификатору.
      *
@@ -34,11 +56,44 @@ public interface UserRepository {
 
     /**
      * Возвращает список всех пользователей в репозитории.
+     * Список может быть неизменяемым снимком, вызывающий код не должен его изменять.
      *
      * @return список всех пользователей
      */
     List<User> findAll();
 
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     * Курсор указывает на последний элемент предыдущей страницы, поэтому листание не зависит от
+     * добавления и удаления записей между запросами.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество пользователей на странице
+     * @return страница пользователей
+     */
+    Page<User> findPage(String cursor, int limit);
+
+    /**
+     * Возвращает ленивый поток всех пользователей в порядке добавления.
+     * Элементы читаются по мере обхода, без построения промежуточного списка. Реализации, хранящие
+     * данные вне памяти, могут удерживать ресурсы до закрытия потока, поэтому поток нужно закрывать,
+     * например в блоке try-with-resources.
+     *
+     * @return поток пользователей
+     */
+    Stream<User> stream();
+
+    /**
+     * Возвращает ленивый поток пользователей, удовлетворяющих условию.
+     * Реализации могут выполнять фильтрацию на стороне хранилища, по умолчанию условие применяется к {@link #stream()}.
+     *
+     * @param filter условие отбора
+     * @return поток пользователей, удовлетворяющих условию
+     */
+    default Stream<User> stream(Predicate<? super User> filter) {
+        return stream().filter(filter);
+    }
+
     /**
      * Обновляет информацию о пользователе в репозитории.
      *
@@ -46,6 +101,17 @@ public interface UserRepository {
      */
     void update(User user);
 
+    /**
+     * Атомарно изменяет количество покупок пользователя. Остальные данные пользователя не меняются,
+     * поэтому параллельные изменения количества и обновления пользователя не теряют друг друга.
+     * Количество покупок не становится отрицательным.
+     *
+     * @param id идентификатор пользователя
+     * @param delta на сколько изменить количество покупок
+     * @return {@code true}, если пользователь найден и изменен
+     */
+    boolean adjustPurchaseCount(String id, int delta);
+
     /**
      * Удаляет пользователя из репозитория по его идентификатору.
      *
@@ -59,4 +125,12 @@ public interface UserRepository {
      * @return количество пользователей
      */
     long count();
+
+    /**
+     * Выдает новый уникальный идентификатор пользователя.
+     * Идентификаторы не используются повторно, даже после удаления пользователей.
+     *
+     * @return новый идентификатор
+     */
+    String nextId();
 }
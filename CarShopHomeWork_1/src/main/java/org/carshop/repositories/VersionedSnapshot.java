@@ -0,0 +1,55 @@
+package org.carshop.repositories;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Неизменяемый снимок списка, который пересобирается только после изменений.
+ * <p>Каждая запись в репозиторий увеличивает версию через {@link #invalidate()}. Чтение возвращает
+ * закешированный снимок, пока версия не изменилась, поэтому повторные запросы списка
+ * не копируют таблицу. Снимок собирается лениво при первом чтении после записи. Потокобезопасен.</p>
+ *
+ * @param <T> тип элементов списка
+ */
+public class VersionedSnapshot<T> {
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot<T> snapshot;
+
+    /**
+     * Отмечает, что данные изменились и снимок нужно пересобрать.
+     * Вызывается после того, как изменение опубликовано в хранилище.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Возвращает актуальный снимок, при необходимости собирая его заново.
+     *
+     * @param builder собирает новый список из текущего состояния хранилища
+     * @return неизменяемый список
+     */
+    public List<T> get(Supplier<List<T>> builder) {
+        long current = version.get();
+        Snapshot<T> cached = snapshot;
+        if (cached != null && cached.version == current) {
+            return cached.items;
+        }
+        List<T> items = Collections.unmodifiableList(builder.get());
+        snapshot = new Snapshot<>(current, items);
+        return items;
+    }
+
+    private static final class Snapshot<T> {
+        private final long version;
+        private final List<T> items;
+
+        private Snapshot(long version, List<T> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package org.carshop.repositories.auditlog;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.repositories.wal.Codecs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сегмент журнала аудита: файл записей и разреженный индекс его блоков.
+ * <p>Записи сегмента разбиты на блоки по {@link #BLOCK_RECORDS} штук. Для каждого блока в памяти
+ * хранятся смещение в файле, количество записей, наименьшее и наибольшее время, наибольший
+ * идентификатор записи, идентификаторы пользователей и коды действий, поэтому запросы по времени, по пользователю и по действию читают
+ * только подходящие блоки.</p>
+ * <p>Открытый сегмент ({@code .log}) хранит записи без сжатия и дописывается. Закрытый сегмент
+ * ({@code .seg}) хранит каждый блок отдельным членом gzip, что позволяет распаковывать блоки
+ * независимо, а индекс блоков записывается рядом в файл {@code .idx}.</p>
+ */
+final class AuditSegment {
+
+    /**
+     * Количество записей в блоке.
+     */
+    static final int BLOCK_RECORDS = 512;
+
+    static final String PREFIX = "audit-";
+    static final String LOG_SUFFIX = ".log";
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x41554458;
+    private static final int INDEX_VERSION = 3;
+    private static final int INDEX_VERSION_WITHOUT_MAX_ID = 2;
+
+    private final long number;
+    private final Path file;
+    private final boolean compressed;
+    private final List<Block> blocks;
+    private final long createdAt;
+    private FileChannel channel;
+    private long bytes;
+
+    private AuditSegment(long number, Path file, boolean compressed, List<Block> blocks, long bytes, long createdAt) {
+        this.number = number;
+        this.file = file;
+        this.compressed = compressed;
+        this.blocks = blocks;
+        this.bytes = bytes;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Создает новый открытый сегмент.
+     *
+     * @param directory директория журнала
+     * @param number номер сегмента
+     * @param createdAt время создания в миллисекундах
+     * @return открытый сегмент
+     * @throws IOException если файл не удалось создать
+     */
+    static AuditSegment create(Path directory, long number, long createdAt) throws IOException {
+        AuditSegment segment = new AuditSegment(number, logPath(directory, number), false, new ArrayList<>(), 0, createdAt);
+        segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return segment;
+    }
+
+    /**
+     * Загружает закрытый сегмент по его индексу.
+     * Для индекса прежней версии наибольший идентификатор блоков вычисляется чтением сегмента.
+     *
+     * @param directory директория журнала
+     * @param number номер сегмента
+     * @return закрытый сегмент
+     * @throws IOException если индекс не удалось прочитать
+     */
+    static AuditSegment load(Path directory, long number) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        int version;
+        try (InputStream file = Files.newInputStream(indexPath(directory, number));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            version = in.readInt() == INDEX_MAGIC ? in.readInt() : -1;
+            if (version != INDEX_VERSION && version != INDEX_VERSION_WITHOUT_MAX_ID) {
+                throw new IOException("Файл не является индексом сегмента аудита: " + indexPath(directory, number));
+            }
+            int blockCount = in.readInt();
+            for (int i = 0; i < blockCount; i++) {
+                Block block = new Block(in.readLong());
+                block.length = in.readInt();
+                block.count = in.readInt();
+                block.minTime = in.readLong();
+                block.maxTime = in.readLong();
+                block.actions = in.readLong();
+                if (version == INDEX_VERSION) {
+                    block.maxId = in.readLong();
+                }
+                int users = in.readInt();
+                for (int u = 0; u < users; u++) {
+                    block.userIds.add(in.readUTF());
+                }
+                blocks.add(block);
+            }
+        }
+        Path segmentFile = segmentPath(directory, number);
+        AuditSegment segment = new AuditSegment(number, segmentFile, true, blocks, Files.size(segmentFile), 0);
+        if (version == INDEX_VERSION_WITHOUT_MAX_ID) {
+            try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                for (Block block : blocks) {
+                    if (block.count > 0) {
+                        decode(channel, block, true, audit -> block.maxId = Math.max(block.maxId, numericId(audit.getId())));
+                    }
+                }
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Восстанавливает блоки открытого сегмента, оставшегося после остановки, читая его записи.
+     * Чтение прекращается на первой оборванной или поврежденной записи.
+     *
+     * @param directory директория журнала
+     * @param number номер сегмента
+     * @return сегмент, готовый к сжатию
+     * @throws IOException если файл не удалось прочитать
+     */
+    static AuditSegment recover(Path directory, long number) throws IOException {
+        AuditSegment segment = new AuditSegment(number, logPath(directory, number), false, new ArrayList<>(), 0, 0);
+        long fileSize = Files.size(segment.file);
+        try (InputStream file = Files.newInputStream(segment.file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                Audit audit;
+                int size;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > fileSize) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    audit = Codecs.AUDIT.read(new DataInputStream(new ByteArrayInputStream(payload)));
+                    size = 8 + length;
+                } catch (EOFException e) {
+                    break;
+                }
+                segment.currentBlock().add(audit, size);
+                segment.bytes += size;
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Дописывает записи в открытый сегмент.
+     *
+     * @param audits записи аудита
+     * @throws IOException если записи не удалось записать
+     */
+    void append(Collection<Audit> audits) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(audits.size() * 128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        List<Integer> sizes = new ArrayList<>(audits.size());
+        for (Audit audit : audits) {
+            payload.reset();
+            Codecs.AUDIT.write(new DataOutputStream(payload), audit);
+            CRC32 crc = new CRC32();
+            crc.update(payload.toByteArray(), 0, payload.size());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+            sizes.add(8 + payload.size());
+        }
+        ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+        long position = bytes;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+        int i = 0;
+        for (Audit audit : audits) {
+            currentBlock().add(audit, sizes.get(i++));
+        }
+        bytes = position;
+    }
+
+    /**
+     * Сжимает открытый сегмент: переписывает каждый блок отдельным членом gzip, записывает индекс
+     * и удаляет исходный файл. Сжатый файл и индекс появляются атомарно, индекс последним.
+     *
+     * @param directory директория журнала
+     * @return закрытый сегмент
+     * @throws IOException если сегмент не удалось сжать
+     */
+    AuditSegment compress(Path directory) throws IOException {
+        closeChannel();
+        List<Block> compressedBlocks = new ArrayList<>(blocks.size());
+        Path segmentFile = segmentPath(directory, number);
+        Path segmentTemporary = directory.resolve(segmentFile.getFileName() + ".tmp");
+        long offset = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(segmentTemporary, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Block block : blocks) {
+                if (block.count == 0) {
+                    continue;
+                }
+                ByteArrayOutputStream packed = new ByteArrayOutputStream(block.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(packed)) {
+                    gzip.write(readRaw(in, block.offset, block.length).array());
+                }
+                ByteBuffer data = ByteBuffer.wrap(packed.toByteArray());
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+                Block target = new Block(offset);
+                target.length = packed.size();
+                target.count = block.count;
+                target.minTime = block.minTime;
+                target.maxTime = block.maxTime;
+                target.actions = block.actions;
+                target.maxId = block.maxId;
+                target.userIds.addAll(block.userIds);
+                compressedBlocks.add(target);
+                offset += packed.size();
+            }
+            out.force(true);
+        }
+        Files.move(segmentTemporary, segmentFile, StandardCopyOption.ATOMIC_MOVE);
+        writeIndex(directory, compressedBlocks);
+        Files.deleteIfExists(file);
+        return new AuditSegment(number, segmentFile, true, compressedBlocks, offset, createdAt);
+    }
+
+    /**
+     * Читает записи блоков, выбранных фильтром, в порядке добавления.
+     *
+     * @param blockFilter отбор блоков по их индексу
+     * @param consumer обработчик записей
+     * @throws IOException если блок не удалось прочитать
+     */
+    void read(Predicate<Block> blockFilter, Consumer<Audit> consumer) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (Block block : blocks) {
+                if (block.count > 0 && blockFilter.test(block)) {
+                    decode(in, block, compressed, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Открывает чтение записей, сохраненных в сегменте к моменту вызова.
+     * Открытый файл остается читаемым, даже если сегмент затем сжимается или удаляется.
+     *
+     * @return чтение сегмента, которое нужно закрыть
+     * @throws IOException если файл не удалось открыть
+     */
+    Reader openReader() throws IOException {
+        List<Block> snapshot = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            Block copy = new Block(block.offset);
+            copy.length = block.length;
+            copy.count = block.count;
+            snapshot.add(copy);
+        }
+        return new Reader(FileChannel.open(file, StandardOpenOption.READ), snapshot, compressed);
+    }
+
+    /**
+     * Удаляет файлы сегмента.
+     *
+     * @param directory директория журнала
+     * @throws IOException если файлы не удалось удалить
+     */
+    void delete(Path directory) throws IOException {
+        closeChannel();
+        Files.deleteIfExists(indexPath(directory, number));
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Закрывает файл открытого сегмента, сбрасывая его на диск.
+     *
+     * @throws IOException если файл не удалось закрыть
+     */
+    void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    long number() {
+        return number;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    long count() {
+        long count = 0;
+        for (Block block : blocks) {
+            count += block.count;
+        }
+        return count;
+    }
+
+    long maxTime() {
+        long max = Long.MIN_VALUE;
+        for (Block block : blocks) {
+            if (block.count > 0) {
+                max = Math.max(max, block.maxTime);
+            }
+        }
+        return max;
+    }
+
+    long maxId() {
+        long max = 0;
+        for (Block block : blocks) {
+            max = Math.max(max, block.maxId);
+        }
+        return max;
+    }
+
+    /**
+     * Возвращает числовое значение идентификатора записи.
+     *
+     * @param id идентификатор записи
+     * @return значение идентификатора, или 0, если идентификатор не задан или не числовой
+     */
+    static long numericId(String id) {
+        if (id == null || id.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static Path logPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, LOG_SUFFIX));
+    }
+
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    static Path indexPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, INDEX_SUFFIX));
+    }
+
+    private Block currentBlock() {
+        Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (last == null || last.count >= BLOCK_RECORDS) {
+            last = new Block(last == null ? 0 : last.offset + last.length);
+            blocks.add(last);
+        }
+        return last;
+    }
+
+    private void writeIndex(Path directory, List<Block> indexBlocks) throws IOException {
+        Path target = indexPath(directory, number);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(indexBlocks.size());
+            for (Block block : indexBlocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeInt(block.count);
+                out.writeLong(block.minTime);
+                out.writeLong(block.maxTime);
+                out.writeLong(block.actions);
+                out.writeLong(block.maxId);
+                out.writeInt(block.userIds.size());
+                for (String userId : block.userIds) {
+                    out.writeUTF(userId);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void decode(FileChannel in, Block block, boolean compressed, Consumer<Audit> consumer) throws IOException {
+        InputStream raw = new ByteArrayInputStream(readRaw(in, block.offset, block.length).array());
+        try (DataInputStream records = new DataInputStream(compressed ? new GZIPInputStream(raw) : raw)) {
+            for (int i = 0; i < block.count; i++) {
+                // длина и контрольная сумма проверены при записи или восстановлении сегмента
+                records.readInt();
+                records.readInt();
+                consumer.accept(Codecs.AUDIT.read(records));
+            }
+        }
+    }
+
+    private static ByteBuffer readRaw(FileChannel in, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Блок выходит за конец файла");
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Последовательное чтение сегмента по одному блоку, чтобы в памяти находился только текущий блок.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final List<Block> blocks;
+        private final boolean compressed;
+        private int next;
+
+        private Reader(FileChannel channel, List<Block> blocks, boolean compressed) {
+            this.channel = channel;
+            this.blocks = blocks;
+            this.compressed = compressed;
+        }
+
+        /**
+         * Читает записи следующего блока.
+         *
+         * @param consumer обработчик записей
+         * @return {@code false}, если блоков больше нет
+         * @throws IOException если блок не удалось прочитать
+         */
+        boolean readBlock(Consumer<Audit> consumer) throws IOException {
+            while (next < blocks.size()) {
+                Block block = blocks.get(next++);
+                if (block.count > 0) {
+                    decode(channel, block, compressed, consumer);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Блок сегмента и его разреженный индекс.
+     */
+    static final class Block {
+        private final long offset;
+        private int length;
+        private int count;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private long actions;
+        private long maxId;
+        private final Set<String> userIds = new HashSet<>();
+
+        private Block(long offset) {
+            this.offset = offset;
+        }
+
+        private void add(Audit audit, int size) {
+            long time = audit.getDate() == null ? Long.MIN_VALUE : audit.getDate().getTime();
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            if (audit.getUserId() != null) {
+                userIds.add(audit.getUserId());
+            }
+            if (audit.getAction() != null) {
+                actions |= 1L << audit.getAction().ordinal();
+            }
+            maxId = Math.max(maxId, numericId(audit.getId()));
+            length += size;
+            count++;
+        }
+
+        /**
+         * Проверяет, может ли блок содержать записи из промежутка времени.
+         *
+         * @param from начало промежутка включительно
+         * @param to конец промежутка, не включая его
+         * @return {@code true}, если промежутки времени пересекаются
+         */
+        boolean overlaps(long from, long to) {
+            return minTime < to && maxTime >= from;
+        }
+
+        /**
+         * Проверяет, есть ли в блоке записи пользователя.
+         *
+         * @param userId идентификатор пользователя
+         * @return {@code true}, если в блоке есть записи пользователя
+         */
+        boolean containsUser(String userId) {
+            return userIds.contains(userId);
+        }
+
+        /**
+         * Проверяет, есть ли в блоке записи о действии.
+         *
+         * @param action код действия
+         * @return {@code true}, если в блоке есть записи о действии
+         */
+        boolean containsAction(AuditAction action) {
+            return (actions & 1L << action.ordinal()) != 0;
+        }
+    }
+}
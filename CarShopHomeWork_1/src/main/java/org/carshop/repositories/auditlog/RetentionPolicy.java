@@ -0,0 +1,71 @@
+package org.carshop.repositories.auditlog;
+
+import java.time.Duration;
+
+/**
+ * Правило хранения закрытых сегментов журнала аудита.
+ * <p>Сегмент удаляется целиком, когда его самая поздняя запись старше {@code maxAge} или когда
+ * суммарный размер закрытых сегментов превышает {@code maxTotalBytes}; в последнем случае удаляются
+ * самые старые сегменты. Открытый сегмент никогда не удаляется.</p>
+ */
+public final class RetentionPolicy {
+
+    /**
+     * Правило, при котором сегменты хранятся бессрочно.
+     */
+    public static final RetentionPolicy UNLIMITED = new RetentionPolicy(null, 0);
+
+    private final Duration maxAge;
+    private final long maxTotalBytes;
+
+    /**
+     * Создает правило хранения.
+     *
+     * @param maxAge наибольший возраст записей, или {@code null}, если возраст не ограничен
+     * @param maxTotalBytes наибольший суммарный размер закрытых сегментов в байтах, или {@code 0}, если размер не ограничен
+     */
+    public RetentionPolicy(Duration maxAge, long maxTotalBytes) {
+        if (maxAge != null && (maxAge.isNegative() || maxAge.isZero())) {
+            throw new IllegalArgumentException("Срок хранения аудита должен быть положительным");
+        }
+        if (maxTotalBytes < 0) {
+            throw new IllegalArgumentException("Размер хранилища аудита не может быть отрицательным");
+        }
+        this.maxAge = maxAge;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Создает правило, ограничивающее только возраст записей.
+     *
+     * @param maxAge наибольший возраст записей
+     * @return правило хранения
+     */
+    public static RetentionPolicy maxAge(Duration maxAge) {
+        return new RetentionPolicy(maxAge, 0);
+    }
+
+    /**
+     * Возвращает наибольший возраст записей.
+     *
+     * @return возраст, или {@code null}, если возраст не ограничен
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Возвращает наибольший суммарный размер закрытых сегментов.
+     *
+     * @return размер в байтах, или {@code 0}, если размер не ограничен
+     */
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Хранение аудита: срок " + (maxAge == null ? "не ограничен" : maxAge.toDays() + " дн.")
+                + ", размер " + (maxTotalBytes == 0 ? "не ограничен" : maxTotalBytes + " байт");
+    }
+}
@@ -0,0 +1,506 @@
+package org.carshop.repositories.auditlog;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.repositories.AuditRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Репозиторий записей аудита в сегментированном журнале на локальном диске.
+ * <p>Записи дописываются в открытый сегмент. Когда сегмент достигает заданного размера или возраста,
+ * он закрывается: его блоки сжимаются gzip, а рядом записывается разреженный индекс блоков
+ * с диапазоном времени, идентификаторами пользователей и кодами действий. Запросы по времени,
+ * пользователю и действию распаковывают только блоки, которые могут содержать нужные записи, поэтому журнал не держит
+ * записи в памяти и его объем ограничен только диском и {@link RetentionPolicy}.</p>
+ * <p>После аварийной остановки открытый сегмент восстанавливается до последней целой записи
+ * и сжимается при следующем запуске. Наибольший идентификатор записи сохраняется в индексах сегментов
+ * и возвращается {@link #lastId()}, чтобы после перезапуска идентификаторы не повторялись.</p>
+ * <p>Репозиторий потокобезопасен: запись выполняется под исключительной блокировкой, чтение под общей.</p>
+ */
+public class SegmentedAuditRepository implements AuditRepository, Closeable {
+
+    /**
+     * Размер сегмента по умолчанию, после которого он закрывается.
+     */
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Возраст сегмента по умолчанию, после которого он закрывается.
+     */
+    public static final Duration DEFAULT_SEGMENT_AGE = Duration.ofDays(1);
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final RetentionPolicy retention;
+    private final LongSupplier clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<AuditSegment> segments = new ArrayList<>();
+    private AuditSegment active;
+    private long nextNumber;
+    private long lastId;
+    private boolean closed;
+
+    /**
+     * Открывает журнал с размером и возрастом сегмента по умолчанию и бессрочным хранением.
+     *
+     * @param directory директория журнала
+     */
+    public SegmentedAuditRepository(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SEGMENT_AGE, RetentionPolicy.UNLIMITED);
+    }
+
+    /**
+     * Открывает журнал.
+     *
+     * @param directory директория журнала
+     * @param maxSegmentBytes размер сегмента в байтах, после которого он закрывается
+     * @param maxSegmentAge возраст сегмента, после которого он закрывается
+     * @param retention правило хранения закрытых сегментов
+     */
+    public SegmentedAuditRepository(Path directory, long maxSegmentBytes, Duration maxSegmentAge, RetentionPolicy retention) {
+        this(directory, maxSegmentBytes, maxSegmentAge, retention, System::currentTimeMillis);
+    }
+
+    /**
+     * Открывает журнал с заданными часами.
+     *
+     * @param directory директория журнала
+     * @param maxSegmentBytes размер сегмента в байтах, после которого он закрывается
+     * @param maxSegmentAge возраст сегмента, после которого он закрывается
+     * @param retention правило хранения закрытых сегментов
+     * @param clock источник текущего времени в миллисекундах
+     */
+    public SegmentedAuditRepository(Path directory, long maxSegmentBytes, Duration maxSegmentAge,
+                                    RetentionPolicy retention, LongSupplier clock) {
+        if (maxSegmentBytes <= 0 || maxSegmentAge.isNegative() || maxSegmentAge.isZero()) {
+            throw new IllegalArgumentException("Размер и возраст сегмента должны быть положительными");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAge.toMillis();
+        this.retention = retention;
+        this.clock = clock;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал аудита " + directory, e);
+        }
+    }
+
+    /**
+     * Сохраняет запись аудита.
+     *
+     * @param audit запись аудита
+     */
+    @Override
+    public void save(Audit audit) {
+        saveAll(Collections.singletonList(audit));
+    }
+
+    /**
+     * Дописывает записи аудита в открытый сегмент одной записью в файл.
+     * Если сегмент достиг предельного размера или возраста, он закрывается и сжимается.
+     *
+     * @param audits записи аудита
+     */
+    @Override
+    public void saveAll(Collection<Audit> audits) {
+        if (audits.isEmpty()) {
+            return;
+        }
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Журнал аудита закрыт");
+            }
+            if (active.count() > 0 && clock.getAsLong() - active.createdAt() >= maxSegmentAgeMillis) {
+                roll();
+            }
+            active.append(audits);
+            for (Audit audit : audits) {
+                lastId = Math.max(lastId, AuditSegment.numericId(audit.getId()));
+            }
+            if (active.bytes() >= maxSegmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал аудита", e);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Возвращает все записи аудита в порядке добавления.
+     *
+     * @return новый изменяемый список записей
+     */
+    @Override
+    public List<Audit> findAll() {
+        return collect(block -> true, audit -> true);
+    }
+
+    /**
+     * Возвращает ленивый поток записей аудита, сохраненных к моменту вызова, в порядке добавления.
+     * В памяти находится только текущий распакованный блок. Поток держит файлы сегментов открытыми
+     * и не мешает записи и удалению сегментов, поэтому его нужно закрыть.
+     *
+     * @return поток записей аудита
+     */
+    @Override
+    public Stream<Audit> stream() {
+        List<AuditSegment.Reader> readers = new ArrayList<>();
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            for (AuditSegment segment : segments) {
+                readers.add(segment.openReader());
+            }
+            if (active != null) {
+                readers.add(active.openReader());
+            }
+        } catch (IOException e) {
+            closeAll(readers);
+            throw new UncheckedIOException("Не удалось прочитать журнал аудита", e);
+        } finally {
+            shared.unlock();
+        }
+        return StreamSupport.stream(new SegmentSpliterator(readers), false).onClose(() -> closeAll(readers));
+    }
+
+    /**
+     * Возвращает все записи аудита, упорядоченные по времени.
+     *
+     * @return новый изменяемый список записей по возрастанию времени
+     */
+    @Override
+    public List<Audit> findAllOrderByDate() {
+        return sortByDate(findAll());
+    }
+
+    /**
+     * Находит записи аудита за промежуток времени, читая только блоки, пересекающиеся с ним.
+     *
+     * @param from начало промежутка включительно
+     * @param to конец промежутка, не включая его
+     * @return новый изменяемый список записей по возрастанию времени
+     */
+    @Override
+    public List<Audit> findBetween(Date from, Date to) {
+        long start = from.getTime();
+        long end = to.getTime();
+        if (start >= end) {
+            return new ArrayList<>();
+        }
+        return sortByDate(collect(block -> block.overlaps(start, end), audit -> {
+            long time = timeOf(audit);
+            return time >= start && time < end;
+        }));
+    }
+
+    /**
+     * Находит записи аудита пользователя, читая только блоки с его записями.
+     *
+     * @param userId идентификатор пользователя
+     * @return новый изменяемый список записей пользователя в порядке добавления
+     */
+    @Override
+    public List<Audit> findByUserId(String userId) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        return collect(block -> block.containsUser(userId), audit -> userId.equals(audit.getUserId()));
+    }
+
+    /**
+     * Находит записи аудита о действии, читая только блоки с такими записями.
+     *
+     * @param action код действия
+     * @return новый изменяемый список записей о действии в порядке добавления
+     */
+    @Override
+    public List<Audit> findByAction(AuditAction action) {
+        if (action == null) {
+            return new ArrayList<>();
+        }
+        return collect(block -> block.containsAction(action), audit -> audit.getAction() == action);
+    }
+
+    /**
+     * Возвращает записи аудита, сгруппированные по идентификатору пользователя.
+     * Группы идут в порядке первой записи пользователя.
+     *
+     * @return записи аудита по идентификатору пользователя
+     */
+    @Override
+    public Map<String, List<Audit>> findAllGroupedByUserId() {
+        Map<String, List<Audit>> groups = new LinkedHashMap<>();
+        for (Audit audit : findAll()) {
+            if (audit.getUserId() != null) {
+                groups.computeIfAbsent(audit.getUserId(), key -> new ArrayList<>()).add(audit);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Возвращает количество записей аудита по индексам сегментов, не читая файлы.
+     *
+     * @return количество записей
+     */
+    @Override
+    public long count() {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            long count = active == null ? 0 : active.count();
+            for (AuditSegment segment : segments) {
+                count += segment.count();
+            }
+            return count;
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Возвращает наибольший идентификатор записи, сохраненной в журнале за все время, включая записи
+     * из сегментов, удаленных по сроку хранения после запуска.
+     *
+     * @return наибольший идентификатор, или {@code null}, если записей не было
+     */
+    @Override
+    public String lastId() {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            return lastId == 0 ? null : String.valueOf(lastId);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество сегментов журнала, включая открытый.
+     *
+     * @return количество сегментов
+     */
+    public int getSegmentCount() {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            return segments.size() + (active == null ? 0 : 1);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Закрывает журнал: сжимает открытый сегмент, а пустой удаляет.
+     * После закрытия журнал доступен только для чтения.
+     */
+    @Override
+    public void close() {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (active.count() > 0) {
+                segments.add(active.compress(directory));
+            } else {
+                active.delete(directory);
+            }
+            active = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть журнал аудита", e);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        TreeSet<Long> numbers = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, AuditSegment.PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // незавершенное сжатие, сегмент будет сжат заново
+                    Files.delete(file);
+                    continue;
+                }
+                int dot = name.lastIndexOf('.');
+                try {
+                    numbers.add(Long.parseLong(name.substring(AuditSegment.PREFIX.length(), dot)));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    // посторонний файл в директории журнала не трогаем
+                }
+            }
+        }
+        for (long number : numbers) {
+            Path log = AuditSegment.logPath(directory, number);
+            if (Files.exists(AuditSegment.indexPath(directory, number))) {
+                // сегмент сжат, но исходный файл мог остаться после остановки
+                Files.deleteIfExists(log);
+                segments.add(AuditSegment.load(directory, number));
+            } else if (Files.exists(log)) {
+                Files.deleteIfExists(AuditSegment.segmentPath(directory, number));
+                AuditSegment recovered = AuditSegment.recover(directory, number);
+                if (recovered.count() > 0) {
+                    segments.add(recovered.compress(directory));
+                } else {
+                    recovered.delete(directory);
+                }
+            } else {
+                Files.deleteIfExists(AuditSegment.segmentPath(directory, number));
+            }
+        }
+        for (AuditSegment segment : segments) {
+            lastId = Math.max(lastId, segment.maxId());
+        }
+        nextNumber = numbers.isEmpty() ? 1 : numbers.last() + 1;
+        applyRetention();
+        active = AuditSegment.create(directory, nextNumber++, clock.getAsLong());
+    }
+
+    private void roll() throws IOException {
+        segments.add(active.compress(directory));
+        active = AuditSegment.create(directory, nextNumber++, clock.getAsLong());
+        applyRetention();
+    }
+
+    private void applyRetention() throws IOException {
+        if (retention.getMaxAge() != null) {
+            long threshold = clock.getAsLong() - retention.getMaxAge().toMillis();
+            Iterator<AuditSegment> iterator = segments.iterator();
+            while (iterator.hasNext()) {
+                AuditSegment segment = iterator.next();
+                if (segment.maxTime() >= threshold) {
+                    break;
+                }
+                segment.delete(directory);
+                iterator.remove();
+            }
+        }
+        if (retention.getMaxTotalBytes() > 0) {
+            long total = 0;
+            for (AuditSegment segment : segments) {
+                total += segment.bytes();
+            }
+            while (total > retention.getMaxTotalBytes() && !segments.isEmpty()) {
+                AuditSegment oldest = segments.remove(0);
+                total -= oldest.bytes();
+                oldest.delete(directory);
+            }
+        }
+    }
+
+    private List<Audit> collect(Predicate<AuditSegment.Block> blockFilter, Predicate<Audit> filter) {
+        List<Audit> result = new ArrayList<>();
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            for (AuditSegment segment : segments) {
+                segment.read(blockFilter, audit -> addIf(result, audit, filter));
+            }
+            if (active != null) {
+                active.read(blockFilter, audit -> addIf(result, audit, filter));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал аудита", e);
+        } finally {
+            shared.unlock();
+        }
+        return result;
+    }
+
+    private static void closeAll(List<AuditSegment.Reader> readers) {
+        for (AuditSegment.Reader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // файл открыт только для чтения, ошибка закрытия не теряет данных
+            }
+        }
+    }
+
+    private static void addIf(List<Audit> result, Audit audit, Predicate<Audit> filter) {
+        if (filter.test(audit)) {
+            result.add(audit);
+        }
+    }
+
+    private static List<Audit> sortByDate(List<Audit> audits) {
+        audits.sort(Comparator.comparingLong(SegmentedAuditRepository::timeOf));
+        return audits;
+    }
+
+    private static long timeOf(Audit audit) {
+        return audit.getDate() == null ? Long.MIN_VALUE : audit.getDate().getTime();
+    }
+
+    /**
+     * Обход сегментов по блокам: следующий блок распаковывается, когда записи текущего закончились.
+     */
+    private static final class SegmentSpliterator extends Spliterators.AbstractSpliterator<Audit> {
+        private final Iterator<AuditSegment.Reader> readers;
+        private final ArrayDeque<Audit> buffer = new ArrayDeque<>(AuditSegment.BLOCK_RECORDS);
+        private AuditSegment.Reader current;
+
+        private SegmentSpliterator(List<AuditSegment.Reader> readers) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.readers = readers.iterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Audit> action) {
+            try {
+                while (buffer.isEmpty()) {
+                    if (current == null || !current.readBlock(buffer::add)) {
+                        if (!readers.hasNext()) {
+                            return false;
+                        }
+                        current = readers.next();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать журнал аудита", e);
+            }
+            action.accept(buffer.poll());
+            return true;
+        }
+    }
+}
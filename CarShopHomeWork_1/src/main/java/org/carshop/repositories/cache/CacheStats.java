@@ -0,0 +1,79 @@
+package org.carshop.repositories.cache;
+
+/**
+ * Статистика кеша на момент запроса.
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    /**
+     * Создает статистику.
+     *
+     * @param hits количество попаданий
+     * @param misses количество промахов
+     * @param evictions количество вытесненных из-за размера записей
+     * @param size текущее количество записей
+     */
+    public CacheStats(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Возвращает количество попаданий.
+     *
+     * @return количество запросов, обслуженных из кеша
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Возвращает количество промахов.
+     *
+     * @return количество запросов, переданных в репозиторий
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Возвращает количество вытесненных записей.
+     *
+     * @return количество записей, удаленных из кеша из-за ограничения размера
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Возвращает текущий размер кеша.
+     *
+     * @return количество записей в кеше
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Возвращает долю попаданий.
+     *
+     * @return отношение попаданий ко всем запросам, или 0, если запросов не было
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("попадания: %d, промахи: %d (%.1f%% попаданий), вытеснено: %d, записей: %d",
+                hits, misses, getHitRate() * 100, evictions, size);
+    }
+}
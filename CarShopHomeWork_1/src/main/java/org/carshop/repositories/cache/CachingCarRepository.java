@@ -0,0 +1,230 @@
+package org.carshop.repositories.cache;
+
+import org.carshop.model.Car;
+import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.Page;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий автомобилей с кешем поиска по идентификатору перед другим репозиторием.
+ * <p>{@link #findById(String)} обслуживается из {@link EntityCache}, остальные запросы передаются
+ * в исходный репозиторий. Сохранение, обновление и удаление сначала выполняются в исходном
+ * репозитории, затем запись удаляется из кеша. Кеш хранит собственные копии, а вызывающий код
+ * получает новую копию при каждом обращении, поэтому изменение найденного автомобиля не влияет на кеш.</p>
+ */
+public class CachingCarRepository implements CarRepository {
+
+    private final CarRepository delegate;
+    private final EntityCache<String, Car> cache;
+
+    /**
+     * Создает кеширующий репозиторий.
+     *
+     * @param delegate исходный репозиторий
+     * @param maximumSize максимальное количество автомобилей в кеше
+     * @param ttl время жизни записи в кеше
+     */
+    public CachingCarRepository(CarRepository delegate, int maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maximumSize, ttl);
+    }
+
+    /**
+     * Сохраняет автомобиль и удаляет его из кеша.
+     *
+     * @param car автомобиль для сохранения
+     */
+    @Override
+    public void save(Car car) {
+        delegate.save(car);
+        cache.invalidate(car.getId());
+    }
+
+    /**
+     * Сохраняет автомобили и удаляет их из кеша.
+     *
+     * @param cars автомобили для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Car> cars) {
+        delegate.saveAll(cars);
+        cars.forEach(car -> cache.invalidate(car.getId()));
+    }
+
+    /**
+     * Находит автомобиль по идентификатору, сначала в кеше.
+     *
+     * @param id идентификатор автомобиля
+     * @return копия автомобиля, или null, если автомобиль не найден
+     */
+    @Override
+    public Car findById(String id) {
+        Car car = cache.get(id, delegate::findById);
+        return car == null ? null : new Car(car);
+    }
+
+    /**
+     * Возвращает список всех автомобилей.
+     *
+     * @return список всех автомобилей
+     */
+    @Override
+    public List<Car> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница автомобилей
+     */
+    @Override
+    public Page<Car> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех автомобилей в порядке добавления.
+     *
+     * @return поток автомобилей
+     */
+    @Override
+    public Stream<Car> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит автомобили по марке.
+     *
+     * @param make марка
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByMake(String make) {
+        return delegate.findByMake(make);
+    }
+
+    /**
+     * Находит автомобили по модели.
+     *
+     * @param model модель
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByModel(String model) {
+        return delegate.findByModel(model);
+    }
+
+    /**
+     * Находит автомобили по году выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByYear(int year) {
+        return delegate.findByYear(year);
+    }
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findAllOrderByPrice(boolean ascending) {
+        return delegate.findAllOrderByPrice(ascending);
+    }
+
+    /**
+     * Находит автомобили с ценой в диапазоне.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByPriceBetween(double min, double max) {
+        return delegate.findByPriceBetween(min, max);
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> cheapest(int k) {
+        return delegate.cheapest(k);
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> mostExpensive(int k) {
+        return delegate.mostExpensive(k);
+    }
+
+    /**
+     * Обновляет автомобиль и удаляет его из кеша.
+     *
+     * @param car автомобиль с обновленными данными
+     */
+    @Override
+    public void update(Car car) {
+        delegate.update(car);
+        cache.invalidate(car.getId());
+    }
+
+    /**
+     * Удаляет автомобиль и его запись в кеше.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        delegate.delete(id);
+        cache.invalidate(id);
+    }
+
+    /**
+     * Возвращает количество автомобилей.
+     *
+     * @return количество автомобилей
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return delegate.nextId();
+    }
+
+    /**
+     * Возвращает статистику кеша.
+     *
+     * @return количество попаданий, промахов и вытесненных записей
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,190 @@
+package org.carshop.repositories.cache;
+
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.Page;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий заказов с кешем поиска по идентификатору перед другим репозиторием.
+ * <p>{@link #findById(String)} обслуживается из {@link EntityCache}, остальные запросы передаются
+ * в исходный репозиторий. Сохранение, обновление и удаление сначала выполняются в исходном
+ * репозитории, затем запись удаляется из кеша. Вызывающий код получает копию заказа, в которой
+ * клиент и автомобиль общие с кешем и должны считаться только для чтения.</p>
+ */
+public class CachingOrderRepository implements OrderRepository {
+
+    private final OrderRepository delegate;
+    private final EntityCache<String, Order> cache;
+
+    /**
+     * Создает кеширующий репозиторий.
+     *
+     * @param delegate исходный репозиторий
+     * @param maximumSize максимальное количество заказов в кеше
+     * @param ttl время жизни записи в кеше
+     */
+    public CachingOrderRepository(OrderRepository delegate, int maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maximumSize, ttl);
+    }
+
+    /**
+     * Сохраняет заказ и удаляет его из кеша.
+     *
+     * @param order заказ для сохранения
+     */
+    @Override
+    public void save(Order order) {
+        delegate.save(order);
+        cache.invalidate(order.getId());
+    }
+
+    /**
+     * Сохраняет заказы и удаляет их из кеша.
+     *
+     * @param orders заказы для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Order> orders) {
+        delegate.saveAll(orders);
+        orders.forEach(order -> cache.invalidate(order.getId()));
+    }
+
+    /**
+     * Находит заказ по идентификатору, сначала в кеше.
+     *
+     * @param id идентификатор заказа
+     * @return копия заказа, или null, если заказ не найден
+     */
+    @Override
+    public Order findById(String id) {
+        Order order = cache.get(id, delegate::findById);
+        return order == null ? null : new Order(order);
+    }
+
+    /**
+     * Возвращает список всех заказов.
+     *
+     * @return список всех заказов
+     */
+    @Override
+    public List<Order> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница заказов
+     */
+    @Override
+    public Page<Order> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех заказов в порядке добавления.
+     *
+     * @return поток заказов
+     */
+    @Override
+    public Stream<Order> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит активный заказ на автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return активный заказ, или null, если автомобиль свободен
+     */
+    @Override
+    public Order findActiveOrderByCarId(String carId) {
+        return delegate.findActiveOrderByCarId(carId);
+    }
+
+    /**
+     * Находит все заказы клиента.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента
+     */
+    @Override
+    public List<Order> findByClientId(String clientId) {
+        return delegate.findByClientId(clientId);
+    }
+
+    /**
+     * Обновляет заказ и удаляет его из кеша.
+     *
+     * @param order заказ с обновленными данными
+     */
+    @Override
+    public void update(Order order) {
+        delegate.update(order);
+        cache.invalidate(order.getId());
+    }
+
+    /**
+     * Атомарно меняет статус заказа и удаляет его из кеша.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если статус изменен
+     */
+    @Override
+    public boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status) {
+        boolean updated = delegate.compareAndSetStatus(id, expectedVersion, status);
+        cache.invalidate(id);
+        return updated;
+    }
+
+    /**
+     * Удаляет заказ и его запись в кеше.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        delegate.delete(id);
+        cache.invalidate(id);
+    }
+
+    /**
+     * Возвращает количество заказов.
+     *
+     * @return количество заказов
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return delegate.nextId();
+    }
+
+    /**
+     * Возвращает статистику кеша.
+     *
+     * @return количество попаданий, промахов и вытесненных записей
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,210 @@
+package org.carshop.repositories.cache;
+
+import org.carshop.model.User;
+import org.carshop.repositories.Page;
+import org.carshop.repositories.UserRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий пользователей с кешем поиска по идентификатору и имени перед другим репозиторием.
+ * <p>Пользователи кешируются по идентификатору, а для имен хранится только соответствие имени
+ * идентификатору. Найденный по имени пользователь проверяется: если его имя с тех пор изменилось,
+ * запрос передается в исходный репозиторий. Поэтому переименование и удаление достаточно
+ * отразить сбросом записи по идентификатору.</p>
+ * <p>Сохранение, обновление и удаление сначала выполняются в исходном репозитории, затем запись
+ * удаляется из кеша. Вызывающий код получает новую копию при каждом обращении.</p>
+ */
+public class CachingUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final EntityCache<String, User> cache;
+    private final EntityCache<String, String> idsByUsername;
+
+    /**
+     * Создает кеширующий репозиторий.
+     *
+     * @param delegate исходный репозиторий
+     * @param maximumSize максимальное количество пользователей в кеше
+     * @param ttl время жизни записи в кеше
+     */
+    public CachingUserRepository(UserRepository delegate, int maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maximumSize, ttl);
+        this.idsByUsername = new EntityCache<>(maximumSize, ttl);
+    }
+
+    /**
+     * Сохраняет пользователя и удаляет его из кеша.
+     *
+     * @param user пользователь для сохранения
+     */
+    @Override
+    public void save(User user) {
+        delegate.save(user);
+        cache.invalidate(user.getId());
+    }
+
+    /**
+     * Сохраняет пользователей и удаляет их из кеша.
+     *
+     * @param users пользователи для сохранения
+     */
+    @Override
+    public void saveAll(Collection<User> users) {
+        delegate.saveAll(users);
+        users.forEach(user -> cache.invalidate(user.getId()));
+    }
+
+    /**
+     * Сохраняет нового пользователя, если его имя еще не занято, и удаляет его из кеша.
+     *
+     * @param user новый пользователь
+     * @return {@code true}, если пользователь сохранен, {@code false}, если имя уже занято
+     */
+    @Override
+    public boolean saveIfUsernameAbsent(User user) {
+        boolean saved = delegate.saveIfUsernameAbsent(user);
+        cache.invalidate(user.getId());
+        idsByUsername.invalidate(user.getUsername());
+        return saved;
+    }
+
+    /**
+     * Находит пользователя по идентификатору, сначала в кеше.
+     *
+     * @param id идентификатор пользователя
+     * @return копия пользователя, или null, если пользователь не найден
+     */
+    @Override
+    public User findById(String id) {
+        User user = cache.get(id, delegate::findById);
+        return user == null ? null : new User(user);
+    }
+
+    /**
+     * Находит пользователя по имени, сначала в кеше.
+     *
+     * @param username имя пользователя
+     * @return копия пользователя, или null, если пользователь не найден
+     */
+    @Override
+    public User findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        String id = idsByUsername.get(username, name -> {
+            User found = delegate.findByUsername(name);
+            return found == null ? null : found.getId();
+        });
+        if (id == null) {
+            return null;
+        }
+        User user = findById(id);
+        if (user != null && username.equals(user.getUsername())) {
+            return user;
+        }
+        idsByUsername.invalidate(username);
+        return delegate.findByUsername(username);
+    }
+
+    /**
+     * Возвращает список всех пользователей.
+     *
+     * @return список всех пользователей
+     */
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница пользователей
+     */
+    @Override
+    public Page<User> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех пользователей в порядке добавления.
+     *
+     * @return поток пользователей
+     */
+    @Override
+    public Stream<User> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Обновляет пользователя и удаляет его из кеша.
+     *
+     * @param user пользователь с обновленными данными
+     */
+    @Override
+    public void update(User user) {
+        delegate.update(user);
+        cache.invalidate(user.getId());
+    }
+
+    /**
+     * Изменяет количество покупок пользователя и удаляет его из кеша.
+     *
+     * @param id идентификатор пользователя
+     * @param delta на сколько изменить количество покупок
+     * @return {@code true}, если пользователь найден и изменен
+     */
+    @Override
+    public boolean adjustPurchaseCount(String id, int delta) {
+        boolean adjusted = delegate.adjustPurchaseCount(id, delta);
+        cache.invalidate(id);
+        return adjusted;
+    }
+
+    /**
+     * Удаляет пользователя и его запись в кеше.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        delegate.delete(id);
+        cache.invalidate(id);
+    }
+
+    /**
+     * Возвращает количество пользователей.
+     *
+     * @return количество пользователей
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return delegate.nextId();
+    }
+
+    /**
+     * Возвращает статистику кеша пользователей по идентификатору.
+     *
+     * @return количество попаданий, промахов и вытесненных записей
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,202 @@
+package org.carshop.repositories.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный по размеру кеш сущностей со сквозным чтением.
+ * <p>Записи хранятся в порядке последнего обращения. Когда кеш заполнен, новая запись сравнивается
+ * с самой давно не использованной по частоте обращений ({@link FrequencySketch}) и попадает в кеш,
+ * только если к ее ключу обращаются чаще. Благодаря этому одноразовые чтения, например при просмотре
+ * всего каталога, не вытесняют часто используемые записи. Запись устаревает через заданное время после
+ * загрузки.</p>
+ * <p>Кеш разбит на сегменты по хешу ключа, у каждого сегмента свои записи, счетчик частоты и блокировка,
+ * поэтому обращения к разным сегментам не ждут друг друга. Размер кеша делится между сегментами поровну,
+ * а порядок вытеснения и частота обращений учитываются внутри сегмента. Небольшой кеш состоит из одного
+ * сегмента.</p>
+ * <p>Если во время загрузки значения из репозитория в сегменте ключа была сброшена какая-либо запись,
+ * загруженное значение не сохраняется, так как оно могло быть прочитано до изменения. Поэтому сброс
+ * одного ключа отменяет сохранение только загрузок из его сегмента.</p>
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class EntityCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Создает кеш.
+     *
+     * @param maximumSize максимальное количество записей
+     * @param ttl время жизни записи после загрузки
+     */
+    public EntityCache(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    /**
+     * Создает кеш с указанным источником времени.
+     *
+     * @param maximumSize максимальное количество записей
+     * @param ttl время жизни записи после загрузки
+     * @param clock источник времени в наносекундах
+     */
+    @SuppressWarnings("unchecked")
+    public EntityCache(int maximumSize, Duration ttl, LongSupplier clock) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным: " + maximumSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Время жизни записи должно быть положительным: " + ttl);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Возвращает значение из кеша или загружает его.
+     * Отсутствующие значения ({@code null}) не кешируются.
+     *
+     * @param key ключ
+     * @param loader загрузка значения из репозитория
+     * @return значение, или {@code null}, если оно не найдено
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        long stamp;
+        synchronized (segment) {
+            segment.sketch.increment(key);
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - clock.getAsLong() > 0) {
+                    segment.hits++;
+                    return entry.value;
+                }
+                segment.entries.remove(key);
+            }
+            segment.misses++;
+            stamp = segment.invalidations;
+        }
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (stamp == segment.invalidations) {
+                    admit(segment, key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Удаляет запись из кеша. Вызывается после изменения сущности в репозитории.
+     *
+     * @param key ключ
+     */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.entries.remove(key);
+        }
+    }
+
+    /**
+     * Удаляет все записи из кеша.
+     */
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                segment.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Возвращает статистику кеша.
+     *
+     * @return количество попаданий, промахов и вытесненных записей
+     */
+    public CacheStats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+                misses += segment.misses;
+                evictions += segment.evictions;
+                size += segment.entries.size();
+            }
+        }
+        return new CacheStats(hits, misses, evictions, size);
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private void admit(Segment<K, V> segment, K key, V value) {
+        long now = clock.getAsLong();
+        LinkedHashMap<K, Entry<V>> entries = segment.entries;
+        if (!entries.containsKey(key) && entries.size() >= segment.maximumSize) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            Map.Entry<K, Entry<V>> victim = eldest.next();
+            if (victim.getValue().expiresAt - now <= 0) {
+                eldest.remove();
+            } else if (segment.sketch.frequency(key) > segment.sketch.frequency(victim.getKey())) {
+                eldest.remove();
+                segment.evictions++;
+            } else {
+                return;
+            }
+        }
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    /**
+     * Сегмент кеша: записи, счетчик частоты и статистика. Поля изменяются под блокировкой сегмента.
+     */
+    private static final class Segment<K, V> {
+        private final int maximumSize;
+        private final FrequencySketch sketch;
+        private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long invalidations;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
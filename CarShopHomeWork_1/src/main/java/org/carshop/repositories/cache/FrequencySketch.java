@@ -0,0 +1,85 @@
+package org.carshop.repositories.cache;
+
+/**
+ * Приблизительный счетчик частоты обращений к ключам (count-min sketch).
+ * <p>Для каждого ключа увеличиваются четыре счетчика в разных строках таблицы, оценкой частоты служит
+ * наименьший из них. Счетчики ограничены значением 15 и периодически уменьшаются вдвое, чтобы давно
+ * популярные ключи со временем уступали место новым.</p>
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Создает счетчик для кеша указанного размера.
+     *
+     * @param maximumSize максимальный размер кеша
+     */
+    FrequencySketch(int maximumSize) {
+        int width = Integer.highestOneBit(Math.max(16, maximumSize - 1) << 1);
+        table = new int[DEPTH][width];
+        mask = width - 1;
+        sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    /**
+     * Учитывает обращение к ключу.
+     *
+     * @param key ключ
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Возвращает оценку частоты обращений к ключу.
+     *
+     * @param key ключ
+     * @return оценка частоты, не больше 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[row][indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,271 @@
+package org.carshop.repositories.events;
+
+import org.carshop.model.Car;
+import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.Page;
+import org.carshop.repositories.StripedLock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий автомобилей, уведомляющий подписчиков о записях в другой репозиторий.
+ * <p>Сохранение, обновление и удаление выполняются в исходном репозитории под блокировкой полосы
+ * {@link StripedLock} автомобиля. Под той же блокировкой читается состояние до записи, и подписчики
+ * {@link WriteListener} получают оба состояния, поэтому изменения одного автомобиля не теряются и
+ * не переставляются. Чтение передается в исходный репозиторий без блокировок.</p>
+ */
+public class ObservableCarRepository implements CarRepository {
+
+    private final CarRepository delegate;
+    private final StripedLock locks = new StripedLock();
+    private final List<WriteListener<Car>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param delegate исходный репозиторий
+     */
+    public ObservableCarRepository(CarRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Подписывает слушателя на записи в репозиторий.
+     *
+     * @param listener слушатель
+     */
+    public void addListener(WriteListener<Car> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Сохраняет автомобиль и уведомляет подписчиков.
+     *
+     * @param car автомобиль для сохранения
+     */
+    @Override
+    public void save(Car car) {
+        Lock lock = locks.get(car.getId());
+        lock.lock();
+        try {
+            Car previous = delegate.findById(car.getId());
+            delegate.save(car);
+            notifyListeners(previous, car);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет автомобили одним вызовом исходного репозитория и уведомляет подписчиков о каждом.
+     *
+     * @param cars автомобили для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Car> cars) {
+        List<Lock> acquired = locks.getAll(cars.stream().map(Car::getId).collect(Collectors.toList()));
+        acquired.forEach(Lock::lock);
+        try {
+            List<Car> previous = cars.stream().map(car -> delegate.findById(car.getId())).collect(Collectors.toList());
+            delegate.saveAll(cars);
+            int i = 0;
+            for (Car car : cars) {
+                notifyListeners(previous.get(i++), car);
+            }
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Находит автомобиль по идентификатору.
+     *
+     * @param id идентификатор автомобиля
+     * @return найденный автомобиль, или null, если автомобиль не найден
+     */
+    @Override
+    public Car findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Возвращает список всех автомобилей.
+     *
+     * @return список всех автомобилей
+     */
+    @Override
+    public List<Car> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница автомобилей
+     */
+    @Override
+    public Page<Car> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех автомобилей в порядке добавления.
+     *
+     * @return поток автомобилей
+     */
+    @Override
+    public Stream<Car> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит автомобили по марке.
+     *
+     * @param make марка
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByMake(String make) {
+        return delegate.findByMake(make);
+    }
+
+    /**
+     * Находит автомобили по модели.
+     *
+     * @param model модель
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByModel(String model) {
+        return delegate.findByModel(model);
+    }
+
+    /**
+     * Находит автомобили по году выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByYear(int year) {
+        return delegate.findByYear(year);
+    }
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findAllOrderByPrice(boolean ascending) {
+        return delegate.findAllOrderByPrice(ascending);
+    }
+
+    /**
+     * Находит автомобили с ценой в диапазоне.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> findByPriceBetween(double min, double max) {
+        return delegate.findByPriceBetween(min, max);
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> cheapest(int k) {
+        return delegate.cheapest(k);
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return список автомобилей
+     */
+    @Override
+    public List<Car> mostExpensive(int k) {
+        return delegate.mostExpensive(k);
+    }
+
+    /**
+     * Обновляет автомобиль и уведомляет подписчиков.
+     *
+     * @param car автомобиль с обновленными данными
+     */
+    @Override
+    public void update(Car car) {
+        Lock lock = locks.get(car.getId());
+        lock.lock();
+        try {
+            Car previous = delegate.findById(car.getId());
+            delegate.update(car);
+            notifyListeners(previous, delegate.findById(car.getId()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет автомобиль и уведомляет подписчиков, если он был в репозитории.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Car previous = delegate.findById(id);
+            delegate.delete(id);
+            if (previous != null) {
+                notifyListeners(previous, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество автомобилей.
+     *
+     * @return количество автомобилей
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return delegate.nextId();
+    }
+
+    private void notifyListeners(Car previous, Car current) {
+        for (WriteListener<Car> listener : listeners) {
+            listener.onWrite(previous, current);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.carshop.repositories.events;
+
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.Page;
+import org.carshop.repositories.StripedLock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий заказов, уведомляющий подписчиков о записях в другой репозиторий.
+ * <p>Сохранение, обновление, смена статуса и удаление выполняются в исходном репозитории под блокировкой
+ * полосы {@link StripedLock} заказа. Под той же блокировкой читаются состояния до и после записи, и
+ * подписчики {@link WriteListener} получают оба состояния. Чтение передается в исходный репозиторий
+ * без блокировок.</p>
+ */
+public class ObservableOrderRepository implements OrderRepository {
+
+    private final OrderRepository delegate;
+    private final StripedLock locks = new StripedLock();
+    private final List<WriteListener<Order>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param delegate исходный репозиторий
+     */
+    public ObservableOrderRepository(OrderRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Подписывает слушателя на записи в репозиторий.
+     *
+     * @param listener слушатель
+     */
+    public void addListener(WriteListener<Order> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Сохраняет заказ и уведомляет подписчиков.
+     *
+     * @param order заказ для сохранения
+     */
+    @Override
+    public void save(Order order) {
+        Lock lock = locks.get(order.getId());
+        lock.lock();
+        try {
+            Order previous = delegate.findById(order.getId());
+            delegate.save(order);
+            notifyListeners(previous, order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет заказы одним вызовом исходного репозитория и уведомляет подписчиков о каждом.
+     *
+     * @param orders заказы для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Order> orders) {
+        List<Lock> acquired = locks.getAll(orders.stream().map(Order::getId).collect(Collectors.toList()));
+        acquired.forEach(Lock::lock);
+        try {
+            List<Order> previous = orders.stream().map(order -> delegate.findById(order.getId())).collect(Collectors.toList());
+            delegate.saveAll(orders);
+            int i = 0;
+            for (Order order : orders) {
+                notifyListeners(previous.get(i++), order);
+            }
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Находит заказ по идентификатору.
+     *
+     * @param id идентификатор заказа
+     * @return найденный заказ, или null, если он не найден
+     */
+    @Override
+    public Order findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Возвращает список всех заказов.
+     *
+     * @return список всех заказов
+     */
+    @Override
+    public List<Order> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница заказов
+     */
+    @Override
+    public Page<Order> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех заказов в порядке добавления.
+     *
+     * @return поток заказов
+     */
+    @Override
+    public Stream<Order> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит активный заказ на автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return активный заказ, или null, если автомобиль свободен
+     */
+    @Override
+    public Order findActiveOrderByCarId(String carId) {
+        return delegate.findActiveOrderByCarId(carId);
+    }
+
+    /**
+     * Находит все заказы клиента.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента
+     */
+    @Override
+    public List<Order> findByClientId(String clientId) {
+        return delegate.findByClientId(clientId);
+    }
+
+    /**
+     * Обновляет заказ и уведомляет подписчиков о сохраненном состоянии.
+     *
+     * @param order заказ с обновленными данными
+     */
+    @Override
+    public void update(Order order) {
+        Lock lock = locks.get(order.getId());
+        lock.lock();
+        try {
+            Order previous = delegate.findById(order.getId());
+            delegate.update(order);
+            notifyListeners(previous, delegate.findById(order.getId()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Атомарно меняет статус заказа и, если он изменен, уведомляет подписчиков.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если статус изменен
+     */
+    @Override
+    public boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Order previous = delegate.findById(id);
+            if (!delegate.compareAndSetStatus(id, expectedVersion, status)) {
+                return false;
+            }
+            notifyListeners(previous, delegate.findById(id));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет заказ и уведомляет подписчиков, если он был в репозитории.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Order previous = delegate.findById(id);
+            delegate.delete(id);
+            if (previous != null) {
+                notifyListeners(previous, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество заказов.
+     *
+     * @return количество заказов
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return delegate.nextId();
+    }
+
+    private void notifyListeners(Order previous, Order current) {
+        for (WriteListener<Order> listener : listeners) {
+            listener.onWrite(previous, current);
+        }
+    }
+}
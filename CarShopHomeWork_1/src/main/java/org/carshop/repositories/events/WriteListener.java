@@ -0,0 +1,21 @@
+package org.carshop.repositories.events;
+
+/**
+ * Подписчик на изменения сущностей в репозитории.
+ * <p>Получает состояние сущности до и после записи: при добавлении {@code previous} равен {@code null},
+ * при удалении {@code null} равен {@code current}. Вызывается в потоке, выполнившем запись, под
+ * блокировкой сущности, поэтому изменения одной сущности приходят по порядку и не пересекаются.</p>
+ *
+ * @param <T> тип сущности
+ */
+@FunctionalInterface
+public interface WriteListener<T> {
+
+    /**
+     * Обрабатывает изменение сущности.
+     *
+     * @param previous состояние до записи, или {@code null}, если сущность добавлена
+     * @param current состояние после записи, или {@code null}, если сущность удалена
+     */
+    void onWrite(T previous, T current);
+}
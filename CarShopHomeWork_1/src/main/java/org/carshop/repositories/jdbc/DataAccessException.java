@@ -0,0 +1,21 @@
+package org.carshop.repositories.jdbc;
+
+/**
+ * Ошибка обращения к базе данных.
+ * <p>Оборачивает {@link java.sql.SQLException}, чтобы JDBC-репозитории реализовывали те же интерфейсы,
+ * что и репозитории в памяти, без проверяемых исключений.</p>
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Создает исключение.
+     *
+     * @param message описание операции, которая не удалась
+     * @param cause исходная ошибка
+     */
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,55 @@
+package org.carshop.repositories.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Создает пул соединений с базой данных.
+ * <p>Для драйвера PostgreSQL включается серверная подготовка запросов с первого выполнения
+ * и кеш подготовленных запросов на соединение, а пакетные вставки переписываются в многострочные
+ * {@code INSERT}. Репозитории используют постоянные тексты запросов, поэтому каждый запрос
+ * подготавливается на соединении один раз.</p>
+ */
+public final class DataSourceFactory {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private DataSourceFactory() {
+    }
+
+    /**
+     * Создает пул соединений с размером по умолчанию.
+     *
+     * @param url адрес базы данных
+     * @param username имя пользователя базы данных
+     * @param password пароль пользователя базы данных
+     * @return пул соединений, который нужно закрыть при завершении работы
+     */
+    public static HikariDataSource create(String url, String username, String password) {
+        return create(url, username, password, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Создает пул соединений.
+     *
+     * @param url адрес базы данных
+     * @param username имя пользователя базы данных
+     * @param password пароль пользователя базы данных
+     * @param poolSize максимальное количество соединений
+     * @return пул соединений, который нужно закрыть при завершении работы
+     */
+    public static HikariDataSource create(String url, String username, String password, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setPoolName("carshop");
+        if (url.startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("prepareThreshold", "1");
+            config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+            config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        }
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,268 @@
+package org.carshop.repositories.jdbc;
+
+import org.carshop.model.Car;
+import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.Page;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий автомобилей в базе данных PostgreSQL.
+ * <p>Соединения берутся из пула, запросы имеют постоянный текст и подготавливаются на соединении
+ * один раз. Поиск по марке и модели выполняется без учета регистра через {@code lower()}, полные
+ * выборки упорядочены по порядку добавления.</p>
+ */
+public class JdbcCarRepository extends JdbcRepositorySupport<Car> implements CarRepository {
+
+    private static final String COLUMNS = "id, make, model, production_year, price, condition, seq";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM cars";
+
+    private static final String INSERT =
+            "INSERT INTO cars (id, make, model, production_year, price, condition) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE cars SET make = ?, model = ?, production_year = ?, price = ?, condition = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM cars WHERE id = ?";
+    private static final String FIND_BY_ID = SELECT + " WHERE id = ?";
+    private static final String FIND_ALL = SELECT + " ORDER BY seq";
+    private static final String FIND_PAGE = SELECT + " WHERE seq > ? ORDER BY seq LIMIT ?";
+    private static final String FIND_BY_MAKE = SELECT + " WHERE lower(make) = ? ORDER BY seq";
+    private static final String FIND_BY_MODEL = SELECT + " WHERE lower(model) = ? ORDER BY seq";
+    private static final String FIND_BY_YEAR = SELECT + " WHERE production_year = ? ORDER BY seq";
+    private static final String ORDER_BY_PRICE_ASC = SELECT + " ORDER BY price, seq";
+    private static final String ORDER_BY_PRICE_DESC = SELECT + " ORDER BY price DESC, seq";
+    private static final String FIND_BY_PRICE_BETWEEN = SELECT + " WHERE price BETWEEN ? AND ? ORDER BY price, seq";
+    private static final String CHEAPEST = ORDER_BY_PRICE_ASC + " LIMIT ?";
+    private static final String MOST_EXPENSIVE = ORDER_BY_PRICE_DESC + " LIMIT ?";
+    private static final String COUNT = "SELECT count(*) FROM cars";
+    private static final String NEXT_ID = "SELECT nextval('car_ids')";
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param dataSource пул соединений с базой данных
+     */
+    public JdbcCarRepository(DataSource dataSource) {
+        super(dataSource, row -> new Car(
+                row.getString("id"),
+                row.getString("make"),
+                row.getString("model"),
+                row.getInt("production_year"),
+                row.getDouble("price"),
+                row.getString("condition")));
+    }
+
+    /**
+     * Сохраняет автомобиль. Если автомобиль с таким идентификатором уже есть, он заменяется.
+     *
+     * @param car автомобиль для сохранения
+     */
+    @Override
+    public void save(Car car) {
+        saveAll(Collections.singletonList(car));
+    }
+
+    /**
+     * Сохраняет автомобили одной транзакцией с пакетными обновлением и вставкой.
+     *
+     * @param cars автомобили для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Car> cars) {
+        upsertAll(cars, UPDATE, JdbcCarRepository::bindUpdate, INSERT, (statement, car) -> {
+            statement.setString(1, car.getId());
+            statement.setString(2, car.getMake());
+            statement.setString(3, car.getModel());
+            statement.setInt(4, car.getYear());
+            statement.setDouble(5, car.getPrice());
+            statement.setString(6, car.getCondition());
+        });
+    }
+
+    /**
+     * Находит автомобиль по его идентификатору.
+     *
+     * @param id идентификатор автомобиля
+     * @return автомобиль с указанным идентификатором, или null, если автомобиль не найден
+     */
+    @Override
+    public Car findById(String id) {
+        return queryOne(FIND_BY_ID, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Возвращает список всех автомобилей в порядке добавления.
+     *
+     * @return список всех автомобилей
+     */
+    @Override
+    public List<Car> findAll() {
+        return queryList(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество автомобилей на странице
+     * @return страница автомобилей
+     */
+    @Override
+    public Page<Car> findPage(String cursor, int limit) {
+        return queryPage(FIND_PAGE, cursor, limit);
+    }
+
+    /**
+     * Возвращает поток всех автомобилей, читаемый с сервера порциями. Поток нужно закрыть.
+     *
+     * @return поток автомобилей
+     */
+    @Override
+    public Stream<Car> stream() {
+        return queryStream(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Находит автомобили указанной марки без учета регистра.
+     *
+     * @param make марка автомобиля
+     * @return список автомобилей с указанной маркой
+     */
+    @Override
+    public List<Car> findByMake(String make) {
+        return queryList(FIND_BY_MAKE, statement -> statement.setString(1, fold(make)));
+    }
+
+    /**
+     * Находит автомобили указанной модели без учета регистра.
+     *
+     * @param model модель автомобиля
+     * @return список автомобилей с указанной моделью
+     */
+    @Override
+    public List<Car> findByModel(String model) {
+        return queryList(FIND_BY_MODEL, statement -> statement.setString(1, fold(model)));
+    }
+
+    /**
+     * Находит автомобили указанного года выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей с указанным годом выпуска
+     */
+    @Override
+    public List<Car> findByYear(int year) {
+        return queryList(FIND_BY_YEAR, statement -> statement.setInt(1, year));
+    }
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     * Автомобили с одинаковой ценой идут в порядке добавления.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return список автомобилей, упорядоченный по цене
+     */
+    @Override
+    public List<Car> findAllOrderByPrice(boolean ascending) {
+        return queryList(ascending ? ORDER_BY_PRICE_ASC : ORDER_BY_PRICE_DESC, StatementBinder.NONE);
+    }
+
+    /**
+     * Находит автомобили с ценой в указанном диапазоне включительно, упорядоченные по возрастанию цены.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей с ценой в диапазоне
+     */
+    @Override
+    public List<Car> findByPriceBetween(double min, double max) {
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        return queryList(FIND_BY_PRICE_BETWEEN, statement -> {
+            statement.setDouble(1, min);
+            statement.setDouble(2, max);
+        });
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по возрастанию цены
+     */
+    @Override
+    public List<Car> cheapest(int k) {
+        return k <= 0 ? Collections.emptyList() : queryList(CHEAPEST, statement -> statement.setInt(1, k));
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по убыванию цены
+     */
+    @Override
+    public List<Car> mostExpensive(int k) {
+        return k <= 0 ? Collections.emptyList() : queryList(MOST_EXPENSIVE, statement -> statement.setInt(1, k));
+    }
+
+    /**
+     * Обновляет информацию об автомобиле.
+     *
+     * @param car автомобиль с обновленными данными
+     */
+    @Override
+    public void update(Car car) {
+        execute(UPDATE, statement -> bindUpdate(statement, car));
+    }
+
+    /**
+     * Удаляет автомобиль по его идентификатору.
+     *
+     * @param id идентификатор автомобиля для удаления
+     */
+    @Override
+    public void delete(String id) {
+        execute(DELETE, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Возвращает количество автомобилей.
+     *
+     * @return количество автомобилей
+     */
+    @Override
+    public long count() {
+        return queryLong(COUNT, StatementBinder.NONE);
+    }
+
+    /**
+     * Выдает следующий идентификатор автомобиля из последовательности базы данных.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return String.valueOf(queryLong(NEXT_ID, StatementBinder.NONE));
+    }
+
+    private static void bindUpdate(PreparedStatement statement, Car car) throws SQLException {
+        statement.setString(1, car.getMake());
+        statement.setString(2, car.getModel());
+        statement.setInt(3, car.getYear());
+        statement.setDouble(4, car.getPrice());
+        statement.setString(5, car.getCondition());
+        statement.setString(6, car.getId());
+    }
+
+    private static String fold(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,240 @@
+package org.carshop.repositories.jdbc;
+
+import org.carshop.model.Car;
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.Page;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий заказов в базе данных PostgreSQL.
+ * <p>Заказ хранит идентификаторы клиента и автомобиля, при чтении они подставляются соединением
+ * с таблицами пользователей и автомобилей. Если клиент или автомобиль уже удалены, заказ
+ * возвращается со ссылкой, в которой заполнен только идентификатор.</p>
+ */
+public class JdbcOrderRepository extends JdbcRepositorySupport<Order> implements OrderRepository {
+
+    private static final String SELECT = "SELECT o.id, o.client_id, o.car_id, o.order_date, o.status, o.version, o.seq, "
+            + "u.username, u.password, u.role, u.purchase_count, "
+            + "c.make, c.model, c.production_year, c.price, c.condition "
+            + "FROM orders o "
+            + "LEFT JOIN users u ON u.id = o.client_id "
+            + "LEFT JOIN cars c ON c.id = o.car_id";
+
+    private static final String INSERT =
+            "INSERT INTO orders (id, client_id, car_id, order_date, status, version) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String REPLACE =
+            "UPDATE orders SET client_id = ?, car_id = ?, order_date = ?, status = ?, version = ? WHERE id = ?";
+    private static final String UPDATE_STATUS = "UPDATE orders SET status = ?, version = version + 1 WHERE id = ?";
+    private static final String COMPARE_AND_SET_STATUS =
+            "UPDATE orders SET status = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String DELETE = "DELETE FROM orders WHERE id = ?";
+    private static final String FIND_BY_ID = SELECT + " WHERE o.id = ?";
+    private static final String FIND_ALL = SELECT + " ORDER BY o.seq";
+    private static final String FIND_PAGE = SELECT + " WHERE o.seq > ? ORDER BY o.seq LIMIT ?";
+    private static final String FIND_ACTIVE_BY_CAR_ID = SELECT
+            + " WHERE o.car_id = ? AND o.status IN ('PENDING', 'COMPLETED') ORDER BY o.seq DESC LIMIT 1";
+    private static final String FIND_BY_CLIENT_ID = SELECT + " WHERE o.client_id = ? ORDER BY o.order_date, o.seq";
+    private static final String COUNT = "SELECT count(*) FROM orders";
+    private static final String NEXT_ID = "SELECT nextval('order_ids')";
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param dataSource пул соединений с базой данных
+     */
+    public JdbcOrderRepository(DataSource dataSource) {
+        super(dataSource, JdbcOrderRepository::mapOrder);
+    }
+
+    /**
+     * Сохраняет заказ. Если заказ с таким идентификатором уже есть, он заменяется.
+     *
+     * @param order заказ для сохранения
+     */
+    @Override
+    public void save(Order order) {
+        saveAll(Collections.singletonList(order));
+    }
+
+    /**
+     * Сохраняет заказы одной транзакцией с пакетными обновлением и вставкой.
+     *
+     * @param orders заказы для сохранения
+     */
+    @Override
+    public void saveAll(Collection<Order> orders) {
+        upsertAll(orders, REPLACE, (statement, order) -> {
+            statement.setString(1, order.getClient().getId());
+            statement.setString(2, order.getCar().getId());
+            statement.setTimestamp(3, toTimestamp(order.getDate()));
+            statement.setString(4, statusName(order.getStatus()));
+            statement.setLong(5, order.getVersion());
+            statement.setString(6, order.getId());
+        }, INSERT, (statement, order) -> {
+            statement.setString(1, order.getId());
+            statement.setString(2, order.getClient().getId());
+            statement.setString(3, order.getCar().getId());
+            statement.setTimestamp(4, toTimestamp(order.getDate()));
+            statement.setString(5, statusName(order.getStatus()));
+            statement.setLong(6, order.getVersion());
+        });
+    }
+
+    /**
+     * Находит заказ по его идентификатору.
+     *
+     * @param id идентификатор заказа
+     * @return заказ с указанным идентификатором, или null, если заказ не найден
+     */
+    @Override
+    public Order findById(String id) {
+        return queryOne(FIND_BY_ID, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Возвращает список всех заказов в порядке добавления.
+     *
+     * @return список всех заказов
+     */
+    @Override
+    public List<Order> findAll() {
+        return queryList(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество заказов на странице
+     * @return страница заказов
+     */
+    @Override
+    public Page<Order> findPage(String cursor, int limit) {
+        return queryPage(FIND_PAGE, cursor, limit);
+    }
+
+    /**
+     * Возвращает поток всех заказов, читаемый с сервера порциями. Поток нужно закрыть.
+     *
+     * @return поток заказов
+     */
+    @Override
+    public Stream<Order> stream() {
+        return queryStream(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Находит активный заказ на автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return последний активный заказ на автомобиль, или null, если автомобиль свободен
+     */
+    @Override
+    public Order findActiveOrderByCarId(String carId) {
+        return queryOne(FIND_ACTIVE_BY_CAR_ID, statement -> statement.setString(1, carId));
+    }
+
+    /**
+     * Находит все заказы клиента, упорядоченные по дате.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента по возрастанию даты
+     */
+    @Override
+    public List<Order> findByClientId(String clientId) {
+        return queryList(FIND_BY_CLIENT_ID, statement -> statement.setString(1, clientId));
+    }
+
+    /**
+     * Обновляет статус заказа и увеличивает его версию.
+     *
+     * @param order заказ с обновленным статусом
+     */
+    @Override
+    public void update(Order order) {
+        execute(UPDATE_STATUS, statement -> {
+            statement.setString(1, statusName(order.getStatus()));
+            statement.setString(2, order.getId());
+        });
+    }
+
+    /**
+     * Меняет статус заказа одним условным обновлением строки, если версия в базе совпадает с ожидаемой.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если строка обновлена
+     */
+    @Override
+    public boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status) {
+        return execute(COMPARE_AND_SET_STATUS, statement -> {
+            statement.setString(1, statusName(status));
+            statement.setString(2, id);
+            statement.setLong(3, expectedVersion);
+        }) == 1;
+    }
+
+    /**
+     * Удаляет заказ по его идентификатору.
+     *
+     * @param id идентификатор заказа для удаления
+     */
+    @Override
+    public void delete(String id) {
+        execute(DELETE, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Возвращает количество заказов.
+     *
+     * @return количество заказов
+     */
+    @Override
+    public long count() {
+        return queryLong(COUNT, StatementBinder.NONE);
+    }
+
+    /**
+     * Выдает следующий идентификатор заказа из последовательности базы данных.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return String.valueOf(queryLong(NEXT_ID, StatementBinder.NONE));
+    }
+
+    private static Order mapOrder(ResultSet row) throws SQLException {
+        User client = new User(row.getString("client_id"), row.getString("username"), row.getString("password"),
+                row.getString("role") == null ? null : Role.valueOf(row.getString("role")));
+        client.setPurchaseCount(row.getInt("purchase_count"));
+        Car car = new Car(row.getString("car_id"), row.getString("make"), row.getString("model"),
+                row.getInt("production_year"), row.getDouble("price"), row.getString("condition"));
+        Timestamp date = row.getTimestamp("order_date");
+        String status = row.getString("status");
+        return new Order(row.getString("id"), client, car, date == null ? null : new Date(date.getTime()),
+                status == null ? null : OrderStatus.valueOf(status), row.getLong("version"));
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
+    private static String statusName(OrderStatus status) {
+        return status == null ? null : status.name();
+    }
+}
@@ -0,0 +1,292 @@
+package org.carshop.repositories.jdbc;
+
+import org.carshop.repositories.Page;
+import org.carshop.repositories.Pages;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Общая часть JDBC-репозиториев: выполнение запросов, пакетная запись, потоковое чтение и страницы.
+ * <p>Все таблицы содержат столбец {@code seq} с порядковым номером добавления строки. По нему
+ * упорядочиваются полные выборки и строятся курсоры страниц, как в репозиториях в памяти.</p>
+ *
+ * @param <T> тип сущности
+ */
+abstract class JdbcRepositorySupport<T> {
+
+    /**
+     * Количество строк, которое драйвер получает от сервера за один раз при потоковом чтении.
+     */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * Код SQLSTATE нарушения ограничения уникальности.
+     */
+    static final String UNIQUE_VIOLATION = "23505";
+
+    private final DataSource dataSource;
+    private final RowMapper<T> mapper;
+
+    JdbcRepositorySupport(DataSource dataSource, RowMapper<T> mapper) {
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Устанавливает параметры запроса из сущности.
+     *
+     * @param <E> тип сущности
+     */
+    @FunctionalInterface
+    interface EntityBinder<E> {
+        void bind(PreparedStatement statement, E entity) throws SQLException;
+    }
+
+    List<T> queryList(String sql, StatementBinder binder) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            binder.bind(statement);
+            try (ResultSet rows = statement.executeQuery()) {
+                List<T> result = new ArrayList<>();
+                while (rows.next()) {
+                    result.add(mapper.map(rows));
+                }
+                return result;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Не удалось выполнить запрос: " + sql, e);
+        }
+    }
+
+    T queryOne(String sql, StatementBinder binder) {
+        List<T> result = queryList(sql, binder);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    long queryLong(String sql, StatementBinder binder) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            binder.bind(statement);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Не удалось выполнить запрос: " + sql, e);
+        }
+    }
+
+    int execute(String sql, StatementBinder binder) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            binder.bind(statement);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Не удалось выполнить запрос: " + sql, e);
+        }
+    }
+
+    /**
+     * Сохраняет сущности в одной транзакции: сначала пакетом обновляет существующие строки,
+     * затем пакетом вставляет те, которые не нашлись.
+     * <p>Если параллельная транзакция успела вставить строку с тем же идентификатором, вставка нарушает
+     * первичный ключ. Тогда вставка откатывается до точки сохранения, и ненайденные строки один раз
+     * обновляются и вставляются заново: к этому моменту конфликтующая строка уже зафиксирована.</p>
+     *
+     * @param entities сохраняемые сущности
+     * @param updateSql запрос обновления строки по идентификатору
+     * @param updateBinder параметры запроса обновления
+     * @param insertSql запрос вставки строки
+     * @param insertBinder параметры запроса вставки
+     */
+    <E> void upsertAll(Collection<? extends E> entities, String updateSql, EntityBinder<E> updateBinder,
+                       String insertSql, EntityBinder<E> insertBinder) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<E> missing = updateBatch(connection, new ArrayList<>(entities), updateSql, updateBinder);
+                for (int attempt = 0; !missing.isEmpty(); attempt++) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        insertBatch(connection, missing, insertSql, insertBinder);
+                        break;
+                    } catch (SQLException e) {
+                        if (attempt > 0 || !isUniqueViolation(e)) {
+                            throw e;
+                        }
+                        connection.rollback(savepoint);
+                        missing = updateBatch(connection, missing, updateSql, updateBinder);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Не удалось сохранить записи: " + insertSql, e);
+        }
+    }
+
+    /**
+     * Проверяет, вызвана ли ошибка нарушением ограничения уникальности. Ошибки пакетного выполнения
+     * проверяются вместе со следующими за ними ошибками.
+     *
+     * @param e ошибка базы данных
+     * @return {@code true}, если нарушено ограничение уникальности
+     */
+    static boolean isUniqueViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (UNIQUE_VIOLATION.equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <E> List<E> updateBatch(Connection connection, List<E> batch, String updateSql,
+                                           EntityBinder<E> updateBinder) throws SQLException {
+        List<E> missing = new ArrayList<>();
+        try (PreparedStatement update = connection.prepareStatement(updateSql)) {
+            for (E entity : batch) {
+                updateBinder.bind(update, entity);
+                update.addBatch();
+            }
+            int[] counts = update.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missing.add(batch.get(i));
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static <E> void insertBatch(Connection connection, List<E> missing, String insertSql,
+                                        EntityBinder<E> insertBinder) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            for (E entity : missing) {
+                insertBinder.bind(insert, entity);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Возвращает ленивый поток строк запроса.
+     * Строки читаются с сервера порциями по {@link #FETCH_SIZE}, соединение удерживается до закрытия потока.
+     *
+     * @param sql запрос
+     * @param binder параметры запроса
+     * @return поток сущностей, который нужно закрыть
+     */
+    Stream<T> queryStream(String sql, StatementBinder binder) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rows;
+        try {
+            connection = dataSource.getConnection();
+            // Драйвер PostgreSQL читает результат порциями только внутри транзакции
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            binder.bind(statement);
+            rows = statement.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(null, statement, connection);
+            throw new DataAccessException("Не удалось выполнить запрос: " + sql, e);
+        }
+        Connection openConnection = connection;
+        Statement openStatement = statement;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rows));
+                    return true;
+                } catch (SQLException e) {
+                    throw new DataAccessException("Не удалось прочитать строку запроса: " + sql, e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(rows, openStatement, openConnection));
+    }
+
+    /**
+     * Возвращает страницу строк после курсора.
+     * Запрос должен выбирать столбец {@code seq}, принимать первым параметром порядковый номер после
+     * которого начинается страница, вторым — количество строк, и упорядочивать строки по {@code seq}.
+     *
+     * @param sql запрос страницы
+     * @param cursor курсор предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество строк на странице
+     * @return страница сущностей
+     */
+    Page<T> queryPage(String sql, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        long after = cursor == null ? 0 : Pages.decodeCursor(cursor);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, after);
+            statement.setInt(2, limit + 1);
+            try (ResultSet rows = statement.executeQuery()) {
+                List<T> items = new ArrayList<>(limit);
+                long last = after;
+                while (items.size() < limit && rows.next()) {
+                    items.add(mapper.map(rows));
+                    last = rows.getLong("seq");
+                }
+                return new Page<>(items, rows.next() ? Pages.encodeCursor(last) : null);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Не удалось выполнить запрос: " + sql, e);
+        }
+    }
+
+    private static void closeQuietly(ResultSet rows, Statement statement, Connection connection) {
+        try {
+            if (rows != null) {
+                rows.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+            if (connection != null) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            // ошибка закрытия курсора не влияет на уже прочитанные строки
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // соединение будет закрыто пулом
+                }
+            }
+        }
+    }
+}
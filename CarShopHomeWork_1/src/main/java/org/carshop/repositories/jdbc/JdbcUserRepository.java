@@ -0,0 +1,238 @@
+package org.carshop.repositories.jdbc;
+
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.Page;
+import org.carshop.repositories.UserRepository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий пользователей в базе данных PostgreSQL.
+ * <p>Соединения берутся из пула, запросы имеют постоянный текст и подготавливаются на соединении
+ * один раз. Полные выборки упорядочены по порядку добавления.</p>
+ */
+public class JdbcUserRepository extends JdbcRepositorySupport<User> implements UserRepository {
+
+    private static final String SELECT = "SELECT id, username, password, role, purchase_count, seq FROM users";
+
+    private static final String INSERT =
+            "INSERT INTO users (id, username, password, role, purchase_count) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_IF_USERNAME_ABSENT =
+            "INSERT INTO users (id, username, password, role, purchase_count) SELECT ?, ?, ?, ?, ? "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM users WHERE username = ?)";
+    private static final String UPDATE =
+            "UPDATE users SET username = ?, password = ?, role = ?, purchase_count = ? WHERE id = ?";
+    private static final String ADJUST_PURCHASE_COUNT =
+            "UPDATE users SET purchase_count = greatest(purchase_count + ?, 0) WHERE id = ?";
+    private static final String DELETE = "DELETE FROM users WHERE id = ?";
+    private static final String FIND_BY_ID = SELECT + " WHERE id = ?";
+    private static final String FIND_BY_USERNAME =
+            SELECT + " WHERE lower(username) = lower(?) AND username = ? ORDER BY seq LIMIT 1";
+    private static final String FIND_ALL = SELECT + " ORDER BY seq";
+    private static final String FIND_PAGE = SELECT + " WHERE seq > ? ORDER BY seq LIMIT ?";
+    private static final String COUNT = "SELECT count(*) FROM users";
+    private static final String NEXT_ID = "SELECT nextval('user_ids')";
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param dataSource пул соединений с базой данных
+     */
+    public JdbcUserRepository(DataSource dataSource) {
+        super(dataSource, row -> {
+            String role = row.getString("role");
+            User user = new User(row.getString("id"), row.getString("username"), row.getString("password"),
+                    role == null ? null : Role.valueOf(role));
+            user.setPurchaseCount(row.getInt("purchase_count"));
+            return user;
+        });
+    }
+
+    /**
+     * Сохраняет пользователя. Если пользователь с таким идентификатором уже есть, он заменяется.
+     *
+     * @param user пользователь для сохранения
+     */
+    @Override
+    public void save(User user) {
+        saveAll(Collections.singletonList(user));
+    }
+
+    /**
+     * Сохраняет пользователей одной транзакцией с пакетными обновлением и вставкой.
+     *
+     * @param users пользователи для сохранения
+     */
+    @Override
+    public void saveAll(Collection<User> users) {
+        upsertAll(users, UPDATE, JdbcUserRepository::bindUpdate, INSERT, (statement, user) -> {
+            statement.setString(1, user.getId());
+            statement.setString(2, user.getUsername());
+            statement.setString(3, user.getPassword());
+            statement.setString(4, user.getRole() == null ? null : user.getRole().name());
+            statement.setInt(5, user.getPurchaseCount());
+        });
+    }
+
+    /**
+     * Сохраняет нового пользователя, если его имя еще не занято. Уникальность имени обеспечивает
+     * ограничение {@code users_username_uk}: если две регистрации с одним именем идут одновременно,
+     * вставка второй нарушает его и считается отказом.
+     *
+     * @param user новый пользователь
+     * @return {@code true}, если пользователь сохранен, {@code false}, если имя уже занято
+     * @throws IllegalArgumentException если имя пользователя не задано
+     */
+    @Override
+    public boolean saveIfUsernameAbsent(User user) {
+        if (user.getUsername() == null) {
+            throw new IllegalArgumentException("Имя пользователя не задано");
+        }
+        try {
+            return execute(INSERT_IF_USERNAME_ABSENT, statement -> {
+                statement.setString(1, user.getId());
+                statement.setString(2, user.getUsername());
+                statement.setString(3, user.getPassword());
+                statement.setString(4, user.getRole() == null ? null : user.getRole().name());
+                statement.setInt(5, user.getPurchaseCount());
+                statement.setString(6, user.getUsername());
+            }) == 1;
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException && isUniqueViolation((SQLException) e.getCause())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Находит пользователя по его идентификатору.
+     *
+     * @param id идентификатор пользователя
+     * @return пользователь с указанным идентификатором, или null, если пользователь не найден
+     */
+    @Override
+    public User findById(String id) {
+        return queryOne(FIND_BY_ID, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Находит пользователя по его имени пользователя.
+     * Имя сравнивается точно, условие по {@code lower(username)} нужно, чтобы запрос шел по индексу.
+     *
+     * @param username имя пользователя
+     * @return пользователь с указанным именем, или null, если пользователь не найден
+     */
+    @Override
+    public User findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        return queryOne(FIND_BY_USERNAME, statement -> {
+            statement.setString(1, username);
+            statement.setString(2, username);
+        });
+    }
+
+    /**
+     * Возвращает список всех пользователей в порядке добавления.
+     *
+     * @return список всех пользователей
+     */
+    @Override
+    public List<User> findAll() {
+        return queryList(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество пользователей на странице
+     * @return страница пользователей
+     */
+    @Override
+    public Page<User> findPage(String cursor, int limit) {
+        return queryPage(FIND_PAGE, cursor, limit);
+    }
+
+    /**
+     * Возвращает поток всех пользователей, читаемый с сервера порциями. Поток нужно закрыть.
+     *
+     * @return поток пользователей
+     */
+    @Override
+    public Stream<User> stream() {
+        return queryStream(FIND_ALL, StatementBinder.NONE);
+    }
+
+    /**
+     * Обновляет информацию о пользователе.
+     *
+     * @param user пользователь с обновленными данными
+     */
+    @Override
+    public void update(User user) {
+        execute(UPDATE, statement -> bindUpdate(statement, user));
+    }
+
+    /**
+     * Изменяет количество покупок пользователя одним запросом, атомарно на стороне базы данных.
+     *
+     * @param id идентификатор пользователя
+     * @param delta на сколько изменить количество покупок
+     * @return {@code true}, если пользователь найден и изменен
+     */
+    @Override
+    public boolean adjustPurchaseCount(String id, int delta) {
+        return execute(ADJUST_PURCHASE_COUNT, statement -> {
+            statement.setInt(1, delta);
+            statement.setString(2, id);
+        }) == 1;
+    }
+
+    /**
+     * Удаляет пользователя по его идентификатору.
+     *
+     * @param id идентификатор пользователя для удаления
+     */
+    @Override
+    public void delete(String id) {
+        execute(DELETE, statement -> statement.setString(1, id));
+    }
+
+    /**
+     * Возвращает количество пользователей.
+     *
+     * @return количество пользователей
+     */
+    @Override
+    public long count() {
+        return queryLong(COUNT, StatementBinder.NONE);
+    }
+
+    /**
+     * Выдает следующий идентификатор пользователя из последовательности базы данных.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return String.valueOf(queryLong(NEXT_ID, StatementBinder.NONE));
+    }
+
+    private static void bindUpdate(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUsername());
+        statement.setString(2, user.getPassword());
+        statement.setString(3, user.getRole() == null ? null : user.getRole().name());
+        statement.setInt(4, user.getPurchaseCount());
+        statement.setString(5, user.getId());
+    }
+}
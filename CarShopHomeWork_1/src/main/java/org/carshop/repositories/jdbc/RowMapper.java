@@ -0,0 +1,22 @@
+package org.carshop.repositories.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует текущую строку результата запроса в сущность.
+ *
+ * @param <T> тип сущности
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    /**
+     * Читает сущность из текущей строки.
+     *
+     * @param row результат запроса, установленный на строку
+     * @return сущность
+     * @throws SQLException если строку не удалось прочитать
+     */
+    T map(ResultSet row) throws SQLException;
+}
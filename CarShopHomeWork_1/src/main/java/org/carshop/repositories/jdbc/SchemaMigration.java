@@ -0,0 +1,53 @@
+package org.carshop.repositories.jdbc;
+
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionArgumentsCommandStep;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.ui.LoggerUIService;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Collections;
+
+/**
+ * Приводит схему базы данных к актуальному состоянию по журналу изменений Liquibase.
+ */
+public final class SchemaMigration {
+
+    /**
+     * Журнал изменений схемы по умолчанию.
+     */
+    public static final String DEFAULT_CHANGE_LOG = "db/changelog/db.changelog-master.xml";
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private SchemaMigration() {
+    }
+
+    /**
+     * Применяет к базе данных еще не выполненные изменения из журнала.
+     *
+     * @param dataSource пул соединений с базой данных
+     * @param changeLog путь к журналу изменений в classpath, допускается префикс {@code classpath:}
+     * @throws DataAccessException если изменения не удалось применить
+     */
+    public static void migrate(DataSource dataSource, String changeLog) {
+        String path = changeLog.startsWith(CLASSPATH_PREFIX) ? changeLog.substring(CLASSPATH_PREFIX.length()) : changeLog;
+        try (Connection connection = dataSource.getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            // Сообщения Liquibase уходят в журнал, а не в консоль приложения
+            Scope.child(Collections.singletonMap(Scope.Attr.ui.name(), new LoggerUIService()), () ->
+                    new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                            .addArgumentValue(DbUrlConnectionArgumentsCommandStep.DATABASE_ARG, database)
+                            .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, path)
+                            .execute());
+        } catch (Exception e) {
+            throw new DataAccessException("Не удалось применить изменения схемы из " + changeLog, e);
+        }
+    }
+}
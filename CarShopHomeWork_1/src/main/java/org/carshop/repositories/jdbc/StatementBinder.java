@@ -0,0 +1,25 @@
+package org.carshop.repositories.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Устанавливает параметры подготовленного запроса.
+ */
+@FunctionalInterface
+interface StatementBinder {
+
+    /**
+     * Параметры не нужны.
+     */
+    StatementBinder NONE = statement -> {
+    };
+
+    /**
+     * Устанавливает параметры запроса.
+     *
+     * @param statement подготовленный запрос
+     * @throws SQLException если параметр не удалось установить
+     */
+    void bind(PreparedStatement statement) throws SQLException;
+}
@@ -0,0 +1,167 @@
+package org.carshop.repositories.wal;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.model.Car;
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Двоичные представления автомобилей, пользователей, заказов и записей аудита.
+ * <p>Заказ хранит копии клиента и автомобиля целиком, чтобы журнал заказов можно было восстановить
+ * независимо от журналов пользователей и автомобилей.</p>
+ */
+public final class Codecs {
+
+    /**
+     * Представление автомобиля.
+     */
+    public static final EntityCodec<Car> CAR = new EntityCodec<Car>() {
+        @Override
+        public String idOf(Car car) {
+            return car.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, Car car) throws IOException {
+            writeString(out, car.getId());
+            writeString(out, car.getMake());
+            writeString(out, car.getModel());
+            out.writeInt(car.getYear());
+            out.writeDouble(car.getPrice());
+            writeString(out, car.getCondition());
+        }
+
+        @Override
+        public Car read(DataInput in) throws IOException {
+            return new Car(readString(in), readString(in), readString(in), in.readInt(), in.readDouble(), readString(in));
+        }
+    };
+
+    /**
+     * Представление пользователя.
+     */
+    public static final EntityCodec<User> USER = new EntityCodec<User>() {
+        @Override
+        public String idOf(User user) {
+            return user.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, User user) throws IOException {
+            writeString(out, user.getId());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            writeString(out, user.getRole() == null ? null : user.getRole().name());
+            out.writeInt(user.getPurchaseCount());
+        }
+
+        @Override
+        public User read(DataInput in) throws IOException {
+            String id = readString(in);
+            String username = readString(in);
+            String password = readString(in);
+            String role = readString(in);
+            User user = new User(id, username, password, role == null ? null : Role.valueOf(role));
+            user.setPurchaseCount(in.readInt());
+            return user;
+        }
+    };
+
+    /**
+     * Представление заказа вместе с клиентом и автомобилем.
+     */
+    public static final EntityCodec<Order> ORDER = new EntityCodec<Order>() {
+        @Override
+        public String idOf(Order order) {
+            return order.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, Order order) throws IOException {
+            writeString(out, order.getId());
+            USER.write(out, order.getClient());
+            CAR.write(out, order.getCar());
+            out.writeLong(order.getDate() == null ? Long.MIN_VALUE : order.getDate().getTime());
+            writeString(out, order.getStatus() == null ? null : order.getStatus().name());
+            out.writeLong(order.getVersion());
+        }
+
+        @Override
+        public Order read(DataInput in) throws IOException {
+            String id = readString(in);
+            User client = USER.read(in);
+            Car car = CAR.read(in);
+            long time = in.readLong();
+            String status = readString(in);
+            long version = in.readLong();
+            return new Order(id, client, car, time == Long.MIN_VALUE ? null : new Date(time),
+                    status == null ? null : OrderStatus.valueOf(status), version);
+        }
+    };
+
+    /**
+     * Представление записи аудита.
+     */
+    public static final EntityCodec<Audit> AUDIT = new EntityCodec<Audit>() {
+        @Override
+        public String idOf(Audit audit) {
+            return audit.getId();
+        }
+
+        @Override
+        public void write(DataOutput out, Audit audit) throws IOException {
+            writeString(out, audit.getId());
+            writeString(out, audit.getUserId());
+            writeString(out, audit.getUsername());
+            writeString(out, audit.getAction() == null ? null : audit.getAction().name());
+            writeString(out, audit.getEntityId());
+            String[] values = audit.getValues();
+            out.writeInt(values == null ? -1 : values.length);
+            if (values != null) {
+                for (String value : values) {
+                    writeString(out, value);
+                }
+            }
+            out.writeLong(audit.getDate() == null ? Long.MIN_VALUE : audit.getDate().getTime());
+        }
+
+        @Override
+        public Audit read(DataInput in) throws IOException {
+            String id = readString(in);
+            String userId = readString(in);
+            String username = readString(in);
+            String action = readString(in);
+            String entityId = readString(in);
+            int count = in.readInt();
+            String[] values = count < 0 ? null : new String[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = readString(in);
+            }
+            long time = in.readLong();
+            return new Audit(id, userId, username, action == null ? null : AuditAction.valueOf(action), entityId, values,
+                    time == Long.MIN_VALUE ? null : new Date(time));
+        }
+    };
+
+    private Codecs() {
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,230 @@
+package org.carshop.repositories.wal;
+
+import org.carshop.model.Car;
+import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.InMemoryCarRepository;
+import org.carshop.repositories.Page;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий автомобилей, сохраняющий изменения на диск.
+ * <p>Данные хранятся и читаются из {@link InMemoryCarRepository}, а каждое сохранение, обновление
+ * и удаление перед применением записывается в журнал {@link DurableStore}. При создании репозиторий
+ * восстанавливает состояние из последнего снимка и хвоста журнала.</p>
+ */
+public class DurableCarRepository implements CarRepository, Closeable {
+
+    private final InMemoryCarRepository delegate = new InMemoryCarRepository();
+    private final DurableStore<Car> store;
+
+    /**
+     * Открывает репозиторий в указанной директории с интервалом снимков по умолчанию.
+     *
+     * @param directory директория журнала и снимков
+     */
+    public DurableCarRepository(Path directory) {
+        this(directory, DurableStore.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Открывает репозиторий в указанной директории.
+     *
+     * @param directory директория журнала и снимков
+     * @param snapshotInterval количество записей журнала между снимками
+     */
+    public DurableCarRepository(Path directory, long snapshotInterval) {
+        store = new DurableStore<>(directory, Codecs.CAR, delegate::findAll, snapshotInterval);
+        store.recover(delegate::save, delegate::update, delegate::delete);
+    }
+
+    /**
+     * Сохраняет автомобиль в журнале и в репозитории.
+     *
+     * @param car автомобиль для сохранения
+     */
+    @Override
+    public void save(Car car) {
+        store.save(car, () -> delegate.save(car));
+    }
+
+    /**
+     * Находит автомобиль по идентификатору.
+     *
+     * @param id идентификатор
+     * @return найденный автомобиль, или null, если он не найден
+     */
+    @Override
+    public Car findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Возвращает список всех автомобилей.
+     *
+     * @return список всех автомобилей
+     */
+    @Override
+    public List<Car> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница автомобилей
+     */
+    @Override
+    public Page<Car> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех автомобилей в порядке добавления.
+     *
+     * @return поток автомобилей
+     */
+    @Override
+    public Stream<Car> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит автомобили указанной марки без учета регистра.
+     *
+     * @param make марка автомобиля
+     * @return список автомобилей с указанной маркой
+     */
+    @Override
+    public List<Car> findByMake(String make) {
+        return delegate.findByMake(make);
+    }
+
+    /**
+     * Находит автомобили указанной модели без учета регистра.
+     *
+     * @param model модель автомобиля
+     * @return список автомобилей с указанной моделью
+     */
+    @Override
+    public List<Car> findByModel(String model) {
+        return delegate.findByModel(model);
+    }
+
+    /**
+     * Находит автомобили указанного года выпуска.
+     *
+     * @param year год выпуска
+     * @return список автомобилей с указанным годом выпуска
+     */
+    @Override
+    public List<Car> findByYear(int year) {
+        return delegate.findByYear(year);
+    }
+
+    /**
+     * Возвращает все автомобили, упорядоченные по цене.
+     *
+     * @param ascending {@code true}, если по возрастанию, {@code false}, если по убыванию
+     * @return список автомобилей, упорядоченный по цене
+     */
+    @Override
+    public List<Car> findAllOrderByPrice(boolean ascending) {
+        return delegate.findAllOrderByPrice(ascending);
+    }
+
+    /**
+     * Находит автомобили с ценой в указанном диапазоне включительно.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей с ценой в диапазоне
+     */
+    @Override
+    public List<Car> findByPriceBetween(double min, double max) {
+        return delegate.findByPriceBetween(min, max);
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по возрастанию цены
+     */
+    @Override
+    public List<Car> cheapest(int k) {
+        return delegate.cheapest(k);
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param k максимальное количество автомобилей
+     * @return не более {@code k} автомобилей, упорядоченных по убыванию цены
+     */
+    @Override
+    public List<Car> mostExpensive(int k) {
+        return delegate.mostExpensive(k);
+    }
+
+    /**
+     * Обновляет автомобиль в журнале и в репозитории.
+     *
+     * @param car автомобиль с обновленными данными
+     */
+    @Override
+    public void update(Car car) {
+        store.update(car, () -> delegate.update(car));
+    }
+
+    /**
+     * Удаляет автомобиль из журнала и из репозитория.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        store.delete(id, () -> delegate.delete(id));
+    }
+
+    /**
+     * Возвращает количество автомобилей.
+     *
+     * @return количество автомобилей
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор. После восстановления идентификаторы продолжают последовательность
+     * из снимка и журнала и не повторяются.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return store.nextId();
+    }
+
+    /**
+     * Создает снимок текущего состояния и сокращает журнал.
+     */
+    public void snapshot() {
+        store.snapshot();
+    }
+
+    /**
+     * Закрывает журнал. Все выполненные изменения к этому моменту уже сохранены на диске.
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+}
@@ -0,0 +1,198 @@
+package org.carshop.repositories.wal;
+
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.InMemoryOrderRepository;
+import org.carshop.repositories.Page;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий заказов, сохраняющий изменения на диск.
+ * <p>Данные хранятся и читаются из {@link InMemoryOrderRepository}, а каждое сохранение, обновление
+ * и удаление перед применением записывается в журнал {@link DurableStore}. При создании репозиторий
+ * восстанавливает состояние из последнего снимка и хвоста журнала.</p>
+ */
+public class DurableOrderRepository implements OrderRepository, Closeable {
+
+    private final InMemoryOrderRepository delegate = new InMemoryOrderRepository();
+    private final DurableStore<Order> store;
+
+    /**
+     * Открывает репозиторий в указанной директории с интервалом снимков по умолчанию.
+     *
+     * @param directory директория журнала и снимков
+     */
+    public DurableOrderRepository(Path directory) {
+        this(directory, DurableStore.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Открывает репозиторий в указанной директории.
+     *
+     * @param directory директория журнала и снимков
+     * @param snapshotInterval количество записей журнала между снимками
+     */
+    public DurableOrderRepository(Path directory, long snapshotInterval) {
+        store = new DurableStore<>(directory, Codecs.ORDER, delegate::findAll, snapshotInterval);
+        store.recover(delegate::save, delegate::update, delegate::delete);
+    }
+
+    /**
+     * Сохраняет заказ в журнале и в репозитории.
+     *
+     * @param order заказ для сохранения
+     */
+    @Override
+    public void save(Order order) {
+        store.save(order, () -> delegate.save(order));
+    }
+
+    /**
+     * Находит заказ по идентификатору.
+     *
+     * @param id идентификатор
+     * @return найденный заказ, или null, если он не найден
+     */
+    @Override
+    public Order findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Возвращает список всех заказов.
+     *
+     * @return список всех заказов
+     */
+    @Override
+    public List<Order> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница заказов
+     */
+    @Override
+    public Page<Order> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех заказов в порядке добавления.
+     *
+     * @return поток заказов
+     */
+    @Override
+    public Stream<Order> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Находит активный заказ на автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return активный заказ на автомобиль, или null, если автомобиль свободен
+     */
+    @Override
+    public Order findActiveOrderByCarId(String carId) {
+        return delegate.findActiveOrderByCarId(carId);
+    }
+
+    /**
+     * Находит все заказы клиента, упорядоченные по дате.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента по возрастанию даты
+     */
+    @Override
+    public List<Order> findByClientId(String clientId) {
+        return delegate.findByClientId(clientId);
+    }
+
+    /**
+     * Обновляет заказ в журнале и в репозитории.
+     *
+     * @param order заказ с обновленными данными
+     */
+    @Override
+    public void update(Order order) {
+        store.update(order, () -> delegate.update(order));
+    }
+
+    /**
+     * Атомарно меняет статус заказа, если его версия не изменилась. Проверка версии, запись в журнал
+     * и изменение в памяти выполняются под блокировкой заказа в {@link DurableStore}.
+     *
+     * @param id идентификатор заказа
+     * @param expectedVersion версия, с которой был прочитан заказ
+     * @param status новый статус
+     * @return {@code true}, если статус изменен
+     */
+    @Override
+    public boolean compareAndSetStatus(String id, long expectedVersion, OrderStatus status) {
+        return store.updateIf(id, () -> {
+            Order current = delegate.findById(id);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return null;
+            }
+            Order updated = new Order(current);
+            updated.setStatus(status);
+            updated.setVersion(expectedVersion + 1);
+            return updated;
+        }, delegate::update);
+    }
+
+    /**
+     * Удаляет заказ из журнала и из репозитория.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        store.delete(id, () -> delegate.delete(id));
+    }
+
+    /**
+     * Возвращает количество заказов.
+     *
+     * @return количество заказов
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор. После восстановления идентификаторы продолжают последовательность
+     * из снимка и журнала и не повторяются.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return store.nextId();
+    }
+
+    /**
+     * Создает снимок текущего состояния и сокращает журнал.
+     */
+    public void snapshot() {
+        store.snapshot();
+    }
+
+    /**
+     * Закрывает журнал. Все выполненные изменения к этому моменту уже сохранены на диске.
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+}
@@ -0,0 +1,391 @@
+package org.carshop.repositories.wal;
+
+import org.carshop.repositories.IdGenerator;
+import org.carshop.repositories.StripedLock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Долговременное хранилище изменений одного репозитория: журнал упреждающей записи и снимки.
+ * <p>Каждое изменение сначала записывается в {@link WriteAheadLog} и только потом применяется к данным
+ * в памяти. Изменения одной сущности выполняются по очереди под блокировкой ее идентификатора, поэтому
+ * порядок в журнале совпадает с порядком применения.</p>
+ * <p>После заданного количества записей в фоне создается снимок: журнал переключается на новый сегмент,
+ * текущее состояние записывается в файл снимка, а сегменты, вошедшие в снимок, удаляются. При запуске
+ * загружается последний снимок и воспроизводится только хвост журнала, поэтому время восстановления
+ * определяется размером данных, а не длиной истории.</p>
+ * <p>Хранилище выдает идентификаторы новых сущностей. Снимок хранит последний выданный идентификатор,
+ * поэтому идентификаторы удаленных до снимка сущностей не выдаются повторно и после восстановления.</p>
+ *
+ * @param <T> тип сущности
+ */
+public class DurableStore<T> implements Closeable {
+
+    /**
+     * Количество записей журнала между снимками по умолчанию.
+     */
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final byte SAVE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final int SNAPSHOT_MAGIC = 0x43534e50;
+    private static final int SNAPSHOT_WITH_LAST_ID_MAGIC = 0x43534e51;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final EntityCodec<T> codec;
+    private final Supplier<? extends Collection<T>> state;
+    private final long snapshotInterval;
+    private final StripedLock locks = new StripedLock();
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+    private final IdGenerator idGenerator = new IdGenerator();
+    private WriteAheadLog log;
+
+    /**
+     * Создает хранилище.
+     *
+     * @param directory директория журнала и снимков
+     * @param codec двоичное представление сущности
+     * @param state текущее состояние репозитория для снимков
+     * @param snapshotInterval количество записей журнала между снимками
+     */
+    public DurableStore(Path directory, EntityCodec<T> codec, Supplier<? extends Collection<T>> state,
+                        long snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Интервал снимков должен быть положительным: " + snapshotInterval);
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.state = state;
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Восстанавливает состояние из последнего снимка и хвоста журнала и открывает журнал для записи.
+     * Вызывается один раз, до первой записи.
+     *
+     * @param save применяет сохранение сущности
+     * @param update применяет обновление сущности
+     * @param delete применяет удаление сущности по идентификатору
+     * @throws UncheckedIOException если снимок или журнал не удалось прочитать
+     */
+    public void recover(Consumer<T> save, Consumer<T> update, Consumer<String> delete) {
+        if (log != null) {
+            throw new IllegalStateException("Хранилище уже открыто");
+        }
+        try {
+            Files.createDirectories(directory);
+            long covered = loadLatestSnapshot(save);
+            WriteAheadLog.replay(directory, covered, payload -> apply(payload, save, update, delete));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить данные из " + directory, e);
+        }
+        log = new WriteAheadLog(directory);
+    }
+
+    /**
+     * Записывает сохранение сущности в журнал и применяет его.
+     *
+     * @param entity сохраняемая сущность
+     * @param apply изменение данных в памяти
+     */
+    public void save(T entity, Runnable apply) {
+        String id = codec.idOf(entity);
+        write(id, encode(SAVE, entity, null), observing(id, apply));
+    }
+
+    /**
+     * Записывает обновление сущности в журнал и применяет его.
+     *
+     * @param entity обновленная сущность
+     * @param apply изменение данных в памяти
+     */
+    public void update(T entity, Runnable apply) {
+        String id = codec.idOf(entity);
+        write(id, encode(UPDATE, entity, null), observing(id, apply));
+    }
+
+    /**
+     * Вычисляет обновление сущности и, если оно есть, записывает его в журнал и применяет.
+     * Вычисление, запись и применение выполняются под блокировкой сущности, поэтому условие,
+     * проверенное в {@code next}, не может измениться до применения обновления.
+     *
+     * @param id идентификатор сущности
+     * @param next функция, возвращающая обновленную сущность, или {@code null}, если обновлять не нужно
+     * @param apply изменение данных в памяти
+     * @return {@code true}, если обновление записано и применено
+     */
+    public boolean updateIf(String id, Supplier<T> next, Consumer<T> apply) {
+        WriteAheadLog target = openLog();
+        return write(id, () -> {
+            T entity = next.get();
+            if (entity == null) {
+                return false;
+            }
+            target.append(encode(UPDATE, entity, null));
+            apply.accept(entity);
+            return true;
+        });
+    }
+
+    /**
+     * Записывает удаление сущности в журнал и применяет его.
+     *
+     * @param id идентификатор удаляемой сущности
+     * @param apply изменение данных в памяти
+     */
+    public void delete(String id, Runnable apply) {
+        write(id, encode(DELETE, null, id), apply);
+    }
+
+    /**
+     * Выдает следующий идентификатор. Идентификаторы продолжают последовательность из снимка и журнала
+     * и не повторяются, даже если сущность с последним идентификатором была удалена.
+     *
+     * @return новый уникальный идентификатор
+     */
+    public String nextId() {
+        return idGenerator.nextId();
+    }
+
+    /**
+     * Создает снимок текущего состояния и удаляет вошедшие в него сегменты журнала.
+     * Запись блокируется только на время переключения сегмента и получения списка сущностей.
+     *
+     * @throws UncheckedIOException если снимок не удалось записать
+     */
+    public void snapshot() {
+        long covered;
+        long lastId;
+        Collection<T> entities;
+        Lock exclusive = snapshotLock.writeLock();
+        exclusive.lock();
+        try {
+            covered = openLog().rotate();
+            entities = state.get();
+            lastId = idGenerator.lastId();
+            recordsSinceSnapshot.set(0);
+        } finally {
+            exclusive.unlock();
+        }
+        writeSnapshot(covered, lastId, entities);
+        log.deleteSegmentsUpTo(covered);
+    }
+
+    /**
+     * Дожидается фонового снимка, если он выполняется, и закрывает журнал.
+     */
+    @Override
+    public void close() {
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private void write(String id, byte[] record, Runnable apply) {
+        WriteAheadLog target = openLog();
+        write(id, () -> {
+            target.append(record);
+            apply.run();
+            return true;
+        });
+    }
+
+    private Runnable observing(String id, Runnable apply) {
+        return () -> {
+            idGenerator.observe(id);
+            apply.run();
+        };
+    }
+
+    private boolean write(String id, BooleanSupplier action) {
+        Lock entityLock = locks.get(id);
+        entityLock.lock();
+        try {
+            Lock shared = snapshotLock.readLock();
+            shared.lock();
+            try {
+                if (!action.getAsBoolean()) {
+                    return false;
+                }
+            } finally {
+                shared.unlock();
+            }
+        } finally {
+            entityLock.unlock();
+        }
+        if (recordsSinceSnapshot.incrementAndGet() >= snapshotInterval && snapshotScheduled.compareAndSet(false, true)) {
+            snapshotExecutor.execute(() -> {
+                try {
+                    snapshot();
+                } finally {
+                    snapshotScheduled.set(false);
+                }
+            });
+        }
+        return true;
+    }
+
+    private WriteAheadLog openLog() {
+        if (log == null) {
+            throw new IllegalStateException("Хранилище не восстановлено, вызовите recover");
+        }
+        return log;
+    }
+
+    private byte[] encode(byte operation, T entity, String id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(operation);
+            if (operation == DELETE) {
+                out.writeUTF(id);
+            } else {
+                codec.write(out, entity);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void apply(byte[] payload, Consumer<T> save, Consumer<T> update, Consumer<String> delete) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        try {
+            byte operation = in.readByte();
+            switch (operation) {
+                case SAVE:
+                    save.accept(recovered(codec.read(in)));
+                    break;
+                case UPDATE:
+                    update.accept(recovered(codec.read(in)));
+                    break;
+                case DELETE:
+                    String id = in.readUTF();
+                    idGenerator.observe(id);
+                    delete.accept(id);
+                    break;
+                default:
+                    throw new IOException("Неизвестная операция в журнале: " + operation);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Поврежденная запись журнала в " + directory, e);
+        }
+    }
+
+    private long loadLatestSnapshot(Consumer<T> save) throws IOException {
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    latest = Math.max(latest, Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // посторонний файл с похожим именем
+                }
+            }
+        }
+        if (latest == 0) {
+            return 0;
+        }
+        try (InputStream file = Files.newInputStream(snapshotPath(latest));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            int magic = in.readInt();
+            if (magic == SNAPSHOT_WITH_LAST_ID_MAGIC) {
+                idGenerator.observe(String.valueOf(in.readLong()));
+            } else if (magic != SNAPSHOT_MAGIC) {
+                throw new IOException("Файл не является снимком: " + snapshotPath(latest));
+            }
+            long count = in.readLong();
+            for (long i = 0; i < count; i++) {
+                save.accept(recovered(codec.read(in)));
+            }
+        }
+        return latest;
+    }
+
+    private T recovered(T entity) {
+        idGenerator.observe(codec.idOf(entity));
+        return entity;
+    }
+
+    /**
+     * Записывает снимок во временный файл и атомарно переименовывает его, чтобы при сбое
+     * остался либо прежний снимок, либо новый целиком. Снимки без последнего идентификатора
+     * из прежних версий по-прежнему читаются.
+     */
+    private void writeSnapshot(long covered, long lastId, Collection<T> entities) {
+        Path target = snapshotPath(covered);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(SNAPSHOT_WITH_LAST_ID_MAGIC);
+                out.writeLong(lastId);
+                out.writeLong(entities.size());
+                for (T entity : entities) {
+                    codec.write(out, entity);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+                for (Path file : files) {
+                    if (!file.equals(target)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок " + target, e);
+        }
+    }
+
+    private Path snapshotPath(long covered) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, covered, SNAPSHOT_SUFFIX));
+    }
+}
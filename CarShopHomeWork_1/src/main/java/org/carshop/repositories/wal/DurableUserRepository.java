@@ -0,0 +1,211 @@
+package org.carshop.repositories.wal;
+
+import org.carshop.model.User;
+import org.carshop.repositories.UserRepository;
+import org.carshop.repositories.InMemoryUserRepository;
+import org.carshop.repositories.Page;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий пользователей, сохраняющий изменения на диск.
+ * <p>Данные хранятся и читаются из {@link InMemoryUserRepository}, а каждое сохранение, обновление
+ * и удаление перед применением записывается в журнал {@link DurableStore}. При создании репозиторий
+ * восстанавливает состояние из последнего снимка и хвоста журнала.</p>
+ */
+public class DurableUserRepository implements UserRepository, Closeable {
+
+    private final InMemoryUserRepository delegate = new InMemoryUserRepository();
+    private final DurableStore<User> store;
+    private final Lock registrationLock = new ReentrantLock();
+
+    /**
+     * Открывает репозиторий в указанной директории с интервалом снимков по умолчанию.
+     *
+     * @param directory директория журнала и снимков
+     */
+    public DurableUserRepository(Path directory) {
+        this(directory, DurableStore.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Открывает репозиторий в указанной директории.
+     *
+     * @param directory директория журнала и снимков
+     * @param snapshotInterval количество записей журнала между снимками
+     */
+    public DurableUserRepository(Path directory, long snapshotInterval) {
+        store = new DurableStore<>(directory, Codecs.USER, delegate::findAll, snapshotInterval);
+        store.recover(delegate::save, delegate::update, delegate::delete);
+    }
+
+    /**
+     * Сохраняет пользователя в журнале и в репозитории.
+     *
+     * @param user пользователь для сохранения
+     */
+    @Override
+    public void save(User user) {
+        store.save(user, () -> delegate.save(user));
+    }
+
+    /**
+     * Сохраняет нового пользователя, если его имя еще не занято. Регистрации выполняются по очереди,
+     * поэтому проверка имени и запись в журнал не разделяются другой регистрацией. В журнал попадает
+     * только сохраненный пользователь.
+     *
+     * @param user новый пользователь
+     * @return {@code true}, если пользователь сохранен, {@code false}, если имя уже занято
+     * @throws IllegalArgumentException если имя пользователя не задано
+     */
+    @Override
+    public boolean saveIfUsernameAbsent(User user) {
+        if (user.getUsername() == null) {
+            throw new IllegalArgumentException("Имя пользователя не задано");
+        }
+        registrationLock.lock();
+        try {
+            if (delegate.findByUsername(user.getUsername()) != null) {
+                return false;
+            }
+            save(user);
+            return true;
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    /**
+     * Находит пользователя по идентификатору.
+     *
+     * @param id идентификатор
+     * @return найденный пользователь, или null, если он не найден
+     */
+    @Override
+    public User findById(String id) {
+        return delegate.findById(id);
+    }
+
+    /**
+     * Находит пользователя по его имени пользователя.
+     *
+     * @param username имя пользователя
+     * @return пользователь с указанным именем, или null, если пользователь не найден
+     */
+    @Override
+    public User findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    /**
+     * Возвращает список всех пользователей.
+     *
+     * @return список всех пользователей
+     */
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param limit максимальное количество элементов на странице
+     * @return страница пользователей
+     */
+    @Override
+    public Page<User> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток всех пользователей в порядке добавления.
+     *
+     * @return поток пользователей
+     */
+    @Override
+    public Stream<User> stream() {
+        return delegate.stream();
+    }
+
+    /**
+     * Обновляет пользователя в журнале и в репозитории.
+     *
+     * @param user пользователь с обновленными данными
+     */
+    @Override
+    public void update(User user) {
+        store.update(user, () -> delegate.update(user));
+    }
+
+    /**
+     * Атомарно изменяет количество покупок пользователя. В журнал записывается пользователь
+     * с новым количеством, прочитанный под блокировкой хранилища.
+     *
+     * @param id идентификатор пользователя
+     * @param delta на сколько изменить количество покупок
+     * @return {@code true}, если пользователь найден и изменен
+     */
+    @Override
+    public boolean adjustPurchaseCount(String id, int delta) {
+        return store.updateIf(id, () -> {
+            User current = delegate.findById(id);
+            if (current != null) {
+                current.setPurchaseCount(Math.max(0, current.getPurchaseCount() + delta));
+            }
+            return current;
+        }, delegate::update);
+    }
+
+    /**
+     * Удаляет пользователя из журнала и из репозитория.
+     *
+     * @param id идентификатор для удаления
+     */
+    @Override
+    public void delete(String id) {
+        store.delete(id, () -> delegate.delete(id));
+    }
+
+    /**
+     * Возвращает количество пользователей.
+     *
+     * @return количество пользователей
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Выдает следующий идентификатор. После восстановления идентификаторы продолжают последовательность
+     * из снимка и журнала и не повторяются.
+     *
+     * @return новый уникальный идентификатор
+     */
+    @Override
+    public String nextId() {
+        return store.nextId();
+    }
+
+    /**
+     * Создает снимок текущего состояния и сокращает журнал.
+     */
+    public void snapshot() {
+        store.snapshot();
+    }
+
+    /**
+     * Закрывает журнал. Все выполненные изменения к этому моменту уже сохранены на диске.
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+}
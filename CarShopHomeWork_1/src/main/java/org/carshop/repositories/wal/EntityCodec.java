@@ -0,0 +1,39 @@
+package org.carshop.repositories.wal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Двоичное представление сущности для журнала и снимков.
+ *
+ * @param <T> тип сущности
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * Возвращает идентификатор сущности.
+     *
+     * @param entity сущность
+     * @return идентификатор сущности
+     */
+    String idOf(T entity);
+
+    /**
+     * Записывает сущность.
+     *
+     * @param out поток для записи
+     * @param entity сущность
+     * @throws IOException если запись не удалась
+     */
+    void write(DataOutput out, T entity) throws IOException;
+
+    /**
+     * Читает сущность, записанную методом {@link #write(DataOutput, Object)}.
+     *
+     * @param in поток для чтения
+     * @return прочитанная сущность
+     * @throws IOException если чтение не удалось
+     */
+    T read(DataInput in) throws IOException;
+}
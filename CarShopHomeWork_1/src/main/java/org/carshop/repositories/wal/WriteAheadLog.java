@@ -0,0 +1,322 @@
+package org.carshop.repositories.wal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи, разбитый на сегменты.
+ * <p>Каждая запись хранится как длина, контрольная сумма CRC32 и содержимое. Запись считается
+ * выполненной только после того, как она сброшена на диск. Сброс выполняет отдельный поток: пока он
+ * ждет завершения {@code fsync}, новые записи накапливаются в буфере и попадают на диск одним пакетом
+ * (групповая фиксация), поэтому количество {@code fsync} не растет вместе с количеством писателей.</p>
+ * <p>Журнал всегда пишет в новый сегмент, открытый при запуске или при {@link #rotate()}. Оборванная
+ * при сбое запись может оказаться только в конце сегмента и при чтении отбрасывается.</p>
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long segment;
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Открывает журнал в указанной директории и начинает новый сегмент после уже существующих.
+     *
+     * @param directory директория журнала
+     * @throws UncheckedIOException если директорию или сегмент не удалось открыть
+     */
+    public WriteAheadLog(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            List<Long> existing = segments(directory);
+            segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал в " + directory, e);
+        }
+        flusher = new Thread(this::flushLoop, "wal-flusher-" + directory.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Добавляет запись в журнал и ждет, пока она будет сброшена на диск.
+     *
+     * @param payload содержимое записи
+     * @throws UncheckedIOException если запись не удалось сохранить
+     */
+    public void append(byte[] payload) {
+        lock.lock();
+        try {
+            checkUsable();
+            writeRecord(buffer, payload);
+            long position = ++appended;
+            flushRequested.signal();
+            awaitDurable(position);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает новый.
+     * Все записи, добавленные до вызова, остаются в закрытом сегменте.
+     *
+     * @return номер закрытого сегмента
+     * @throws UncheckedIOException если новый сегмент не удалось открыть
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            checkUsable();
+            awaitAllDurable();
+            long closedSegment = segment;
+            FileChannel next = openSegment(closedSegment + 1);
+            channel.close();
+            channel = next;
+            segment = closedSegment + 1;
+            return closedSegment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось начать новый сегмент журнала", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет сегменты с номерами не больше указанного.
+     * Вызывается после того, как их содержимое вошло в снимок.
+     *
+     * @param lastSegment номер последнего удаляемого сегмента
+     * @throws UncheckedIOException если сегменты не удалось удалить
+     */
+    public void deleteSegmentsUpTo(long lastSegment) {
+        try {
+            for (long number : segments(directory)) {
+                if (number <= lastSegment) {
+                    Files.deleteIfExists(segmentPath(directory, number));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить сегменты журнала", e);
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные записи и закрывает журнал.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (failure == null) {
+                awaitAllDurable();
+            }
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть журнал", e);
+        }
+    }
+
+    /**
+     * Читает записи из сегментов с номерами больше указанного, в порядке их добавления.
+     * Чтение сегмента прекращается на первой оборванной или поврежденной записи.
+     *
+     * @param directory директория журнала
+     * @param afterSegment номер последнего сегмента, уже вошедшего в снимок
+     * @param consumer обработчик записей
+     * @throws UncheckedIOException если сегмент не удалось прочитать
+     */
+    public static void replay(Path directory, long afterSegment, Consumer<byte[]> consumer) {
+        try {
+            if (!Files.isDirectory(directory)) {
+                return;
+            }
+            for (long number : segments(directory)) {
+                if (number > afterSegment) {
+                    replaySegment(segmentPath(directory, number), consumer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал в " + directory, e);
+        }
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (true) {
+                while (!closed && appended == durable) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (appended == durable) {
+                    return;
+                }
+                long target = appended;
+                ByteArrayOutputStream batch = buffer;
+                buffer = new ByteArrayOutputStream();
+                FileChannel out = channel;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+                    while (bytes.hasRemaining()) {
+                        out.write(bytes);
+                    }
+                    out.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                if (error != null) {
+                    failure = error;
+                    flushed.signalAll();
+                    return;
+                }
+                durable = target;
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitDurable(long position) {
+        while (durable < position) {
+            if (failure != null) {
+                throw new UncheckedIOException("Не удалось записать журнал на диск", failure);
+            }
+            flushed.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Ждет, пока на диск попадут все добавленные записи, включая добавленные во время ожидания.
+     * После возврата поток сброса простаивает, и текущий сегмент можно безопасно закрыть.
+     */
+    private void awaitAllDurable() {
+        while (durable < appended) {
+            awaitDurable(appended);
+        }
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Не удалось записать журнал на диск", failure);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static void writeRecord(ByteArrayOutputStream target, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        DataOutputStream out = new DataOutputStream(target);
+        try {
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void replaySegment(Path path, Consumer<byte[]> consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        return;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        return;
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+                consumer.accept(payload);
+            }
+        }
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // посторонний файл с похожим именем
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
@@ -1,29 +1,86 @@
 package org.carshop.services;
 
 import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
 import org.carshop.model.User;
+import org.carshop.repositories.AuditRepository;
+import org.carshop.repositories.IdGenerator;
+import org.carshop.repositories.InMemoryAuditRepository;
+import org.carshop.services.audit.AuditExporter;
+import org.carshop.services.audit.AuditPipeline;
+import org.carshop.services.audit.ExportFormat;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Сервис для работы с журналом аудита.
  * <p>Этот сервис управляет логами аудита, включая запись действий и получение логов по пользователю или дате.</p>
+ * <p>Запись действия не ждет сохранения: запись передается в {@link AuditPipeline}, который сохраняет
+ * записи пакетами в отдельном потоке. Перед чтением журнала сервис дожидается сохранения всех уже
+ * записанных действий.</p>
+ * <p>Экспорт журнала читает записи из репозитория потоком и пишет их в файл по мере чтения.</p>
  */
-public class AuditService {
-    private List<Audit> auditLogs = new ArrayList<>();
+public class AuditService implements Closeable {
+    private final AuditRepository auditRepository;
+    private final AuditPipeline pipeline;
+    private final IdGenerator idGenerator = new IdGenerator();
 
     /**
-     * Записывает действие в журнал аудита.
+     * Создает сервис, хранящий журнал в памяти, с настройками конвейера по умолчанию.
+     */
+    public AuditService() {
+        this(new InMemoryAuditRepository());
+    }
+
+    private AuditService(AuditRepository auditRepository) {
+        this(auditRepository, new AuditPipeline(auditRepository));
+    }
+
+    /**
+     * Создает сервис. Идентификаторы новых записей продолжают последовательность записей,
+     * уже сохраненных в репозитории.
+     *
+     * @param auditRepository репозиторий записей аудита
+     * @param pipeline конвейер, сохраняющий записи в {@code auditRepository}
+     */
+    public AuditService(AuditRepository auditRepository, AuditPipeline pipeline) {
+        this.auditRepository = auditRepository;
+        this.pipeline = pipeline;
+        idGenerator.observe(auditRepository.lastId());
+    }
+
+    /**
+     * Записывает действие над сущностью в журнал аудита.
+     * Значения параметров сохраняются как есть, текст сообщения собирается только при выводе записи.
+     *
+     * @param user пользователь, совершивший действие
+     * @param action код действия
+     * @param entityId идентификатор сущности
+     * @param values значения параметров в порядке {@link AuditAction#getParameterNames()}
+     */
+    public void logAction(User user, AuditAction action, String entityId, Object... values) {
+        String[] texts = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            texts[i] = values[i] == null ? null : values[i].toString();
+        }
+        pipeline.submit(new Audit(generateId(), user, action, entityId, texts, new Date()));
+    }
+
+    /**
+     * Записывает действие с произвольным описанием в журнал аудита.
      *
      * @param user пользователь, совершивший действие
      * @param action описание действия
      */
     public void logAction(User user, String action) {
-        Audit audit = new Audit(generateId(), user, action, new Date());
-        auditLogs.add(audit);
+        logAction(user, AuditAction.CUSTOM, null, action);
     }
 
     /**
@@ -32,7 +89,8 @@ public class AuditService {
      * @return список всех логов аудита
      */
     public List<Audit> getAuditLogs() {
-        return new ArrayList<>(auditLogs);
+        pipeline.flush();
+        return auditRepository.findAll();
     }
 
     /**
@@ -42,17 +100,110 @@ public class AuditService {
      * @return список логов аудита для указанного пользователя
      */
     public List<Audit> getAuditLogsByUser(User user) {
-        return auditLogs.stream().filter(audit -> audit.getUser().equals(user)).collect(Collectors.toList());
+        pipeline.flush();
+        return auditRepository.findByUserId(user.getId());
     }
 
     /**
-     * Возвращает список логов аудита для указанной даты.
+     * Возвращает список логов аудита о действии.
+     *
+     * @param action код действия
+     * @return список логов аудита о действии в порядке добавления
+     */
+    public List<Audit> getAuditLogsByAction(AuditAction action) {
+        pipeline.flush();
+        return auditRepository.findByAction(action);
+    }
+
+    /**
+     * Возвращает логи аудита, сгруппированные по пользователям.
+     *
+     * @return логи аудита по идентификатору пользователя, внутри группы в порядке добавления
+     */
+    public Map<String, List<Audit>> getAuditLogsGroupedByUser() {
+        pipeline.flush();
+        return auditRepository.findAllGroupedByUserId();
+    }
+
+    /**
+     * Возвращает список логов аудита, упорядоченный по времени.
+     *
+     * @return список логов аудита по возрастанию времени
+     */
+    public List<Audit> getAuditLogsOrderByDate() {
+        pipeline.flush();
+        return auditRepository.findAllOrderByDate();
+    }
+
+    /**
+     * Возвращает список логов аудита за промежуток времени.
+     *
+     * @param from начало промежутка включительно
+     * @param to конец промежутка, не включая его
+     * @return список логов аудита по возрастанию времени
+     */
+    public List<Audit> getAuditLogs(Date from, Date to) {
+        pipeline.flush();
+        return auditRepository.findBetween(from, to);
+    }
+
+    /**
+     * Возвращает список логов аудита за указанный день по часовому поясу системы.
+     *
+     * @param day день
+     * @return список логов аудита за день по возрастанию времени
+     */
+    public List<Audit> getAuditLogsByDay(LocalDate day) {
+        ZoneId zone = ZoneId.systemDefault();
+        return getAuditLogs(Date.from(day.atStartOfDay(zone).toInstant()),
+                Date.from(day.plusDays(1).atStartOfDay(zone).toInstant()));
+    }
+
+    /**
+     * Возвращает список логов аудита за день, в который попадает указанная дата.
      *
      * @param date дата, для которой нужно получить логи
-     * @return список логов аудита для указанной даты
+     * @return список логов аудита за день по возрастанию времени
      */
     public List<Audit> getAuditLogsByDate(Date date) {
-        return auditLogs.stream().filter(audit -> audit.getDate().equals(date)).collect(Collectors.toList());
+        return getAuditLogsByDay(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    /**
+     * Экспортирует журнал аудита в файл в порядке добавления, не загружая его в память.
+     *
+     * @param file файл для экспорта
+     * @param format формат записей
+     * @param gzip {@code true}, если файл нужно сжать gzip
+     * @param user пользователь, записи которого нужно экспортировать, или {@code null} для всех пользователей
+     * @param from начало промежутка включительно, или {@code null}, если начало не ограничено
+     * @param to конец промежутка, не включая его, или {@code null}, если конец не ограничен
+     * @return количество экспортированных записей
+     */
+    public long exportAuditLogs(Path file, ExportFormat format, boolean gzip, User user, Date from, Date to) {
+        pipeline.flush();
+        String userId = user == null ? null : user.getId();
+        long start = from == null ? Long.MIN_VALUE : from.getTime();
+        long end = to == null ? Long.MAX_VALUE : to.getTime();
+        try (Stream<Audit> audits = auditRepository.stream()) {
+            Stream<Audit> selected = audits;
+            if (userId != null) {
+                selected = selected.filter(audit -> userId.equals(audit.getUserId()));
+            }
+            if (from != null || to != null) {
+                selected = selected.filter(audit -> audit.getDate() != null
+                        && audit.getDate().getTime() >= start && audit.getDate().getTime() < end);
+            }
+            return AuditExporter.export(selected, file, format, gzip);
+        }
+    }
+
+    /**
+     * Сохраняет все записанные действия и останавливает фоновую запись.
+     */
+    @Override
+    public void close() {
+        pipeline.close();
     }
 
     /**
@@ -61,6 +212,6 @@ public class AuditService {
      * @return уникальный идентификатор
      */
     private String generateId() {
-        return String.valueOf(auditLogs.size() + 1);
+        return idGenerator.nextId();
     }
 }
@@ -2,27 +2,47 @@ package org.carshop.services;
 
 import org.carshop.model.Car;
 import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.Page;
+import org.carshop.services.search.CarFacets;
+import org.carshop.services.search.CarQuery;
+import org.carshop.services.search.CarSearchEngine;
+import org.carshop.services.search.CarSortOrder;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления автомобилями.
  * <p>Этот сервис предоставляет методы для добавления, получения, обновления и удаления автомобилей.
  * Также включает функции для фильтрации и сортировки автомобилей.</p>
+ * <p>Поиск по нескольким условиям и подсчет найденных автомобилей по значениям условий выполняются
+ * по битовым индексам {@link CarSearchEngine}. Без индекса сервис проверяет условия перебором всех
+ * автомобилей репозитория.</p>
  */
 public class CarService {
 
     private CarRepository carRepository;
+    private final CarSearchEngine searchEngine;
 
     /**
-     * Конструктор класса {@code CarService}.
+     * Конструктор класса {@code CarService} без поискового индекса.
      *
      * @param carRepository репозиторий для управления автомобилями
      */
     public CarService(CarRepository carRepository) {
+        this(carRepository, null);
+    }
+
+    /**
+     * Конструктор класса {@code CarService}.
+     *
+     * @param carRepository репозиторий для управления автомобилями
+     * @param searchEngine поисковый индекс, подписанный на записи в репозиторий, или {@code null}
+     */
+    public CarService(CarRepository carRepository, CarSearchEngine searchEngine) {
         this.carRepository = carRepository;
+        this.searchEngine = searchEngine;
     }
 
     /**
@@ -33,10 +53,12 @@ public class CarService {
      * @param year год выпуска
      * @param price цена автомобиля
      * @param condition состояние автомобиля
+     * @return добавленный автомобиль
      */
-    public void addCar(String make, String model, int year, double price, String condition) {
+    public Car addCar(String make, String model, int year, double price, String condition) {
         Car car = new Car(generateId(), make, model, year, price, condition);
         carRepository.save(car);
+        return car;
     }
 
     /**
@@ -48,6 +70,17 @@ public class CarService {
         return carRepository.findAll();
     }
 
+    /**
+     * Возвращает страницу автомобилей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param size размер страницы
+     * @return страница автомобилей
+     */
+    public Page<Car> getCarsPage(String cursor, int size) {
+        return carRepository.findPage(cursor, size);
+    }
+
     /**
      * Возвращает автомобиль по его идентификатору.
      *
@@ -78,11 +111,12 @@ public class CarService {
 
     /**
      * Генерирует уникальный идентификатор для нового автомобиля.
+     * Идентификаторы выдаются репозиторием и не используются повторно после удаления.
      *
      * @return уникальный идентификатор
      */
     private String generateId() {
-        return String.valueOf(carRepository.count() + 1);
+        return carRepository.nextId();
     }
 
     /**
@@ -92,9 +126,7 @@ public class CarService {
      * @return список автомобилей с указанной маркой
      */
     public List<Car> getCarsByMake(String make) {
-        return carRepository.findAll().stream()
-                .filter(car -> car.getMake().equalsIgnoreCase(make))
-                .collect(Collectors.toList());
+        return carRepository.findByMake(make);
     }
 
     /**
@@ -104,9 +136,7 @@ public class CarService {
      * @return список автомобилей с указанной моделью
      */
     public List<Car> getCarsByModel(String model) {
-        return carRepository.findAll().stream()
-                .filter(car -> car.getModel().equalsIgnoreCase(model))
-                .collect(Collectors.toList());
+        return carRepository.findByModel(model);
     }
 
     /**
@@ -116,9 +146,7 @@ public class CarService {
      * @return список автомобилей с указанным годом выпуска
      */
     public List<Car> getCarsByYear(int year) {
-        return carRepository.findAll().stream()
-                .filter(car -> car.getYear() == year)
-                .collect(Collectors.toList());
+        return carRepository.findByYear(year);
     }
 
     /**
@@ -128,22 +156,90 @@ public class CarService {
      * @return отсортированный список автомобилей
      */
     public List<Car> sortCarsByPrice(boolean ascending) {
-        return carRepository.findAll().stream()
-                .sorted(ascending
-                        ? Comparator.comparingDouble(Car::getPrice)
-                        : Comparator.comparingDouble(Car::getPrice).reversed())
-                .collect(Collectors.toList());
+        return carRepository.findAllOrderByPrice(ascending);
     }
 
     /**
-     * Обновляет индексы автомобилей, чтобы они начинались с 1 и увеличивались на 1 для каждого следующего автомобиля.
+     * Возвращает список автомобилей с ценой в указанном диапазоне, отсортированный по возрастанию цены.
+     *
+     * @param min минимальная цена
+     * @param max максимальная цена
+     * @return список автомобилей с ценой в диапазоне
      */
-    public void updateCarIndices() {
-        List<Car> cars = carRepository.findAll();
-        for (int i = 0; i < cars.size(); i++) {
-            Car car = cars.get(i);
-            car.setId(String.valueOf(i + 1));
-            carRepository.update(car);
+    public List<Car> getCarsByPriceBetween(double min, double max) {
+        return carRepository.findByPriceBetween(min, max);
+    }
+
+    /**
+     * Находит автомобили, удовлетворяющие всем условиям запроса.
+     * Автомобили с равным ключом сортировки выдаются в порядке добавления в репозиторий.
+     *
+     * @param query условия поиска
+     * @param order порядок выдачи
+     * @return поток найденных автомобилей в указанном порядке
+     */
+    public Stream<Car> searchCars(CarQuery query, CarSortOrder order) {
+        if (searchEngine != null) {
+            return searchEngine.search(query, order);
+        }
+        List<Car> found;
+        try (Stream<Car> cars = carRepository.stream(query::matches)) {
+            found = cars.collect(Collectors.toList());
+        }
+        if (order.getComparator() != null) {
+            found.sort(order.getComparator());
         }
+        return found.stream();
+    }
+
+    /**
+     * Возвращает количество автомобилей, удовлетворяющих всем условиям запроса.
+     *
+     * @param query условия поиска
+     * @return количество найденных автомобилей
+     */
+    public long countCars(CarQuery query) {
+        if (searchEngine != null) {
+            return searchEngine.count(query);
+        }
+        try (Stream<Car> cars = carRepository.stream(query::matches)) {
+            return cars.count();
+        }
+    }
+
+    /**
+     * Подсчитывает автомобили, удовлетворяющие запросу, по значениям каждого условия поиска:
+     * маркам, моделям, интервалам года выпуска, состояниям и ценовым диапазонам.
+     *
+     * @param query условия поиска
+     * @return количество найденных автомобилей по значениям условий
+     */
+    public CarFacets getFacets(CarQuery query) {
+        if (searchEngine != null) {
+            return searchEngine.facets(query);
+        }
+        try (Stream<Car> cars = carRepository.stream(query::matches)) {
+            return CarFacets.count(cars);
+        }
+    }
+
+    /**
+     * Возвращает самые дешевые автомобили.
+     *
+     * @param count максимальное количество автомобилей
+     * @return список самых дешевых автомобилей по возрастанию цены
+     */
+    public List<Car> getCheapestCars(int count) {
+        return carRepository.cheapest(count);
+    }
+
+    /**
+     * Возвращает самые дорогие автомобили.
+     *
+     * @param count максимальное количество автомобилей
+     * @return список самых дорогих автомобилей по убыванию цены
+     */
+    public List<Car> getMostExpensiveCars(int count) {
+        return carRepository.mostExpensive(count);
     }
 }
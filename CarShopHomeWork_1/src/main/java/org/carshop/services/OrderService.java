@@ -1,10 +1,13 @@
 package org.carshop.services;
 
 import org.carshop.model.Car;
+import org.carshop.model.CarAvailability;
 import org.carshop.model.Order;
 import org.carshop.model.OrderStatus;
 import org.carshop.model.User;
 import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.Page;
+import org.carshop.services.reservation.CarReservations;
 
 import java.util.Date;
 import java.util.List;
@@ -13,9 +16,16 @@ import java.util.List;
  * Сервис для управления заказами.
  * <p>Этот сервис предоставляет методы для создания, получения, обновления и удаления заказов.
  * Также включает функцию проверки наличия автомобиля в заказах.</p>
+ * <p>Бронирование автомобиля выполняется атомарно через {@link CarReservations}: заказ создается только
+ * после того, как автомобиль переведен из {@link CarAvailability#AVAILABLE} в {@link CarAvailability#RESERVED}
+ * сравнением с обменом, поэтому параллельные сессии не могут забронировать один автомобиль дважды.
+ * Смена статуса заказа переводит автомобиль в {@link CarAvailability#SOLD} или освобождает его тем же способом.</p>
+ * <p>Статус заказа меняется только допустимыми переходами и записывается с проверкой версии заказа,
+ * без блокировок на время смены статуса. Конфликт с параллельным изменением возвращается вызывающему коду.</p>
  */
 public class OrderService {
     private OrderRepository orderRepository;
+    private final CarReservations reservations;
 
     /**
      * Конструктор класса {@code OrderService}.
@@ -24,33 +34,131 @@ public class OrderService {
      */
     public OrderService(OrderRepository orderRepository) {
         this.orderRepository = orderRepository;
+        this.reservations = new CarReservations(carId -> {
+            Order active = orderRepository.findActiveOrderByCarId(carId);
+            return active == null ? CarAvailability.AVAILABLE : CarAvailability.of(active.getStatus());
+        });
     }
 
     /**
-     * Проверяет, забронирован ли автомобиль.
+     * Проверяет, забронирован или продан ли автомобиль.
+     * Забронированные и проданные автомобили проверяются по таблице бронирований, свободные - по активному
+     * заказу в репозитории.
      *
      * @param car автомобиль, для которого нужно проверить бронирование
-     * @return {@code true}, если автомобиль забронирован, {@code false} в противном случае
+     * @return {@code true}, если на автомобиль есть заказ в ожидании или завершенный заказ,
+     * {@code false} в противном случае
      */
     public boolean isCarBooked(Car car) {
-        List<Order> orders = orderRepository.findAll();
-        for (Order order : orders) {
-            if (order.getCar().getId().equals(car.getId()) && order.getStatus() == OrderStatus.PENDING) {
-                return true;
-            }
+        return getCarAvailability(car) != CarAvailability.AVAILABLE;
+    }
+
+    /**
+     * Возвращает состояние доступности автомобиля.
+     *
+     * @param car автомобиль
+     * @return состояние автомобиля
+     */
+    public CarAvailability getCarAvailability(Car car) {
+        return reservations.get(car.getId());
+    }
+
+    /**
+     * Учитывает запись автомобиля: удаленный автомобиль убирается из таблицы бронирований.
+     *
+     * @param previous автомобиль до записи, или {@code null}, если он добавлен
+     * @param current автомобиль после записи, или {@code null}, если он удален
+     */
+    public void carWritten(Car previous, Car current) {
+        if (current == null && previous != null) {
+            reservations.forget(previous.getId());
         }
-        return false;
     }
 
     /**
-     * Создает новый заказ.
+     * Бронирует автомобиль и создает заказ в ожидании подтверждения.
+     * Проверка и бронирование выполняются одним атомарным действием, поэтому из нескольких одновременных
+     * заказов на один автомобиль создается только один.
      *
      * @param client клиент, который делает заказ
      * @param car автомобиль, который заказан
+     * @return созданный заказ, или {@code null}, если автомобиль уже забронирован или продан
+     */
+    public Order createOrder(User client, Car car) {
+        if (!reservations.reserve(car.getId())) {
+            return null;
+        }
+        try {
+            Order order = new Order(generateId(), client, car, new Date(), OrderStatus.PENDING);
+            orderRepository.save(order);
+            return order;
+        } catch (RuntimeException e) {
+            reservations.release(car.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Завершает заказ в ожидании подтверждения. Автомобиль переводится в {@link CarAvailability#SOLD}.
+     *
+     * @param order заказ в том виде, в котором он был прочитан
+     * @return результат смены статуса
      */
-    public void createOrder(User client, Car car) {
-        Order order = new Order(generateId(), client, car, new Date(), OrderStatus.PENDING);
-        orderRepository.save(order);
+    public OrderTransitionResult complete(Order order) {
+        return changeOrderStatus(order, OrderStatus.COMPLETED);
+    }
+
+    /**
+     * Отменяет заказ. Автомобиль заказа снова становится свободным.
+     *
+     * @param order заказ в том виде, в котором он был прочитан
+     * @return результат смены статуса
+     */
+    public OrderTransitionResult cancel(Order order) {
+        return changeOrderStatus(order, OrderStatus.CANCELED);
+    }
+
+    /**
+     * Меняет статус заказа и состояние его автомобиля.
+     * <p>Допустимость перехода проверяется по {@link OrderStatus#canTransitionTo}. Статус записывается
+     * в репозиторий сравнением версии с версией переданного заказа, поэтому изменение, сделанное другим
+     * пользователем после чтения заказа, не перезаписывается, а возвращается {@link OrderTransitionResult#CONFLICT}.
+     * Переданный заказ не изменяется, актуальное состояние нужно прочитать заново.</p>
+     * <p>Завершение заказа переводит автомобиль из {@link CarAvailability#RESERVED} в {@link CarAvailability#SOLD},
+     * отмена освобождает его. Возобновление отмененного заказа сначала бронирует автомобиль, и если статус
+     * записать не удалось, бронирование снимается.</p>
+     *
+     * @param order заказ в том виде, в котором он был прочитан
+     * @param status новый статус
+     * @return результат смены статуса
+     */
+    public OrderTransitionResult changeOrderStatus(Order order, OrderStatus status) {
+        if (order.getStatus() == null || !order.getStatus().canTransitionTo(status)) {
+            return OrderTransitionResult.INVALID_TRANSITION;
+        }
+        CarAvailability current = CarAvailability.of(order.getStatus());
+        CarAvailability target = CarAvailability.of(status);
+        String carId = order.getCar().getId();
+        if (current != CarAvailability.AVAILABLE) {
+            if (!orderRepository.compareAndSetStatus(order.getId(), order.getVersion(), status)) {
+                return rejection(order, OrderTransitionResult.CONFLICT);
+            }
+            reservations.transition(carId, current, target);
+            return OrderTransitionResult.APPLIED;
+        }
+        // автомобиль могли занять другим заказом, поэтому бронирование выполняется до записи статуса
+        if (!reservations.transition(carId, current, target)) {
+            return rejection(order, OrderTransitionResult.CAR_UNAVAILABLE);
+        }
+        boolean applied = false;
+        try {
+            applied = orderRepository.compareAndSetStatus(order.getId(), order.getVersion(), status);
+        } finally {
+            if (!applied) {
+                reservations.transition(carId, target, current);
+            }
+        }
+        return applied ? OrderTransitionResult.APPLIED : rejection(order, OrderTransitionResult.CONFLICT);
     }
 
     /**
@@ -62,6 +170,27 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
+    /**
+     * Возвращает страницу заказов в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param size размер страницы
+     * @return страница заказов
+     */
+    public Page<Order> getOrdersPage(String cursor, int size) {
+        return orderRepository.findPage(cursor, size);
+    }
+
+    /**
+     * Возвращает заказы клиента, упорядоченные по дате.
+     *
+     * @param clientId идентификатор клиента
+     * @return список заказов клиента
+     */
+    public List<Order> getOrdersByClientId(String clientId) {
+        return orderRepository.findByClientId(clientId);
+    }
+
     /**
      * Возвращает заказ по его идентификатору.
      *
@@ -74,6 +203,8 @@ public class OrderService {
 
     /**
      * Обновляет информацию о заказе.
+     * Состояние автомобиля и допустимость перехода при этом не проверяются, статус заказа следует менять
+     * через {@link #complete}, {@link #cancel} или {@link #changeOrderStatus}.
      *
      * @param order заказ с обновленной информацией
      */
@@ -82,20 +213,42 @@ public class OrderService {
     }
 
     /**
-     * Удаляет заказ по его идентификатору.
+     * Удаляет заказ по его идентификатору. Автомобиль, забронированный или проданный этим заказом,
+     * снова становится свободным.
      *
      * @param id идентификатор заказа
      */
     public void deleteOrder(String id) {
+        Order order = orderRepository.findById(id);
         orderRepository.delete(id);
+        if (order != null && order.getCar() != null && order.getStatus() != null && order.getStatus().isActive()) {
+            reservations.transition(order.getCar().getId(), CarAvailability.of(order.getStatus()), CarAvailability.AVAILABLE);
+        }
+    }
+
+    /**
+     * Определяет причину отказа в смене статуса по актуальному состоянию заказа.
+     *
+     * @param order заказ в том виде, в котором он был прочитан
+     * @param unchanged результат, если заказ с момента чтения не изменился
+     * @return {@link OrderTransitionResult#NOT_FOUND}, если заказ удален, {@link OrderTransitionResult#CONFLICT},
+     * если его версия изменилась, иначе {@code unchanged}
+     */
+    private OrderTransitionResult rejection(Order order, OrderTransitionResult unchanged) {
+        Order stored = orderRepository.findById(order.getId());
+        if (stored == null) {
+            return OrderTransitionResult.NOT_FOUND;
+        }
+        return stored.getVersion() != order.getVersion() ? OrderTransitionResult.CONFLICT : unchanged;
     }
 
     /**
      * Генерирует уникальный идентификатор для нового заказа.
+     * Идентификаторы выдаются репозиторием и не используются повторно после удаления.
      *
      * @return уникальный идентификатор
      */
     private String generateId() {
-        return String.valueOf(orderRepository.count() + 1);
+        return orderRepository.nextId();
     }
 }
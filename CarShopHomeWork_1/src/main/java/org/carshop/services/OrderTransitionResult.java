@@ -0,0 +1,27 @@
+package org.carshop.services;
+
+/**
+ * Перечисление результатов смены статуса заказа.
+ */
+public enum OrderTransitionResult {
+    /**
+     * Статус изменен.
+     */
+    APPLIED,
+    /**
+     * Заказ изменен другим пользователем после чтения, его нужно прочитать заново.
+     */
+    CONFLICT,
+    /**
+     * Переход из текущего статуса заказа в новый недопустим.
+     */
+    INVALID_TRANSITION,
+    /**
+     * Автомобиль заказа уже забронирован или продан по другому заказу.
+     */
+    CAR_UNAVAILABLE,
+    /**
+     * Заказ не найден.
+     */
+    NOT_FOUND
+}
@@ -5,11 +5,13 @@ import org.carshop.model.OrderStatus;
 import org.carshop.model.Role;
 import org.carshop.model.User;
 import org.carshop.repositories.OrderRepository;
+import org.carshop.repositories.Page;
 import org.carshop.repositories.UserRepository;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления пользователями.
@@ -33,7 +35,8 @@ public class UserService {
     }
 
     /**
-     * Регистрирует нового пользователя.
+     * Регистрирует нового пользователя. Проверка имени и сохранение выполняются репозиторием атомарно,
+     * поэтому из одновременных регистраций с одним именем успешна только одна.
      *
      * @param username имя пользователя
      * @param password пароль пользователя
@@ -41,13 +44,7 @@ public class UserService {
      * @return {@code true}, если регистрация прошла успешно, {@code false} если имя пользователя уже занято
      */
     public boolean registerUser(String username, String password, Role role) {
-        if (userRepository.findByUsername(username) == null) {
-            String id = generateId();
-            User user = new User(id, username, password, role);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+        return userRepository.saveIfUsernameAbsent(new User(generateId(), username, password, role));
     }
 
     /**
@@ -75,6 +72,17 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Возвращает страницу пользователей в порядке добавления.
+     *
+     * @param cursor курсор из предыдущей страницы, или {@code null} для первой страницы
+     * @param size размер страницы
+     * @return страница пользователей
+     */
+    public Page<User> getUsersPage(String cursor, int size) {
+        return userRepository.findPage(cursor, size);
+    }
+
     /**
      * Возвращает пользователя по имени.
      *
@@ -87,11 +95,12 @@ public class UserService {
 
     /**
      * Генерирует уникальный идентификатор для нового пользователя.
+     * Идентификаторы выдаются репозиторием и не используются повторно после удаления.
      *
      * @return уникальный идентификатор
      */
     private String generateId() {
-        return String.valueOf(userRepository.count() + 1);
+        return userRepository.nextId();
     }
 
     /**
@@ -130,6 +139,27 @@ public class UserService {
         userRepository.update(user);
     }
 
+    /**
+     * Учитывает завершенную покупку клиента. Количество покупок увеличивается в репозитории атомарно,
+     * поэтому копия клиента, сохраненная в заказе, не используется и не изменяется.
+     *
+     * @param clientId идентификатор клиента
+     * @return {@code true}, если клиент найден
+     */
+    public boolean recordPurchase(String clientId) {
+        return userRepository.adjustPurchaseCount(clientId, 1);
+    }
+
+    /**
+     * Отменяет учтенную покупку клиента, когда завершенный заказ отменяется.
+     *
+     * @param clientId идентификатор клиента
+     * @return {@code true}, если клиент найден
+     */
+    public boolean cancelPurchase(String clientId) {
+        return userRepository.adjustPurchaseCount(clientId, -1);
+    }
+
     /**
      * Возвращает список пользователей с указанным именем.
      *
@@ -137,9 +167,9 @@ public class UserService {
      * @return список пользователей с указанным именем
      */
     public List<User> getUsersByName(String name) {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getUsername().equalsIgnoreCase(name))
-                .collect(Collectors.toList());
+        try (Stream<User> users = userRepository.stream(user -> user.getUsername().equalsIgnoreCase(name))) {
+            return users.collect(Collectors.toList());
+        }
     }
 
     /**
@@ -149,9 +179,9 @@ public class UserService {
      * @return список пользователей с указанной ролью
      */
     public List<User> getUsersByRole(Role role) {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getRole() == role)
-                .collect(Collectors.toList());
+        try (Stream<User> users = userRepository.stream(user -> user.getRole() == role)) {
+            return users.collect(Collectors.toList());
+        }
     }
 
     /**
@@ -171,11 +201,12 @@ public class UserService {
      * @return отсортированный список пользователей
      */
     public List<User> sortUsersByPurchases(boolean ascending) {
-        return userRepository.findAll().stream()
-                .sorted(ascending
-                        ? Comparator.comparingInt(User::getPurchaseCount)
-                        : Comparator.comparingInt(User::getPurchaseCount).reversed())
-                .collect(Collectors.toList());
+        try (Stream<User> users = userRepository.stream()) {
+            return users.sorted(ascending
+                            ? Comparator.comparingInt(User::getPurchaseCount)
+                            : Comparator.comparingInt(User::getPurchaseCount).reversed())
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
@@ -188,23 +219,13 @@ public class UserService {
         for (User user : users) {
             // Обновление каждого пользователя на основе информации из updatedUser
             if (user.getId().equals(updatedUser.getId())) {
-                user.setUsername(updatedUser.getUsername());
-                user.setPassword(updatedUser.getPassword());
-                user.setRole(updatedUser.getRole());
-                userRepository.update(user);
+                // Элементы списка принадлежат репозиторию, поэтому изменяется копия
+                User changed = new User(user);
+                changed.setUsername(updatedUser.getUsername());
+                changed.setPassword(updatedUser.getPassword());
+                changed.setRole(updatedUser.getRole());
+                userRepository.update(changed);
             }
         }
     }
-
-    /**
-     * Обновляет индексы пользователей, чтобы они начинались с 1 и увеличивались на 1 для каждого следующего пользователя.
-     */
-    public void updateUserIndices() {
-        List<User> users = userRepository.findAll();
-        for (int i = 0; i < users.size(); i++) {
-            User user = users.get(i);
-            user.setId(String.valueOf(i + 1));
-            userRepository.update(user);
-        }
-    }
 }
@@ -0,0 +1,88 @@
+package org.carshop.services.audit;
+
+import org.carshop.model.Audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковый экспорт журнала аудита в файл.
+ * <p>Записи берутся из потока по одной и сразу пишутся в буфер над {@link FileChannel}, поэтому
+ * объем памяти не зависит от размера журнала. Одна и та же секунда форматируется один раз для
+ * подряд идущих записей. При включенном сжатии файл записывается в формате gzip.</p>
+ */
+public final class AuditExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private AuditExporter() {
+    }
+
+    /**
+     * Экспортирует записи в файл, заменяя его содержимое.
+     *
+     * @param audits поток записей аудита, закрывается вызывающим
+     * @param file файл для экспорта
+     * @param format формат записей
+     * @param gzip {@code true}, если файл нужно сжать gzip
+     * @return количество экспортированных записей
+     */
+    public static long export(Stream<Audit> audits, Path file, ExportFormat format, boolean gzip) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                return write(audits.iterator(), writer, format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось экспортировать журнал аудита в файл " + file, e);
+        }
+    }
+
+    private static long write(Iterator<Audit> audits, Writer writer, ExportFormat format) throws IOException {
+        String header = format.header();
+        if (header != null) {
+            writer.write(header);
+            writer.write('\n');
+        }
+        StringBuilder line = new StringBuilder(256);
+        long lastSecond = Long.MIN_VALUE;
+        String lastDate = null;
+        long count = 0;
+        while (audits.hasNext()) {
+            Audit audit = audits.next();
+            Date date = audit.getDate();
+            String formatted = null;
+            if (date != null) {
+                long second = Math.floorDiv(date.getTime(), 1000L);
+                if (second != lastSecond) {
+                    lastSecond = second;
+                    lastDate = ExportFormat.formatDate(date);
+                }
+                formatted = lastDate;
+            }
+            line.setLength(0);
+            format.append(line, audit, formatted);
+            line.append('\n');
+            writer.append(line);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,247 @@
+package org.carshop.services.audit;
+
+import org.carshop.model.Audit;
+import org.carshop.repositories.AuditRepository;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Асинхронная запись аудита пакетами.
+ * <p>Действия пользователей только помещают запись в ограниченную очередь, а отдельный поток забирает
+ * накопившиеся записи пакетами до {@code batchSize} штук и сохраняет их в {@link AuditRepository}
+ * одним вызовом {@link AuditRepository#saveAll}. Поведение при заполненной очереди задается
+ * {@link OverflowPolicy}.</p>
+ * <p>{@link #flush()} дожидается сохранения всех принятых к моменту вызова записей, поэтому чтение
+ * журнала после {@code flush} видит все предшествующие действия. {@link #close()} сохраняет все
+ * оставшиеся в очереди записи, а записи, поступившие после закрытия, сохраняются сразу в вызывающем потоке.</p>
+ */
+public class AuditPipeline implements Closeable {
+
+    /**
+     * Размер очереди по умолчанию.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Максимальный размер пакета по умолчанию.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final AuditRepository repository;
+    private final BlockingQueue<Audit> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final Thread writer;
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final Lock progressLock = new ReentrantLock();
+    private final Condition progress = progressLock.newCondition();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long processed;
+    private volatile boolean closed;
+
+    /**
+     * Создает конвейер с размером очереди и пакета по умолчанию, ожидающий при заполненной очереди.
+     *
+     * @param repository репозиторий, в который сохраняются записи
+     */
+    public AuditPipeline(AuditRepository repository) {
+        this(repository, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.BLOCK, 1);
+    }
+
+    /**
+     * Создает конвейер и запускает поток записи.
+     *
+     * @param repository репозиторий, в который сохраняются записи
+     * @param capacity размер очереди
+     * @param batchSize максимальное количество записей в одном пакете
+     * @param policy поведение при заполненной очереди
+     * @param sampleRate для {@link OverflowPolicy#SAMPLE}: под нагрузкой сохраняется в среднем одна запись из {@code sampleRate}
+     */
+    public AuditPipeline(AuditRepository repository, int capacity, int batchSize, OverflowPolicy policy, int sampleRate) {
+        if (capacity <= 0 || batchSize <= 0 || sampleRate <= 0) {
+            throw new IllegalArgumentException("Размер очереди, размер пакета и частота выборки должны быть положительными");
+        }
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Передает запись на сохранение.
+     *
+     * @param audit запись аудита
+     * @return {@code true}, если запись принята, {@code false}, если она отброшена из-за переполнения очереди
+     */
+    public boolean submit(Audit audit) {
+        Lock shared = closeLock.readLock();
+        shared.lock();
+        try {
+            if (!closed) {
+                if (!enqueue(audit)) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                accepted.incrementAndGet();
+                return true;
+            }
+        } finally {
+            shared.unlock();
+        }
+        write(Collections.singletonList(audit));
+        return true;
+    }
+
+    /**
+     * Дожидается сохранения всех записей, принятых до вызова.
+     */
+    public void flush() {
+        long target = accepted.get();
+        progressLock.lock();
+        try {
+            while (processed < target && writer.isAlive()) {
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет оставшиеся записи и останавливает поток записи.
+     */
+    @Override
+    public void close() {
+        Lock exclusive = closeLock.writeLock();
+        exclusive.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            exclusive.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Возвращает количество записей, отброшенных из-за переполнения очереди.
+     *
+     * @return количество отброшенных записей
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Возвращает количество записей, которые не удалось сохранить в репозиторий.
+     *
+     * @return количество несохраненных записей
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Возвращает текущее количество записей в очереди.
+     *
+     * @return количество записей, ожидающих сохранения
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private boolean enqueue(Audit audit) {
+        switch (policy) {
+            case BLOCK:
+                try {
+                    queue.put(audit);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case SAMPLE:
+                if (queue.size() * 2 >= capacity && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+                    return false;
+                }
+                return queue.offer(audit);
+            default:
+                return queue.offer(audit);
+        }
+    }
+
+    private void writeLoop() {
+        List<Audit> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Audit first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // поток записи останавливается только через close
+                continue;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            progressLock.lock();
+            try {
+                processed += batch.size();
+                progress.signalAll();
+            } finally {
+                progressLock.unlock();
+            }
+            batch.clear();
+        }
+        progressLock.lock();
+        try {
+            progress.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private void write(List<Audit> batch) {
+        try {
+            repository.saveAll(batch);
+        } catch (RuntimeException e) {
+            // ошибка записи аудита не должна прерывать работу приложения
+            failed.addAndGet(batch.size());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.carshop.services.audit;
+
+import org.carshop.model.Audit;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Формат записи аудита при выводе и экспорте журнала.
+ * <p>Текст сообщения собирается из кода действия и параметров записи только здесь, при выводе.</p>
+ * <p>Даты форматируются общим неизменяемым {@link DateTimeFormatter} в часовом поясе системы,
+ * поэтому форматы можно использовать из нескольких потоков одновременно.</p>
+ */
+public enum ExportFormat {
+
+    /**
+     * Текст для чтения человеком: каждое поле на отдельной строке.
+     */
+    TEXT("txt") {
+        @Override
+        void append(StringBuilder out, Audit audit, String date) {
+            out.append("ID: ").append(audit.getId()).append('\n')
+                    .append("Пользователь: ").append(audit.getUsername()).append('\n')
+                    .append("Действие: ").append(audit.getMessage()).append('\n')
+                    .append("Дата: ").append(date).append('\n');
+        }
+    },
+
+    /**
+     * CSV по RFC 4180 со строкой заголовка.
+     */
+    CSV("csv") {
+        @Override
+        String header() {
+            return "id,user_id,username,action,entity_type,entity_id,message,date";
+        }
+
+        @Override
+        void append(StringBuilder out, Audit audit, String date) {
+            appendCsv(out, audit.getId());
+            out.append(',');
+            appendCsv(out, audit.getUserId());
+            out.append(',');
+            appendCsv(out, audit.getUsername());
+            out.append(',');
+            appendCsv(out, nameOf(audit.getAction()));
+            out.append(',');
+            appendCsv(out, nameOf(audit.getEntityType()));
+            out.append(',');
+            appendCsv(out, audit.getEntityId());
+            out.append(',');
+            appendCsv(out, audit.getMessage());
+            out.append(',');
+            appendCsv(out, date);
+        }
+    },
+
+    /**
+     * JSON Lines: один объект JSON на строке, параметры действия во вложенном объекте {@code params}.
+     */
+    JSONL("jsonl") {
+        @Override
+        void append(StringBuilder out, Audit audit, String date) {
+            out.append("{\"id\":");
+            appendJson(out, audit.getId());
+            out.append(",\"userId\":");
+            appendJson(out, audit.getUserId());
+            out.append(",\"username\":");
+            appendJson(out, audit.getUsername());
+            out.append(",\"action\":");
+            appendJson(out, nameOf(audit.getAction()));
+            out.append(",\"entityType\":");
+            appendJson(out, nameOf(audit.getEntityType()));
+            out.append(",\"entityId\":");
+            appendJson(out, audit.getEntityId());
+            out.append(",\"params\":{");
+            if (audit.getAction() != null && audit.getValues() != null) {
+                List<String> names = audit.getAction().getParameterNames();
+                for (int i = 0; i < names.size() && i < audit.getValues().length; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    appendJson(out, names.get(i));
+                    out.append(':');
+                    appendJson(out, audit.getValues()[i]);
+                }
+            }
+            out.append("},\"message\":");
+            appendJson(out, audit.getMessage());
+            out.append(",\"date\":");
+            appendJson(out, date);
+            out.append('}');
+        }
+    };
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Возвращает расширение файла для формата.
+     *
+     * @return расширение файла без точки
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Форматирует запись аудита.
+     *
+     * @param audit запись аудита
+     * @return строка, представляющая запись аудита
+     */
+    public String format(Audit audit) {
+        StringBuilder out = new StringBuilder(128);
+        append(out, audit, formatDate(audit.getDate()));
+        return out.toString();
+    }
+
+    /**
+     * Форматирует дату записи аудита с точностью до секунды.
+     *
+     * @param date дата
+     * @return дата в формате {@code yyyy-MM-dd HH:mm:ss}, или {@code null}, если дата не задана
+     */
+    public static String formatDate(Date date) {
+        return date == null ? null : DATE_FORMAT.format(Instant.ofEpochMilli(date.getTime()));
+    }
+
+    /**
+     * Возвращает строку заголовка файла.
+     *
+     * @return заголовок, или {@code null}, если у формата нет заголовка
+     */
+    String header() {
+        return null;
+    }
+
+    /**
+     * Дописывает запись аудита без завершающего перевода строки.
+     *
+     * @param out буфер вывода
+     * @param audit запись аудита
+     * @param date отформатированная дата записи
+     */
+    abstract void append(StringBuilder out, Audit audit, String date);
+
+    private static String nameOf(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static void appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,24 @@
+package org.carshop.services.audit;
+
+/**
+ * Поведение {@link AuditPipeline} при заполненной очереди записей аудита.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Ждать, пока в очереди освободится место. Записи не теряются, но действие пользователя может
+     * задержаться, если запись аудита не успевает за нагрузкой.
+     */
+    BLOCK,
+
+    /**
+     * Отбрасывать запись, если очередь заполнена. Действие пользователя никогда не ждет аудита.
+     */
+    DROP,
+
+    /**
+     * Когда очередь заполнена больше чем наполовину, сохранять только каждую n-ю запись в среднем,
+     * а при полной очереди отбрасывать запись. Под нагрузкой в журнале остается равномерная выборка.
+     */
+    SAMPLE
+}
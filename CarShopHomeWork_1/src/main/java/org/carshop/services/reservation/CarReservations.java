@@ -0,0 +1,159 @@
+package org.carshop.services.reservation;
+
+import org.carshop.model.CarAvailability;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Таблица состояний доступности автомобилей.
+ * <p>Состояние каждого автомобиля хранится в отдельной {@link AtomicReference} и меняется только
+ * сравнением с обменом, поэтому два потока не могут одновременно забронировать один автомобиль, а потоки,
+ * работающие с разными автомобилями, не ждут друг друга. Общей блокировки нет.</p>
+ * <p>Состояние автомобиля загружается при первом изменении функцией {@code loader}, обычно по активному
+ * заказу в репозитории. Все последующие изменения бронирования должны проходить через таблицу.</p>
+ * <p>Таблица хранит только автомобили, которые забронированы или проданы, поэтому ее размер ограничен
+ * числом активных заказов, а не числом автомобилей. {@link #get} для автомобиля без записи возвращает
+ * состояние из {@code loader} и запись не создает. Запись, вернувшаяся в {@link CarAvailability#AVAILABLE},
+ * удаляется: ссылка сначала сравнением с обменом переводится в {@code null}, и поток, успевший получить
+ * удаленную ссылку, не сможет изменить ее и повторит попытку с новой записью. Загрузка, во время которой
+ * была удалена какая-либо запись, могла прочитать устаревшее состояние и повторяется.</p>
+ */
+public class CarReservations {
+
+    private final ConcurrentMap<String, AtomicReference<CarAvailability>> states = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Function<String, CarAvailability> loader;
+
+    /**
+     * Создает таблицу.
+     *
+     * @param loader функция, возвращающая начальное состояние автомобиля по его идентификатору
+     */
+    public CarReservations(Function<String, CarAvailability> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Возвращает текущее состояние автомобиля.
+     *
+     * @param carId идентификатор автомобиля
+     * @return состояние автомобиля
+     */
+    public CarAvailability get(String carId) {
+        AtomicReference<CarAvailability> state = states.get(carId);
+        CarAvailability current = state == null ? null : state.get();
+        return current != null ? current : loader.apply(carId);
+    }
+
+    /**
+     * Атомарно переводит автомобиль из состояния {@code expected} в состояние {@code target}.
+     *
+     * @param carId идентификатор автомобиля
+     * @param expected ожидаемое текущее состояние
+     * @param target новое состояние
+     * @return {@code true}, если автомобиль был в ожидаемом состоянии и переведен в новое
+     */
+    public boolean transition(String carId, CarAvailability expected, CarAvailability target) {
+        while (true) {
+            AtomicReference<CarAvailability> state = stateOf(carId);
+            boolean changed = state.compareAndSet(expected, target);
+            CarAvailability current = state.get();
+            if (current == CarAvailability.AVAILABLE) {
+                evict(carId, state);
+            }
+            if (changed || current != null) {
+                return changed;
+            }
+            // ссылку удалили до сравнения, попытка повторяется с новой записью
+            states.remove(carId, state);
+        }
+    }
+
+    /**
+     * Атомарно бронирует свободный автомобиль.
+     *
+     * @param carId идентификатор автомобиля
+     * @return {@code true}, если автомобиль был свободен и теперь забронирован
+     */
+    public boolean reserve(String carId) {
+        return transition(carId, CarAvailability.AVAILABLE, CarAvailability.RESERVED);
+    }
+
+    /**
+     * Атомарно отмечает забронированный автомобиль проданным.
+     *
+     * @param carId идентификатор автомобиля
+     * @return {@code true}, если автомобиль был забронирован и теперь продан
+     */
+    public boolean sell(String carId) {
+        return transition(carId, CarAvailability.RESERVED, CarAvailability.SOLD);
+    }
+
+    /**
+     * Атомарно снимает бронирование автомобиля.
+     *
+     * @param carId идентификатор автомобиля
+     * @return {@code true}, если автомобиль был забронирован и теперь свободен
+     */
+    public boolean release(String carId) {
+        return transition(carId, CarAvailability.RESERVED, CarAvailability.AVAILABLE);
+    }
+
+    /**
+     * Удаляет запись автомобиля независимо от его состояния. Вызывается после удаления автомобиля,
+     * следующее обращение снова загрузит состояние через {@code loader}.
+     *
+     * @param carId идентификатор автомобиля
+     */
+    public void forget(String carId) {
+        AtomicReference<CarAvailability> state = states.get(carId);
+        if (state != null) {
+            evictions.incrementAndGet();
+            state.set(null);
+            states.remove(carId, state);
+        }
+    }
+
+    /**
+     * Возвращает количество автомобилей, для которых в таблице хранится состояние.
+     *
+     * @return количество записей
+     */
+    public int size() {
+        return states.size();
+    }
+
+    private void evict(String carId, AtomicReference<CarAvailability> state) {
+        evictions.incrementAndGet();
+        if (state.compareAndSet(CarAvailability.AVAILABLE, null)) {
+            states.remove(carId, state);
+        }
+    }
+
+    private AtomicReference<CarAvailability> stateOf(String carId) {
+        while (true) {
+            AtomicReference<CarAvailability> state = states.get(carId);
+            if (state != null) {
+                return state;
+            }
+            // загрузка выполняется вне блокировки таблицы, при гонке остается первая установленная ссылка
+            long epoch = evictions.get();
+            AtomicReference<CarAvailability> loaded = new AtomicReference<>(loader.apply(carId));
+            state = states.putIfAbsent(carId, loaded);
+            if (state != null) {
+                return state;
+            }
+            if (evictions.get() == epoch) {
+                return loaded;
+            }
+            CarAvailability value = loaded.get();
+            if (value != null && loaded.compareAndSet(value, null)) {
+                states.remove(carId, loaded);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.carshop.services.search;
+
+import org.carshop.model.Car;
+import org.carshop.model.ConditionCar;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Количество найденных по запросу автомобилей в разрезе значений каждого условия поиска.
+ * <p>Для каждой марки, модели, пятилетия выпуска, состояния и ценового диапазона хранится число
+ * автомобилей из выдачи запроса с этим значением, то есть размер выдачи после добавления значения
+ * к условиям запроса. Значения без автомобилей не хранятся. Марки и модели хранятся в нижнем
+ * регистре, как в {@link CarQuery}.</p>
+ */
+public class CarFacets {
+
+    /**
+     * Количество лет в одном интервале года выпуска.
+     */
+    public static final int YEAR_BUCKET_SIZE = 5;
+
+    private final long total;
+    private final Map<String, Long> makes;
+    private final Map<String, Long> models;
+    private final Map<Integer, Long> yearBuckets;
+    private final Map<ConditionCar, Long> conditions;
+    private final Map<PriceBand, Long> priceBands;
+
+    CarFacets(long total, Map<String, Long> makes, Map<String, Long> models, Map<Integer, Long> yearBuckets,
+              Map<ConditionCar, Long> conditions, Map<PriceBand, Long> priceBands) {
+        this.total = total;
+        this.makes = Collections.unmodifiableMap(makes);
+        this.models = Collections.unmodifiableMap(models);
+        this.yearBuckets = Collections.unmodifiableMap(yearBuckets);
+        this.conditions = Collections.unmodifiableMap(conditions);
+        this.priceBands = Collections.unmodifiableMap(priceBands);
+    }
+
+    /**
+     * Подсчитывает значения условий перебором автомобилей. Используется, когда поискового индекса нет.
+     *
+     * @param cars автомобили, найденные по запросу
+     * @return количество автомобилей по значениям условий
+     */
+    public static CarFacets count(Stream<Car> cars) {
+        long[] total = new long[1];
+        Map<String, Long> makes = new TreeMap<>();
+        Map<String, Long> models = new TreeMap<>();
+        Map<Integer, Long> yearBuckets = new TreeMap<>();
+        Map<ConditionCar, Long> conditions = new EnumMap<>(ConditionCar.class);
+        Map<PriceBand, Long> priceBands = new EnumMap<>(PriceBand.class);
+        cars.forEach(car -> {
+            total[0]++;
+            increment(makes, CarQuery.normalize(car.getMake()));
+            increment(models, CarQuery.normalize(car.getModel()));
+            increment(yearBuckets, yearBucket(car.getYear()));
+            increment(conditions, conditionOf(car.getCondition()));
+            increment(priceBands, PriceBand.of(car.getPrice()));
+        });
+        return new CarFacets(total[0], makes, models, yearBuckets, conditions, priceBands);
+    }
+
+    /**
+     * Возвращает первый год интервала, в который входит год выпуска.
+     *
+     * @param year год выпуска
+     * @return первый год интервала длиной {@link #YEAR_BUCKET_SIZE}
+     */
+    public static int yearBucket(int year) {
+        return Math.floorDiv(year, YEAR_BUCKET_SIZE) * YEAR_BUCKET_SIZE;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей.
+     *
+     * @return размер выдачи запроса
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей по маркам.
+     *
+     * @return марки в нижнем регистре и количество автомобилей, по алфавиту
+     */
+    public Map<String, Long> getMakes() {
+        return makes;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей по моделям.
+     *
+     * @return модели в нижнем регистре и количество автомобилей, по алфавиту
+     */
+    public Map<String, Long> getModels() {
+        return models;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей по интервалам года выпуска.
+     *
+     * @return первый год интервала и количество автомобилей, по возрастанию года
+     */
+    public Map<Integer, Long> getYearBuckets() {
+        return yearBuckets;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей по состояниям.
+     *
+     * @return состояния и количество автомобилей
+     */
+    public Map<ConditionCar, Long> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Возвращает количество найденных автомобилей по ценовым диапазонам.
+     *
+     * @return ценовые диапазоны и количество автомобилей, по возрастанию цены
+     */
+    public Map<PriceBand, Long> getPriceBands() {
+        return priceBands;
+    }
+
+    static ConditionCar conditionOf(String name) {
+        for (ConditionCar condition : ConditionCar.values()) {
+            if (condition.name().equals(name)) {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private static <K> void increment(Map<K, Long> counts, K key) {
+        if (key != null) {
+            counts.merge(key, 1L, Long::sum);
+        }
+    }
+}
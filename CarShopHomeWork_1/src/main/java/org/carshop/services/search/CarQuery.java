@@ -0,0 +1,183 @@
+package org.carshop.services.search;
+
+import org.carshop.model.Car;
+import org.carshop.model.ConditionCar;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Условия поиска автомобилей.
+ * <p>Автомобиль подходит, если он удовлетворяет всем заданным условиям. Внутри одного условия
+ * значения объединяются через ИЛИ: запрос с марками Toyota и Honda находит автомобили любой из них.
+ * Марка и модель сравниваются без учета регистра, границы года и цены включаются в диапазон.
+ * Незаданное условие не ограничивает выборку.</p>
+ */
+public class CarQuery {
+
+    private final Set<String> makes = new LinkedHashSet<>();
+    private final Set<String> models = new LinkedHashSet<>();
+    private final Set<ConditionCar> conditions = EnumSet.noneOf(ConditionCar.class);
+    private Integer minYear;
+    private Integer maxYear;
+    private Double minPrice;
+    private Double maxPrice;
+
+    /**
+     * Добавляет допустимые марки.
+     *
+     * @param makes марки автомобиля
+     * @return этот запрос
+     */
+    public CarQuery make(String... makes) {
+        for (String make : makes) {
+            this.makes.add(normalize(make));
+        }
+        return this;
+    }
+
+    /**
+     * Добавляет допустимые модели.
+     *
+     * @param models модели автомобиля
+     * @return этот запрос
+     */
+    public CarQuery model(String... models) {
+        for (String model : models) {
+            this.models.add(normalize(model));
+        }
+        return this;
+    }
+
+    /**
+     * Добавляет допустимые состояния.
+     *
+     * @param conditions состояния автомобиля
+     * @return этот запрос
+     */
+    public CarQuery condition(ConditionCar... conditions) {
+        Collections.addAll(this.conditions, conditions);
+        return this;
+    }
+
+    /**
+     * Задает диапазон года выпуска.
+     *
+     * @param min минимальный год, или {@code null}, если не ограничен
+     * @param max максимальный год, или {@code null}, если не ограничен
+     * @return этот запрос
+     */
+    public CarQuery yearBetween(Integer min, Integer max) {
+        this.minYear = min;
+        this.maxYear = max;
+        return this;
+    }
+
+    /**
+     * Задает диапазон цены.
+     *
+     * @param min минимальная цена, или {@code null}, если не ограничена
+     * @param max максимальная цена, или {@code null}, если не ограничена
+     * @return этот запрос
+     */
+    public CarQuery priceBetween(Double min, Double max) {
+        this.minPrice = min;
+        this.maxPrice = max;
+        return this;
+    }
+
+    /**
+     * Возвращает допустимые марки в нижнем регистре.
+     *
+     * @return неизменяемое множество марок, пустое, если марка не ограничена
+     */
+    public Set<String> getMakes() {
+        return Collections.unmodifiableSet(makes);
+    }
+
+    /**
+     * Возвращает допустимые модели в нижнем регистре.
+     *
+     * @return неизменяемое множество моделей, пустое, если модель не ограничена
+     */
+    public Set<String> getModels() {
+        return Collections.unmodifiableSet(models);
+    }
+
+    /**
+     * Возвращает допустимые состояния.
+     *
+     * @return неизменяемое множество состояний, пустое, если состояние не ограничено
+     */
+    public Set<ConditionCar> getConditions() {
+        return Collections.unmodifiableSet(conditions);
+    }
+
+    /**
+     * Возвращает минимальный год выпуска.
+     *
+     * @return минимальный год, или {@code null}, если не ограничен
+     */
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * Возвращает максимальный год выпуска.
+     *
+     * @return максимальный год, или {@code null}, если не ограничен
+     */
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * Возвращает минимальную цену.
+     *
+     * @return минимальная цена, или {@code null}, если не ограничена
+     */
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Возвращает максимальную цену.
+     *
+     * @return максимальная цена, или {@code null}, если не ограничена
+     */
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * Проверяет, подходит ли автомобиль под условия запроса.
+     *
+     * @param car автомобиль
+     * @return {@code true}, если автомобиль удовлетворяет всем условиям
+     */
+    public boolean matches(Car car) {
+        return (makes.isEmpty() || makes.contains(normalize(car.getMake())))
+                && (models.isEmpty() || models.contains(normalize(car.getModel())))
+                && (conditions.isEmpty() || conditions.stream().anyMatch(condition -> condition.name().equals(car.getCondition())))
+                && (minYear == null || car.getYear() >= minYear)
+                && (maxYear == null || car.getYear() <= maxYear)
+                && matchesPrice(car.getPrice());
+    }
+
+    /**
+     * Проверяет, входит ли цена в диапазон запроса.
+     *
+     * @param price цена
+     * @return {@code true}, если цена в диапазоне
+     */
+    boolean matchesPrice(double price) {
+        return (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
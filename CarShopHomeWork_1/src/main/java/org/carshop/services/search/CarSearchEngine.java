@@ -0,0 +1,460 @@
+package org.carshop.services.search;
+
+import org.carshop.model.Car;
+import org.carshop.model.ConditionCar;
+import org.carshop.repositories.events.ObservableCarRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Поиск автомобилей по нескольким условиям на битовых индексах.
+ * <p>Каждому автомобилю выдается плотный порядковый номер, номера освободившихся после удаления
+ * автомобилей используются повторно. Для каждой марки, модели, года выпуска и состояния хранится
+ * {@link CompressedBitmap} номеров автомобилей с этим значением. Запрос {@link CarQuery} вычисляется
+ * объединением множеств внутри условия и пересечением множеств разных условий, после чего цена
+ * проверяется только у найденных автомобилей по массиву цен. Диапазон годов объединяет множества
+ * годов, только если он единственное условие: иначе уже найденные автомобили проверяются по массиву
+ * годов, что дешевле пересечения с множеством каждого года диапазона.</p>
+ * <p>Для каждого ценового диапазона {@link PriceBand} также хранится множество номеров автомобилей.
+ * Количество найденных автомобилей по значениям условий ({@link CarFacets}) считается пересечением
+ * множества найденных автомобилей с множеством каждого значения без построения пересечения, так что
+ * ни автомобили, ни их номера повторно не перебираются.</p>
+ * <p>Результат выдается потоком: при сортировке номера найденных автомобилей укладываются в двоичную
+ * кучу за линейное время, и каждый следующий автомобиль извлекается из нее только по запросу, поэтому
+ * первая страница выдачи не требует полной сортировки. Автомобили с равным ключом сортировки выдаются
+ * в порядке добавления в репозиторий, как и при поиске перебором в {@code CarService}: для этого каждому
+ * автомобилю при первом добавлении выдается возрастающая позиция, которая сохраняется при обновлении.
+ * Порядок выдачи без сортировки ({@link CarSortOrder#NONE}) не определен.</p>
+ * <p>Индекс обновляется подпиской на {@link ObservableCarRepository}. Запись блокирует индекс
+ * на запись, поиск - на чтение только на время вычисления множества найденных автомобилей.</p>
+ */
+public class CarSearchEngine {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final Map<String, CompressedBitmap> makes = new HashMap<>();
+    private final Map<String, CompressedBitmap> models = new HashMap<>();
+    private final NavigableMap<Integer, CompressedBitmap> years = new TreeMap<>();
+    private final Map<String, CompressedBitmap> conditions = new HashMap<>();
+    private final Map<PriceBand, CompressedBitmap> priceBands = new EnumMap<>(PriceBand.class);
+    private Car[] cars = new Car[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] carYears = new int[INITIAL_CAPACITY];
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private long nextPosition;
+    private int nextOrdinal;
+
+    /**
+     * Строит индекс по текущему содержимому репозитория и подписывает его на последующие записи.
+     * Вызывается при запуске приложения, до того как в репозиторий начнут писать другие потоки.
+     *
+     * @param repository репозиторий автомобилей
+     * @return поисковый индекс
+     */
+    public static CarSearchEngine subscribe(ObservableCarRepository repository) {
+        CarSearchEngine engine = new CarSearchEngine();
+        try (Stream<Car> stream = repository.stream()) {
+            stream.forEach(car -> engine.carWritten(null, car));
+        }
+        repository.addListener(engine::carWritten);
+        return engine;
+    }
+
+    /**
+     * Учитывает запись автомобиля в индексе.
+     *
+     * @param previous автомобиль до записи, или {@code null}, если он добавлен
+     * @param current автомобиль после записи, или {@code null}, если он удален
+     */
+    public void carWritten(Car previous, Car current) {
+        lock.writeLock().lock();
+        try {
+            if (current == null) {
+                Integer ordinal = previous == null ? null : ordinals.remove(previous.getId());
+                if (ordinal != null) {
+                    unindex(ordinal);
+                    cars[ordinal] = null;
+                    freeOrdinals.push(ordinal);
+                }
+                return;
+            }
+            Integer ordinal = ordinals.get(current.getId());
+            if (ordinal != null) {
+                unindex(ordinal);
+            } else {
+                ordinal = allocate();
+                ordinals.put(current.getId(), ordinal);
+                positions[ordinal] = nextPosition++;
+            }
+            index(ordinal, new Car(current));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Находит автомобили, удовлетворяющие запросу.
+     * Автомобили в потоке общие с индексом и должны считаться только для чтения.
+     *
+     * @param query условия поиска
+     * @param order порядок выдачи
+     * @return поток найденных автомобилей в указанном порядке
+     */
+    public Stream<Car> search(CarQuery query, CarSortOrder order) {
+        Matches matches;
+        lock.readLock().lock();
+        try {
+            CompressedBitmap candidates = filter(query);
+            matches = new Matches(query, order, candidates.cardinality());
+            candidates.forEach(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (order == CarSortOrder.NONE) {
+            return Arrays.stream(matches.cars, 0, matches.count);
+        }
+        return StreamSupport.stream(new SortedSpliterator(matches.cars, matches.keys, matches.positions, matches.count), false);
+    }
+
+    /**
+     * Возвращает количество автомобилей, удовлетворяющих запросу.
+     *
+     * @param query условия поиска
+     * @return количество найденных автомобилей
+     */
+    public long count(CarQuery query) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap candidates = filter(query);
+            if (query.getMinPrice() == null && query.getMaxPrice() == null) {
+                return candidates.cardinality();
+            }
+            long[] count = new long[1];
+            candidates.forEach(ordinal -> {
+                if (query.matchesPrice(prices[ordinal])) {
+                    count[0]++;
+                }
+            });
+            return count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Подсчитывает найденные по запросу автомобили по значениям каждого условия поиска.
+     *
+     * @param query условия поиска
+     * @return количество найденных автомобилей по маркам, моделям, интервалам года выпуска,
+     * состояниям и ценовым диапазонам
+     */
+    public CarFacets facets(CarQuery query) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap matched = filter(query);
+            if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+                matched = matched.filter(ordinal -> query.matchesPrice(prices[ordinal]));
+            }
+            Map<Integer, Long> yearBuckets = new TreeMap<>();
+            for (Map.Entry<Integer, Long> entry : counts(matched, years, new TreeMap<>()).entrySet()) {
+                yearBuckets.merge(CarFacets.yearBucket(entry.getKey()), entry.getValue(), Long::sum);
+            }
+            Map<ConditionCar, Long> conditionCounts = new EnumMap<>(ConditionCar.class);
+            for (Map.Entry<String, Long> entry : counts(matched, conditions, new HashMap<>()).entrySet()) {
+                ConditionCar condition = CarFacets.conditionOf(entry.getKey());
+                if (condition != null) {
+                    conditionCounts.put(condition, entry.getValue());
+                }
+            }
+            return new CarFacets(matched.cardinality(), counts(matched, makes, new TreeMap<>()),
+                    counts(matched, models, new TreeMap<>()), yearBuckets, conditionCounts,
+                    counts(matched, priceBands, new EnumMap<>(PriceBand.class)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Вычисляет множество номеров автомобилей, удовлетворяющих всем условиям запроса, кроме цены.
+     * Вызывается под блокировкой чтения. Результат может быть одним из множеств индекса и не должен изменяться.
+     *
+     * @param query условия поиска
+     * @return множество номеров автомобилей
+     */
+    private CompressedBitmap filter(CarQuery query) {
+        CompressedBitmap result = null;
+        if (!query.getMakes().isEmpty()) {
+            result = restrict(result, lookup(makes, query.getMakes()));
+        }
+        if (!query.getModels().isEmpty()) {
+            result = restrict(result, lookup(models, query.getModels()));
+        }
+        if (!query.getConditions().isEmpty()) {
+            List<CompressedBitmap> matching = new ArrayList<>();
+            for (ConditionCar condition : query.getConditions()) {
+                CompressedBitmap bitmap = conditions.get(condition.name());
+                if (bitmap != null) {
+                    matching.add(bitmap);
+                }
+            }
+            result = restrict(result, matching);
+        }
+        if (query.getMinYear() != null || query.getMaxYear() != null) {
+            int min = query.getMinYear() == null ? Integer.MIN_VALUE : query.getMinYear();
+            int max = query.getMaxYear() == null ? Integer.MAX_VALUE : query.getMaxYear();
+            if (min > max) {
+                return new CompressedBitmap();
+            }
+            if (result == null) {
+                result = restrict(null, years.subMap(min, true, max, true).values());
+            } else {
+                result = result.filter(ordinal -> carYears[ordinal] >= min && carYears[ordinal] <= max);
+            }
+        }
+        return result == null ? all : result;
+    }
+
+    private void index(int ordinal, Car car) {
+        cars[ordinal] = car;
+        prices[ordinal] = car.getPrice();
+        carYears[ordinal] = car.getYear();
+        all.add(ordinal);
+        add(makes, CarQuery.normalize(car.getMake()), ordinal);
+        add(models, CarQuery.normalize(car.getModel()), ordinal);
+        add(years, car.getYear(), ordinal);
+        add(conditions, car.getCondition(), ordinal);
+        add(priceBands, PriceBand.of(car.getPrice()), ordinal);
+    }
+
+    private void unindex(int ordinal) {
+        Car car = cars[ordinal];
+        all.remove(ordinal);
+        remove(makes, CarQuery.normalize(car.getMake()), ordinal);
+        remove(models, CarQuery.normalize(car.getModel()), ordinal);
+        remove(years, car.getYear(), ordinal);
+        remove(conditions, car.getCondition(), ordinal);
+        remove(priceBands, PriceBand.of(car.getPrice()), ordinal);
+    }
+
+    private int allocate() {
+        if (!freeOrdinals.isEmpty()) {
+            return freeOrdinals.pop();
+        }
+        if (nextOrdinal == cars.length) {
+            cars = Arrays.copyOf(cars, cars.length * 2);
+            prices = Arrays.copyOf(prices, prices.length * 2);
+            carYears = Arrays.copyOf(carYears, carYears.length * 2);
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+        return nextOrdinal++;
+    }
+
+    private static <K> void add(Map<K, CompressedBitmap> index, K key, int ordinal) {
+        if (key != null) {
+            index.computeIfAbsent(key, ignored -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    private static <K> void remove(Map<K, CompressedBitmap> index, K key, int ordinal) {
+        CompressedBitmap bitmap = key == null ? null : index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Подсчитывает найденные автомобили для каждого значения индекса. Вызывается под блокировкой чтения.
+     *
+     * @param matched множество найденных автомобилей
+     * @param index индекс по значениям условия
+     * @param counts пустая карта для результата
+     * @return карта {@code counts} с ненулевыми количествами
+     */
+    private <K> Map<K, Long> counts(CompressedBitmap matched, Map<K, CompressedBitmap> index, Map<K, Long> counts) {
+        for (Map.Entry<K, CompressedBitmap> entry : index.entrySet()) {
+            long count = matched == all ? entry.getValue().cardinality() : matched.andCardinality(entry.getValue());
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    private static List<CompressedBitmap> lookup(Map<String, CompressedBitmap> index, Collection<String> keys) {
+        List<CompressedBitmap> bitmaps = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            CompressedBitmap bitmap = index.get(key);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Пересекает текущий результат с объединением множеств одного условия. Если результат уже есть,
+     * он пересекается с каждым множеством по отдельности: пересечения малы, и большие множества
+     * условия не копируются при объединении.
+     *
+     * @param result текущий результат, или {@code null}, если условий еще не было
+     * @param bitmaps множества значений, допустимых по условию
+     * @return новый результат
+     */
+    private static CompressedBitmap restrict(CompressedBitmap result, Collection<CompressedBitmap> bitmaps) {
+        CompressedBitmap union = new CompressedBitmap();
+        for (CompressedBitmap bitmap : bitmaps) {
+            CompressedBitmap part = result == null ? bitmap : result.and(bitmap);
+            union = union.isEmpty() ? part : union.or(part);
+        }
+        return union;
+    }
+
+    /**
+     * Собирает найденные автомобили с подходящей ценой и ключи их сортировки.
+     */
+    private final class Matches implements IntConsumer {
+
+        private final CarQuery query;
+        private final CarSortOrder order;
+        private final Car[] cars;
+        private final double[] keys;
+        private final long[] positions;
+        private int count;
+
+        Matches(CarQuery query, CarSortOrder order, int capacity) {
+            this.query = query;
+            this.order = order;
+            this.cars = new Car[capacity];
+            this.keys = order == CarSortOrder.NONE ? null : new double[capacity];
+            this.positions = order == CarSortOrder.NONE ? null : new long[capacity];
+        }
+
+        @Override
+        public void accept(int ordinal) {
+            double price = prices[ordinal];
+            if (!query.matchesPrice(price)) {
+                return;
+            }
+            Car car = CarSearchEngine.this.cars[ordinal];
+            switch (order) {
+                case PRICE_ASCENDING:
+                    keys[count] = price;
+                    break;
+                case PRICE_DESCENDING:
+                    keys[count] = -price;
+                    break;
+                case YEAR_ASCENDING:
+                    keys[count] = car.getYear();
+                    break;
+                case YEAR_DESCENDING:
+                    keys[count] = -car.getYear();
+                    break;
+                default:
+                    break;
+            }
+            if (positions != null) {
+                positions[count] = CarSearchEngine.this.positions[ordinal];
+            }
+            cars[count++] = car;
+        }
+    }
+
+    /**
+     * Выдает автомобили по возрастанию ключа, извлекая их по одному из двоичной кучи.
+     * Автомобили с равными ключами выдаются в порядке добавления в репозиторий.
+     */
+    private static final class SortedSpliterator implements Spliterator<Car> {
+
+        private final Car[] cars;
+        private final double[] keys;
+        private final long[] positions;
+        private final int[] heap;
+        private int size;
+
+        SortedSpliterator(Car[] cars, double[] keys, long[] positions, int count) {
+            this.cars = cars;
+            this.keys = keys;
+            this.positions = positions;
+            this.heap = new int[count];
+            this.size = count;
+            for (int i = 0; i < count; i++) {
+                heap[i] = i;
+            }
+            for (int i = count / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Car> action) {
+            if (size == 0) {
+                return false;
+            }
+            int top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+            action.accept(cars[top]);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Car> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | NONNULL | IMMUTABLE;
+        }
+
+        private void siftDown(int index) {
+            int item = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], item)) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = item;
+        }
+
+        private boolean less(int a, int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && positions[a] < positions[b]);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.carshop.services.search;
+
+import org.carshop.model.Car;
+
+import java.util.Comparator;
+
+/**
+ * Перечисление порядков выдачи результатов поиска автомобилей.
+ */
+public enum CarSortOrder {
+    /**
+     * Без сортировки, в порядке хранения в индексе.
+     */
+    NONE(null),
+    PRICE_ASCENDING(Comparator.comparingDouble(Car::getPrice)),
+    PRICE_DESCENDING(Comparator.comparingDouble(Car::getPrice).reversed()),
+    YEAR_ASCENDING(Comparator.comparingInt(Car::getYear)),
+    YEAR_DESCENDING(Comparator.comparingInt(Car::getYear).reversed());
+
+    private final Comparator<Car> comparator;
+
+    CarSortOrder(Comparator<Car> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Возвращает сравнение автомобилей в этом порядке.
+     *
+     * @return сравнение автомобилей, или {@code null} для {@link #NONE}
+     */
+    public Comparator<Car> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Возвращает человекочитаемое имя порядка сортировки.
+     *
+     * @param order порядок сортировки
+     * @return человекочитаемое имя порядка сортировки
+     */
+    public static String getDisplayName(CarSortOrder order) {
+        switch (order) {
+            case NONE:
+                return "Без сортировки";
+            case PRICE_ASCENDING:
+                return "По возрастанию цены";
+            case PRICE_DESCENDING:
+                return "По убыванию цены";
+            case YEAR_ASCENDING:
+                return "Сначала старые";
+            case YEAR_DESCENDING:
+                return "Сначала новые";
+            default:
+                return order.name();
+        }
+    }
+}
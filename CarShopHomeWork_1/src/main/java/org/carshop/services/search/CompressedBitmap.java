@@ -0,0 +1,582 @@
+package org.carshop.services.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Сжатое множество неотрицательных целых чисел.
+ * <p>Числа делятся на блоки по старшим 16 битам, и каждый блок хранится в одном из двух видов:
+ * пока в блоке не больше {@value #ARRAY_LIMIT} чисел, он хранится отсортированным массивом младших
+ * 16 бит, а более плотный блок - битовой картой из 1024 слов. Редкие значения поэтому занимают около
+ * двух байт на число, а плотные - не больше бита на возможное число.</p>
+ * <p>Пересечение и объединение выполняются поблочно слиянием отсортированных ключей блоков и не
+ * изменяют исходные множества. Класс не потокобезопасен.</p>
+ */
+final class CompressedBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    /**
+     * Создает пустое множество.
+     */
+    CompressedBitmap() {
+        this(4);
+    }
+
+    private CompressedBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    /**
+     * Добавляет число в множество.
+     *
+     * @param value неотрицательное число
+     */
+    void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add((char) value));
+        }
+    }
+
+    /**
+     * Удаляет число из множества.
+     *
+     * @param value неотрицательное число
+     */
+    void remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    /**
+     * Проверяет, есть ли число в множестве.
+     *
+     * @param value неотрицательное число
+     * @return {@code true}, если число есть в множестве
+     */
+    boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Возвращает количество чисел в множестве.
+     *
+     * @return количество чисел
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Проверяет, пусто ли множество.
+     *
+     * @return {@code true}, если в множестве нет чисел
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает пересечение с другим множеством.
+     *
+     * @param other другое множество
+     * @return новое множество
+     */
+    CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, Math.min(size, other.size)));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает количество чисел в пересечении с другим множеством, не строя само пересечение.
+     *
+     * @param other другое множество
+     * @return количество общих чисел
+     */
+    int andCardinality(CompressedBitmap other) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Возвращает объединение с другим множеством.
+     *
+     * @param other другое множество
+     * @return новое множество
+     */
+    CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, size + other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает подмножество чисел, удовлетворяющих условию.
+     *
+     * @param predicate условие отбора
+     * @return новое множество
+     */
+    CompressedBitmap filter(IntPredicate predicate) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i].filter(keys[i] << 16, predicate);
+            if (container.cardinality() > 0) {
+                result.append(keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Передает числа множества в порядке возрастания.
+     *
+     * @param action обработчик числа
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        ensureCapacity();
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private void ensureCapacity() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * Блок из 65536 возможных чисел с общими старшими битами. Операции изменения возвращают блок,
+     * который нужно сохранить вместо текущего: при переходе через {@link #ARRAY_LIMIT} меняется его вид.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract Container filter(int high, IntPredicate predicate);
+
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                for (int i = 0; i < cardinality; i++) {
+                    if (bitmap.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                for (int i = 0; i < cardinality; i++) {
+                    if (bitmap.contains(values[i])) {
+                        count++;
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_LIMIT) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        Container filter(int high, IntPredicate predicate) {
+            char[] result = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (predicate.test(high | values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.set(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) != 0) {
+                words[value >>> 6] &= ~mask;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT / 2) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, count);
+            return count > ARRAY_LIMIT ? bitmap : bitmap.toArray();
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = new BitmapContainer(words.clone(), cardinality);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.set(array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result.words[i] |= otherWords[i];
+                    count += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = count;
+            }
+            return result;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        Container filter(int high, IntPredicate predicate) {
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    if (predicate.test(high | (i << 6) | bit)) {
+                        result[i] |= 1L << bit;
+                        count++;
+                    }
+                    word &= word - 1;
+                }
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, count);
+            return count > ARRAY_LIMIT ? bitmap : bitmap.toArray();
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        void set(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0) {
+                words[value >>> 6] |= mask;
+                cardinality++;
+            }
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
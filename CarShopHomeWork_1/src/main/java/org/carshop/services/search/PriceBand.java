@@ -0,0 +1,77 @@
+package org.carshop.services.search;
+
+/**
+ * Перечисление ценовых диапазонов для подсчета автомобилей в поиске.
+ * Нижняя граница диапазона включается в него, верхняя - нет.
+ */
+public enum PriceBand {
+    UNDER_10000(0, 10000),
+    FROM_10000_TO_20000(10000, 20000),
+    FROM_20000_TO_50000(20000, 50000),
+    FROM_50000_TO_100000(50000, 100000),
+    FROM_100000(100000, Double.POSITIVE_INFINITY);
+
+    private final double min;
+    private final double max;
+
+    PriceBand(double min, double max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Возвращает нижнюю границу диапазона.
+     *
+     * @return минимальная цена, входящая в диапазон
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Возвращает верхнюю границу диапазона.
+     *
+     * @return цена, с которой начинается следующий диапазон
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Находит диапазон, в который входит цена.
+     *
+     * @param price цена автомобиля
+     * @return ценовой диапазон
+     */
+    public static PriceBand of(double price) {
+        for (PriceBand band : values()) {
+            if (price < band.max) {
+                return band;
+            }
+        }
+        return FROM_100000;
+    }
+
+    /**
+     * Возвращает человекочитаемое имя ценового диапазона.
+     *
+     * @param band ценовой диапазон
+     * @return человекочитаемое имя ценового диапазона
+     */
+    public static String getDisplayName(PriceBand band) {
+        switch (band) {
+            case UNDER_10000:
+                return "До 10000";
+            case FROM_10000_TO_20000:
+                return "10000 - 20000";
+            case FROM_20000_TO_50000:
+                return "20000 - 50000";
+            case FROM_50000_TO_100000:
+                return "50000 - 100000";
+            case FROM_100000:
+                return "От 100000";
+            default:
+                return band.name();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.carshop.services.stats;
+
+import org.carshop.model.Car;
+import org.carshop.model.ConditionCar;
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.repositories.events.ObservableCarRepository;
+import org.carshop.repositories.events.ObservableOrderRepository;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Сводные показатели склада и продаж, обновляемые при каждой записи в репозитории.
+ * <p>Статистика подписывается на {@link ObservableCarRepository} и {@link ObservableOrderRepository}
+ * и по состояниям сущности до и после записи меняет только затронутые счетчики, поэтому чтение любого
+ * показателя не перебирает автомобили и заказы. Суммы хранятся в копейках, чтобы многократные
+ * добавления и вычитания цен не накапливали ошибку округления.</p>
+ * <p>Выручка завершенного заказа запоминается при его завершении и вычитается в том же размере при
+ * отмене или удалении заказа, даже если цена автомобиля с тех пор изменилась.</p>
+ */
+public class ShopStatistics {
+
+    private final LongAdder carCount = new LongAdder();
+    private final LongAdder inventoryCents = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> carsByCondition = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> carsByMake = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, LongAdder> carsByYear = new ConcurrentHashMap<>();
+    private final Map<OrderStatus, LongAdder> ordersByStatus = new EnumMap<>(OrderStatus.class);
+    private final ConcurrentMap<String, Long> completedOrderCents = new ConcurrentHashMap<>();
+    private final LongAdder revenueCents = new LongAdder();
+
+    /**
+     * Создает пустую статистику.
+     */
+    public ShopStatistics() {
+        for (OrderStatus status : OrderStatus.values()) {
+            ordersByStatus.put(status, new LongAdder());
+        }
+    }
+
+    /**
+     * Создает статистику по текущему содержимому репозиториев и подписывает ее на последующие записи.
+     * Вызывается при запуске приложения, до того как в репозитории начнут писать другие потоки.
+     *
+     * @param cars репозиторий автомобилей
+     * @param orders репозиторий заказов
+     * @return статистика
+     */
+    public static ShopStatistics subscribe(ObservableCarRepository cars, ObservableOrderRepository orders) {
+        ShopStatistics statistics = new ShopStatistics();
+        try (Stream<Car> stream = cars.stream()) {
+            stream.forEach(car -> statistics.carWritten(null, car));
+        }
+        try (Stream<Order> stream = orders.stream()) {
+            stream.forEach(order -> statistics.orderWritten(null, order));
+        }
+        cars.addListener(statistics::carWritten);
+        orders.addListener(statistics::orderWritten);
+        return statistics;
+    }
+
+    /**
+     * Учитывает запись автомобиля.
+     *
+     * @param previous автомобиль до записи, или {@code null}, если он добавлен
+     * @param current автомобиль после записи, или {@code null}, если он удален
+     */
+    public void carWritten(Car previous, Car current) {
+        if (previous != null) {
+            countCar(previous, -1);
+        }
+        if (current != null) {
+            countCar(current, 1);
+        }
+    }
+
+    /**
+     * Учитывает запись заказа.
+     *
+     * @param previous заказ до записи, или {@code null}, если он добавлен
+     * @param current заказ после записи, или {@code null}, если он удален
+     */
+    public void orderWritten(Order previous, Order current) {
+        if (previous != null && previous.getStatus() != null) {
+            ordersByStatus.get(previous.getStatus()).decrement();
+        }
+        if (current != null && current.getStatus() != null) {
+            ordersByStatus.get(current.getStatus()).increment();
+        }
+        String id = current != null ? current.getId() : previous.getId();
+        if (current != null && current.getStatus() == OrderStatus.COMPLETED) {
+            long cents = toCents(current.getCar() == null ? 0 : current.getCar().getPrice());
+            if (completedOrderCents.putIfAbsent(id, cents) == null) {
+                revenueCents.add(cents);
+            }
+        } else {
+            Long charged = completedOrderCents.remove(id);
+            if (charged != null) {
+                revenueCents.add(-charged);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество автомобилей.
+     *
+     * @return количество автомобилей
+     */
+    public long getCarCount() {
+        return carCount.sum();
+    }
+
+    /**
+     * Возвращает количество автомобилей в указанном состоянии.
+     *
+     * @param condition состояние автомобиля
+     * @return количество автомобилей
+     */
+    public long getCarCount(ConditionCar condition) {
+        return count(carsByCondition, condition.name());
+    }
+
+    /**
+     * Возвращает количество автомобилей указанной марки.
+     *
+     * @param make марка
+     * @return количество автомобилей
+     */
+    public long getCarCountByMake(String make) {
+        return count(carsByMake, make);
+    }
+
+    /**
+     * Возвращает количество автомобилей указанного года выпуска.
+     *
+     * @param year год выпуска
+     * @return количество автомобилей
+     */
+    public long getCarCountByYear(int year) {
+        return count(carsByYear, year);
+    }
+
+    /**
+     * Возвращает количество автомобилей по состояниям.
+     *
+     * @return новый словарь с ненулевыми количествами в порядке объявления состояний
+     */
+    public Map<ConditionCar, Long> getCarCountsByCondition() {
+        Map<ConditionCar, Long> counts = new EnumMap<>(ConditionCar.class);
+        for (ConditionCar condition : ConditionCar.values()) {
+            long count = getCarCount(condition);
+            if (count > 0) {
+                counts.put(condition, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Возвращает количество автомобилей по маркам.
+     *
+     * @return новый словарь с ненулевыми количествами, упорядоченный по марке
+     */
+    public Map<String, Long> getCarCountsByMake() {
+        return nonZero(carsByMake);
+    }
+
+    /**
+     * Возвращает количество автомобилей по годам выпуска.
+     *
+     * @return новый словарь с ненулевыми количествами, упорядоченный по году
+     */
+    public Map<Integer, Long> getCarCountsByYear() {
+        return nonZero(carsByYear);
+    }
+
+    /**
+     * Возвращает суммарную стоимость автомобилей.
+     *
+     * @return сумма цен всех автомобилей
+     */
+    public double getInventoryValue() {
+        return inventoryCents.sum() / 100.0;
+    }
+
+    /**
+     * Возвращает количество заказов в указанном статусе.
+     *
+     * @param status статус заказа
+     * @return количество заказов
+     */
+    public long getOrderCount(OrderStatus status) {
+        return ordersByStatus.get(status).sum();
+    }
+
+    /**
+     * Возвращает выручку по завершенным заказам.
+     *
+     * @return сумма цен автомобилей в завершенных заказах на момент завершения
+     */
+    public double getCompletedRevenue() {
+        return revenueCents.sum() / 100.0;
+    }
+
+    private void countCar(Car car, int delta) {
+        carCount.add(delta);
+        inventoryCents.add(delta * toCents(car.getPrice()));
+        if (car.getCondition() != null) {
+            carsByCondition.computeIfAbsent(car.getCondition(), key -> new LongAdder()).add(delta);
+        }
+        if (car.getMake() != null) {
+            carsByMake.computeIfAbsent(car.getMake(), key -> new LongAdder()).add(delta);
+        }
+        carsByYear.computeIfAbsent(car.getYear(), key -> new LongAdder()).add(delta);
+    }
+
+    private static <K> long count(Map<K, LongAdder> counters, K key) {
+        LongAdder counter = counters.get(key);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private static <K> Map<K, Long> nonZero(Map<K, LongAdder> counters) {
+        Map<K, Long> counts = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long count = counter.sum();
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    private static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+}
@@ -1,10 +1,13 @@
 package org.carshop.consoleTest;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import org.carshop.console.MainDashboard;
 import org.carshop.console.OrderDashboard;
 import org.carshop.model.*;
+import org.carshop.repositories.InMemoryOrderRepository;
+import org.carshop.repositories.InMemoryUserRepository;
 import org.carshop.services.AuditService;
 import org.carshop.services.CarService;
 import org.carshop.services.OrderService;
@@ -15,6 +18,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -86,4 +92,63 @@ public class OrderDashboardTest {
 
         when(orderService.getAllOrders()).thenReturn(orders);
     }
+
+    @Test
+    public void testCompletingTwoOrdersCountsBothPurchases() throws Exception {
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        UserService users = new UserService(userRepository, new InMemoryOrderRepository());
+        OrderService orders = new OrderService(new InMemoryOrderRepository());
+        OrderDashboard dashboard = new OrderDashboard(users, carService, orders, auditService, mainDashboard);
+        User admin = new User("1", "admin", "password", Role.ADMIN);
+        userRepository.save(new User("2", "client", "password", Role.CLIENT));
+        User client = users.findById("2");
+        Order first = orders.createOrder(client, new Car("1", "Make", "Model", 2024, 12000, "NEW"));
+        Order second = orders.createOrder(client, new Car("2", "Make", "Model", 2023, 11000, "USED"));
+        User renamed = users.findById("2");
+        renamed.setUsername("client_renamed");
+        users.update(renamed);
+
+        Method updateOrder = OrderDashboard.class.getDeclaredMethod("updateOrder", Order.class, OrderStatus.class, User.class);
+        updateOrder.setAccessible(true);
+        updateOrder.invoke(dashboard, first, OrderStatus.COMPLETED, admin);
+        updateOrder.invoke(dashboard, second, OrderStatus.COMPLETED, admin);
+
+        User stored = users.findById("2");
+        assertEquals(2, stored.getPurchaseCount());
+        assertEquals("client_renamed", stored.getUsername());
+        assertEquals(0, first.getClient().getPurchaseCount());
+    }
+
+    @Test
+    public void testCancelingCompletedOrderRemovesPurchase() throws Exception {
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        UserService users = new UserService(userRepository, new InMemoryOrderRepository());
+        OrderService orders = new OrderService(new InMemoryOrderRepository());
+        OrderDashboard dashboard = new OrderDashboard(users, carService, orders, auditService, mainDashboard);
+        User admin = new User("1", "admin", "password", Role.ADMIN);
+        userRepository.save(new User("2", "client", "password", Role.CLIENT));
+        Order order = orders.createOrder(users.findById("2"), new Car("1", "Make", "Model", 2024, 12000, "NEW"));
+        Method updateOrder = OrderDashboard.class.getDeclaredMethod("updateOrder", Order.class, OrderStatus.class, User.class);
+        updateOrder.setAccessible(true);
+
+        updateOrder.invoke(dashboard, order, OrderStatus.COMPLETED, admin);
+        updateOrder.invoke(dashboard, orders.getOrderById(order.getId()), OrderStatus.CANCELED, admin);
+
+        assertEquals(OrderStatus.CANCELED, orders.getOrderById(order.getId()).getStatus());
+        assertEquals(0, users.findById("2").getPurchaseCount());
+    }
+
+    @Test
+    public void testNewStatusMenuOffersOnlyAllowedTransitions() throws Exception {
+        User admin = new User("1", "admin", "password", Role.ADMIN);
+        Order completed = new Order("1", admin, new Car("1", "Make", "Model", 2024, 12000, "NEW"),
+                new Date(), OrderStatus.COMPLETED);
+        Field scanner = OrderDashboard.class.getDeclaredField("scanner");
+        scanner.setAccessible(true);
+        scanner.set(orderDashboard, new Scanner(new ByteArrayInputStream("2\n1\n".getBytes())));
+        Method getNewOrderStatus = OrderDashboard.class.getDeclaredMethod("getNewOrderStatus", Order.class);
+        getNewOrderStatus.setAccessible(true);
+
+        assertEquals(OrderStatus.CANCELED, getNewOrderStatus.invoke(orderDashboard, completed));
+    }
 }
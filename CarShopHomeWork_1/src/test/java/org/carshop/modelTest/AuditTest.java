@@ -1,13 +1,15 @@
 package org.carshop.modelTest;
 
 import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.model.EntityType;
 import org.carshop.model.Role;
 import org.carshop.model.User;
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 
 import java.util.Date;
 
-import static junit.framework.TestCase.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AuditTest {
@@ -29,8 +31,9 @@ public class AuditTest {
 
         // Проверка значений полей
         assertEquals("1", audit.getId());
-        assertEquals(user, audit.getUser());
-        assertEquals("User login", audit.getAction());
+        assertEquals("1", audit.getUserId());
+        assertEquals("JohnDoe", audit.getUsername());
+        assertEquals("User login", audit.getMessage());
         assertTrue(date.equals(audit.getDate()), "Dates should be equal");
     }
 
@@ -48,14 +51,33 @@ public class AuditTest {
 
         // Установка значений полей
         audit.setId("2");
-        audit.setUser(user);
-        audit.setAction("User logout");
+        audit.setUserId(user.getId());
+        audit.setUsername(user.getUsername());
+        audit.setAction(AuditAction.CUSTOM);
+        audit.setValues(new String[]{"User logout"});
         audit.setDate(date);
 
         // Проверка значений полей
         assertEquals("2", audit.getId());
-        assertEquals(user, audit.getUser());
-        assertEquals("User logout", audit.getAction());
+        assertEquals("2", audit.getUserId());
+        assertEquals("JaneDoe", audit.getUsername());
+        assertEquals("User logout", audit.getMessage());
         assertTrue(date.equals(audit.getDate()), "Dates should be equal");
     }
+
+    /**
+     * Тестирует сборку сообщения из кода действия и параметров.
+     */
+    @Test
+    public void testStructuredAuditMessage() {
+        User user = new User("1", "JohnDoe", "password123", Role.ADMIN);
+
+        Audit audit = new Audit("3", user, AuditAction.CAR_UPDATED, "7",
+                new String[]{"Toyota", "Camry", "2021", "25000.0", "NEW"}, new Date());
+
+        assertEquals(EntityType.CAR, audit.getEntityType());
+        assertEquals("Camry", audit.getParams().get("model"));
+        assertEquals("Обновлен автомобиль под ID 7\nМарка Toyota\nМодель Camry\nГод выпуска 2021"
+                + "\nЦена 25000.0\nСостояние NEW", audit.getMessage());
+    }
 }
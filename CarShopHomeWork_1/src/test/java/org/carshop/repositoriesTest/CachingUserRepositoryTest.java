@@ -0,0 +1,80 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.InMemoryUserRepository;
+import org.carshop.repositories.cache.CachingUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachingUserRepositoryTest {
+
+    private InMemoryUserRepository delegate;
+    private CachingUserRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = spy(new InMemoryUserRepository());
+        repository = new CachingUserRepository(delegate, 100, Duration.ofMinutes(10));
+        repository.save(new User("1", "client", "password", Role.CLIENT));
+    }
+
+    @Test
+    public void testFindByUsernameIsServedFromCache() {
+        // Act
+        repository.findByUsername("client");
+        User user = repository.findByUsername("client");
+
+        // Assert
+        assertEquals("1", user.getId());
+        verify(delegate, times(1)).findByUsername("client");
+        verify(delegate, times(1)).findById("1");
+        assertEquals(1, repository.cacheStats().getHits());
+    }
+
+    @Test
+    public void testReturnedCopyDoesNotChangeCache() {
+        // Arrange
+        User user = repository.findById("1");
+
+        // Act
+        user.setPurchaseCount(5);
+
+        // Assert
+        assertEquals(0, repository.findById("1").getPurchaseCount());
+    }
+
+    @Test
+    public void testUpdateInvalidatesCachedUser() {
+        // Arrange
+        User user = repository.findByUsername("client");
+        user.setUsername("renamed");
+
+        // Act
+        repository.update(user);
+
+        // Assert
+        assertNull(repository.findByUsername("client"));
+        assertEquals("1", repository.findByUsername("renamed").getId());
+        assertEquals("renamed", repository.findById("1").getUsername());
+    }
+
+    @Test
+    public void testDeleteInvalidatesCachedUser() {
+        // Arrange
+        repository.findByUsername("client");
+
+        // Act
+        repository.delete("1");
+        repository.save(new User("2", "client", "password", Role.MANAGER));
+
+        // Assert
+        assertNull(repository.findById("1"));
+        assertEquals("2", repository.findByUsername("client").getId());
+    }
+}
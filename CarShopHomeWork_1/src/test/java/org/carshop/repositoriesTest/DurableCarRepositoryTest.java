@@ -0,0 +1,123 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.model.Car;
+import org.carshop.repositories.wal.DurableCarRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableCarRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecoversFromLog() {
+        // Arrange
+        DurableCarRepository repository = new DurableCarRepository(directory);
+        repository.save(new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW"));
+        repository.save(new Car("2", "Honda", "Civic", 2019, 18000.0, "USED"));
+        repository.update(new Car("1", "Toyota", "Camry", 2021, 25000.0, "NEW"));
+        repository.delete("2");
+        repository.close();
+
+        // Act
+        DurableCarRepository recovered = new DurableCarRepository(directory);
+
+        // Assert
+        assertEquals(1, recovered.count());
+        assertEquals("Camry", recovered.findById("1").getModel());
+        assertNull(recovered.findById("2"));
+        assertEquals("3", recovered.nextId());
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoversFromSnapshotAndLogTail() throws IOException {
+        // Arrange
+        DurableCarRepository repository = new DurableCarRepository(directory);
+        repository.save(new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW"));
+        repository.save(new Car("2", "Honda", "Civic", 2019, 18000.0, "USED"));
+        repository.snapshot();
+        repository.delete("1");
+        repository.save(new Car("3", "BMW", "X5", 2022, 60000.0, "NEW"));
+        repository.close();
+
+        // Act
+        DurableCarRepository recovered = new DurableCarRepository(directory);
+
+        // Assert
+        assertEquals(2, recovered.count());
+        assertNull(recovered.findById("1"));
+        assertEquals(1, recovered.findByMake("bmw").size());
+        assertEquals(1, countFiles("snapshot-"));
+        recovered.close();
+    }
+
+    @Test
+    public void testIdsAreNotReusedAfterDeleteAndSnapshot() {
+        // Arrange
+        DurableCarRepository repository = new DurableCarRepository(directory);
+        for (int i = 0; i < 3; i++) {
+            repository.save(new Car(repository.nextId(), "Toyota", "Corolla", 2020, 20000.0, "NEW"));
+        }
+        repository.delete("3");
+        repository.snapshot();
+        repository.close();
+
+        // Act
+        DurableCarRepository recovered = new DurableCarRepository(directory);
+        String next = recovered.nextId();
+        recovered.save(new Car(next, "Honda", "Civic", 2019, 18000.0, "USED"));
+        recovered.delete(next);
+        recovered.snapshot();
+        recovered.close();
+        DurableCarRepository reopened = new DurableCarRepository(directory);
+
+        // Assert
+        assertEquals("4", next);
+        assertEquals(2, reopened.count());
+        assertEquals("5", reopened.nextId());
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshotIsTakenInBackground() throws Exception {
+        // Arrange
+        DurableCarRepository repository = new DurableCarRepository(directory, 50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100; i++) {
+                    repository.save(new Car(repository.nextId(), "Toyota", "Corolla", 2020, i, "NEW"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        repository.close();
+        DurableCarRepository recovered = new DurableCarRepository(directory, 50);
+
+        // Assert
+        assertEquals(400, recovered.count());
+        assertTrue(countFiles("snapshot-") >= 1);
+        recovered.close();
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.model.*;
+import org.carshop.repositories.wal.DurableOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableOrderRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecoversOrdersWithClientAndCar() {
+        User client = new User("1", "john_doe", "password123", Role.CLIENT);
+        client.setPurchaseCount(2);
+        Car car = new Car("1", "Toyota", "Corolla", 2020, 20000.00, "NEW");
+        Date date = new Date(1000L);
+
+        DurableOrderRepository repository = new DurableOrderRepository(directory);
+        repository.save(new Order("1", client, car, date, OrderStatus.PENDING));
+        repository.update(new Order("1", client, car, date, OrderStatus.CANCELED));
+        repository.close();
+
+        DurableOrderRepository recovered = new DurableOrderRepository(directory);
+        Order order = recovered.findById("1");
+
+        assertNotNull(order, "Order should survive a restart");
+        assertEquals(OrderStatus.CANCELED, order.getStatus(), "Status update should be replayed");
+        assertEquals(client, order.getClient(), "Client should be restored");
+        assertEquals(car, order.getCar(), "Car should be restored");
+        assertEquals(date, order.getDate(), "Date should be restored");
+        assertNull(recovered.findActiveOrderByCarId("1"), "Canceled order should not hold the car");
+        recovered.close();
+    }
+
+    @Test
+    public void testCompareAndSetStatusIsReplayedWithVersion() {
+        User client = new User("1", "john_doe", "password123", Role.CLIENT);
+        Car car = new Car("1", "Toyota", "Corolla", 2020, 20000.00, "NEW");
+
+        DurableOrderRepository repository = new DurableOrderRepository(directory);
+        repository.save(new Order("1", client, car, new Date(1000L), OrderStatus.PENDING));
+        assertTrue(repository.compareAndSetStatus("1", 0, OrderStatus.COMPLETED), "Current version should be accepted");
+        assertFalse(repository.compareAndSetStatus("1", 0, OrderStatus.CANCELED), "Stale version should be rejected");
+        repository.close();
+
+        DurableOrderRepository recovered = new DurableOrderRepository(directory);
+        Order order = recovered.findById("1");
+
+        assertEquals(OrderStatus.COMPLETED, order.getStatus(), "Only the accepted change should be replayed");
+        assertEquals(1, order.getVersion(), "Version should be restored");
+        assertTrue(recovered.compareAndSetStatus("1", 1, OrderStatus.CANCELED), "Restored version should be current");
+        recovered.close();
+    }
+}
@@ -0,0 +1,144 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.repositories.cache.CacheStats;
+import org.carshop.repositories.cache.EntityCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testHitsAndMisses() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(10, Duration.ofMinutes(1), now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get("1", key -> "value-" + loads.incrementAndGet());
+        String cached = cache.get("1", key -> "value-" + loads.incrementAndGet());
+        cache.get("2", key -> null);
+
+        // Assert
+        CacheStats stats = cache.stats();
+        assertEquals("value-1", cached);
+        assertEquals(1, loads.get());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void testEntryExpiresAfterTtl() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(10, Duration.ofSeconds(30), now::get);
+        cache.get("1", key -> "old");
+
+        // Act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        String value = cache.get("1", key -> "new");
+
+        // Assert
+        assertEquals("new", value);
+        assertEquals(0, cache.stats().getHits());
+    }
+
+    @Test
+    public void testInvalidateForcesReload() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(10, Duration.ofMinutes(1), now::get);
+        cache.get("1", key -> "old");
+
+        // Act
+        cache.invalidate("1");
+
+        // Assert
+        assertEquals("new", cache.get("1", key -> "new"));
+    }
+
+    @Test
+    public void testValueLoadedDuringInvalidationIsNotCached() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(10, Duration.ofMinutes(1), now::get);
+
+        // Act
+        cache.get("1", key -> {
+            cache.invalidate("1");
+            return "stale";
+        });
+
+        // Assert
+        assertEquals("fresh", cache.get("1", key -> "fresh"));
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(3, Duration.ofMinutes(1), now::get);
+        for (int i = 0; i < 5; i++) {
+            for (String key : new String[]{"a", "b", "c"}) {
+                cache.get(key, k -> k);
+            }
+        }
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            cache.get("scan-" + i, k -> k);
+        }
+
+        // Assert
+        CacheStats before = cache.stats();
+        cache.get("a", k -> k);
+        cache.get("b", k -> k);
+        cache.get("c", k -> k);
+        assertEquals(before.getHits() + 3, cache.stats().getHits());
+        assertEquals(3, cache.stats().getSize());
+    }
+
+    @Test
+    public void testNewKeyEvictsRarelyUsedEntry() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(1, Duration.ofMinutes(1), now::get);
+        cache.get("a", k -> k);
+
+        // Act
+        cache.get("b", k -> k);
+        cache.get("b", k -> k);
+        cache.get("b", k -> k);
+
+        // Assert
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(1, cache.stats().getHits());
+    }
+
+    @Test
+    public void testSegmentedCacheKeepsSizeBound() {
+        // Arrange
+        EntityCache<String, String> cache = new EntityCache<>(1000, Duration.ofMinutes(1), now::get);
+        for (int i = 0; i < 5000; i++) {
+            cache.get("key-" + i, k -> k);
+        }
+
+        // Act
+        CacheStats filled = cache.stats();
+        cache.invalidateAll();
+
+        // Assert
+        assertTrue(filled.getSize() > 0 && filled.getSize() <= 1000, "Segments together should not exceed the maximum size");
+        assertEquals(0, cache.stats().getSize(), "Invalidating all should clear every segment");
+        assertEquals(5000, cache.stats().getMisses());
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new EntityCache<String, String>(0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new EntityCache<String, String>(10, Duration.ZERO));
+    }
+}
@@ -0,0 +1,66 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.repositories.IdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    private IdGenerator idGenerator;
+
+    @BeforeEach
+    public void setUp() {
+        idGenerator = new IdGenerator();
+    }
+
+    @Test
+    public void testNextIdIsMonotonic() {
+        assertEquals("1", idGenerator.nextId());
+        assertEquals("2", idGenerator.nextId());
+        assertEquals("3", idGenerator.nextId());
+    }
+
+    @Test
+    public void testObserveAdvancesPastStoredIds() {
+        idGenerator.observe("41");
+        idGenerator.observe("7");
+        idGenerator.observe("not-a-number");
+        idGenerator.observe(null);
+
+        assertEquals("42", idGenerator.nextId(), "Generator should continue after the largest stored id");
+    }
+
+    @Test
+    public void testLastIdCoversIssuedAndObservedIds() {
+        assertEquals(0, idGenerator.lastId());
+        idGenerator.nextId();
+        idGenerator.observe("10");
+
+        assertEquals(10, idGenerator.lastId(), "Last id should be the largest issued or observed id");
+    }
+
+    @Test
+    public void testConcurrentAllocationHasNoDuplicates() throws InterruptedException {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    ids.add(idGenerator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(4000, ids.size(), "Every allocated id should be unique");
+    }
+}
@@ -0,0 +1,73 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.model.Audit;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.InMemoryAuditRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryAuditRepositoryTest {
+
+    private InMemoryAuditRepository repository;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new InMemoryAuditRepository();
+        user = new User("1", "client", "password", Role.CLIENT);
+        repository.saveAll(Arrays.asList(
+                new Audit("1", user, "third", new Date(3000)),
+                new Audit("2", user, "first", new Date(1000)),
+                new Audit("3", user, "second", new Date(2000)),
+                new Audit("4", user, "second-again", new Date(2000))));
+    }
+
+    @Test
+    public void testFindAllOrderByDateKeepsInsertionOrderForTies() {
+        // Act
+        List<String> actions = actions(repository.findAllOrderByDate());
+
+        // Assert
+        assertEquals(Arrays.asList("first", "second", "second-again", "third"), actions);
+        assertEquals(Arrays.asList("third", "first", "second", "second-again"), actions(repository.findAll()));
+    }
+
+    @Test
+    public void testFindBetweenIncludesStartAndExcludesEnd() {
+        // Act & Assert
+        assertEquals(Arrays.asList("second", "second-again"), actions(repository.findBetween(new Date(2000), new Date(3000))));
+        assertEquals(Arrays.asList("first", "second", "second-again", "third"),
+                actions(repository.findBetween(new Date(0), new Date(3001))));
+        assertTrue(repository.findBetween(new Date(3000), new Date(2000)).isEmpty());
+    }
+
+    @Test
+    public void testFindByUserIdAndGrouping() {
+        // Arrange
+        User other = new User("2", "manager", "password", Role.MANAGER);
+        repository.save(new Audit("5", other, "other", new Date(4000)));
+
+        // Act
+        Map<String, List<Audit>> groups = repository.findAllGroupedByUserId();
+
+        // Assert
+        assertEquals(Arrays.asList("third", "first", "second", "second-again"), actions(repository.findByUserId("1")));
+        assertEquals(Arrays.asList("other"), actions(repository.findByUserId("2")));
+        assertTrue(repository.findByUserId("3").isEmpty());
+        assertEquals(2, groups.size());
+        assertEquals(4, groups.get("1").size());
+    }
+
+    private static List<String> actions(List<Audit> audits) {
+        return audits.stream().map(Audit::getMessage).collect(Collectors.toList());
+    }
+}
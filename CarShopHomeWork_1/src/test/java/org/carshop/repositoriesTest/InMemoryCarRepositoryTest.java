@@ -2,10 +2,17 @@ package org.carshop.repositoriesTest;
 
 import org.carshop.model.Car;
 import org.carshop.repositories.InMemoryCarRepository;
-import org.junit.Before;
-import org.junit.Test;
+import org.carshop.repositories.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -13,7 +20,7 @@ public class InMemoryCarRepositoryTest {
 
     private InMemoryCarRepository carRepository;
 
-    @Before
+    @BeforeEach
     public void setUp() {
         carRepository = new InMemoryCarRepository();
     }
@@ -108,4 +115,247 @@ public class InMemoryCarRepositoryTest {
         // Assert
         assertEquals(2, count);
     }
+
+    @Test
+    public void testFindAllKeepsInsertionOrder() {
+        // Arrange
+        Car car1 = new Car("3", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("1", "Honda", "Civic", 2019, 18000.0, "Used");
+        Car car3 = new Car("2", "BMW", "X5", 2021, 50000.0, "New");
+        carRepository.save(car1);
+        carRepository.save(car2);
+        carRepository.save(car3);
+
+        // Act
+        List<Car> cars = carRepository.findAll();
+
+        // Assert
+        assertEquals(Arrays.asList(car1, car2, car3), cars);
+    }
+
+    @Test
+    public void testFindByMakeAndModelIgnoreCase() {
+        // Arrange
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("2", "Honda", "Civic", 2019, 18000.0, "Used");
+        Car car3 = new Car("3", "TOYOTA", "Camry", 2021, 25000.0, "New");
+        carRepository.save(car1);
+        carRepository.save(car2);
+        carRepository.save(car3);
+
+        // Act & Assert
+        assertEquals(Arrays.asList(car1, car3), carRepository.findByMake("toyota"));
+        assertEquals(Collections.singletonList(car2), carRepository.findByModel("CIVIC"));
+        assertTrue(carRepository.findByMake("BMW").isEmpty());
+    }
+
+    @Test
+    public void testFindByYear() {
+        // Arrange
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("2", "Honda", "Civic", 2019, 18000.0, "Used");
+        carRepository.save(car1);
+        carRepository.save(car2);
+
+        // Act & Assert
+        assertEquals(Collections.singletonList(car2), carRepository.findByYear(2019));
+        assertTrue(carRepository.findByYear(2000).isEmpty());
+    }
+
+    @Test
+    public void testIndexesFollowUpdateAndDelete() {
+        // Arrange
+        Car car = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        carRepository.save(car);
+
+        // Act: объект изменен снаружи до вызова update, как это делает CarDashboard
+        car.setMake("Lexus");
+        car.setYear(2022);
+        carRepository.update(car);
+
+        // Assert
+        assertTrue(carRepository.findByMake("Toyota").isEmpty());
+        assertTrue(carRepository.findByYear(2020).isEmpty());
+        assertEquals(Collections.singletonList(car), carRepository.findByMake("lexus"));
+        assertEquals(Collections.singletonList(car), carRepository.findByYear(2022));
+
+        carRepository.delete("1");
+        assertTrue(carRepository.findByMake("Lexus").isEmpty());
+        assertTrue(carRepository.findByModel("Corolla").isEmpty());
+    }
+
+    @Test
+    public void testFindAllOrderByPrice() {
+        // Arrange
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("2", "Honda", "Civic", 2019, 18000.0, "Used");
+        Car car3 = new Car("3", "BMW", "X5", 2021, 50000.0, "New");
+        Car car4 = new Car("4", "Kia", "Rio", 2018, 18000.0, "Used");
+        carRepository.save(car1);
+        carRepository.save(car2);
+        carRepository.save(car3);
+        carRepository.save(car4);
+
+        // Act & Assert
+        assertEquals(Arrays.asList(car2, car4, car1, car3), carRepository.findAllOrderByPrice(true));
+        assertEquals(Arrays.asList(car3, car1, car2, car4), carRepository.findAllOrderByPrice(false));
+    }
+
+    @Test
+    public void testPriceRangeAndTopK() {
+        // Arrange
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("2", "Honda", "Civic", 2019, 18000.0, "Used");
+        Car car3 = new Car("3", "BMW", "X5", 2021, 50000.0, "New");
+        carRepository.save(car1);
+        carRepository.save(car2);
+        carRepository.save(car3);
+
+        // Act & Assert
+        assertEquals(Arrays.asList(car2, car1), carRepository.findByPriceBetween(18000.0, 20000.0));
+        assertTrue(carRepository.findByPriceBetween(60000.0, 50000.0).isEmpty());
+        assertEquals(Arrays.asList(car2, car1), carRepository.cheapest(2));
+        assertEquals(Collections.singletonList(car3), carRepository.mostExpensive(1));
+        assertEquals(3, carRepository.cheapest(10).size());
+    }
+
+    @Test
+    public void testPriceIndexFollowsUpdate() {
+        // Arrange
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        Car car2 = new Car("2", "Honda", "Civic", 2019, 18000.0, "Used");
+        carRepository.save(car1);
+        carRepository.save(car2);
+
+        // Act
+        car1.setPrice(10000.0);
+        carRepository.update(car1);
+
+        // Assert
+        assertEquals(Arrays.asList(car1, car2), carRepository.findAllOrderByPrice(true));
+        assertTrue(carRepository.findByPriceBetween(19000.0, 21000.0).isEmpty());
+    }
+
+    @Test
+    public void testNextIdIsNotReusedAfterDelete() {
+        // Arrange
+        carRepository.save(new Car(carRepository.nextId(), "Toyota", "Corolla", 2020, 20000.0, "New"));
+        String secondId = carRepository.nextId();
+        carRepository.save(new Car(secondId, "Honda", "Civic", 2019, 18000.0, "Used"));
+
+        // Act
+        carRepository.delete(secondId);
+        String nextId = carRepository.nextId();
+
+        // Assert
+        assertEquals("2", secondId);
+        assertEquals("3", nextId);
+    }
+
+    @Test
+    public void testNextIdSkipsExplicitIds() {
+        // Arrange
+        carRepository.save(new Car("10", "Toyota", "Corolla", 2020, 20000.0, "New"));
+
+        // Act & Assert
+        assertEquals("11", carRepository.nextId());
+    }
+
+    @Test
+    public void testStoredCarIsNotAffectedByCallerChanges() {
+        // Arrange
+        Car car = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New");
+        carRepository.save(car);
+
+        // Act
+        car.setPrice(1.0);
+        carRepository.findById("1").setMake("Honda");
+
+        // Assert
+        Car found = carRepository.findById("1");
+        assertEquals(20000.0, found.getPrice());
+        assertEquals("Toyota", found.getMake());
+        assertEquals(1, carRepository.findByMake("Toyota").size());
+    }
+
+    @Test
+    public void testConcurrentSavesAndUpdates() throws InterruptedException {
+        // Arrange
+        int threads = 8;
+        int carsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < carsPerThread; i++) {
+                    Car car = new Car(carRepository.nextId(), "Toyota", "Corolla", 2020, i, "New");
+                    carRepository.save(car);
+                    car.setMake("Honda");
+                    carRepository.update(car);
+                    carRepository.findAllOrderByPrice(false);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(threads * carsPerThread, carRepository.count());
+        assertEquals(threads * carsPerThread, carRepository.findAll().size());
+        assertEquals(threads * carsPerThread, carRepository.findByMake("Honda").size());
+        assertTrue(carRepository.findByMake("Toyota").isEmpty());
+        assertEquals(threads * carsPerThread, carRepository.findAllOrderByPrice(true).size());
+    }
+
+    @Test
+    public void testFindAllReusesSnapshotUntilNextWrite() {
+        // Arrange
+        carRepository.save(new Car("1", "Toyota", "Corolla", 2020, 20000.0, "New"));
+        List<Car> first = carRepository.findAll();
+
+        // Act
+        List<Car> second = carRepository.findAll();
+        carRepository.save(new Car("2", "Honda", "Civic", 2019, 18000.0, "Used"));
+        List<Car> third = carRepository.findAll();
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, first.size());
+        assertEquals(2, third.size());
+        assertThrows(UnsupportedOperationException.class, () -> third.add(new Car()));
+        assertSame(carRepository.findAllOrderByPrice(true), carRepository.findAllOrderByPrice(true));
+    }
+
+    @Test
+    public void testFindPageWalksAllCarsWithCursor() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            carRepository.save(new Car(String.valueOf(i), "Toyota", "Corolla", 2020, 20000.0, "New"));
+        }
+
+        // Act
+        Page<Car> first = carRepository.findPage(null, 2);
+        carRepository.delete("1");
+        carRepository.delete("3");
+        Page<Car> second = carRepository.findPage(first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(Arrays.asList("1", "2"), ids(first.getItems()));
+        assertTrue(first.hasNext());
+        assertEquals(Arrays.asList("4", "5"), ids(second.getItems()));
+        assertFalse(second.hasNext());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testFindPageRejectsInvalidArguments() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> carRepository.findPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> carRepository.findPage("not a cursor!", 10));
+    }
+
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
 }
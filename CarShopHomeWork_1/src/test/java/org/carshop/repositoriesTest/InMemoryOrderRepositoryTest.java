@@ -2,11 +2,15 @@ package org.carshop.repositoriesTest;
 
 import org.carshop.model.*;
 import org.carshop.repositories.InMemoryOrderRepository;
+import org.carshop.repositories.Page;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +63,20 @@ class InMemoryOrderRepositoryTest {
         assertEquals(OrderStatus.COMPLETED, foundOrder.getStatus(), "Order status should be updated");
     }
 
+    @Test
+    public void testCompareAndSetStatusChecksVersion() {
+        repository.save(new Order("4", user, car, new Date(), OrderStatus.PENDING));
+
+        assertTrue(repository.compareAndSetStatus("4", 0, OrderStatus.CANCELED), "Current version should be accepted");
+        assertFalse(repository.compareAndSetStatus("4", 0, OrderStatus.COMPLETED), "Stale version should be rejected");
+        assertFalse(repository.compareAndSetStatus("5", 0, OrderStatus.COMPLETED), "Missing order should be rejected");
+
+        Order foundOrder = repository.findById("4");
+        assertEquals(OrderStatus.CANCELED, foundOrder.getStatus(), "Stale update should not overwrite the status");
+        assertEquals(1, foundOrder.getVersion(), "Version should be incremented once");
+        assertNull(repository.findActiveOrderByCarId("1"), "Canceled order should not hold the car");
+    }
+
     @Test
     public void testDeleteOrder() {
         Order order = new Order("5", user, car, new Date(), OrderStatus.PENDING);
@@ -79,4 +97,92 @@ class InMemoryOrderRepositoryTest {
         long count = repository.count();
         assertEquals(2, count, "There should be 2 orders in the repository");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindActiveOrderByCarId() {
+        Order order = new Order("8", user, car, new Date(), OrderStatus.PENDING);
+        repository.save(order);
+
+        assertEquals(order, repository.findActiveOrderByCarId("1"), "Pending order should hold the car");
+        assertNull(repository.findActiveOrderByCarId("2"), "Other car should be free");
+    }
+
+    @Test
+    public void testBookingIndexFollowsStatusChanges() {
+        Order order = new Order("9", user, car, new Date(), OrderStatus.PENDING);
+        repository.save(order);
+
+        repository.update(new Order("9", user, car, new Date(), OrderStatus.COMPLETED));
+        assertEquals("9", repository.findActiveOrderByCarId("1").getId(), "Completed order should keep the car sold");
+
+        repository.update(new Order("9", user, car, new Date(), OrderStatus.CANCELED));
+        assertNull(repository.findActiveOrderByCarId("1"), "Canceled order should release the car");
+
+        Order next = new Order("10", user, car, new Date(), OrderStatus.PENDING);
+        repository.save(next);
+        repository.delete("10");
+        assertNull(repository.findActiveOrderByCarId("1"), "Deleted order should release the car");
+    }
+
+    @Test
+    public void testFindByClientIdInDateOrder() {
+        User another = new User("2", "jane_doe", "password456", Role.CLIENT);
+        Order later = new Order("11", user, car, new Date(2000L), OrderStatus.PENDING);
+        Order earlier = new Order("12", user, car, new Date(1000L), OrderStatus.CANCELED);
+        Order foreign = new Order("13", another, car, new Date(1500L), OrderStatus.CANCELED);
+        repository.save(later);
+        repository.save(earlier);
+        repository.save(foreign);
+
+        List<Order> clientOrders = repository.findByClientId("1");
+        assertEquals(2, clientOrders.size(), "Only the client's orders should be returned");
+        assertEquals(earlier, clientOrders.get(0), "Orders should be sorted by date");
+        assertEquals(later, clientOrders.get(1), "Orders should be sorted by date");
+
+        repository.delete("12");
+        assertEquals(1, repository.findByClientId("1").size(), "Deleted order should leave the client index");
+        assertTrue(repository.findByClientId("3").isEmpty(), "Unknown client should have no orders");
+    }
+
+    @Test
+    public void testConcurrentStatusUpdatesKeepBookingIndexConsistent() throws InterruptedException {
+        int threads = 8;
+        int ordersPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < ordersPerThread; i++) {
+                    String id = repository.nextId();
+                    Car ownCar = new Car("car-" + id, "Toyota", "Corolla", 2020, 20000.00, "NEW");
+                    repository.save(new Order(id, user, ownCar, new Date(), OrderStatus.PENDING));
+                    repository.update(new Order(id, user, ownCar, new Date(), OrderStatus.CANCELED));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "All writers should finish");
+
+        assertEquals(threads * ordersPerThread, repository.count(), "Every order should be saved");
+        assertEquals(threads * ordersPerThread, repository.findByClientId("1").size(), "Every order should be indexed by client");
+        for (Order order : repository.findAll()) {
+            assertEquals(OrderStatus.CANCELED, order.getStatus(), "Every order should be updated");
+            assertNull(repository.findActiveOrderByCarId(order.getCar().getId()), "Canceled orders should release cars");
+        }
+    }
+
+    @Test
+    public void testFindPage() {
+        repository.save(new Order("14", user, car, new Date(), OrderStatus.PENDING));
+        repository.save(new Order("15", user, car, new Date(), OrderStatus.CANCELED));
+        repository.save(new Order("16", user, car, new Date(), OrderStatus.CANCELED));
+
+        Page<Order> first = repository.findPage(null, 2);
+        Page<Order> second = repository.findPage(first.getNextCursor(), 2);
+
+        assertEquals(2, first.getItems().size(), "First page should be full");
+        assertTrue(first.hasNext(), "First page should have a continuation");
+        assertEquals("16", second.getItems().get(0).getId(), "Second page should continue after the cursor");
+        assertFalse(second.hasNext(), "Last page should have no continuation");
+    }
+}
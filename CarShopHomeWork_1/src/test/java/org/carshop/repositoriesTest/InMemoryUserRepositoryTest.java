@@ -2,11 +2,23 @@ package org.carshop.repositoriesTest;
 
 import org.carshop.model.Role;
 import org.carshop.model.User;
+import org.carshop.repositories.InMemoryOrderRepository;
 import org.carshop.repositories.InMemoryUserRepository;
+import org.carshop.repositories.Page;
+import org.carshop.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,4 +95,182 @@ class InMemoryUserRepositoryTest {
         long count = repository.count();
         assertEquals(2, count, "There should be 2 users in the repository");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindByUsernameFollowsRename() {
+        User user = new User("9", "grace", "password666", Role.CLIENT);
+        repository.save(user);
+
+        repository.update(new User("9", "grace_updated", "password666", Role.CLIENT));
+
+        assertNull(repository.findByUsername("grace"), "Old username should no longer be found");
+        assertNotNull(repository.findByUsername("grace_updated"), "User should be found by new username");
+    }
+
+    @Test
+    public void testConcurrentSaves() throws InterruptedException {
+        int threads = 8;
+        int usersPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < usersPerThread; i++) {
+                    String id = repository.nextId();
+                    repository.save(new User(id, "user" + id, "password", Role.CLIENT));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "All writers should finish");
+
+        assertEquals(threads * usersPerThread, repository.count(), "Every user should be saved");
+        assertEquals(threads * usersPerThread, repository.findAll().size(), "Every user should be listed");
+        assertNotNull(repository.findByUsername("user1"), "Users should be indexed by username");
+    }
+
+    @Test
+    public void testFindAllReusesSnapshotUntilNextWrite() {
+        repository.save(new User("10", "heidi", "password777", Role.CLIENT));
+        List<User> first = repository.findAll();
+
+        assertSame(first, repository.findAll(), "Unchanged repository should return the same snapshot");
+
+        repository.delete("10");
+        assertTrue(repository.findAll().isEmpty(), "Snapshot should be rebuilt after a write");
+        assertEquals(1, first.size(), "Earlier snapshot should stay unchanged");
+    }
+
+    @Test
+    public void testFindPage() {
+        repository.save(new User("11", "ivan", "password888", Role.CLIENT));
+        repository.save(new User("12", "judy", "password999", Role.CLIENT));
+
+        Page<User> first = repository.findPage(null, 1);
+        Page<User> second = repository.findPage(first.getNextCursor(), 1);
+
+        assertEquals("ivan", first.getItems().get(0).getUsername(), "First page should start with the first user");
+        assertEquals("judy", second.getItems().get(0).getUsername(), "Second page should continue after the cursor");
+        assertFalse(second.hasNext(), "Last page should have no continuation");
+    }
+
+    @Test
+    public void testStreamWithFilter() {
+        repository.save(new User("13", "karl", "password000", Role.CLIENT));
+        repository.save(new User("14", "lena", "password111", Role.ADMIN));
+        repository.save(new User("15", "mike", "password222", Role.CLIENT));
+
+        List<String> clients = repository.stream(user -> user.getRole() == Role.CLIENT)
+                .map(User::getUsername)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("karl", "mike"), clients, "Only matching users should be streamed in insertion order");
+        assertEquals(3, repository.stream().count(), "Unfiltered stream should cover every user");
+    }
+
+    @Test
+    public void testConcurrentRegistrationsWithSameUsername() throws InterruptedException {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String id = String.valueOf(100 + i);
+            results.add(executor.submit(() -> repository.saveIfUsernameAbsent(new User(id, "olga", "password", Role.CLIENT))));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        long saved = results.stream().filter(result -> {
+            try {
+                return result.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).count();
+        assertEquals(1, saved, "Only one registration with the same username should succeed");
+        assertEquals(1, repository.count(), "Rejected registrations should not be stored");
+        assertNotNull(repository.findById(repository.findByUsername("olga").getId()), "The username should resolve to the stored user");
+    }
+
+    @Test
+    public void testAdjustPurchaseCountKeepsOtherChanges() {
+        repository.save(new User("16", "nina", "password333", Role.CLIENT));
+        User renamed = repository.findById("16");
+        renamed.setUsername("nina_k");
+        repository.update(renamed);
+
+        assertTrue(repository.adjustPurchaseCount("16", 1));
+        assertTrue(repository.adjustPurchaseCount("16", 1));
+        assertTrue(repository.adjustPurchaseCount("16", -5));
+        assertTrue(repository.adjustPurchaseCount("16", 2));
+
+        User found = repository.findByUsername("nina_k");
+        assertNotNull(found, "Adjusting the purchase count should not revert a rename");
+        assertEquals(2, found.getPurchaseCount(), "Purchase count should never drop below zero");
+        assertFalse(repository.adjustPurchaseCount("17", 1), "Unknown user should not be adjusted");
+    }
+
+    @Test
+    public void testLoginDuringPurchaseCountUpdates() throws InterruptedException {
+        repository.save(new User("18", "bob", "secret", Role.CLIENT));
+        UserService userService = new UserService(repository, new InMemoryOrderRepository());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger failedLogins = new AtomicInteger();
+        int updates = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 2; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < updates; i++) {
+                    repository.adjustPurchaseCount("18", 1);
+                }
+            });
+        }
+        for (int t = 0; t < 2; t++) {
+            executor.execute(() -> {
+                while (writing.get()) {
+                    if (userService.login("bob", "secret") == null) {
+                        failedLogins.incrementAndGet();
+                    }
+                }
+            });
+        }
+        while (repository.findById("18").getPurchaseCount() < 2 * updates) {
+            Thread.yield();
+        }
+        writing.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, failedLogins.get(), "Login should never miss a user whose purchase count is being updated");
+        assertEquals(2 * updates, repository.findByUsername("bob").getPurchaseCount());
+    }
+
+    @Test
+    public void testRegistrationRacingUpdateKeepsUsernameTaken() throws InterruptedException {
+        repository.save(new User("19", "bob", "secret", Role.CLIENT));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger registered = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        executor.execute(() -> {
+            for (int i = 0; i < 100000; i++) {
+                repository.adjustPurchaseCount("19", 1);
+            }
+            writing.set(false);
+        });
+        for (int t = 0; t < 3; t++) {
+            executor.execute(() -> {
+                while (writing.get()) {
+                    if (repository.saveIfUsernameAbsent(new User(repository.nextId(), "bob", "other", Role.CLIENT))) {
+                        registered.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, registered.get(), "A taken username should never be registered again");
+        assertEquals(1, repository.count());
+        assertEquals("19", repository.findByUsername("bob").getId(), "The username should still resolve to the first user");
+    }
+}
@@ -0,0 +1,181 @@
+package org.carshop.repositoriesTest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.carshop.model.Car;
+import org.carshop.repositories.Page;
+import org.carshop.repositories.jdbc.DataSourceFactory;
+import org.carshop.repositories.jdbc.JdbcCarRepository;
+import org.carshop.repositories.jdbc.SchemaMigration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcCarRepositoryTest {
+
+    private HikariDataSource dataSource;
+    private JdbcCarRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = DataSourceFactory.create("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL", "sa", "", 2);
+        SchemaMigration.migrate(dataSource, SchemaMigration.DEFAULT_CHANGE_LOG);
+        repository = new JdbcCarRepository(dataSource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testSaveAllInsertsAndReplaces() {
+        // Arrange
+        repository.save(new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW"));
+
+        // Act
+        repository.saveAll(Arrays.asList(
+                new Car("1", "Toyota", "Camry", 2021, 25000.0, "NEW"),
+                new Car("2", "Honda", "Civic", 2019, 18000.0, "USED")));
+
+        // Assert
+        assertEquals(2, repository.count());
+        assertEquals("Camry", repository.findById("1").getModel());
+        assertEquals(Arrays.asList("1", "2"), ids(repository.findAll()));
+        assertNull(repository.findById("3"));
+    }
+
+    @Test
+    public void testConcurrentSavesOfSameNewIdDoNotFail() throws Exception {
+        // Arrange
+        int rounds = 200;
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            String model = "Model-" + t;
+            results.add(executor.submit(() -> {
+                for (int i = 1; i <= rounds; i++) {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    repository.save(new Car(String.valueOf(i), "Toyota", model, 2020, 20000.0, "NEW"));
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        // Assert
+        assertEquals(rounds, repository.count());
+        assertTrue(repository.findById("1").getModel().startsWith("Model-"));
+    }
+
+    @Test
+    public void testQueries() {
+        // Arrange
+        repository.saveAll(Arrays.asList(
+                new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW"),
+                new Car("2", "Honda", "Civic", 2019, 18000.0, "USED"),
+                new Car("3", "TOYOTA", "Camry", 2019, 18000.0, "USED"),
+                new Car("4", "BMW", "X5", 2022, 60000.0, "NEW")));
+
+        // Act & Assert
+        assertEquals(Arrays.asList("1", "3"), ids(repository.findByMake("toyota")));
+        assertEquals(Arrays.asList("2"), ids(repository.findByModel("CIVIC")));
+        assertEquals(Arrays.asList("2", "3"), ids(repository.findByYear(2019)));
+        assertEquals(Arrays.asList("2", "3", "1", "4"), ids(repository.findAllOrderByPrice(true)));
+        assertEquals(Arrays.asList("4", "1", "2", "3"), ids(repository.findAllOrderByPrice(false)));
+        assertEquals(Arrays.asList("2", "3", "1"), ids(repository.findByPriceBetween(18000.0, 20000.0)));
+        assertEquals(Arrays.asList("2", "3"), ids(repository.cheapest(2)));
+        assertEquals(Arrays.asList("4"), ids(repository.mostExpensive(1)));
+        assertEquals(Arrays.asList("4", "1", "2"), ids(repository.mostExpensive(3)));
+        assertTrue(repository.cheapest(0).isEmpty());
+    }
+
+    @Test
+    public void testUpdateAndDelete() {
+        // Arrange
+        repository.save(new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW"));
+        repository.save(new Car("2", "Honda", "Civic", 2019, 18000.0, "USED"));
+
+        // Act
+        repository.update(new Car("1", "Toyota", "Corolla", 2020, 15000.0, "USED"));
+        repository.delete("2");
+
+        // Assert
+        assertEquals(15000.0, repository.findById("1").getPrice());
+        assertNull(repository.findById("2"));
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    public void testFindPageAndStream() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Car(repository.nextId(), "Toyota", "Corolla", 2020, i, "NEW"));
+        }
+
+        // Act
+        Page<Car> first = repository.findPage(null, 2);
+        Page<Car> second = repository.findPage(first.getNextCursor(), 2);
+        Page<Car> last = repository.findPage(second.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(Arrays.asList("1", "2"), ids(first.getItems()));
+        assertEquals(Arrays.asList("3", "4"), ids(second.getItems()));
+        assertEquals(Arrays.asList("5"), ids(last.getItems()));
+        assertFalse(last.hasNext());
+        try (Stream<Car> cars = repository.stream(car -> car.getPrice() >= 3)) {
+            assertEquals(Arrays.asList("4", "5"), ids(cars.collect(Collectors.toList())));
+        }
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage(null, 0));
+    }
+
+    @Test
+    public void testMigrationCreatesIndexesAndCanBeRepeated() throws SQLException {
+        // Act
+        SchemaMigration.migrate(dataSource, SchemaMigration.DEFAULT_CHANGE_LOG);
+
+        // Assert
+        Set<String> indexes = new HashSet<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : Arrays.asList("cars", "orders", "audit")) {
+                try (ResultSet rows = connection.getMetaData().getIndexInfo(null, null, table.toUpperCase(Locale.ROOT), false, false)) {
+                    while (rows.next()) {
+                        indexes.add(rows.getString("INDEX_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        assertTrue(indexes.containsAll(Arrays.asList("cars_price_idx", "cars_price_desc_idx",
+                "cars_production_year_idx", "orders_car_id_status_idx", "orders_client_id_order_date_idx", "audit_user_id_date_idx")));
+    }
+
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+}
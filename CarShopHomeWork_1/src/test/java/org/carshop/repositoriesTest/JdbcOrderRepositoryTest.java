@@ -0,0 +1,134 @@
+package org.carshop.repositoriesTest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.carshop.model.Car;
+import org.carshop.model.Order;
+import org.carshop.model.OrderStatus;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.jdbc.DataSourceFactory;
+import org.carshop.repositories.jdbc.JdbcCarRepository;
+import org.carshop.repositories.jdbc.JdbcOrderRepository;
+import org.carshop.repositories.jdbc.JdbcUserRepository;
+import org.carshop.repositories.jdbc.SchemaMigration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcOrderRepositoryTest {
+
+    private HikariDataSource dataSource;
+    private JdbcUserRepository userRepository;
+    private JdbcCarRepository carRepository;
+    private JdbcOrderRepository repository;
+    private User client;
+    private Car car;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = DataSourceFactory.create("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL", "sa", "", 2);
+        SchemaMigration.migrate(dataSource, SchemaMigration.DEFAULT_CHANGE_LOG);
+        userRepository = new JdbcUserRepository(dataSource);
+        carRepository = new JdbcCarRepository(dataSource);
+        repository = new JdbcOrderRepository(dataSource);
+        client = new User("1", "client", "password", Role.CLIENT);
+        car = new Car("1", "Toyota", "Corolla", 2020, 20000.0, "NEW");
+        userRepository.save(client);
+        carRepository.save(car);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testSaveAndFindJoinsClientAndCar() {
+        // Arrange
+        Order order = new Order("1", client, car, new Date(1000), OrderStatus.PENDING);
+
+        // Act
+        repository.save(order);
+        Order found = repository.findById("1");
+
+        // Assert
+        assertEquals("client", found.getClient().getUsername());
+        assertEquals(Role.CLIENT, found.getClient().getRole());
+        assertEquals("Corolla", found.getCar().getModel());
+        assertEquals(1000, found.getDate().getTime());
+        assertEquals(OrderStatus.PENDING, found.getStatus());
+    }
+
+    @Test
+    public void testActiveOrderFollowsStatus() {
+        // Arrange
+        repository.saveAll(Arrays.asList(
+                new Order("1", client, car, new Date(1000), OrderStatus.CANCELED),
+                new Order("2", client, car, new Date(2000), OrderStatus.PENDING)));
+
+        // Act
+        Order active = repository.findActiveOrderByCarId("1");
+        repository.update(new Order("2", client, car, new Date(2000), OrderStatus.CANCELED));
+
+        // Assert
+        assertEquals("2", active.getId());
+        assertNull(repository.findActiveOrderByCarId("1"));
+        assertEquals(OrderStatus.CANCELED, repository.findById("2").getStatus());
+    }
+
+    @Test
+    public void testCompareAndSetStatusChecksVersion() {
+        // Arrange
+        repository.save(new Order("1", client, car, new Date(1000), OrderStatus.PENDING));
+
+        // Act
+        boolean first = repository.compareAndSetStatus("1", 0, OrderStatus.COMPLETED);
+        boolean stale = repository.compareAndSetStatus("1", 0, OrderStatus.CANCELED);
+        Order found = repository.findById("1");
+
+        // Assert
+        assertTrue(first);
+        assertFalse(stale);
+        assertEquals(OrderStatus.COMPLETED, found.getStatus());
+        assertEquals(1, found.getVersion());
+    }
+
+    @Test
+    public void testFindByClientIdOrdersByDate() {
+        // Arrange
+        repository.save(new Order("1", client, car, new Date(3000), OrderStatus.COMPLETED));
+        repository.save(new Order("2", client, car, new Date(1000), OrderStatus.CANCELED));
+        repository.save(new Order("3", new User("2", "other", "password", Role.CLIENT), car,
+                new Date(2000), OrderStatus.PENDING));
+
+        // Act
+        List<String> ids = repository.findByClientId("1").stream().map(Order::getId).collect(Collectors.toList());
+
+        // Assert
+        assertEquals(Arrays.asList("2", "1"), ids);
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    public void testOrderKeepsReferenceToDeletedCar() {
+        // Arrange
+        repository.save(new Order("1", client, car, new Date(1000), OrderStatus.COMPLETED));
+
+        // Act
+        carRepository.delete("1");
+        Order found = repository.findById("1");
+
+        // Assert
+        assertEquals("1", found.getCar().getId());
+        assertNull(found.getCar().getModel());
+    }
+}
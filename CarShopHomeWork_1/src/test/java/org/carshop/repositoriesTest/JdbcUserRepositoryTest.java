@@ -0,0 +1,100 @@
+package org.carshop.repositoriesTest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.jdbc.DataSourceFactory;
+import org.carshop.repositories.jdbc.JdbcUserRepository;
+import org.carshop.repositories.jdbc.SchemaMigration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcUserRepositoryTest {
+
+    private HikariDataSource dataSource;
+    private JdbcUserRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = DataSourceFactory.create("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL", "sa", "", 2);
+        SchemaMigration.migrate(dataSource, SchemaMigration.DEFAULT_CHANGE_LOG);
+        repository = new JdbcUserRepository(dataSource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testSaveFindAndUpdate() {
+        // Arrange
+        User user = new User(repository.nextId(), "client", "password", Role.CLIENT);
+        repository.save(user);
+
+        // Act
+        user.setPurchaseCount(3);
+        user.setUsername("renamed");
+        repository.update(user);
+
+        // Assert
+        assertNull(repository.findByUsername("client"));
+        User found = repository.findByUsername("renamed");
+        assertEquals("1", found.getId());
+        assertEquals(3, found.getPurchaseCount());
+        assertEquals(Role.CLIENT, found.getRole());
+        assertEquals("2", repository.nextId());
+    }
+
+    @Test
+    public void testSaveIfUsernameAbsent() {
+        // Act
+        boolean first = repository.saveIfUsernameAbsent(new User("1", "client", "password", Role.CLIENT));
+        boolean second = repository.saveIfUsernameAbsent(new User("2", "client", "other", Role.CLIENT));
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, repository.count());
+        assertEquals("1", repository.findByUsername("client").getId());
+    }
+
+    @Test
+    public void testAdjustPurchaseCount() {
+        // Arrange
+        repository.save(new User("1", "client", "password", Role.CLIENT));
+
+        // Act
+        boolean first = repository.adjustPurchaseCount("1", 1);
+        boolean second = repository.adjustPurchaseCount("1", 1);
+        boolean missing = repository.adjustPurchaseCount("2", 1);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(missing);
+        assertEquals(2, repository.findById("1").getPurchaseCount());
+        assertEquals("client", repository.findById("1").getUsername());
+    }
+
+    @Test
+    public void testDelete() {
+        // Arrange
+        repository.save(new User("1", "client", "password", Role.CLIENT));
+        repository.save(new User("2", "manager", "password", Role.MANAGER));
+
+        // Act
+        repository.delete("1");
+
+        // Assert
+        assertNull(repository.findById("1"));
+        assertEquals(1, repository.count());
+        assertEquals(1, repository.findAll().size());
+    }
+}
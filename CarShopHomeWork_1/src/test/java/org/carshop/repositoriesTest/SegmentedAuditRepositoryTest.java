@@ -0,0 +1,253 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.repositories.auditlog.RetentionPolicy;
+import org.carshop.repositories.auditlog.SegmentedAuditRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedAuditRepositoryTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRollsAndCompressesSegments() throws IOException {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 4096, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            repository.save(new Audit(String.valueOf(i), "u" + (i % 3), "user" + (i % 3), "Вход в систему", new Date(i * 1000L)));
+        }
+
+        // Assert
+        assertTrue(repository.getSegmentCount() > 1);
+        assertTrue(countFiles(".seg") > 0);
+        assertEquals(countFiles(".seg"), countFiles(".idx"));
+        assertEquals(1000, repository.count());
+        List<Audit> all = repository.findAll();
+        assertEquals(1000, all.size());
+        assertEquals("0", all.get(0).getId());
+        assertEquals("999", all.get(999).getId());
+        assertEquals("user1", all.get(1).getUsername());
+        repository.close();
+    }
+
+    @Test
+    public void testFindsByTimeAndUser() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 2048, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        List<Audit> batch = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            batch.add(new Audit(String.valueOf(i), "u" + (i % 4), "user" + (i % 4), "Действие " + i, new Date((600 - i) * 1000L)));
+        }
+        repository.saveAll(batch);
+
+        // Act
+        List<Audit> between = repository.findBetween(new Date(100_000), new Date(110_000));
+        List<Audit> byUser = repository.findByUserId("u2");
+        Map<String, List<Audit>> grouped = repository.findAllGroupedByUserId();
+        List<Audit> byDate = repository.findAllOrderByDate();
+
+        // Assert
+        assertEquals(10, between.size());
+        assertEquals(100_000, between.get(0).getDate().getTime());
+        assertEquals(109_000, between.get(9).getDate().getTime());
+        assertEquals(150, byUser.size());
+        assertEquals("2", byUser.get(0).getId());
+        assertEquals(4, grouped.size());
+        assertEquals(150, grouped.get("u3").size());
+        assertEquals("599", byDate.get(0).getId());
+        assertTrue(repository.findByUserId("missing").isEmpty());
+        assertTrue(repository.findBetween(new Date(5), new Date(5)).isEmpty());
+        repository.close();
+    }
+
+    @Test
+    public void testStreamsRecordsAcrossSegments() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 2048, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        for (int i = 0; i < 700; i++) {
+            repository.save(new Audit(String.valueOf(i), "u1", "user", "Действие", new Date(i)));
+        }
+
+        // Act
+        List<String> ids;
+        try (Stream<Audit> audits = repository.stream()) {
+            repository.save(new Audit("700", "u1", "user", "Действие", new Date(700)));
+            ids = audits.map(Audit::getId).collect(Collectors.toList());
+        }
+
+        // Assert
+        assertEquals(700, ids.size());
+        assertEquals("0", ids.get(0));
+        assertEquals("699", ids.get(699));
+        repository.close();
+    }
+
+    @Test
+    public void testFindsStructuredActionsAfterReopen() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory);
+        repository.save(new Audit("1", "u1", "user", "Вход в систему", new Date(1)));
+        repository.save(new Audit("2", "u1", "user", AuditAction.CAR_DELETED, "7",
+                new String[]{"BMW", "X5", "2022", "60000.0", null}, new Date(2)));
+        repository.close();
+
+        // Act
+        SegmentedAuditRepository reopened = new SegmentedAuditRepository(directory);
+        List<Audit> deleted = reopened.findByAction(AuditAction.CAR_DELETED);
+
+        // Assert
+        assertEquals(1, deleted.size());
+        assertEquals("7", deleted.get(0).getEntityId());
+        assertEquals("Удален автомобиль BMW X5 2022 60000.0 null", deleted.get(0).getMessage());
+        assertTrue(reopened.findByAction(AuditAction.ORDER_CREATED).isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void testReopensClosedSegments() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            repository.save(new Audit(String.valueOf(i), "u1", "user", "Действие", new Date(i)));
+        }
+        repository.close();
+
+        // Act
+        SegmentedAuditRepository reopened = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        reopened.save(new Audit("100", "u1", "user", "Действие", new Date(100)));
+
+        // Assert
+        assertEquals(101, reopened.count());
+        assertEquals(101, reopened.findByUserId("u1").size());
+        assertEquals("100", reopened.findAll().get(100).getId());
+        reopened.close();
+    }
+
+    @Test
+    public void testLastIdSurvivesReopenAndRecovery() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        assertNull(repository.lastId());
+        for (int i = 1; i <= 100; i++) {
+            repository.save(new Audit(String.valueOf(i), "u1", "user", "Действие", new Date(i)));
+        }
+        repository.close();
+        SegmentedAuditRepository reopened = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+        String afterClose = reopened.lastId();
+        reopened.save(new Audit("101", "u1", "user", "Действие", new Date(101)));
+
+        // Act
+        SegmentedAuditRepository recovered = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1), RetentionPolicy.UNLIMITED);
+
+        // Assert
+        assertEquals("100", afterClose);
+        assertEquals("101", reopened.lastId());
+        assertEquals("101", recovered.lastId(), "Highest id should be recovered from the unclosed segment");
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoversOpenSegmentUpToTornRecord() throws IOException {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory);
+        repository.save(new Audit("1", "u1", "user", "Вход в систему", new Date(1)));
+        repository.save(new Audit("2", "u1", "user", "Выход из системы", new Date(2)));
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow(IllegalStateException::new);
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // Act
+        SegmentedAuditRepository recovered = new SegmentedAuditRepository(directory);
+
+        // Assert
+        assertEquals(1, recovered.count());
+        assertEquals("Вход в систему", recovered.findAll().get(0).getMessage());
+        assertEquals(1, countFiles(".seg"));
+        recovered.close();
+    }
+
+    @Test
+    public void testRetentionDeletesOldSegments() throws IOException {
+        // Arrange
+        AtomicLong now = new AtomicLong(100 * DAY);
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 1 << 20, Duration.ofDays(1),
+                RetentionPolicy.maxAge(Duration.ofDays(30)), now::get);
+
+        // Act
+        repository.save(new Audit("1", "u1", "user", "Старое действие", new Date(now.get())));
+        now.addAndGet(DAY);
+        repository.save(new Audit("2", "u1", "user", "Действие", new Date(now.get())));
+        now.addAndGet(40 * DAY);
+        repository.save(new Audit("3", "u1", "user", "Новое действие", new Date(now.get())));
+
+        // Assert
+        List<Audit> audits = repository.findAll();
+        assertEquals(1, audits.size());
+        assertEquals("3", audits.get(0).getId());
+        assertEquals(0, countFiles(".seg"));
+        repository.close();
+        assertEquals(1, countFiles(".seg"));
+    }
+
+    @Test
+    public void testRetentionLimitsTotalSize() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory, 1024, Duration.ofDays(1),
+                new RetentionPolicy(null, 2048));
+
+        // Act
+        for (int i = 0; i < 2000; i++) {
+            repository.save(new Audit(String.valueOf(i), "u" + i, "user" + i, "Действие " + i, new Date(i)));
+        }
+
+        // Assert
+        assertTrue(repository.count() < 2000);
+        List<Audit> audits = repository.findAll();
+        assertEquals("1999", audits.get(audits.size() - 1).getId());
+        repository.close();
+    }
+
+    @Test
+    public void testSaveAfterCloseFails() {
+        // Arrange
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory);
+        repository.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> repository.save(new Audit("1", "u1", "user", "Действие", new Date())));
+        assertEquals(0, repository.count());
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+}
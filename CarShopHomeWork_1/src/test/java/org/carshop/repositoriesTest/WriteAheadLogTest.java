@@ -0,0 +1,71 @@
+package org.carshop.repositoriesTest;
+
+import org.carshop.repositories.wal.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplayReturnsRecordsInOrder() {
+        WriteAheadLog log = new WriteAheadLog(directory);
+        log.append(bytes("first"));
+        long closed = log.rotate();
+        log.append(bytes("second"));
+        log.close();
+
+        assertEquals(Arrays.asList("first", "second"), replay(0), "All segments should be replayed in order");
+        assertEquals(Arrays.asList("second"), replay(closed), "Segments covered by a snapshot should be skipped");
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory);
+        log.append(bytes("complete"));
+        log.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        assertEquals(Arrays.asList("complete"), replay(0), "Partially written record should be dropped");
+    }
+
+    @Test
+    public void testDeleteSegmentsUpTo() {
+        WriteAheadLog log = new WriteAheadLog(directory);
+        log.append(bytes("old"));
+        long closed = log.rotate();
+        log.deleteSegmentsUpTo(closed);
+        log.append(bytes("new"));
+        log.close();
+
+        assertEquals(Arrays.asList("new"), replay(0), "Deleted segments should not be replayed");
+    }
+
+    private List<String> replay(long afterSegment) {
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, afterSegment, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
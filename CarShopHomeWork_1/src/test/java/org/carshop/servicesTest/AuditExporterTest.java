@@ -0,0 +1,90 @@
+package org.carshop.servicesTest;
+
+import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.services.audit.AuditExporter;
+import org.carshop.services.audit.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditExporterTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Audit> audits = Arrays.asList(
+            new Audit("1", "10", "john", "Вход в систему", new Date(0)),
+            new Audit("2", "11", "jane", "Заказ \"BMW\", X5\nоформлен", new Date(1500)));
+
+    @Test
+    void testExportsText() throws IOException {
+        Path file = directory.resolve("audit.txt");
+
+        long count = AuditExporter.export(audits.stream(), file, ExportFormat.TEXT, false);
+
+        String expected = ExportFormat.TEXT.format(audits.get(0)) + "\n" + ExportFormat.TEXT.format(audits.get(1)) + "\n";
+        assertEquals(2, count);
+        assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportsCsvWithQuoting() throws IOException {
+        Path file = directory.resolve("audit.csv");
+
+        AuditExporter.export(audits.stream(), file, ExportFormat.CSV, false);
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("id,user_id,username,action,entity_type,entity_id,message,date\n"
+                + "1,10,john,CUSTOM,,,Вход в систему,"));
+        assertTrue(content.contains("2,11,jane,CUSTOM,,,\"Заказ \"\"BMW\"\", X5\nоформлен\","
+                + ExportFormat.formatDate(new Date(1500)) + "\n"));
+    }
+
+    @Test
+    void testExportsJsonLines() throws IOException {
+        Path file = directory.resolve("audit.jsonl");
+
+        AuditExporter.export(Stream.of(audits.get(1), new Audit("3", null, null, AuditAction.ORDER_STATUS_CHANGED, "5",
+                        new String[]{"CANCELED"}, null)),
+                file, ExportFormat.JSONL, false);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("{\"id\":\"2\",\"userId\":\"11\",\"username\":\"jane\",\"action\":\"CUSTOM\",\"entityType\":null,"
+                + "\"entityId\":null,\"params\":{\"message\":\"Заказ \\\"BMW\\\", X5\\nоформлен\"},"
+                + "\"message\":\"Заказ \\\"BMW\\\", X5\\nоформлен\",\"date\":\"" + ExportFormat.formatDate(new Date(1500)) + "\"}",
+                lines.get(0));
+        assertEquals("{\"id\":\"3\",\"userId\":null,\"username\":null,\"action\":\"ORDER_STATUS_CHANGED\",\"entityType\":\"ORDER\","
+                + "\"entityId\":\"5\",\"params\":{\"status\":\"CANCELED\"},"
+                + "\"message\":\"Обновлен статус заказа под индексом: 5 на CANCELED\",\"date\":null}", lines.get(1));
+    }
+
+    @Test
+    void testExportsGzip() throws IOException {
+        Path file = directory.resolve("audit.jsonl.gz");
+
+        AuditExporter.export(audits.stream(), file, ExportFormat.JSONL, true);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).startsWith("{\"id\":\"1\""));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.carshop.servicesTest;
+
+import org.carshop.model.Audit;
+import org.carshop.model.Role;
+import org.carshop.model.User;
+import org.carshop.repositories.InMemoryAuditRepository;
+import org.carshop.services.audit.AuditPipeline;
+import org.carshop.services.audit.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditPipelineTest {
+
+    private final User user = new User("1", "testUser", "password123", Role.CLIENT);
+
+    @Test
+    void testFlushWaitsForConcurrentProducers() throws InterruptedException {
+        // Arrange
+        BatchRecordingRepository repository = new BatchRecordingRepository();
+        AuditPipeline pipeline = new AuditPipeline(repository, 64, 16, OverflowPolicy.BLOCK, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    pipeline.submit(audit("action"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        pipeline.flush();
+
+        // Assert
+        assertEquals(2000, repository.count());
+        assertTrue(repository.largestBatch() <= 16);
+        assertEquals(0, pipeline.getDropped());
+        pipeline.close();
+    }
+
+    @Test
+    void testDropPolicyDiscardsWhenQueueIsFull() throws InterruptedException {
+        // Arrange
+        BlockingRepository repository = new BlockingRepository();
+        AuditPipeline pipeline = new AuditPipeline(repository, 2, 16, OverflowPolicy.DROP, 1);
+        pipeline.submit(audit("first"));
+        assertTrue(repository.entered.await(5, TimeUnit.SECONDS));
+
+        // Act
+        boolean second = pipeline.submit(audit("second"));
+        boolean third = pipeline.submit(audit("third"));
+        boolean fourth = pipeline.submit(audit("fourth"));
+        repository.release.countDown();
+        pipeline.flush();
+
+        // Assert
+        assertTrue(second);
+        assertTrue(third);
+        assertFalse(fourth);
+        assertEquals(1, pipeline.getDropped());
+        assertEquals(3, repository.count());
+        pipeline.close();
+    }
+
+    @Test
+    void testCloseWritesQueuedAndLateRecords() {
+        // Arrange
+        InMemoryAuditRepository repository = new InMemoryAuditRepository();
+        AuditPipeline pipeline = new AuditPipeline(repository);
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(audit("action"));
+        }
+
+        // Act
+        pipeline.close();
+        pipeline.submit(audit("late"));
+
+        // Assert
+        assertEquals(101, repository.count());
+        assertEquals("late", repository.findAll().get(100).getMessage());
+    }
+
+    @Test
+    void testFailedBatchDoesNotStopWriter() {
+        // Arrange
+        FailingOnceRepository repository = new FailingOnceRepository();
+        AuditPipeline pipeline = new AuditPipeline(repository);
+
+        // Act
+        pipeline.submit(audit("lost"));
+        pipeline.flush();
+        pipeline.submit(audit("saved"));
+        pipeline.flush();
+
+        // Assert
+        assertEquals(1, pipeline.getFailed());
+        assertEquals(1, repository.count());
+        pipeline.close();
+    }
+
+    private Audit audit(String action) {
+        return new Audit("0", user, action, new Date());
+    }
+
+    private static class BatchRecordingRepository extends InMemoryAuditRepository {
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void saveAll(Collection<Audit> audits) {
+            batchSizes.add(audits.size());
+            super.saveAll(audits);
+        }
+
+        int largestBatch() {
+            return batchSizes.stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+
+    private static class BlockingRepository extends InMemoryAuditRepository {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void saveAll(Collection<Audit> audits) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.saveAll(audits);
+        }
+    }
+
+    private static class FailingOnceRepository extends InMemoryAuditRepository {
+        private boolean failed;
+
+        @Override
+        public void saveAll(Collection<Audit> audits) {
+            if (!failed) {
+                failed = true;
+                throw new IllegalStateException("Хранилище недоступно");
+            }
+            super.saveAll(audits);
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package org.carshop.servicesTest;
 
 import org.carshop.model.Audit;
+import org.carshop.model.AuditAction;
+import org.carshop.model.OrderStatus;
 import org.carshop.model.Role;
 import org.carshop.model.User;
+import org.carshop.repositories.auditlog.SegmentedAuditRepository;
 import org.carshop.services.AuditService;
+import org.carshop.services.audit.AuditPipeline;
+import org.carshop.services.audit.ExportFormat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -34,8 +45,8 @@ class AuditServiceTest {
         assertEquals(1, auditLogs.size(), "There should be one audit log");
         Audit audit = auditLogs.get(0);
         assertNotNull(audit, "Audit log should not be null");
-        assertEquals(testUser, audit.getUser(), "User should match");
-        assertEquals("Login", audit.getAction(), "Action should match");
+        assertEquals(testUser.getId(), audit.getUserId(), "User should match");
+        assertEquals("Login", audit.getMessage(), "Action should match");
         assertNotNull(audit.getDate(), "Date should not be null");
     }
 
@@ -48,7 +59,33 @@ class AuditServiceTest {
         List<Audit> userLogs = auditService.getAuditLogsByUser(testUser);
         assertEquals(1, userLogs.size(), "There should be one audit log for the user");
         Audit audit = userLogs.get(0);
-        assertEquals(testUser, audit.getUser(), "User should match");
+        assertEquals(testUser.getId(), audit.getUserId(), "User should match");
+    }
+
+    @Test
+    void testLogStructuredActionAndFindByAction() {
+        auditService.logAction(testUser, AuditAction.ORDER_STATUS_CHANGED, "5", OrderStatus.COMPLETED);
+        auditService.logAction(testUser, "Login");
+
+        List<Audit> logs = auditService.getAuditLogsByAction(AuditAction.ORDER_STATUS_CHANGED);
+        assertEquals(1, logs.size(), "Only the status change should be found");
+        assertEquals("5", logs.get(0).getEntityId(), "Entity id should match");
+        assertEquals("COMPLETED", logs.get(0).getParams().get("status"), "Parameter should be stored as text");
+        assertEquals("Обновлен статус заказа под индексом: 5 на COMPLETED", logs.get(0).getMessage(), "Message should be rendered");
+        assertEquals(1, auditService.getAuditLogsByAction(AuditAction.CUSTOM).size(), "Free-text action should be custom");
+    }
+
+    @Test
+    void testGetAuditLogsByUserAfterProfileUpdate() {
+        auditService.logAction(testUser, "Login");
+        testUser.setPurchaseCount(3);
+        testUser.setUsername("renamedUser");
+        auditService.logAction(testUser, "Logout");
+
+        List<Audit> userLogs = auditService.getAuditLogsByUser(testUser);
+        assertEquals(2, userLogs.size(), "Both logs should belong to the user");
+        assertEquals("testUser", userLogs.get(0).getUsername(), "Log should keep the username at the time of the action");
+        assertEquals(1, auditService.getAuditLogsGroupedByUser().size(), "There should be one user group");
     }
 
     @Test
@@ -77,6 +114,45 @@ class AuditServiceTest {
         }
     }
 
+    @Test
+    void testGetAuditLogsByDay() {
+        auditService.logAction(testUser, "Login");
+
+        LocalDate today = LocalDate.now();
+        assertEquals(1, auditService.getAuditLogsByDay(today).size(), "Today's bucket should contain the log");
+        assertTrue(auditService.getAuditLogsByDay(today.minusDays(1)).isEmpty(), "Yesterday's bucket should be empty");
+    }
+
+    @Test
+    void testGetAuditLogsBetween() {
+        Date before = new Date(System.currentTimeMillis() - 1000);
+        auditService.logAction(testUser, "Login");
+        auditService.logAction(testUser, "Logout");
+        Date after = new Date(System.currentTimeMillis() + 1000);
+
+        List<Audit> logs = auditService.getAuditLogs(before, after);
+        assertEquals(2, logs.size(), "Both logs should be in the range");
+        assertTrue(auditService.getAuditLogs(after, new Date(after.getTime() + 1000)).isEmpty(), "Range after the logs should be empty");
+        assertEquals(auditService.getAuditLogsOrderByDate(), logs, "Ordered logs should match the full range");
+    }
+
+    @Test
+    void testExportAuditLogsFiltersByUserAndTime(@TempDir Path directory) throws IOException {
+        Date before = new Date(System.currentTimeMillis() - 1000);
+        auditService.logAction(testUser, "Login");
+        auditService.logAction(new User("2", "anotherUser", "password456", Role.ADMIN), "Logout");
+        Path file = directory.resolve("audit.csv");
+
+        long exported = auditService.exportAuditLogs(file, ExportFormat.CSV, false, testUser, before, null);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, exported, "Only the user's log should be exported");
+        assertEquals(2, lines.size(), "Header and one record expected");
+        assertTrue(lines.get(1).startsWith("1,1,testUser,CUSTOM,,,Login,"), "Record should match the user's log");
+        assertEquals(0, auditService.exportAuditLogs(file, ExportFormat.CSV, false, null, null, before),
+                "Nothing should be exported before the logs");
+    }
+
     @Test
     void testGenerateId() {
         auditService.logAction(testUser, "Login");
@@ -90,6 +166,26 @@ class AuditServiceTest {
         assertEquals("2", auditLogs.get(1).getId(), "Audit ID should be 2");
     }
 
+    @Test
+    void testIdsContinueAfterReopeningDiskLog(@TempDir Path directory) {
+        SegmentedAuditRepository repository = new SegmentedAuditRepository(directory);
+        AuditService first = new AuditService(repository, new AuditPipeline(repository));
+        first.logAction(testUser, "Login");
+        first.logAction(testUser, "Logout");
+        first.close();
+        repository.close();
+
+        SegmentedAuditRepository reopened = new SegmentedAuditRepository(directory);
+        AuditService second = new AuditService(reopened, new AuditPipeline(reopened));
+        second.logAction(testUser, "Login");
+        List<Audit> auditLogs = second.getAuditLogs();
+        second.close();
+        reopened.close();
+
+        assertEquals(3, auditLogs.size(), "Records from both runs should be kept");
+        assertEquals("3", auditLogs.get(2).getId(), "Ids should continue after the stored records");
+    }
+
     private Date truncateDateToDay(Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
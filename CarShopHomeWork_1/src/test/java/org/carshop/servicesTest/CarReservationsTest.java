@@ -0,0 +1,78 @@
+package org.carshop.servicesTest;
+
+import org.carshop.model.CarAvailability;
+import org.carshop.services.reservation.CarReservations;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CarReservationsTest {
+
+    @Test
+    public void testOnlyReservedAndSoldCarsAreKept() {
+        Map<String, CarAvailability> stored = new ConcurrentHashMap<>();
+        CarReservations reservations = new CarReservations(carId -> stored.getOrDefault(carId, CarAvailability.AVAILABLE));
+        stored.put("sold", CarAvailability.SOLD);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(CarAvailability.AVAILABLE, reservations.get(String.valueOf(i)));
+        }
+        assertEquals(CarAvailability.SOLD, reservations.get("sold"));
+        assertEquals(0, reservations.size());
+
+        assertTrue(reservations.reserve("1"));
+        assertTrue(reservations.reserve("2"));
+        assertTrue(reservations.sell("2"));
+        assertFalse(reservations.reserve("sold"));
+        assertEquals(3, reservations.size());
+
+        assertTrue(reservations.release("1"));
+        assertEquals(CarAvailability.AVAILABLE, reservations.get("1"));
+        assertEquals(2, reservations.size());
+
+        reservations.forget("2");
+        reservations.forget("sold");
+        assertEquals(0, reservations.size());
+        assertEquals(CarAvailability.AVAILABLE, reservations.get("2"));
+        assertTrue(reservations.reserve("1"));
+    }
+
+    @Test
+    public void testEvictionNeverAllowsTwoReservations() throws InterruptedException {
+        CarReservations reservations = new CarReservations(carId -> CarAvailability.AVAILABLE);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger reserved = new AtomicInteger();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    if (reservations.reserve("1")) {
+                        if (holders.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        reserved.incrementAndGet();
+                        holders.decrementAndGet();
+                        if (!reservations.release("1")) {
+                            overlaps.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get());
+        assertTrue(reserved.get() > 0);
+        assertEquals(0, reservations.size());
+    }
+}
@@ -0,0 +1,179 @@
+package org.carshop.servicesTest;
+
+import org.carshop.model.Car;
+import org.carshop.model.ConditionCar;
+import org.carshop.repositories.InMemoryCarRepository;
+import org.carshop.repositories.events.ObservableCarRepository;
+import org.carshop.services.CarService;
+import org.carshop.services.search.CarFacets;
+import org.carshop.services.search.CarQuery;
+import org.carshop.services.search.CarSearchEngine;
+import org.carshop.services.search.CarSortOrder;
+import org.carshop.services.search.PriceBand;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CarSearchEngineTest {
+
+    private static final String[] MAKES = {"Toyota", "Honda", "BMW"};
+
+    private ObservableCarRepository repository;
+    private CarSearchEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new ObservableCarRepository(new InMemoryCarRepository());
+        engine = CarSearchEngine.subscribe(repository);
+    }
+
+    @Test
+    public void testCombinedQueriesMatchFullScan() {
+        List<Car> cars = randomCars(20000);
+        repository.saveAll(cars);
+        List<CarQuery> queries = Arrays.asList(
+                new CarQuery(),
+                new CarQuery().make("toyota"),
+                new CarQuery().make("Toyota").yearBetween(2018, null)
+                        .condition(ConditionCar.NEW, ConditionCar.DEMO).priceBetween(null, 50000.0),
+                new CarQuery().make("Honda", "BMW").model("Model7", "Model13", "Model42"),
+                new CarQuery().yearBetween(2005, 2010).priceBetween(10000.0, 20000.0),
+                new CarQuery().yearBetween(2020, 2010),
+                new CarQuery().make("Lada"));
+
+        for (CarQuery query : queries) {
+            List<String> expected = cars.stream().filter(query::matches)
+                    .sorted(CarSortOrder.PRICE_ASCENDING.getComparator()).map(Car::getId).collect(Collectors.toList());
+            List<String> found = engine.search(query, CarSortOrder.PRICE_ASCENDING).map(Car::getId).collect(Collectors.toList());
+
+            assertEquals(expected, found);
+            assertEquals(expected.size(), engine.count(query));
+        }
+    }
+
+    @Test
+    public void testUpdatesAndDeletesAreReflected() {
+        List<Car> cars = randomCars(10000);
+        repository.saveAll(cars);
+        String deletedMake = cars.get(6).getMake();
+
+        repository.update(new Car("5", "Lada", "Vesta", 2021, 15000, "NEW"));
+        repository.delete("7");
+        repository.save(new Car("10001", "Lada", "Niva", 2022, 17000, "NEW"));
+
+        assertEquals(Arrays.asList("10001", "5"), engine.search(new CarQuery().make("Lada"), CarSortOrder.YEAR_DESCENDING)
+                .map(Car::getId).collect(Collectors.toList()));
+        assertFalse(engine.search(new CarQuery().make(deletedMake), CarSortOrder.NONE).anyMatch(car -> "7".equals(car.getId())));
+        assertEquals(10000, engine.count(new CarQuery()));
+    }
+
+    @Test
+    public void testSortedResultsAreStreamedLazily() {
+        repository.saveAll(randomCars(5000));
+
+        List<Car> top = engine.search(new CarQuery().make("BMW"), CarSortOrder.PRICE_DESCENDING)
+                .limit(3).collect(Collectors.toList());
+
+        List<Car> expected = repository.findByMake("BMW").stream()
+                .sorted(CarSortOrder.PRICE_DESCENDING.getComparator()).limit(3).collect(Collectors.toList());
+        assertEquals(expected.stream().map(Car::getPrice).collect(Collectors.toList()),
+                top.stream().map(Car::getPrice).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCarServiceWithoutIndexScansRepository() {
+        InMemoryCarRepository plain = new InMemoryCarRepository();
+        List<Car> cars = randomCars(2000);
+        plain.saveAll(cars);
+        repository.saveAll(cars);
+        // удаленные номера индекса выдаются повторно, а в репозитории автомобили встают в конец
+        for (int i = 1; i <= 200; i += 3) {
+            Car car = cars.get(i - 1);
+            plain.delete(car.getId());
+            repository.delete(car.getId());
+            plain.save(car);
+            repository.save(car);
+        }
+        CarQuery query = new CarQuery().make("Honda").condition(ConditionCar.USED).yearBetween(2010, null);
+
+        for (CarSortOrder order : Arrays.asList(CarSortOrder.YEAR_ASCENDING, CarSortOrder.YEAR_DESCENDING,
+                CarSortOrder.PRICE_ASCENDING)) {
+            List<String> scanned = new CarService(plain).searchCars(query, order)
+                    .map(Car::getId).collect(Collectors.toList());
+            List<String> indexed = new CarService(repository, engine).searchCars(query, order)
+                    .map(Car::getId).collect(Collectors.toList());
+
+            assertFalse(scanned.isEmpty());
+            assertEquals(scanned, indexed);
+        }
+        assertEquals(new CarService(plain).countCars(query), new CarService(repository, engine).countCars(query));
+    }
+
+    @Test
+    public void testFacetsMatchFullScan() {
+        List<Car> cars = randomCars(20000);
+        repository.saveAll(cars);
+        repository.update(new Car("5", "Lada", "Vesta", 2021, 150000, "NEW"));
+        repository.delete("7");
+        List<Car> current = repository.findAll();
+        List<CarQuery> queries = Arrays.asList(
+                new CarQuery(),
+                new CarQuery().make("Toyota"),
+                new CarQuery().make("Honda", "BMW").yearBetween(2010, 2019).condition(ConditionCar.USED),
+                new CarQuery().priceBetween(15000.0, 60000.0),
+                new CarQuery().make("Lada"),
+                new CarQuery().make("Opel"));
+
+        for (CarQuery query : queries) {
+            assertFacetsEqual(CarFacets.count(current.stream().filter(query::matches)), engine.facets(query));
+        }
+    }
+
+    @Test
+    public void testCarServiceFacetsWithoutIndexMatchIndexedFacets() {
+        InMemoryCarRepository plain = new InMemoryCarRepository();
+        List<Car> cars = randomCars(2000);
+        plain.saveAll(cars);
+        repository.saveAll(cars);
+        CarQuery query = new CarQuery().condition(ConditionCar.NEW, ConditionCar.DEMO).priceBetween(null, 40000.0);
+
+        CarFacets facets = new CarService(repository, engine).getFacets(query);
+
+        assertFacetsEqual(new CarService(plain).getFacets(query), facets);
+        assertEquals(facets.getTotal(), facets.getConditions().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(facets.getTotal(), facets.getPriceBands().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(new HashSet<>(Arrays.asList(PriceBand.UNDER_10000, PriceBand.FROM_10000_TO_20000, PriceBand.FROM_20000_TO_50000)),
+                facets.getPriceBands().keySet());
+        long fromYear2020 = new CarService(plain).countCars(new CarQuery().condition(ConditionCar.NEW, ConditionCar.DEMO)
+                .priceBetween(null, 40000.0).yearBetween(2020, 2024));
+        assertEquals(Long.valueOf(fromYear2020), facets.getYearBuckets().get(2020));
+    }
+
+    private static void assertFacetsEqual(CarFacets expected, CarFacets actual) {
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.getMakes(), actual.getMakes());
+        assertEquals(expected.getModels(), actual.getModels());
+        assertEquals(expected.getYearBuckets(), actual.getYearBuckets());
+        assertEquals(expected.getConditions(), actual.getConditions());
+        assertEquals(expected.getPriceBands(), actual.getPriceBands());
+    }
+
+    private static List<Car> randomCars(int count) {
+        Random random = new Random(42);
+        ConditionCar[] conditions = ConditionCar.values();
+        List<Car> cars = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            cars.add(new Car(String.valueOf(i), MAKES[random.nextInt(MAKES.length)], "Model" + random.nextInt(50),
+                    1990 + random.nextInt(35), random.nextInt(10000) * 10.0, conditions[random.nextInt(conditions.length)].name()));
+        }
+        return cars;
+    }
+}
@@ -2,6 +2,7 @@ package org.carshop.servicesTest;
 
 import org.carshop.model.Car;
 import org.carshop.repositories.CarRepository;
+import org.carshop.repositories.Page;
 import org.carshop.services.CarService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,9 +27,11 @@ public class CarServiceTest {
 
     @Test
     public void testAddCar() {
+        when(carRepository.nextId()).thenReturn("7");
+
         carService.addCar("Toyota", "Corolla", 2020, 20000, "New");
 
-        verify(carRepository).save(any(Car.class));
+        verify(carRepository).save(argThat(car -> "7".equals(car.getId())));
     }
 
     @Test
@@ -80,7 +83,7 @@ public class CarServiceTest {
         Car car2 = new Car("2", "Toyota", "Camry", 2019, 22000, "Used");
         List<Car> cars = Arrays.asList(car1, car2);
 
-        when(carRepository.findAll()).thenReturn(cars);
+        when(carRepository.findByMake("Toyota")).thenReturn(cars);
 
         List<Car> result = carService.getCarsByMake("Toyota");
 
@@ -93,7 +96,7 @@ public class CarServiceTest {
         Car car2 = new Car("2", "Honda", "Civic", 2019, 18000, "Used");
         List<Car> cars = Collections.singletonList(car1);
 
-        when(carRepository.findAll()).thenReturn(cars);
+        when(carRepository.findByModel("Corolla")).thenReturn(cars);
 
         List<Car> result = carService.getCarsByModel("Corolla");
 
@@ -105,7 +108,7 @@ public class CarServiceTest {
         Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000, "New");
         List<Car> cars = Collections.singletonList(car1);
 
-        when(carRepository.findAll()).thenReturn(cars);
+        when(carRepository.findByYear(2020)).thenReturn(cars);
 
         List<Car> result = carService.getCarsByYear(2020);
 
@@ -118,7 +121,7 @@ public class CarServiceTest {
         Car car2 = new Car("2", "Honda", "Civic", 2019, 18000, "Used");
         List<Car> cars = Arrays.asList(car2, car1);
 
-        when(carRepository.findAll()).thenReturn(Arrays.asList(car1, car2));
+        when(carRepository.findAllOrderByPrice(true)).thenReturn(Arrays.asList(car2, car1));
 
         List<Car> result = carService.sortCarsByPrice(true);
 
@@ -131,7 +134,7 @@ public class CarServiceTest {
         Car car2 = new Car("2", "Honda", "Civic", 2019, 18000, "Used");
         List<Car> cars = Arrays.asList(car1, car2);
 
-        when(carRepository.findAll()).thenReturn(Arrays.asList(car1, car2));
+        when(carRepository.findAllOrderByPrice(false)).thenReturn(Arrays.asList(car1, car2));
 
         List<Car> result = carService.sortCarsByPrice(false);
 
@@ -139,16 +142,36 @@ public class CarServiceTest {
     }
 
     @Test
-    public void testUpdateCarIndices() {
+    public void testGetCarsByPriceBetween() {
+        Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000, "New");
+        List<Car> cars = Collections.singletonList(car1);
+
+        when(carRepository.findByPriceBetween(15000, 25000)).thenReturn(cars);
+
+        List<Car> result = carService.getCarsByPriceBetween(15000, 25000);
+
+        assertEquals(cars, result);
+    }
+
+    @Test
+    public void testGetCheapestAndMostExpensiveCars() {
         Car car1 = new Car("1", "Toyota", "Corolla", 2020, 20000, "New");
         Car car2 = new Car("2", "Honda", "Civic", 2019, 18000, "Used");
-        List<Car> cars = Arrays.asList(car1, car2);
 
-        when(carRepository.findAll()).thenReturn(cars);
+        when(carRepository.cheapest(1)).thenReturn(Collections.singletonList(car2));
+        when(carRepository.mostExpensive(1)).thenReturn(Collections.singletonList(car1));
+
+        assertEquals(Collections.singletonList(car2), carService.getCheapestCars(1));
+        assertEquals(Collections.singletonList(car1), carService.getMostExpensiveCars(1));
+    }
+
+    @Test
+    public void testGetCarsPage() {
+        Car car = new Car("1", "Toyota", "Corolla", 2020, 20000, "New");
+        Page<Car> page = new Page<>(Collections.singletonList(car), "next");
 
-        carService.updateCarIndices();
+        when(carRepository.findPage("cursor", 5)).thenReturn(page);
 
-        verify(carRepository).update(car1);
-        verify(carRepository).update(car2);
+        assertSame(page, carService.getCarsPage("cursor", 5));
     }
 }
@@ -1,8 +1,10 @@
 package org.carshop.servicesTest;
 
 import org.carshop.model.*;
+import org.carshop.repositories.InMemoryOrderRepository;
 import org.carshop.repositories.OrderRepository;
 import org.carshop.services.OrderService;
+import org.carshop.services.OrderTransitionResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -12,6 +14,11 @@ import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -44,7 +51,7 @@ public class OrderServiceTest {
 
     @Test
     void testIsCarBooked() {
-        when(orderRepository.findAll()).thenReturn(orderList);
+        when(orderRepository.findActiveOrderByCarId("1")).thenReturn(order1);
         assertTrue(orderService.isCarBooked(car1));
         assertFalse(orderService.isCarBooked(new Car("3", "Honda", "Civic", 2022, 28000, "USED")));
     }
@@ -65,6 +72,13 @@ public class OrderServiceTest {
         assertTrue(orders.contains(order2));
     }
 
+    @Test
+    void testGetOrdersByClientId() {
+        when(orderRepository.findByClientId("1")).thenReturn(orderList);
+        List<Order> orders = orderService.getOrdersByClientId("1");
+        assertEquals(orderList, orders);
+    }
+
     @Test
     void testGetOrderById() {
         when(orderRepository.findById("1")).thenReturn(order1);
@@ -87,4 +101,98 @@ public class OrderServiceTest {
         orderService.deleteOrder("1");
         verify(orderRepository, times(1)).delete("1");
     }
+
+    @Test
+    void testCreateOrderRejectsBookedCar() {
+        when(orderRepository.findActiveOrderByCarId("1")).thenReturn(order2);
+        assertNull(orderService.createOrder(client1, car1));
+        verify(orderRepository, never()).save(any(Order.class));
+        assertEquals(CarAvailability.SOLD, orderService.getCarAvailability(car1));
+    }
+
+    @Test
+    void testConcurrentCreateOrderNeverOversells() throws Exception {
+        OrderService service = new OrderService(new InMemoryOrderRepository());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < 64; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (service.createOrder(client1, car1) != null) {
+                    created.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+        assertEquals(1, service.getAllOrders().size());
+    }
+
+    @Test
+    void testChangeOrderStatusMovesCarThroughStates() {
+        OrderService service = new OrderService(new InMemoryOrderRepository());
+        Order first = service.createOrder(client1, car1);
+        assertEquals(CarAvailability.RESERVED, service.getCarAvailability(car1));
+
+        assertEquals(OrderTransitionResult.APPLIED, service.cancel(first));
+        assertEquals(CarAvailability.AVAILABLE, service.getCarAvailability(car1));
+
+        Order second = service.createOrder(client1, car1);
+        assertNotNull(second);
+        Order canceled = service.getOrderById(first.getId());
+        assertEquals(OrderTransitionResult.CAR_UNAVAILABLE, service.changeOrderStatus(canceled, OrderStatus.PENDING));
+        assertEquals(OrderStatus.CANCELED, service.getOrderById(first.getId()).getStatus());
+        assertEquals(CarAvailability.RESERVED, service.getCarAvailability(car1));
+
+        assertEquals(OrderTransitionResult.APPLIED, service.complete(second));
+        assertEquals(CarAvailability.SOLD, service.getCarAvailability(car1));
+        assertNull(service.createOrder(client1, car1));
+
+        service.deleteOrder(second.getId());
+        assertEquals(CarAvailability.AVAILABLE, service.getCarAvailability(car1));
+    }
+
+    @Test
+    void testStaleOrderCannotOverwriteNewerStatus() {
+        OrderService service = new OrderService(new InMemoryOrderRepository());
+        Order created = service.createOrder(client1, car1);
+        Order firstCopy = service.getOrderById(created.getId());
+        Order secondCopy = service.getOrderById(created.getId());
+
+        assertEquals(OrderTransitionResult.APPLIED, service.complete(firstCopy));
+        assertEquals(OrderTransitionResult.CONFLICT, service.cancel(secondCopy));
+
+        Order stored = service.getOrderById(created.getId());
+        assertEquals(OrderStatus.COMPLETED, stored.getStatus());
+        assertEquals(1, stored.getVersion());
+        assertEquals(OrderStatus.PENDING, firstCopy.getStatus());
+        assertEquals(CarAvailability.SOLD, service.getCarAvailability(car1));
+    }
+
+    @Test
+    void testInvalidTransitionIsRejected() {
+        OrderService service = new OrderService(new InMemoryOrderRepository());
+        Order created = service.createOrder(client1, car1);
+
+        assertEquals(OrderTransitionResult.INVALID_TRANSITION, service.changeOrderStatus(created, OrderStatus.PENDING));
+        assertEquals(OrderTransitionResult.APPLIED, service.cancel(created));
+        Order canceled = service.getOrderById(created.getId());
+        assertEquals(OrderTransitionResult.INVALID_TRANSITION, service.complete(canceled));
+        assertEquals(1, service.getOrderById(created.getId()).getVersion());
+        assertEquals(CarAvailability.AVAILABLE, service.getCarAvailability(car1));
+    }
+
+    @Test
+    void testChangeOrderStatusReportsDeletedOrder() {
+        when(orderRepository.compareAndSetStatus("1", 0, OrderStatus.COMPLETED)).thenReturn(false);
+        when(orderRepository.findById("1")).thenReturn(null);
+        assertEquals(OrderTransitionResult.NOT_FOUND, orderService.complete(order1));
+    }
 }
@@ -0,0 +1,102 @@
+package org.carshop.servicesTest;
+
+import org.carshop.model.*;
+import org.carshop.repositories.InMemoryCarRepository;
+import org.carshop.repositories.InMemoryOrderRepository;
+import org.carshop.repositories.events.ObservableCarRepository;
+import org.carshop.repositories.events.ObservableOrderRepository;
+import org.carshop.services.OrderService;
+import org.carshop.services.OrderTransitionResult;
+import org.carshop.services.stats.ShopStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShopStatisticsTest {
+
+    private ObservableCarRepository carRepository;
+    private ObservableOrderRepository orderRepository;
+    private User client;
+    private Car corolla;
+    private Car civic;
+
+    @BeforeEach
+    public void setUp() {
+        carRepository = new ObservableCarRepository(new InMemoryCarRepository());
+        orderRepository = new ObservableOrderRepository(new InMemoryOrderRepository());
+        client = new User("1", "client", "password", Role.CLIENT);
+        corolla = new Car("1", "Toyota", "Corolla", 2020, 20000.10, "NEW");
+        civic = new Car("2", "Honda", "Civic", 2019, 18000.20, "USED");
+    }
+
+    @Test
+    public void testSubscribeCountsExistingCarsAndOrders() {
+        carRepository.saveAll(Arrays.asList(corolla, civic));
+        orderRepository.save(new Order("1", client, corolla, new Date(), OrderStatus.COMPLETED));
+
+        ShopStatistics statistics = ShopStatistics.subscribe(carRepository, orderRepository);
+
+        assertEquals(2, statistics.getCarCount());
+        assertEquals(1, statistics.getCarCount(ConditionCar.NEW));
+        assertEquals(1, statistics.getCarCountByMake("Honda"));
+        assertEquals(38000.30, statistics.getInventoryValue(), 1e-9);
+        assertEquals(1, statistics.getOrderCount(OrderStatus.COMPLETED));
+        assertEquals(20000.10, statistics.getCompletedRevenue(), 1e-9);
+    }
+
+    @Test
+    public void testCarWritesUpdateCounters() {
+        ShopStatistics statistics = ShopStatistics.subscribe(carRepository, orderRepository);
+        carRepository.save(corolla);
+        carRepository.save(civic);
+
+        carRepository.update(new Car("1", "Toyota", "Camry", 2021, 25000, "DEMO"));
+        carRepository.delete("2");
+        carRepository.delete("3");
+
+        assertEquals(1, statistics.getCarCount());
+        assertEquals(0, statistics.getCarCount(ConditionCar.NEW));
+        assertEquals(1, statistics.getCarCount(ConditionCar.DEMO));
+        assertEquals(0, statistics.getCarCountByYear(2020));
+        assertEquals(1, statistics.getCarCountByYear(2021));
+        assertEquals(0, statistics.getCarCountByMake("Honda"));
+        assertEquals(25000, statistics.getInventoryValue(), 1e-9);
+        assertEquals(1, statistics.getCarCountsByMake().size());
+    }
+
+    @Test
+    public void testOrderTransitionsUpdateStatusCountsAndRevenue() {
+        ShopStatistics statistics = ShopStatistics.subscribe(carRepository, orderRepository);
+        OrderService orderService = new OrderService(orderRepository);
+        Order order = orderService.createOrder(client, corolla);
+        assertEquals(1, statistics.getOrderCount(OrderStatus.PENDING));
+
+        assertEquals(OrderTransitionResult.APPLIED, orderService.complete(order));
+        assertEquals(0, statistics.getOrderCount(OrderStatus.PENDING));
+        assertEquals(1, statistics.getOrderCount(OrderStatus.COMPLETED));
+        assertEquals(20000.10, statistics.getCompletedRevenue(), 1e-9);
+
+        assertEquals(OrderTransitionResult.APPLIED, orderService.cancel(orderService.getOrderById(order.getId())));
+        assertEquals(1, statistics.getOrderCount(OrderStatus.CANCELED));
+        assertEquals(0, statistics.getCompletedRevenue(), 1e-9);
+
+        orderService.deleteOrder(order.getId());
+        assertEquals(0, statistics.getOrderCount(OrderStatus.CANCELED));
+    }
+
+    @Test
+    public void testFailedStatusChangeIsNotCounted() {
+        ShopStatistics statistics = ShopStatistics.subscribe(carRepository, orderRepository);
+        orderRepository.save(new Order("1", client, corolla, new Date(), OrderStatus.PENDING));
+
+        assertFalse(orderRepository.compareAndSetStatus("1", 5, OrderStatus.COMPLETED));
+
+        assertEquals(1, statistics.getOrderCount(OrderStatus.PENDING));
+        assertEquals(0, statistics.getOrderCount(OrderStatus.COMPLETED));
+        assertEquals(0, statistics.getCompletedRevenue(), 1e-9);
+    }
+}
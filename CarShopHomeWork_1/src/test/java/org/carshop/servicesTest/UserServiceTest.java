@@ -37,13 +37,13 @@ public class UserServiceTest {
         String password = "password";
         Role role = Role.CLIENT;
 
-        when(userRepository.findByUsername(username)).thenReturn(null);
-        when(userRepository.count()).thenReturn(1L);
+        when(userRepository.saveIfUsernameAbsent(any(User.class))).thenReturn(true);
+        when(userRepository.nextId()).thenReturn("2");
 
         boolean result = userService.registerUser(username, password, role);
 
         assertTrue(result);
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveIfUsernameAbsent(argThat(user -> "2".equals(user.getId()) && username.equals(user.getUsername())));
     }
 
     @Test
@@ -52,8 +52,7 @@ public class UserServiceTest {
         String password = "password";
         Role role = Role.CLIENT;
 
-        User existingUser = new User("1", username, password, role);
-        when(userRepository.findByUsername(username)).thenReturn(existingUser);
+        when(userRepository.saveIfUsernameAbsent(any(User.class))).thenReturn(false);
 
         boolean result = userService.registerUser(username, password, role);
 
@@ -108,7 +107,8 @@ public class UserServiceTest {
         User user2 = new User("2", "user2", "password", Role.ADMIN);
         List<User> users = Arrays.asList(user1, user2);
 
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.stream()).thenReturn(users.stream());
+        when(userRepository.stream(any())).thenCallRealMethod();
 
         List<User> result = userService.getUsersByName("user1");
 
@@ -121,7 +121,8 @@ public class UserServiceTest {
         User user2 = new User("2", "user2", "password", Role.CLIENT);
         List<User> users = Arrays.asList(user1, user2);
 
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.stream()).thenReturn(users.stream());
+        when(userRepository.stream(any())).thenCallRealMethod();
 
         List<User> result = userService.getUsersByRole(Role.CLIENT);
 
@@ -136,7 +137,8 @@ public class UserServiceTest {
         user2.setPurchaseCount(10);
         List<User> users = Arrays.asList(user2, user1);
 
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.stream()).thenReturn(users.stream());
+        when(userRepository.stream(any())).thenCallRealMethod();
 
         List<User> result = userService.sortUsersByPurchases(true);
 